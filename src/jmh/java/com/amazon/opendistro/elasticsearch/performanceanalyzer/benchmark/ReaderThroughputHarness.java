@@ -0,0 +1,167 @@
+/*
+ * Copyright 2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ *  A copy of the License is located at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed
+ *  on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.benchmark;
+
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.AppContext;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.metrics.MetricsConfiguration;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.metrics.PerformanceAnalyzerMetrics;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.metricsdb.MetricsDB;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.reader.ReaderMetricsProcessor;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Drives {@link ReaderMetricsProcessor#processMetrics} over event files written by the
+ * {@link WriterLoadGenerator}, one sampling window at a time, and reports for every window how long
+ * the reader took, the heap high-water mark while it ran and the size of the MetricsDB it produced.
+ *
+ * <p>The windows are replayed back to back rather than every 5 seconds, and the reader is run in
+ * this JVM, so run it with the reader's production heap settings to get representative numbers:
+ * {@code ./gradlew readerLoadTest -PreaderLoadArgs=shards=10000,threads=800,windows=24}.
+ *
+ * <p>Arguments, all of the form name=value and all optional: shards, threads, nodes, windows, dir
+ * (the metrics location to write to) and output (the JSON report).
+ */
+public class ReaderThroughputHarness {
+  private final SyntheticMetricsGenerator generator;
+  private final String metricsLocation;
+  private final List<MemoryPoolMXBean> heapPools = new ArrayList<>();
+
+  public ReaderThroughputHarness(SyntheticMetricsGenerator generator, String metricsLocation) {
+    this.generator = generator;
+    this.metricsLocation = metricsLocation;
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.HEAP) {
+        heapPools.add(pool);
+      }
+    }
+  }
+
+  /**
+   * Writes and processes the given number of windows.
+   *
+   * @param windows The number of sampling windows to replay.
+   * @return One report entry per window.
+   */
+  public List<Map<String, Object>> run(int windows) throws Exception {
+    Files.createDirectories(Paths.get(metricsLocation));
+    WriterLoadGenerator writer = new WriterLoadGenerator(generator, metricsLocation);
+    ReaderMetricsProcessor processor = new ReaderMetricsProcessor(metricsLocation, true, new AppContext());
+    Set<String> dbFiles = new LinkedHashSet<>();
+    List<Map<String, Object>> report = new ArrayList<>(windows);
+
+    long firstWindow = PerformanceAnalyzerMetrics.getTimeInterval(
+        System.currentTimeMillis(), MetricsConfiguration.SAMPLING_INTERVAL);
+    try {
+      for (int i = 0; i < windows; i++) {
+        long windowStart = firstWindow + (long) i * MetricsConfiguration.SAMPLING_INTERVAL;
+        int events = writer.writeWindow(windowStart);
+        long fileSize = new File(metricsLocation, String.valueOf(windowStart)).length();
+
+        resetHeapPeaks();
+        long start = System.nanoTime();
+        // The reader always reads the file three windows behind the current time.
+        processor.processMetrics(metricsLocation, windowStart + 3L * MetricsConfiguration.SAMPLING_INTERVAL);
+        long processNanos = System.nanoTime() - start;
+        processor.trimOldSnapshots();
+        processor.trimOldMetricsDBFiles();
+        long totalNanos = System.nanoTime() - start;
+
+        long dbSize = 0;
+        Map.Entry<Long, MetricsDB> db = processor.getMetricsDB();
+        if (db != null) {
+          dbFiles.add(db.getValue().getDBFilePath());
+          dbSize = new File(db.getValue().getDBFilePath()).length();
+        }
+
+        Map<String, Object> entry = new LinkedHashMap<>();
+        entry.put("window", windowStart);
+        entry.put("events", events);
+        entry.put("eventFileBytes", fileSize);
+        entry.put("processMetricsMillis", processNanos / 1_000_000d);
+        entry.put("totalMillis", totalNanos / 1_000_000d);
+        entry.put("heapHighWaterBytes", heapPeak());
+        entry.put("metricsDBBytes", dbSize);
+        report.add(entry);
+        System.out.println(entry);
+      }
+    } finally {
+      processor.deleteDBs();
+      processor.shutdown();
+      for (String dbFile : dbFiles) {
+        Files.deleteIfExists(Paths.get(dbFile));
+      }
+    }
+    return report;
+  }
+
+  private void resetHeapPeaks() {
+    for (MemoryPoolMXBean pool : heapPools) {
+      pool.resetPeakUsage();
+    }
+  }
+
+  /**
+   * The sum of the peaks of the individual heap pools. The pools need not peak at the same moment,
+   * so this is an upper bound of the heap used while the window was processed.
+   */
+  private long heapPeak() {
+    long peak = 0;
+    for (MemoryPoolMXBean pool : heapPools) {
+      peak += pool.getPeakUsage().getUsed();
+    }
+    return peak;
+  }
+
+  public static void main(String[] args) throws Exception {
+    Map<String, String> parsed = WriterLoadGenerator.parseArgs(args);
+    int shards = WriterLoadGenerator.intArg(parsed, "shards", 1000);
+    int threads = WriterLoadGenerator.intArg(parsed, "threads", 100);
+    int nodes = WriterLoadGenerator.intArg(parsed, "nodes", 3);
+    int windows = WriterLoadGenerator.intArg(parsed, "windows", 12);
+    String dir = parsed.getOrDefault("dir", Files.createTempDirectory("pa_reader_load").toString());
+    Path output = Paths.get(parsed.getOrDefault("output", Paths.get("build", "reports", "reader", "results.json").toString()));
+
+    ReaderThroughputHarness harness =
+        new ReaderThroughputHarness(new SyntheticMetricsGenerator(shards, threads, nodes), dir);
+    List<Map<String, Object>> windowReports = harness.run(windows);
+
+    Map<String, Object> results = new LinkedHashMap<>();
+    results.put("shards", shards);
+    results.put("threads", threads);
+    results.put("nodes", nodes);
+    results.put("maxHeapBytes", Runtime.getRuntime().maxMemory());
+    results.put("windows", windowReports);
+    if (output.getParent() != null) {
+      Files.createDirectories(output.getParent());
+    }
+    new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(output.toFile(), results);
+    System.out.println("Results written to " + output.toAbsolutePath());
+  }
+}
@@ -0,0 +1,449 @@
+/*
+ * Copyright 2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ *  A copy of the License is located at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed
+ *  on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.benchmark;
+
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.metrics.AllMetrics;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.metrics.PerformanceAnalyzerMetrics;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.metricsdb.Metric;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.metricsdb.MetricsDB;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.reader.ClusterDetailsEventProcessor;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.reader.MemoryDBSnapshot;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.reader.OSMetricsSnapshot;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.reader.ShardRequestMetricsSnapshot;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.reader.ShardRequestTracker;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.reader_writer_shared.Event;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.reader_writer_shared.EventLog;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.jooq.BatchBindStep;
+
+/**
+ * Generates synthetic, but structurally realistic, writer output and reader state for a single
+ * node.
+ *
+ * <p>The cardinality is controlled by the number of shards hosted on the node, the number of
+ * Elasticsearch threads that are active in a window and the number of nodes in the cluster. The
+ * event formats follow what the writer emits (see src/test/resources/reader for real samples), so
+ * the generated events go through the same parsing paths in the reader as the real ones. A fixed
+ * seed keeps the data identical across runs so that numbers from different releases are comparable.
+ */
+public class SyntheticMetricsGenerator {
+  public static final long DEFAULT_SEED = 0xC0FFEEL;
+  public static final int SHARDS_PER_INDEX = 20;
+  public static final int REQUESTS_PER_THREAD = 2;
+  public static final int HTTP_REQUESTS_PER_THREAD_POOL = 10;
+  public static final int MASTER_TASKS = 10;
+
+  private static final String NODE_NAME = "node-0";
+  private static final int TID_BASE = 10000;
+  private static final long RID_BASE = 800000L;
+
+  private final int shards;
+  private final int threads;
+  private final int nodes;
+  private final int indices;
+  private final long seed;
+
+  public SyntheticMetricsGenerator(int shards, int threads, int nodes) {
+    this(shards, threads, nodes, DEFAULT_SEED);
+  }
+
+  public SyntheticMetricsGenerator(int shards, int threads, int nodes, long seed) {
+    if (shards < 1 || threads < 1 || nodes < 1) {
+      throw new IllegalArgumentException(
+          String.format("shards(%d), threads(%d) and nodes(%d) must be positive", shards, threads, nodes));
+    }
+    this.shards = shards;
+    this.threads = threads;
+    this.nodes = nodes;
+    this.indices = (shards + SHARDS_PER_INDEX - 1) / SHARDS_PER_INDEX;
+    this.seed = seed;
+  }
+
+  public int getShards() {
+    return shards;
+  }
+
+  public int getThreads() {
+    return threads;
+  }
+
+  public int getNodes() {
+    return nodes;
+  }
+
+  public String indexName(int shard) {
+    return "index_" + (shard % indices);
+  }
+
+  public String shardId(int shard) {
+    return String.valueOf(shard / indices);
+  }
+
+  public String threadId(int thread) {
+    return String.valueOf(TID_BASE + thread);
+  }
+
+  public String threadName(int thread) {
+    String pool = thread % 2 == 0 ? "write" : "search";
+    return "elasticsearch[" + NODE_NAME + "][" + pool + "][T#" + thread + "]";
+  }
+
+  public String nodeId(int node) {
+    return "node-" + node;
+  }
+
+  public String nodeIp(int node) {
+    return "10.0." + (node / 250) + "." + (node % 250 + 1);
+  }
+
+  /**
+   * Generates all the events the writer would emit over one rotation window.
+   *
+   * @param windowStart The start of the window, in milliseconds.
+   * @return The events in the order the writer would typically emit them.
+   */
+  public List<Event> generateEvents(long windowStart) {
+    Random random = new Random(seed);
+    List<Event> events = new ArrayList<>();
+    events.add(nodeDetailsEvent(windowStart));
+    events.add(heapEvent(windowStart, random));
+    addShardStatsEvents(events, windowStart, random);
+    addOSEvents(events, windowStart, random);
+    addShardRequestEvents(events, windowStart, random);
+    addHttpEvents(events, windowStart, random);
+    addMasterTaskEvents(events, windowStart, random);
+    return events;
+  }
+
+  /**
+   * Serializes the events into the on-disk format read by
+   * {@link com.amazon.opendistro.elasticsearch.performanceanalyzer.reader_writer_shared.EventLogFileHandler}.
+   */
+  public static byte[] serialize(List<Event> events) {
+    EventLog eventLog = new EventLog();
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    for (Event event : events) {
+      byte[] bytes = eventLog.write(event);
+      out.write(bytes, 0, bytes.length);
+    }
+    return out.toByteArray();
+  }
+
+  public List<ClusterDetailsEventProcessor.NodeDetails> generateNodeDetails(AllMetrics.NodeRole selfRole) {
+    List<ClusterDetailsEventProcessor.NodeDetails> nodeDetails = new ArrayList<>(nodes);
+    for (int i = 0; i < nodes; i++) {
+      AllMetrics.NodeRole role = i == 0 ? selfRole : AllMetrics.NodeRole.DATA;
+      nodeDetails.add(new ClusterDetailsEventProcessor.NodeDetails(
+          role, nodeId(i), nodeIp(i), role == AllMetrics.NodeRole.ELECTED_MASTER));
+    }
+    return nodeDetails;
+  }
+
+  public void fillOSMetricsSnapshot(OSMetricsSnapshot snapshot, long updateTime) {
+    Random random = new Random(seed);
+    Map<String, String> dimensions = new HashMap<>();
+    for (int t = 0; t < threads; t++) {
+      Map<String, Double> metrics = new HashMap<>();
+      for (AllMetrics.OSMetrics metric : AllMetrics.OSMetrics.values()) {
+        metrics.put(metric.toString(), random.nextDouble() * 100);
+      }
+      dimensions.put(OSMetricsSnapshot.Fields.tid.toString(), threadId(t));
+      dimensions.put(OSMetricsSnapshot.Fields.tName.toString(), threadName(t));
+      snapshot.putMetric(metrics, dimensions, updateTime);
+    }
+  }
+
+  /**
+   * Gives the snapshot's request tracker the start and finish of every shard request of the window,
+   * the way the reader does with the shard request events.
+   */
+  public void fillShardRequestSnapshot(ShardRequestMetricsSnapshot snapshot, long windowStart) {
+    Random random = new Random(seed);
+    ShardRequestTracker tracker = snapshot.getRequestTracker();
+    for (int t = 0; t < threads; t++) {
+      for (int r = 0; r < REQUESTS_PER_THREAD; r++) {
+        int shard = (t * REQUESTS_PER_THREAD + r) % shards;
+        String rid = String.valueOf(rid(t, r));
+        long st = windowStart + random.nextInt(4000);
+        long et = st + 1 + random.nextInt(1000);
+        // Only the bulk requests carry a doc count, as in the writer events.
+        Long docCount = r % 2 == 0 ? Long.valueOf(random.nextInt(500)) : null;
+        tracker.start(shardId(shard), indexName(shard), rid, threadId(t), operation(r), shardRole(shard), st, docCount);
+        tracker.finish(shardId(shard), indexName(shard), rid, threadId(t), operation(r), shardRole(shard), et);
+      }
+    }
+  }
+
+  /**
+   * Creates one row per shard for a node metric snapshot keyed by index and shard, such as
+   * {@link AllMetrics.MetricName#SHARD_STATS}. Any other dimension is filled with a constant.
+   */
+  public Object[][] generateShardRows(MemoryDBSnapshot snapshot) {
+    Random random = new Random(seed);
+    int dimensions = snapshot.getDimensions().size();
+    int metrics = snapshot.getMetrics().size();
+    Object[][] rows = new Object[shards][];
+    for (int s = 0; s < shards; s++) {
+      Object[] row = new Object[dimensions + metrics];
+      for (int d = 0; d < dimensions; d++) {
+        String name = snapshot.getDimensions().get(d).getName();
+        if (AllMetrics.CommonDimension.INDEX_NAME.toString().equals(name)) {
+          row[d] = indexName(s);
+        } else if (AllMetrics.CommonDimension.SHARD_ID.toString().equals(name)) {
+          row[d] = shardId(s);
+        } else {
+          row[d] = name;
+        }
+      }
+      for (int m = 0; m < metrics; m++) {
+        row[dimensions + m] = (double) random.nextInt(1 << 20);
+      }
+      rows[s] = row;
+    }
+    return rows;
+  }
+
+  /**
+   * Populates a MetricsDB the way the reader would after emitting one window: OS metrics
+   * aggregated per shard and operation, and heap and thread pool metrics for the node.
+   */
+  public void fillMetricsDB(MetricsDB db) throws Exception {
+    Random random = new Random(seed);
+    List<String> shardDims = Arrays.asList(
+        AllMetrics.CommonDimension.SHARD_ID.toString(),
+        AllMetrics.CommonDimension.INDEX_NAME.toString(),
+        AllMetrics.CommonDimension.OPERATION.toString(),
+        AllMetrics.CommonDimension.SHARD_ROLE.toString());
+    for (AllMetrics.OSMetrics osMetric : AllMetrics.OSMetrics.values()) {
+      Metric<Double> metric = new Metric<>(osMetric.toString(), 0d);
+      db.createMetric(metric, shardDims);
+      BatchBindStep handle = db.startBatchPut(metric, shardDims);
+      for (int s = 0; s < shards; s++) {
+        for (int op = 0; op < REQUESTS_PER_THREAD; op++) {
+          double value = random.nextDouble() * 100;
+          handle.bind(shardId(s), indexName(s), operation(op), shardRole(s), value, value, value, value);
+        }
+      }
+      handle.execute();
+    }
+
+    List<String> heapDims = Arrays.asList(AllMetrics.HeapDimension.MEM_TYPE.toString());
+    for (AllMetrics.HeapValue heapValue : AllMetrics.HeapValue.values()) {
+      Metric<Double> metric = new Metric<>(heapValue.toString(), 0d);
+      db.createMetric(metric, heapDims);
+      BatchBindStep handle = db.startBatchPut(metric, heapDims);
+      for (AllMetrics.GCType gcType : AllMetrics.GCType.values()) {
+        double value = random.nextInt(1 << 30);
+        handle.bind(gcType.toString(), value, value, value, value);
+      }
+      handle.execute();
+    }
+
+    List<String> threadPoolDims = Arrays.asList(AllMetrics.ThreadPoolDimension.THREAD_POOL_TYPE.toString());
+    for (AllMetrics.ThreadPoolValue threadPoolValue : AllMetrics.ThreadPoolValue.values()) {
+      Metric<Double> metric = new Metric<>(threadPoolValue.toString(), 0d);
+      db.createMetric(metric, threadPoolDims);
+      BatchBindStep handle = db.startBatchPut(metric, threadPoolDims);
+      for (AllMetrics.ThreadPoolType threadPoolType : AllMetrics.ThreadPoolType.values()) {
+        double value = random.nextInt(100);
+        handle.bind(threadPoolType.toString(), value, value, value, value);
+      }
+      handle.execute();
+    }
+    db.commit();
+  }
+
+  private Event nodeDetailsEvent(long windowStart) {
+    StringBuilder value = new StringBuilder();
+    value.append(currentTimeJson(windowStart))
+        .append(PerformanceAnalyzerMetrics.sMetricNewLineDelimitor)
+        .append("{\"overrides\": {\"enabled\": [], \"disabled\": []}}")
+        .append(PerformanceAnalyzerMetrics.sMetricNewLineDelimitor)
+        .append(windowStart);
+    for (ClusterDetailsEventProcessor.NodeDetails node : generateNodeDetails(AllMetrics.NodeRole.DATA)) {
+      value.append(PerformanceAnalyzerMetrics.sMetricNewLineDelimitor)
+          .append("{\"").append(AllMetrics.NodeDetailColumns.ID).append("\":\"").append(node.getId())
+          .append("\",\"").append(AllMetrics.NodeDetailColumns.HOST_ADDRESS).append("\":\"")
+          .append(node.getHostAddress())
+          .append("\",\"").append(AllMetrics.NodeDetailColumns.ROLE).append("\":\"").append(node.getRole())
+          .append("\",\"").append(AllMetrics.NodeDetailColumns.IS_MASTER_NODE).append("\":")
+          .append(node.getIsMasterNode()).append("}");
+    }
+    return event(windowStart, value.toString(), PerformanceAnalyzerMetrics.sNodesPath);
+  }
+
+  private Event heapEvent(long windowStart, Random random) {
+    StringBuilder value = new StringBuilder(currentTimeJson(windowStart));
+    for (AllMetrics.GCType gcType : AllMetrics.GCType.values()) {
+      value.append(PerformanceAnalyzerMetrics.sMetricNewLineDelimitor)
+          .append("{\"").append(AllMetrics.HeapDimension.MEM_TYPE).append("\":\"").append(gcType).append("\"");
+      for (AllMetrics.HeapValue heapValue : AllMetrics.HeapValue.values()) {
+        value.append(",\"").append(heapValue).append("\":").append(random.nextInt(1 << 30));
+      }
+      value.append("}");
+    }
+    return event(windowStart, value.toString(), PerformanceAnalyzerMetrics.sHeapPath);
+  }
+
+  private void addShardStatsEvents(List<Event> events, long windowStart, Random random) {
+    for (int s = 0; s < shards; s++) {
+      StringBuilder value = new StringBuilder(currentTimeJson(windowStart));
+      value.append(PerformanceAnalyzerMetrics.sMetricNewLineDelimitor).append("{");
+      String delimiter = "";
+      for (AllMetrics.ShardStatsValue statsValue : AllMetrics.ShardStatsValue.values()) {
+        value.append(delimiter).append("\"").append(statsValue).append("\":").append(random.nextInt(1 << 20));
+        delimiter = ",";
+      }
+      value.append("}");
+      events.add(event(windowStart, value.toString(), PerformanceAnalyzerMetrics.sIndicesPath,
+          indexName(s), shardId(s)));
+    }
+  }
+
+  private void addOSEvents(List<Event> events, long windowStart, Random random) {
+    for (int t = 0; t < threads; t++) {
+      StringBuilder value = new StringBuilder(currentTime(windowStart + random.nextInt(5000)));
+      for (AllMetrics.OSMetrics metric : AllMetrics.OSMetrics.values()) {
+        PerformanceAnalyzerMetrics.addMetricEntry(value, metric.toString(), String.valueOf(random.nextDouble() * 100));
+      }
+      PerformanceAnalyzerMetrics.addMetricEntry(value, "threadName", threadName(t));
+      events.add(event(windowStart, value.toString(), PerformanceAnalyzerMetrics.sThreadsPath, threadId(t),
+          PerformanceAnalyzerMetrics.sOSPath));
+    }
+  }
+
+  private void addShardRequestEvents(List<Event> events, long windowStart, Random random) {
+    for (int t = 0; t < threads; t++) {
+      for (int r = 0; r < REQUESTS_PER_THREAD; r++) {
+        int shard = (t * REQUESTS_PER_THREAD + r) % shards;
+        String path = r % 2 == 0 ? PerformanceAnalyzerMetrics.sShardBulkPath : PerformanceAnalyzerMetrics.sShardQueryPath;
+        String rid = String.valueOf(rid(t, r));
+        long st = windowStart + random.nextInt(4000);
+        long et = st + 1 + random.nextInt(1000);
+
+        StringBuilder start = new StringBuilder(currentTime(st));
+        PerformanceAnalyzerMetrics.addMetricEntry(start, AllMetrics.CommonMetric.START_TIME.toString(), st);
+        if (r % 2 == 0) {
+          PerformanceAnalyzerMetrics.addMetricEntry(start, AllMetrics.ShardBulkMetric.ITEM_COUNT.toString(),
+              random.nextInt(500));
+        }
+        addShardDimensions(start, shard);
+        events.add(event(windowStart, start.toString(), PerformanceAnalyzerMetrics.sThreadsPath, threadId(t),
+            path, rid, PerformanceAnalyzerMetrics.START_FILE_NAME));
+
+        StringBuilder finish = new StringBuilder(currentTime(et));
+        PerformanceAnalyzerMetrics.addMetricEntry(finish, AllMetrics.CommonMetric.FINISH_TIME.toString(), et);
+        addShardDimensions(finish, shard);
+        PerformanceAnalyzerMetrics.addMetricEntry(finish, AllMetrics.CommonDimension.FAILED.toString(), "false");
+        events.add(event(windowStart, finish.toString(), PerformanceAnalyzerMetrics.sThreadsPath, threadId(t),
+            path, rid, PerformanceAnalyzerMetrics.FINISH_FILE_NAME));
+      }
+    }
+  }
+
+  private void addHttpEvents(List<Event> events, long windowStart, Random random) {
+    int requests = Math.max(1, threads / HTTP_REQUESTS_PER_THREAD_POOL);
+    for (int i = 0; i < requests; i++) {
+      String operation = i % 2 == 0 ? "bulk" : "search";
+      String rid = String.valueOf(RID_BASE / 2 + i);
+      long st = windowStart + random.nextInt(4000);
+      long et = st + 1 + random.nextInt(1000);
+
+      StringBuilder start = new StringBuilder(currentTime(st));
+      PerformanceAnalyzerMetrics.addMetricEntry(start, AllMetrics.HttpMetric.START_TIME.toString(), st);
+      PerformanceAnalyzerMetrics.addMetricEntry(start, AllMetrics.HttpDimension.INDICES.toString(), indexName(i));
+      PerformanceAnalyzerMetrics.addMetricEntry(start, AllMetrics.HttpMetric.HTTP_REQUEST_DOCS.toString(),
+          random.nextInt(10000));
+      events.add(event(windowStart, start.toString(), PerformanceAnalyzerMetrics.sThreadsPath,
+          PerformanceAnalyzerMetrics.sHttpPath, operation, rid, PerformanceAnalyzerMetrics.START_FILE_NAME));
+
+      StringBuilder finish = new StringBuilder(currentTime(et));
+      PerformanceAnalyzerMetrics.addMetricEntry(finish, AllMetrics.HttpMetric.FINISH_TIME.toString(), et);
+      PerformanceAnalyzerMetrics.addMetricEntry(finish, AllMetrics.HttpDimension.HTTP_RESP_CODE.toString(), 200);
+      PerformanceAnalyzerMetrics.addMetricEntry(finish, AllMetrics.HttpDimension.EXCEPTION.toString(), "");
+      events.add(event(windowStart, finish.toString(), PerformanceAnalyzerMetrics.sThreadsPath,
+          PerformanceAnalyzerMetrics.sHttpPath, operation, rid, PerformanceAnalyzerMetrics.FINISH_FILE_NAME));
+    }
+  }
+
+  private void addMasterTaskEvents(List<Event> events, long windowStart, Random random) {
+    String tid = threadId(threads);
+    for (int i = 0; i < MASTER_TASKS; i++) {
+      String insertOrder = String.valueOf(i);
+      long st = windowStart + random.nextInt(4000);
+      long et = st + 1 + random.nextInt(1000);
+
+      StringBuilder start = new StringBuilder(currentTime(st));
+      PerformanceAnalyzerMetrics.addMetricEntry(start,
+          AllMetrics.MasterMetricDimensions.MASTER_TASK_PRIORITY.toString(), "URGENT");
+      PerformanceAnalyzerMetrics.addMetricEntry(start, AllMetrics.CommonMetric.START_TIME.toString(), st);
+      PerformanceAnalyzerMetrics.addMetricEntry(start,
+          AllMetrics.MasterMetricDimensions.MASTER_TASK_TYPE.toString(), "shard-started");
+      PerformanceAnalyzerMetrics.addMetricEntry(start,
+          AllMetrics.MasterMetricDimensions.MASTER_TASK_METADATA.toString(), "synthetic");
+      PerformanceAnalyzerMetrics.addMetricEntry(start,
+          AllMetrics.MasterMetricDimensions.MASTER_TASK_QUEUE_TIME.toString(), random.nextInt(100));
+      events.add(event(windowStart, start.toString(), PerformanceAnalyzerMetrics.sThreadsPath, tid,
+          PerformanceAnalyzerMetrics.sMasterTaskPath, insertOrder, PerformanceAnalyzerMetrics.START_FILE_NAME));
+
+      StringBuilder finish = new StringBuilder(currentTime(et));
+      PerformanceAnalyzerMetrics.addMetricEntry(finish, AllMetrics.CommonMetric.FINISH_TIME.toString(), et);
+      events.add(event(windowStart, finish.toString(), PerformanceAnalyzerMetrics.sThreadsPath, tid,
+          PerformanceAnalyzerMetrics.sMasterTaskPath, insertOrder, PerformanceAnalyzerMetrics.FINISH_FILE_NAME));
+    }
+  }
+
+  private void addShardDimensions(StringBuilder value, int shard) {
+    PerformanceAnalyzerMetrics.addMetricEntry(value, AllMetrics.ShardBulkDimension.INDEX_NAME.toString(), indexName(shard));
+    PerformanceAnalyzerMetrics.addMetricEntry(value, AllMetrics.ShardBulkDimension.SHARD_ID.toString(), shardId(shard));
+    PerformanceAnalyzerMetrics.addMetricEntry(value, AllMetrics.ShardBulkDimension.PRIMARY.toString(),
+        String.valueOf(isPrimary(shard)));
+  }
+
+  private long rid(int thread, int request) {
+    return RID_BASE + (long) thread * REQUESTS_PER_THREAD + request;
+  }
+
+  private static String operation(int request) {
+    return request % 2 == 0 ? "shardbulk" : "shardquery";
+  }
+
+  private static boolean isPrimary(int shard) {
+    return shard % 2 == 0;
+  }
+
+  private static String shardRole(int shard) {
+    return isPrimary(shard) ? "primary" : "replica";
+  }
+
+  private static String currentTime(long time) {
+    return PerformanceAnalyzerMetrics.METRIC_CURRENT_TIME + PerformanceAnalyzerMetrics.sKeyValueDelimitor + time;
+  }
+
+  private static String currentTimeJson(long time) {
+    return "{\"" + PerformanceAnalyzerMetrics.METRIC_CURRENT_TIME + "\":" + time + "}";
+  }
+
+  private static Event event(long windowStart, String value, String... keys) {
+    return new Event(PerformanceAnalyzerMetrics.generatePath(windowStart, keys), value, windowStart);
+  }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ *  A copy of the License is located at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed
+ *  on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.benchmark;
+
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.metrics.MetricsConfiguration;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.metrics.PerformanceAnalyzerMetrics;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.reader_writer_shared.Event;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.reader_writer_shared.EventLog;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.reader_writer_shared.EventLogFileHandler;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Stands in for the writer: writes one event file per sampling window into a metrics location,
+ * going through the same tmp file and atomic rename the writer's purger uses, so that the reader
+ * can be exercised at production cardinalities without a live Elasticsearch.
+ *
+ * <p>Usage: {@code WriterLoadGenerator dir=/tmp/pa_load shards=10000 threads=800 nodes=3 windows=12}
+ */
+public class WriterLoadGenerator {
+  private final SyntheticMetricsGenerator generator;
+  private final EventLogFileHandler eventLogFileHandler;
+
+  public WriterLoadGenerator(SyntheticMetricsGenerator generator, String metricsLocation) {
+    this.generator = generator;
+    this.eventLogFileHandler = new EventLogFileHandler(new EventLog(), metricsLocation);
+  }
+
+  /**
+   * Writes the event file for one sampling window.
+   *
+   * @param windowStart The start of the window. It is aligned to the sampling interval.
+   * @return The number of events written.
+   */
+  public int writeWindow(long windowStart) {
+    long epoch = PerformanceAnalyzerMetrics.getTimeInterval(windowStart, MetricsConfiguration.SAMPLING_INTERVAL);
+    List<Event> events = generator.generateEvents(epoch);
+    eventLogFileHandler.writeTmpFile(events, epoch);
+    eventLogFileHandler.renameFromTmp(epoch);
+    return events.size();
+  }
+
+  /**
+   * Parses arguments of the form name=value.
+   */
+  static Map<String, String> parseArgs(String[] args) {
+    Map<String, String> parsed = new HashMap<>();
+    for (String arg : args) {
+      int idx = arg.indexOf('=');
+      if (idx <= 0) {
+        throw new IllegalArgumentException("Expected an argument of the form name=value, got: " + arg);
+      }
+      parsed.put(arg.substring(0, idx), arg.substring(idx + 1));
+    }
+    return parsed;
+  }
+
+  static int intArg(Map<String, String> args, String name, int defaultValue) {
+    String value = args.get(name);
+    return value == null ? defaultValue : Integer.parseInt(value);
+  }
+
+  public static void main(String[] args) throws Exception {
+    Map<String, String> parsed = parseArgs(args);
+    String dir = parsed.getOrDefault("dir", Paths.get(System.getProperty("java.io.tmpdir"), "pa_load").toString());
+    int windows = intArg(parsed, "windows", 12);
+    SyntheticMetricsGenerator generator = new SyntheticMetricsGenerator(
+        intArg(parsed, "shards", 1000), intArg(parsed, "threads", 100), intArg(parsed, "nodes", 3));
+
+    Files.createDirectories(Paths.get(dir));
+    WriterLoadGenerator writer = new WriterLoadGenerator(generator, dir);
+    long firstWindow = PerformanceAnalyzerMetrics.getTimeInterval(
+        System.currentTimeMillis(), MetricsConfiguration.SAMPLING_INTERVAL) - (long) windows * MetricsConfiguration.SAMPLING_INTERVAL;
+    for (int i = 0; i < windows; i++) {
+      long windowStart = firstWindow + (long) i * MetricsConfiguration.SAMPLING_INTERVAL;
+      int events = writer.writeWindow(windowStart);
+      System.out.println(String.format("wrote %d events to %s", events, Paths.get(dir, String.valueOf(windowStart))));
+    }
+  }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ *  A copy of the License is located at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed
+ *  on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.metricsdb;
+
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.benchmark.SyntheticMetricsGenerator;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.metrics.AllMetrics;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.jooq.Record;
+import org.jooq.Result;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the queries served out of a MetricsDB: the single metric, single dimension aggregation
+ * issued by the RCA metric nodes and the multi-metric join issued by the metrics REST API.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MetricsDBQueryBenchmark {
+  private static final List<String> REST_API_METRICS = Arrays.asList(
+      AllMetrics.OSMetrics.CPU_UTILIZATION.toString(),
+      AllMetrics.OSMetrics.PAGING_RSS.toString(),
+      AllMetrics.OSMetrics.IO_TOT_THROUGHPUT.toString());
+  private static final List<String> REST_API_AGGREGATIONS = Arrays.asList(MetricsDB.SUM, MetricsDB.AVG, MetricsDB.MAX);
+  private static final List<String> REST_API_DIMENSIONS = Arrays.asList(
+      AllMetrics.CommonDimension.INDEX_NAME.toString(),
+      AllMetrics.CommonDimension.SHARD_ID.toString(),
+      AllMetrics.CommonDimension.OPERATION.toString());
+
+  @Param({"100", "1000", "10000"})
+  public int shards;
+
+  private MetricsDB db;
+
+  @Setup
+  public void setup() throws Exception {
+    db = new MetricsDB(System.currentTimeMillis());
+    new SyntheticMetricsGenerator(shards, 1, 1).fillMetricsDB(db);
+  }
+
+  @TearDown
+  public void teardown() throws Exception {
+    db.remove();
+    db.deleteOnDiskFile();
+  }
+
+  @Benchmark
+  public Result<Record> queryRcaMetric() throws Exception {
+    return db.queryMetric(
+        Collections.singletonList(AllMetrics.OSMetrics.CPU_UTILIZATION.toString()),
+        Collections.singletonList(MetricsDB.SUM),
+        Collections.singletonList(AllMetrics.CommonDimension.SHARD_ID.toString()));
+  }
+
+  @Benchmark
+  public Result<Record> queryRestApiMetrics() throws Exception {
+    return db.queryMetric(REST_API_METRICS, REST_API_AGGREGATIONS, REST_API_DIMENSIONS);
+  }
+
+  @Benchmark
+  public Result<Record> queryFullTable() {
+    return db.queryMetric(AllMetrics.OSMetrics.CPU_UTILIZATION.toString());
+  }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ *  A copy of the License is located at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed
+ *  on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.api.flow_units;
+
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.benchmark.SyntheticMetricsGenerator;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.grpc.FlowUnitMessage;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.api.Resources;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.api.contexts.ResourceContext;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.api.summaries.HotNodeSummary;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.api.summaries.HotShardSummary;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.util.InstanceDetails;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the protobuf round trip a flow unit takes between the data nodes and the elected
+ * master: building the {@link FlowUnitMessage}, serializing it to bytes and back, and rebuilding the
+ * flow unit. The payload is a hot node summary with one nested hot shard summary per shard, which is
+ * the largest flow unit sent over the wire today.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ResourceFlowUnitBenchmark {
+  private static final String GRAPH_NODE = "HotShardRca";
+  private static final int TIME_PERIOD = 60;
+
+  @Param({"10", "100", "1000", "10000"})
+  public int shards;
+
+  private InstanceDetails.Id nodeId;
+  private ResourceFlowUnit<HotNodeSummary> flowUnit;
+  private byte[] bytes;
+
+  @Setup
+  public void setup() {
+    SyntheticMetricsGenerator generator = new SyntheticMetricsGenerator(shards, 1, 1);
+    nodeId = new InstanceDetails.Id(generator.nodeId(0));
+    HotNodeSummary summary = new HotNodeSummary(nodeId, new InstanceDetails.Ip(generator.nodeIp(0)));
+    for (int s = 0; s < shards; s++) {
+      HotShardSummary shardSummary =
+          new HotShardSummary(generator.indexName(s), generator.shardId(s), nodeId.toString(), TIME_PERIOD);
+      shardSummary.setcpuUtilization(s % 100 / 100d);
+      shardSummary.setIoThroughput(s * 1024d);
+      shardSummary.setIoSysCallrate(s % 10 / 10d);
+      summary.appendNestedSummary(shardSummary);
+    }
+    flowUnit = new ResourceFlowUnit<>(System.currentTimeMillis(), new ResourceContext(Resources.State.UNHEALTHY),
+        summary, true);
+    bytes = flowUnit.buildFlowUnitMessage(GRAPH_NODE, nodeId).toByteArray();
+  }
+
+  @Benchmark
+  public byte[] serialize() {
+    return flowUnit.buildFlowUnitMessage(GRAPH_NODE, nodeId).toByteArray();
+  }
+
+  @Benchmark
+  public ResourceFlowUnit<HotNodeSummary> deserialize() throws Exception {
+    return ResourceFlowUnit.buildFlowUnitFromWrapper(FlowUnitMessage.parseFrom(bytes));
+  }
+
+  @Benchmark
+  public ResourceFlowUnit<HotNodeSummary> roundTrip() throws Exception {
+    byte[] wire = flowUnit.buildFlowUnitMessage(GRAPH_NODE, nodeId).toByteArray();
+    return ResourceFlowUnit.buildFlowUnitFromWrapper(FlowUnitMessage.parseFrom(wire));
+  }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ *  A copy of the License is located at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed
+ *  on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.scheduler;
+
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.AppContext;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.benchmark.SyntheticMetricsGenerator;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.metrics.AllMetrics;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.metricsdb.MetricsDB;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.net.GRPCConnectionManager;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.net.NetClient;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.core.ConnectedComponent;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.core.MetricsDBProvider;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.core.Node;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.core.RcaConf;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.util.RcaUtil;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.net.NodeStateManager;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.net.ReceivedFlowUnitStore;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.net.SubscriptionManager;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.net.WireHopper;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.persistence.Persistable;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.persistence.PersistenceFactory;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.store.ElasticSearchAnalysisGraph;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.reader.ClusterDetailsEventProcessor;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures one tick of the RCA scheduler over the full {@link ElasticSearchAnalysisGraph}.
+ *
+ * <p>All the vertices are set to evaluate on every tick, so each invocation runs every metric,
+ * RCA and decider that is locally executable for the chosen locus. The metric vertices read from a
+ * synthetic MetricsDB sized by the number of shards. Networking is stubbed out: intents and flow
+ * units are dropped as the network thread pool is never started, and on the elected master the
+ * remote flow units are simply absent.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class RCASchedulerTaskBenchmark {
+  private static final int THREADS = 3;
+
+  @Param({"100", "1000", "10000"})
+  public int shards;
+
+  @Param({"3", "100"})
+  public int nodes;
+
+  @Param({"data", "master"})
+  public String locus;
+
+  private MetricsDB db;
+  private ExecutorService executorPool;
+  private GRPCConnectionManager connectionManager;
+  private NetClient netClient;
+  private RCASchedulerTask task;
+
+  @Setup
+  public void setup() throws Exception {
+    SyntheticMetricsGenerator generator = new SyntheticMetricsGenerator(shards, 1, nodes);
+    db = new MetricsDB(System.currentTimeMillis());
+    generator.fillMetricsDB(db);
+
+    boolean isMaster = "master".equals(locus);
+    RcaConf rcaConf = new RcaConf(Paths.get("pa_config", isMaster ? "rca_master.conf" : "rca.conf").toString());
+    Persistable persistable = PersistenceFactory.create(rcaConf);
+
+    ClusterDetailsEventProcessor clusterDetailsEventProcessor = new ClusterDetailsEventProcessor();
+    clusterDetailsEventProcessor.setNodesDetails(generator.generateNodeDetails(
+        isMaster ? AllMetrics.NodeRole.ELECTED_MASTER : AllMetrics.NodeRole.DATA));
+    AppContext appContext = new AppContext();
+    appContext.setClusterDetailsEventProcessor(clusterDetailsEventProcessor);
+
+    List<ConnectedComponent> connectedComponents =
+        RcaUtil.getAnalysisGraphComponents(new ElasticSearchAnalysisGraph());
+    for (ConnectedComponent component : connectedComponents) {
+      for (List<Node<?>> level : component.getAllNodesByDependencyOrder()) {
+        for (Node<?> node : level) {
+          node.setEvaluationIntervalSeconds(1);
+        }
+      }
+    }
+
+    connectionManager = new GRPCConnectionManager(false);
+    netClient = new NetClient(connectionManager);
+    SubscriptionManager subscriptionManager = new SubscriptionManager(connectionManager);
+    subscriptionManager.setCurrentLocus(rcaConf.getTagMap().get("locus"));
+    WireHopper wireHopper = new WireHopper(new NodeStateManager(appContext), netClient, subscriptionManager,
+        new AtomicReference<>(), new ReceivedFlowUnitStore(rcaConf.getPerVertexBufferLength()), appContext);
+
+    executorPool = Executors.newFixedThreadPool(THREADS);
+    task = new RCASchedulerTask(Integer.MAX_VALUE, executorPool, connectedComponents, new SyntheticQueryable(db),
+        persistable, rcaConf, wireHopper, appContext);
+  }
+
+  @TearDown
+  public void teardown() throws Exception {
+    executorPool.shutdownNow();
+    netClient.stop();
+    connectionManager.shutdown();
+    db.remove();
+    db.deleteOnDiskFile();
+  }
+
+  @Benchmark
+  public RCASchedulerTask tick() {
+    task.run();
+    return task;
+  }
+
+  /**
+   * Serves the metric vertices out of the synthetic MetricsDB instead of the one owned by the
+   * reader.
+   */
+  private static class SyntheticQueryable extends MetricsDBProvider {
+    private final MetricsDB db;
+
+    SyntheticQueryable(MetricsDB db) {
+      this.db = db;
+    }
+
+    @Override
+    public MetricsDB getMetricsDB() {
+      return db;
+    }
+  }
+}
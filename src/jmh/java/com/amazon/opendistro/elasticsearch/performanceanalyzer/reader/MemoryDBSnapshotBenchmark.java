@@ -0,0 +1,93 @@
+/*
+ * Copyright 2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ *  A copy of the License is located at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed
+ *  on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.reader;
+
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.benchmark.SyntheticMetricsGenerator;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.metrics.AllMetrics.MetricName;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the alignment of two consecutive node metric snapshots into a reader window. The shard
+ * stats table is used as it is the node metric whose cardinality grows with the number of shards.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MemoryDBSnapshotBenchmark {
+  private static final String DB_URL = "jdbc:sqlite:";
+  private static final long LEFT_WINDOW_END = 5000L;
+  private static final long RIGHT_WINDOW_END = 10000L;
+  private static final long T = 7000L;
+
+  @Param({"100", "1000", "10000"})
+  public int shards;
+
+  private Connection conn;
+  private MemoryDBSnapshot leftWindow;
+  private MemoryDBSnapshot rightWindow;
+  private MemoryDBSnapshot alignedWindow;
+
+  @Setup(Level.Trial)
+  public void setup() throws Exception {
+    SyntheticMetricsGenerator generator = new SyntheticMetricsGenerator(shards, 1, 1);
+    conn = DriverManager.getConnection(DB_URL);
+    leftWindow = new MemoryDBSnapshot(conn, MetricName.SHARD_STATS, LEFT_WINDOW_END);
+    leftWindow.insertMultiRows(generator.generateShardRows(leftWindow));
+    rightWindow = new MemoryDBSnapshot(conn, MetricName.SHARD_STATS, RIGHT_WINDOW_END);
+    rightWindow.insertMultiRows(generator.generateShardRows(rightWindow));
+  }
+
+  @Setup(Level.Invocation)
+  public void createAlignedWindow() {
+    alignedWindow = new MemoryDBSnapshot(conn, MetricName.SHARD_STATS, RIGHT_WINDOW_END, true);
+  }
+
+  @TearDown(Level.Invocation)
+  public void removeAlignedWindow() {
+    alignedWindow.remove();
+  }
+
+  @TearDown(Level.Trial)
+  public void teardown() throws Exception {
+    leftWindow.remove();
+    rightWindow.remove();
+    conn.close();
+  }
+
+  @Benchmark
+  public MemoryDBSnapshot alignWindow() {
+    alignedWindow.alignWindow(leftWindow, rightWindow, T, LEFT_WINDOW_END, RIGHT_WINDOW_END);
+    return alignedWindow;
+  }
+}
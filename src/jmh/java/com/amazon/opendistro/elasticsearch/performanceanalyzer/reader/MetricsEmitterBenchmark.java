@@ -0,0 +1,109 @@
+/*
+ * Copyright 2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ *  A copy of the License is located at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed
+ *  on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.reader;
+
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.benchmark.SyntheticMetricsGenerator;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.metricsdb.MetricsDB;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.jooq.DSLContext;
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the join of per-thread OS metrics with the shard requests running on those threads, and
+ * the write of the per-shard aggregates and of the shard request latencies into a fresh MetricsDB.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MetricsEmitterBenchmark {
+  private static final String DB_URL = "jdbc:sqlite:";
+  // MetricsDB files are named after the window, so every invocation gets a distinct fake window.
+  private static final AtomicLong WINDOW = new AtomicLong(1000L);
+
+  @Param({"100", "1000", "10000"})
+  public int shards;
+
+  @Param({"100", "800"})
+  public int threads;
+
+  private Connection conn;
+  private DSLContext create;
+  private OSMetricsSnapshot osMetricsSnap;
+  private ShardRequestMetricsSnapshot rqMetricsSnap;
+  private MetricsDB db;
+
+  @Setup(Level.Trial)
+  public void setup() throws Exception {
+    long windowStart = System.currentTimeMillis();
+    SyntheticMetricsGenerator generator = new SyntheticMetricsGenerator(shards, threads, 1);
+    conn = DriverManager.getConnection(DB_URL);
+    create = DSL.using(conn, SQLDialect.SQLITE);
+    osMetricsSnap = new OSMetricsSnapshot(conn, windowStart);
+    generator.fillOSMetricsSnapshot(osMetricsSnap, windowStart);
+    rqMetricsSnap = new ShardRequestMetricsSnapshot(windowStart);
+    generator.fillShardRequestSnapshot(rqMetricsSnap, windowStart);
+  }
+
+  @Setup(Level.Invocation)
+  public void createDB() throws Exception {
+    db = new MetricsDB(WINDOW.incrementAndGet());
+  }
+
+  @TearDown(Level.Invocation)
+  public void removeDB() throws Exception {
+    db.remove();
+    db.deleteOnDiskFile();
+  }
+
+  @TearDown(Level.Trial)
+  public void teardown() throws Exception {
+    osMetricsSnap.remove();
+    rqMetricsSnap.remove();
+    conn.close();
+  }
+
+  @Benchmark
+  public MetricsDB emitAggregatedOSMetrics() throws Exception {
+    MetricsEmitter.emitAggregatedOSMetrics(create, db, osMetricsSnap, rqMetricsSnap);
+    return db;
+  }
+
+  @Benchmark
+  public MetricsDB emitWorkloadMetrics() throws Exception {
+    MetricsEmitter.emitWorkloadMetrics(create, db, rqMetricsSnap);
+    return db;
+  }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ *  A copy of the License is located at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed
+ *  on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.reader_writer_shared;
+
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.benchmark.SyntheticMetricsGenerator;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.reader.EventDispatcher;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures how fast the reader can tokenize one window worth of writer output into events. The
+ * events are only counted, so this isolates {@link EventLog#read} from the event processors.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class EventLogBenchmark {
+  @Param({"100", "1000", "10000"})
+  public int shards;
+
+  @Param({"100", "800"})
+  public int threads;
+
+  @Param({"3"})
+  public int nodes;
+
+  private byte[] bytes;
+  private CountingDispatcher dispatcher;
+
+  @Setup
+  public void setup() {
+    SyntheticMetricsGenerator generator = new SyntheticMetricsGenerator(shards, threads, nodes);
+    bytes = SyntheticMetricsGenerator.serialize(generator.generateEvents(System.currentTimeMillis()));
+    dispatcher = new CountingDispatcher();
+  }
+
+  @Benchmark
+  public long read() {
+    EventLog eventLog = new EventLog();
+    dispatcher.count = 0;
+    eventLog.read(ByteBuffer.wrap(bytes), dispatcher);
+    return dispatcher.count;
+  }
+
+  private static class CountingDispatcher extends EventDispatcher {
+    private long count;
+
+    @Override
+    public void processEvent(Event event) {
+      count += event.value.length();
+    }
+  }
+}
@@ -16,18 +16,17 @@
 package com.amazon.opendistro.elasticsearch.performanceanalyzer;
 
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.metrics.AllMetrics;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.util.ClusterMembership;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.util.ClusterMembershipFeed;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.util.ClusterMembershipListener;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.util.InstanceDetails;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.store.collector.NodeConfigCache;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.reader.ClusterDetailsEventProcessor;
 import com.google.common.annotations.VisibleForTesting;
-import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * The PA agent process is composed of multiple components. The PA Reader and RCA are two such components that are
@@ -36,16 +35,38 @@ import java.util.stream.Collectors;
  * This class encapsulates such information and is created right at the start in the {@code PerformanceAnalyzerApp}.
  */
 public class AppContext {
+
   private volatile ClusterDetailsEventProcessor clusterDetailsEventProcessor;
   // initiate a node config cache within each AppContext space
   // to store node config settings from ES
   private final NodeConfigCache nodeConfigCache;
   private volatile Set<String> mutedActions;
+  private final ClusterMembershipFeed membershipFeed;
+  // The processor, and its version, whose node details were last fed to the membership feed.
+  private volatile FedProcessor fedProcessor;
+  // The listeners registered through this context. See removeClusterMembershipListeners().
+  private final List<ClusterMembershipListener> membershipListeners = new CopyOnWriteArrayList<>();
+
+  private static final class FedProcessor {
+    private final ClusterDetailsEventProcessor processor;
+    private final long version;
+
+    private FedProcessor(final ClusterDetailsEventProcessor processor, final long version) {
+      this.processor = processor;
+      this.version = version;
+    }
+
+    private boolean isSame(final ClusterDetailsEventProcessor processor) {
+      return this.processor == processor && this.version == processor.getNodesDetailsVersion();
+    }
+  }
 
   public AppContext() {
     this.clusterDetailsEventProcessor = null;
     this.nodeConfigCache = new NodeConfigCache();
     this.mutedActions = ImmutableSet.of();
+    this.membershipFeed = new ClusterMembershipFeed();
+    this.fedProcessor = new FedProcessor(null, 0);
   }
 
   public AppContext(AppContext other) {
@@ -54,10 +75,23 @@ public class AppContext {
     // Initializing this as we don't want to copy the entire cache.
     this.nodeConfigCache = new NodeConfigCache();
     this.mutedActions = ImmutableSet.copyOf(other.getMutedActions());
+
+    // The copy is a snapshot: it starts from the current membership of the original context and
+    // is only fed again if its own processor is replaced or updated. Feeding the copied processor
+    // here keeps the two consistent if the original was updated while it was being copied.
+    this.membershipFeed = new ClusterMembershipFeed(other.membershipFeed);
+    feedClusterMembership(this.clusterDetailsEventProcessor);
   }
 
+  /**
+   * Sets the processor with the latest cluster details and feeds its node details to the membership
+   * feed, which notifies the membership listeners if they changed.
+   */
   public void setClusterDetailsEventProcessor(final ClusterDetailsEventProcessor clusterDetailsEventProcessor) {
     this.clusterDetailsEventProcessor = clusterDetailsEventProcessor;
+    if (clusterDetailsEventProcessor != null) {
+      feedClusterMembership(clusterDetailsEventProcessor);
+    }
   }
 
   public InstanceDetails getMyInstanceDetails() {
@@ -70,6 +104,51 @@ public class AppContext {
     return ret;
   }
 
+  /**
+   * Gets the current cluster membership snapshot. The snapshot is rebuilt only when the cluster details
+   * reported by the reader change; all other calls return the same immutable instance.
+   *
+   * @return The current membership snapshot, or an empty one if the cluster details are not available.
+   */
+  public ClusterMembership getClusterMembership() {
+    final ClusterDetailsEventProcessor processor = clusterDetailsEventProcessor;
+    if (processor != null && !fedProcessor.isSame(processor)) {
+      // The processor was updated in place since it was set.
+      return feedClusterMembership(processor);
+    }
+    return membershipFeed.getCurrent();
+  }
+
+  private synchronized ClusterMembership feedClusterMembership(final ClusterDetailsEventProcessor processor) {
+    // The version has to be read before the node details. See ClusterDetailsEventProcessor.setNodesDetails().
+    fedProcessor = new FedProcessor(processor, processor.getNodesDetailsVersion());
+    return membershipFeed.update(processor.getNodesDetails());
+  }
+
+  /**
+   * Registers a listener that is notified with every change of the cluster membership. If the
+   * membership is already known, the listener is sent the current snapshot right away. Changes
+   * are delivered on the thread that feeds them, usually the reader thread.
+   *
+   * @param listener The listener to register.
+   */
+  public void addClusterMembershipListener(final ClusterMembershipListener listener) {
+    membershipListeners.add(listener);
+    membershipFeed.addListener(listener);
+  }
+
+  /**
+   * Unregisters the membership listeners registered through this context. This is called once
+   * the components that registered them, such as the RCA graph of a scheduler, are discarded, so
+   * that a context that outlives them does not keep them reachable.
+   */
+  public void removeClusterMembershipListeners() {
+    for (ClusterMembershipListener listener : membershipListeners) {
+      membershipFeed.removeListener(listener);
+    }
+    membershipListeners.clear();
+  }
+
   /**
    * Can be used to get all the nodes in the cluster.
    *
@@ -77,29 +156,11 @@ public class AppContext {
    *     the cluster.
    */
   public List<InstanceDetails> getAllClusterInstances() {
-    List<InstanceDetails> ret = Collections.EMPTY_LIST;
-
-    if (clusterDetailsEventProcessor != null) {
-      ret = getInstanceDetailsFromNodeDetails(clusterDetailsEventProcessor.getNodesDetails());
-    }
-    return ret;
+    return getClusterMembership().getAllInstances();
   }
 
   public List<InstanceDetails> getDataNodeInstances() {
-    List<InstanceDetails> ret = Collections.EMPTY_LIST;
-    if (clusterDetailsEventProcessor != null) {
-      ret = getInstanceDetailsFromNodeDetails(clusterDetailsEventProcessor.getDataNodesDetails());
-    }
-    return ret;
-  }
-
-  private static List<InstanceDetails> getInstanceDetailsFromNodeDetails(
-      final List<ClusterDetailsEventProcessor.NodeDetails> nodeDetails) {
-    ImmutableList.Builder<InstanceDetails> instanceDetails = ImmutableList.builder();
-    for (ClusterDetailsEventProcessor.NodeDetails node : nodeDetails) {
-      instanceDetails.add(new InstanceDetails(node));
-    }
-    return instanceDetails.build();
+    return getClusterMembership().getDataNodeInstances();
   }
 
   @VisibleForTesting
@@ -108,11 +169,7 @@ public class AppContext {
   }
 
   public Set<InstanceDetails> getPeerInstances() {
-    return ImmutableSet.copyOf(
-            getAllClusterInstances()
-                    .stream()
-                    .skip(1)  // Skipping the first instance as it is self.
-                    .collect(Collectors.toSet()));
+    return getClusterMembership().getPeerInstances();
   }
 
   public NodeConfigCache getNodeConfigCache() {
@@ -120,12 +177,8 @@ public class AppContext {
   }
 
   public InstanceDetails getInstanceById(InstanceDetails.Id instanceIdKey) {
-    return getPeerInstances()
-            .stream()
-            .filter(
-                    x -> x.getInstanceId().equals(instanceIdKey))
-            .findFirst()
-            .orElse(new InstanceDetails(AllMetrics.NodeRole.UNKNOWN));
+    final InstanceDetails instance = getClusterMembership().getPeerInstance(instanceIdKey);
+    return instance != null ? instance : new InstanceDetails(AllMetrics.NodeRole.UNKNOWN);
   }
 
   public boolean isActionMuted(final String action) {
@@ -45,8 +45,11 @@ import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.stats.emitter
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.stats.listeners.IListener;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.stats.measurements.MeasurementSet;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.reader.ReaderMetricsProcessor;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rest.InternalMetricsRequestHandler;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.rest.QueryBatchRequestHandler;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.rest.QueryMetricsRequestHandler;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rest.TimedHttpHandler;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.telemetry.TelemetryRegistry;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.threads.ThreadProvider;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.threads.exceptions.PAThreadException;
 import com.google.common.annotations.VisibleForTesting;
@@ -68,6 +71,7 @@ public class PerformanceAnalyzerApp {
   private static final int EXCEPTION_QUEUE_LENGTH = 1;
   public static final String QUERY_URL = "/_opendistro/_performanceanalyzer/metrics";
   public static final String BATCH_METRICS_URL = "/_opendistro/_performanceanalyzer/batch";
+  public static final String INTERNAL_METRICS_URL = "/_opendistro/_performanceanalyzer/_internal/metrics";
   private static final Logger LOG = LogManager.getLogger(PerformanceAnalyzerApp.class);
   private static final ScheduledMetricCollectorsExecutor METRIC_COLLECTOR_EXECUTOR =
       new ScheduledMetricCollectorsExecutor(1, false);
@@ -274,7 +278,8 @@ public class PerformanceAnalyzerApp {
                                                   final String webServerPortFromSetting,
                                                   final String hostFromSetting,
                                                   final AppContext appContext) {
-    NetServer netServer = new NetServer(rpcPort, 1, useHttps);
+    NetServer netServer = new NetServer(rpcPort, PluginSettings.instance().getRpcServerEventLoopThreads(),
+        PluginSettings.instance().getRpcServerExecutorThreads(), useHttps);
     NetClient netClient = new NetClient(connectionManager);
 
     if (metricsServerHandler != null) {
@@ -285,9 +290,12 @@ public class PerformanceAnalyzerApp {
         PerformanceAnalyzerWebServer.createInternalServer(webServerPortFromSetting, hostFromSetting, useHttps);
 
     if (metricsRestUtil != null) {
-      httpServer.createContext(QUERY_URL, new QueryMetricsRequestHandler(netClient, metricsRestUtil, appContext));
-      httpServer.createContext(BATCH_METRICS_URL, new QueryBatchRequestHandler(netClient, metricsRestUtil));
+      httpServer.createContext(QUERY_URL,
+          new TimedHttpHandler(QUERY_URL, new QueryMetricsRequestHandler(netClient, metricsRestUtil, appContext)));
+      httpServer.createContext(BATCH_METRICS_URL,
+          new TimedHttpHandler(BATCH_METRICS_URL, new QueryBatchRequestHandler(netClient, metricsRestUtil)));
     }
+    httpServer.createContext(INTERNAL_METRICS_URL, new InternalMetricsRequestHandler(TelemetryRegistry.instance()));
 
     return new ClientServers(httpServer, netServer, netClient);
   }
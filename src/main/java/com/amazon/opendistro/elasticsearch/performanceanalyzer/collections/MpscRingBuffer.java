@@ -0,0 +1,284 @@
+/*
+ * Copyright 2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.collections;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A bounded, lock-free queue for many producer threads and a single consumer thread.
+ *
+ * <p>A producer claims the next slot with a compare-and-set on the tail index and then publishes
+ * its element into the slot. An empty slot holds null. The consumer takes elements in claim
+ * order: it clears each slot before it moves the head past it, so a producer that sees the new
+ * head can reuse the slot. A producer that has claimed a slot but not yet written it holds back
+ * the consumer until it does, which is a handful of instructions.
+ *
+ * <p>{@link #offer} never blocks: when the buffer is full the element is rejected and the caller
+ * decides what to do with it. All the methods that remove elements must only be called from the
+ * single consumer thread.
+ *
+ * <p>It is a {@link BlockingQueue}, so it can stand in for the queue it replaces. The blocking
+ * methods do not take a lock or wait on a condition either: they busy-poll, retrying the operation
+ * and parking the calling thread with {@link LockSupport#parkNanos(long)} for 100 microseconds
+ * between attempts. A blocked thread therefore wakes up about ten thousand times a second, and may
+ * see an element or a free slot up to 100 microseconds after it appears. Removing an arbitrary
+ * element, through {@link #remove(Object)} or the iterator, is not supported.
+ *
+ * <p>The capacity is always a power of two, so that a slot is found with a mask. The requested
+ * capacity is rounded up, which can nearly double it.
+ *
+ * @param <E> The type of the elements.
+ */
+public class MpscRingBuffer<E> extends AbstractQueue<E> implements BlockingQueue<E> {
+  /** How long the blocking methods park the calling thread between two attempts. */
+  private static final long PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+  private final int mask;
+  private final AtomicReferenceArray<E> slots;
+  private final AtomicLong tail;
+  private final AtomicLong head;
+
+  /**
+   * Creates a ring buffer.
+   *
+   * @param requestedCapacity The minimum number of elements the buffer holds. It is rounded up to a
+   *     power of two.
+   */
+  public MpscRingBuffer(int requestedCapacity) {
+    if (requestedCapacity <= 0) {
+      throw new IllegalArgumentException("The capacity must be positive, got: " + requestedCapacity);
+    }
+    int capacity = requestedCapacity == 1 ? 1 : Integer.highestOneBit(requestedCapacity - 1) << 1;
+    this.mask = capacity - 1;
+    this.slots = new AtomicReferenceArray<>(capacity);
+    this.tail = new AtomicLong();
+    this.head = new AtomicLong();
+  }
+
+  /**
+   * Adds an element, if there is room for it. Safe to call from any number of threads.
+   *
+   * @param e The element to add. It must not be null.
+   * @return true if the element was added, false if the buffer was full.
+   */
+  @Override
+  public boolean offer(E e) {
+    if (e == null) {
+      throw new NullPointerException();
+    }
+    long claimed;
+    do {
+      claimed = tail.get();
+      if (claimed - head.get() > mask) {
+        return false;
+      }
+    } while (!tail.compareAndSet(claimed, claimed + 1));
+    slots.lazySet((int) (claimed & mask), e);
+    return true;
+  }
+
+  /**
+   * Removes the oldest element. Must only be called from the consumer thread.
+   *
+   * @return The oldest element, or null if there is none or it is not published yet.
+   */
+  @Override
+  public E poll() {
+    long current = head.get();
+    int index = (int) (current & mask);
+    E e = slots.get(index);
+    if (e == null) {
+      return null;
+    }
+    slots.lazySet(index, null);
+    head.lazySet(current + 1);
+    return e;
+  }
+
+  /**
+   * Moves up to {@code maxElements} elements into {@code target}, oldest first. Must only be
+   * called from the consumer thread.
+   *
+   * @return The number of elements moved.
+   */
+  @Override
+  public int drainTo(Collection<? super E> target, int maxElements) {
+    long current = head.get();
+    int drained = 0;
+    while (drained < maxElements) {
+      int index = (int) (current & mask);
+      E e = slots.get(index);
+      if (e == null) {
+        break;
+      }
+      slots.lazySet(index, null);
+      target.add(e);
+      current += 1;
+      drained += 1;
+    }
+    head.lazySet(current);
+    return drained;
+  }
+
+  /**
+   * Moves every published element into {@code target}, oldest first. Must only be called from the
+   * consumer thread.
+   *
+   * @return The number of elements moved.
+   */
+  @Override
+  public int drainTo(Collection<? super E> target) {
+    return drainTo(target, capacity());
+  }
+
+  /**
+   * The oldest element, without removing it. Must only be called from the consumer thread.
+   *
+   * @return The oldest element, or null if there is none or it is not published yet.
+   */
+  @Override
+  public E peek() {
+    return slots.get((int) (head.get() & mask));
+  }
+
+  /**
+   * Adds an element, waiting for room if the buffer is full. It polls for room every 100
+   * microseconds.
+   */
+  @Override
+  public void put(E e) throws InterruptedException {
+    while (!offer(e)) {
+      parkOrThrow();
+    }
+  }
+
+  /**
+   * Adds an element, waiting up to the given time for room if the buffer is full.
+   *
+   * @return true if the element was added, false if the time ran out.
+   */
+  @Override
+  public boolean offer(E e, long timeout, TimeUnit unit) throws InterruptedException {
+    long deadline = System.nanoTime() + unit.toNanos(timeout);
+    while (!offer(e)) {
+      if (deadline - System.nanoTime() <= 0) {
+        return false;
+      }
+      parkOrThrow();
+    }
+    return true;
+  }
+
+  /**
+   * Removes the oldest element, waiting for one to be published. It polls every 100 microseconds.
+   * Must only be called from the consumer thread.
+   */
+  @Override
+  public E take() throws InterruptedException {
+    E e;
+    while ((e = poll()) == null) {
+      parkOrThrow();
+    }
+    return e;
+  }
+
+  /**
+   * Removes the oldest element, waiting up to the given time for one to be published. Must only be
+   * called from the consumer thread.
+   *
+   * @return The oldest element, or null if the time ran out.
+   */
+  @Override
+  public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+    long deadline = System.nanoTime() + unit.toNanos(timeout);
+    E e;
+    while ((e = poll()) == null) {
+      if (deadline - System.nanoTime() <= 0) {
+        return null;
+      }
+      parkOrThrow();
+    }
+    return e;
+  }
+
+  private static void parkOrThrow() throws InterruptedException {
+    LockSupport.parkNanos(PARK_NANOS);
+    if (Thread.interrupted()) {
+      throw new InterruptedException();
+    }
+  }
+
+  @Override
+  public int remainingCapacity() {
+    return capacity() - size();
+  }
+
+  /**
+   * The number of claimed slots. It includes slots whose producers have not published them yet.
+   */
+  @Override
+  public int size() {
+    long size = tail.get() - head.get();
+    return (int) Math.max(0, Math.min(size, capacity()));
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return size() == 0;
+  }
+
+  /**
+   * A snapshot of the published elements, oldest first. The iterator does not support removal.
+   */
+  @Override
+  public Iterator<E> iterator() {
+    List<E> snapshot = new ArrayList<>(size());
+    long current = head.get();
+    long end = tail.get();
+    for (; current < end; current++) {
+      E e = slots.get((int) (current & mask));
+      if (e == null) {
+        break;
+      }
+      snapshot.add(e);
+    }
+    Iterator<E> it = snapshot.iterator();
+    return new Iterator<E>() {
+      @Override
+      public boolean hasNext() {
+        return it.hasNext();
+      }
+
+      @Override
+      public E next() {
+        return it.next();
+      }
+    };
+  }
+
+  public int capacity() {
+    return mask + 1;
+  }
+}
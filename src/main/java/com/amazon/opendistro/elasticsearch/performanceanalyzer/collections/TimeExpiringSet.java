@@ -15,6 +15,7 @@
 
 package com.amazon.opendistro.elasticsearch.performanceanalyzer.collections;
 
+import com.google.common.base.Ticker;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import java.util.Iterator;
@@ -40,8 +41,21 @@ public class TimeExpiringSet<E> implements Iterable<E> {
    * @param unit The unit of the ttl
    */
   public TimeExpiringSet(long ttl, TimeUnit unit) {
+    this(ttl, unit, Ticker.systemTicker());
+  }
+
+  /**
+   * Allocates a new TimeExpiringSet whose elements expire after the given time period, as measured
+   * by the given {@link Ticker}
+   *
+   * @param ttl The magnitude of the time a unit will remain in the cache before it is evicted
+   * @param unit The unit of the ttl
+   * @param ticker The source of the time the elements expire by
+   */
+  public TimeExpiringSet(long ttl, TimeUnit unit, Ticker ticker) {
     cache = CacheBuilder.newBuilder()
         .expireAfterWrite(ttl, unit)
+        .ticker(ticker)
         .build();
   }
 
@@ -43,6 +43,7 @@ public enum StatExceptionCode {
   WEB_SERVER_THREAD_STOPPED("WebServerThreadStopped"),
   RCA_CONTROLLER_THREAD_STOPPED("RcaControllerThreadStopped"),
   RCA_SCHEDULER_THREAD_STOPPED("RcaSchedulerThreadStopped"),
+  RCA_CONFIG_WATCHER_THREAD_STOPPED("RcaConfigWatcherThreadStopped"),
   JVM_THREAD_ID_NO_LONGER_EXISTS("JVM_THREAD_ID_NO_LONGER_EXISTS"),
   ES_REQUEST_INTERCEPTOR_ERROR("ES_REQUEST_INTERCEPTOR_ERROR"),
   OTHER("Other");
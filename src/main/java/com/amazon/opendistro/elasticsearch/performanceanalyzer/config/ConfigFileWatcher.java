@@ -0,0 +1,196 @@
+/*
+ * Copyright 2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.config;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Watches a set of configuration files with a {@link WatchService} and tells its subscribers which
+ * of them changed.
+ *
+ * <p>The directories holding the files are watched, as editors and config management tools often
+ * replace a file instead of writing to it. Events are debounced: subscribers are notified once no
+ * event has arrived for {@code debounceMillis}, with every file that changed in the meantime. If an
+ * event gets lost, which the watch service reports as an overflow, all the files are reported.
+ *
+ * <p>Some filesystems, such as network mounts, do not support watches. If a directory cannot be
+ * watched, {@link #isWatching()} turns false for good, and the owner is expected to go back to
+ * polling the files.
+ */
+public class ConfigFileWatcher implements Runnable, Closeable {
+  private static final Logger LOG = LogManager.getLogger(ConfigFileWatcher.class);
+
+  /** Receives the files that changed, once their events have settled. */
+  public interface Listener {
+    void onChange(Set<Path> changedFiles);
+  }
+
+  private final long debounceMillis;
+  private final WatchService watchService;
+  private final Map<WatchKey, Path> watchedDirs;
+  private final Set<Path> watchedFiles;
+  private final List<Listener> listeners;
+  private volatile boolean watching;
+
+  public ConfigFileWatcher(long debounceMillis) {
+    this.debounceMillis = debounceMillis;
+    this.watchedDirs = new ConcurrentHashMap<>();
+    this.watchedFiles = ConcurrentHashMap.newKeySet();
+    this.listeners = new CopyOnWriteArrayList<>();
+    WatchService service = null;
+    try {
+      service = FileSystems.getDefault().newWatchService();
+    } catch (IOException | UnsupportedOperationException e) {
+      LOG.warn("File watches are not supported, config files will be polled.", e);
+    }
+    this.watchService = service;
+    this.watching = service != null;
+  }
+
+  /** False once a watch could not be set up, in which case the files need to be polled. */
+  public boolean isWatching() {
+    return watching;
+  }
+
+  public void subscribe(Listener listener) {
+    listeners.add(listener);
+  }
+
+  /**
+   * Starts watching a file. It does not need to exist yet, but its directory does.
+   *
+   * @return true if the file was not watched before.
+   */
+  public boolean watch(Path file) {
+    Path absolute = file.toAbsolutePath().normalize();
+    if (!watching || !watchedFiles.add(absolute)) {
+      return false;
+    }
+    Path dir = absolute.getParent();
+    if (dir != null && !watchedDirs.containsValue(dir)) {
+      try {
+        WatchKey key = dir.register(watchService,
+            StandardWatchEventKinds.ENTRY_CREATE,
+            StandardWatchEventKinds.ENTRY_MODIFY,
+            StandardWatchEventKinds.ENTRY_DELETE);
+        watchedDirs.put(key, dir);
+      } catch (IOException | UnsupportedOperationException | ClosedWatchServiceException e) {
+        LOG.warn("Could not watch {}, config files will be polled.", dir, e);
+        watching = false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public void run() {
+    if (watchService == null) {
+      return;
+    }
+    Set<Path> pending = new HashSet<>();
+    long lastEventMillis = 0;
+    try {
+      while (watching) {
+        WatchKey key;
+        if (pending.isEmpty()) {
+          key = watchService.take();
+        } else {
+          long wait = lastEventMillis + debounceMillis - System.currentTimeMillis();
+          key = wait > 0 ? watchService.poll(wait, TimeUnit.MILLISECONDS) : null;
+        }
+
+        if (key != null) {
+          collectChanges(key, pending);
+          lastEventMillis = System.currentTimeMillis();
+          if (!key.reset()) {
+            LOG.warn("Watch on {} is no longer valid, config files will be polled.", watchedDirs.get(key));
+            watchedDirs.remove(key);
+            watching = false;
+          }
+        } else if (!pending.isEmpty()) {
+          Set<Path> changed = Collections.unmodifiableSet(new HashSet<>(pending));
+          pending.clear();
+          notifyListeners(changed);
+        }
+      }
+    } catch (InterruptedException e) {
+      LOG.info("Config file watcher interrupted.");
+      Thread.currentThread().interrupt();
+    } catch (ClosedWatchServiceException e) {
+      LOG.debug("Config file watcher closed.");
+    }
+    watching = false;
+    // Hand over whatever was pending, so that the polling fallback does not miss it.
+    if (!pending.isEmpty()) {
+      notifyListeners(pending);
+    }
+  }
+
+  private void collectChanges(WatchKey key, Set<Path> pending) {
+    Path dir = watchedDirs.get(key);
+    for (WatchEvent<?> event : key.pollEvents()) {
+      if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+        pending.addAll(watchedFiles);
+      } else if (dir != null) {
+        Path file = dir.resolve((Path) event.context());
+        if (watchedFiles.contains(file)) {
+          pending.add(file);
+        }
+      }
+    }
+  }
+
+  private void notifyListeners(Set<Path> changed) {
+    LOG.debug("Config files changed: {}", changed);
+    for (Listener listener : listeners) {
+      try {
+        listener.onChange(changed);
+      } catch (RuntimeException e) {
+        LOG.error("Config change listener failed.", e);
+      }
+    }
+  }
+
+  @Override
+  public void close() {
+    watching = false;
+    if (watchService != null) {
+      try {
+        watchService.close();
+      } catch (IOException e) {
+        LOG.error("Could not close the config file watcher.", e);
+      }
+    }
+  }
+}
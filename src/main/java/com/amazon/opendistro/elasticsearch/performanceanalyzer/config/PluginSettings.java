@@ -49,6 +49,15 @@ public class PluginSettings {
   private static final long BATCH_METRICS_RETENTION_PERIOD_MINUTES_DEFAULT = 7;
   private static final long BATCH_METRICS_RETENTION_PERIOD_MINUTES_MIN = 1;
   private static final long BATCH_METRICS_RETENTION_PERIOD_MINUTES_MAX = 60;
+  private static final String RPC_SERVER_EVENT_LOOP_THREADS = "rpc-server-event-loop-threads";
+  private static final int RPC_SERVER_EVENT_LOOP_THREADS_DEFAULT = 1;
+  private static final String RPC_SERVER_EXECUTOR_THREADS = "rpc-server-executor-threads";
+  private static final int RPC_SERVER_EXECUTOR_THREADS_DEFAULT = 2;
+  private static final String RPC_PUBLISH_STREAM_WINDOW = "rpc-publish-stream-window";
+  private static final int RPC_PUBLISH_STREAM_WINDOW_DEFAULT = 8;
+  private static final String RCA_PUBLISH_CHANGES_ONLY = "rca-publish-changes-only";
+  private static final String RCA_PUBLISH_FULL_UPDATE_INTERVAL = "rca-publish-full-update-interval";
+  private static final int RCA_PUBLISH_FULL_UPDATE_INTERVAL_DEFAULT = 12;
 
   /** Determines whether the metricsdb files should be cleaned up. */
   public static final String DB_FILE_CLEANUP_CONF_NAME = "cleanup-metrics-db-files";
@@ -56,6 +65,11 @@ public class PluginSettings {
   private String metricsLocation;
   private int metricsDeletionInterval;
   private int writerQueueSize;
+  private int rpcServerEventLoopThreads;
+  private int rpcServerExecutorThreads;
+  private int rpcPublishStreamWindow;
+  private boolean rcaPublishChangesOnly;
+  private int rcaPublishFullUpdateInterval;
 
   /** If set to true, the metricsdb files are cleaned up, or else the on-disk files are left out. */
   private boolean shouldCleanupMetricsDBFiles;
@@ -87,6 +101,31 @@ public class PluginSettings {
     return writerQueueSize;
   }
 
+  /** Number of Netty event loop threads that do the network I/O of the gRPC server. */
+  public int getRpcServerEventLoopThreads() {
+    return rpcServerEventLoopThreads;
+  }
+
+  /** Number of threads that run the gRPC server calls. */
+  public int getRpcServerExecutorThreads() {
+    return rpcServerExecutorThreads;
+  }
+
+  /** Number of flow units a peer can have in flight on a publish stream before it has to wait. */
+  public int getRpcPublishStreamWindow() {
+    return rpcPublishStreamWindow;
+  }
+
+  /** Whether unchanged healthy flow units are published as heartbeats. */
+  public boolean getRcaPublishChangesOnly() {
+    return rcaPublishChangesOnly;
+  }
+
+  /** Number of heartbeats after which a flow unit is published in full again. */
+  public int getRcaPublishFullUpdateInterval() {
+    return rcaPublishFullUpdateInterval;
+  }
+
   public long getBatchMetricsRetentionPeriodMinutes() {
     return batchMetricsRetentionPeriodMinutes;
   }
@@ -150,6 +189,11 @@ public class PluginSettings {
     metricsLocation = METRICS_LOCATION_DEFAULT;
     metricsDeletionInterval = DELETION_INTERVAL_DEFAULT;
     writerQueueSize = WRITER_QUEUE_SIZE_DEFAULT;
+    rpcServerEventLoopThreads = RPC_SERVER_EVENT_LOOP_THREADS_DEFAULT;
+    rpcServerExecutorThreads = RPC_SERVER_EXECUTOR_THREADS_DEFAULT;
+    rpcPublishStreamWindow = RPC_PUBLISH_STREAM_WINDOW_DEFAULT;
+    rcaPublishChangesOnly = false;
+    rcaPublishFullUpdateInterval = RCA_PUBLISH_FULL_UPDATE_INTERVAL_DEFAULT;
     batchMetricsRetentionPeriodMinutes = BATCH_METRICS_RETENTION_PERIOD_MINUTES_DEFAULT;
     if (cfPath == null || cfPath.isEmpty()) {
       this.configFilePath = DEFAULT_CONFIG_FILE_PATH;
@@ -166,6 +210,12 @@ public class PluginSettings {
       loadHttpsEnabled();
       loadMetricsDBFilesCleanupEnabled();
       loadBatchMetricsRetentionPeriodMinutesFromConfig();
+      rpcServerEventLoopThreads = loadPositiveIntFromConfig(RPC_SERVER_EVENT_LOOP_THREADS, rpcServerEventLoopThreads);
+      rpcServerExecutorThreads = loadPositiveIntFromConfig(RPC_SERVER_EXECUTOR_THREADS, rpcServerExecutorThreads);
+      rpcPublishStreamWindow = loadPositiveIntFromConfig(RPC_PUBLISH_STREAM_WINDOW, rpcPublishStreamWindow);
+      rcaPublishChangesOnly = Boolean.parseBoolean(settings.getProperty(RCA_PUBLISH_CHANGES_ONLY, "false").trim());
+      rcaPublishFullUpdateInterval =
+          loadPositiveIntFromConfig(RCA_PUBLISH_FULL_UPDATE_INTERVAL, rcaPublishFullUpdateInterval);
     } catch (ConfigFileException e) {
       LOG.error(
           "Loading config file {} failed with error: {}. Disabling plugin.",
@@ -283,6 +333,23 @@ public class PluginSettings {
     }
   }
 
+  private int loadPositiveIntFromConfig(String key, int defaultValue) {
+    if (!settings.containsKey(key)) {
+      return defaultValue;
+    }
+
+    try {
+      int value = Integer.parseInt(settings.getProperty(key).trim());
+      if (value > 0) {
+        return value;
+      }
+      LOG.error("{} must be positive. Using default value {}.", key, defaultValue);
+    } catch (NumberFormatException e) {
+      LOG.error("Invalid {}. Using default value {}.", key, defaultValue, e);
+    }
+    return defaultValue;
+  }
+
   private void loadMetricsDBFilesCleanupEnabled() {
     String cleanupEnabledString = settings.getProperty(DB_FILE_CLEANUP_CONF_NAME, "True");
     try {
@@ -0,0 +1,318 @@
+/*
+ * Copyright 2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.decisionmaker.actions;
+
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.decisionmaker.actions.configs.ActionEffectivenessConfig;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.grpc.ResourceEnum;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.api.flow_units.ResourceFlowUnit;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.api.summaries.HotClusterSummary;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.api.summaries.HotNodeSummary;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.api.summaries.HotResourceSummary;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.store.rca.cluster.NodeKey;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Tracks whether the published actions relieved the nodes they were published for, so that the
+ * deciders can stop proposing the actions that do not help.
+ *
+ * <p>An action targets a signal: the resource it acts on, as reported hot by the cluster RCAs on each
+ * of its nodes, such as the rejections of the queue a {@link ModifyQueueCapacityAction} resizes or
+ * the evictions of the cache a {@link ModifyCacheMaxSizeAction} resizes. When the action is published
+ * the last value of the signal is kept as a baseline, and the cluster RCA flow units computed in the
+ * observation window that follows are compared against it. An observation improved if the resource
+ * is no longer hot on the node, or is less hot than it was before the action. The share of improved
+ * observations is the outcome of the action, and is folded into an exponentially smoothed score per
+ * action type, node and resource.
+ *
+ * <p>The deciders feed the flow units of the cluster RCAs they read with {@link #observe}, and check
+ * {@link #isIneffective} before proposing an action. A suppressed action is not published, and so
+ * would never be evaluated again: it is only suppressed for a while after its last evaluation, and is
+ * then proposed again as a probe whose outcome decides whether it stays suppressed. The scores are
+ * kept in memory, and start over when the decision maker is rebuilt.
+ */
+public class ActionEffectivenessTracker implements ActionListener {
+  private static final Logger LOG = LogManager.getLogger(ActionEffectivenessTracker.class);
+  // The score of an action that has not been evaluated yet, actions are deemed effective until then.
+  public static final double DEFAULT_SCORE = 1.0;
+
+  private final Clock clock;
+  private long observationWindowMillis =
+      TimeUnit.SECONDS.toMillis(ActionEffectivenessConfig.DEFAULT_OBSERVATION_WINDOW_SECONDS);
+  private double smoothingFactor = ActionEffectivenessConfig.DEFAULT_SMOOTHING_FACTOR;
+  private int minEvaluations = ActionEffectivenessConfig.DEFAULT_MIN_EVALUATIONS;
+  private double suppressionThreshold = ActionEffectivenessConfig.DEFAULT_SUPPRESSION_THRESHOLD;
+  private long suppressionMillis = TimeUnit.SECONDS.toMillis(ActionEffectivenessConfig.DEFAULT_SUPPRESSION_SECONDS);
+
+  // The last value of each signal reported hot, a signal is absent while its resource is healthy.
+  private final Map<Signal, Double> lastValues = new HashMap<>();
+  private final List<Observation> observations = new ArrayList<>();
+  private final Map<ScoreKey, Score> scores = new HashMap<>();
+
+  /**
+   * A resource of a node.
+   */
+  private static final class Signal {
+    private final NodeKey node;
+    private final ResourceEnum resource;
+
+    private Signal(NodeKey node, ResourceEnum resource) {
+      this.node = node;
+      this.resource = resource;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Signal)) {
+        return false;
+      }
+      Signal signal = (Signal) o;
+      return node.equals(signal.node) && resource == signal.resource;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(node, resource);
+    }
+  }
+
+  /**
+   * An action type, on a signal.
+   */
+  private static final class ScoreKey {
+    private final String actionName;
+    private final Signal signal;
+
+    private ScoreKey(String actionName, Signal signal) {
+      this.actionName = actionName;
+      this.signal = signal;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof ScoreKey)) {
+        return false;
+      }
+      ScoreKey key = (ScoreKey) o;
+      return actionName.equals(key.actionName) && signal.equals(key.signal);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(actionName, signal);
+    }
+  }
+
+  /**
+   * A published action on one of its nodes, while it is being watched.
+   */
+  private static final class Observation {
+    private final ScoreKey key;
+    private final long publishedAtMillis;
+    @Nullable private final Double baseline;
+    private int samples = 0;
+    private int improvedSamples = 0;
+
+    private Observation(ScoreKey key, long publishedAtMillis, @Nullable Double baseline) {
+      this.key = key;
+      this.publishedAtMillis = publishedAtMillis;
+      this.baseline = baseline;
+    }
+
+    private void sample(@Nullable Double value) {
+      samples++;
+      if (value == null || (baseline != null && value < baseline)) {
+        improvedSamples++;
+      }
+    }
+  }
+
+  private static final class Score {
+    private double value;
+    private int evaluations;
+    private long evaluatedAtMillis;
+
+    private Score(double value, long evaluatedAtMillis) {
+      this.value = value;
+      this.evaluations = 1;
+      this.evaluatedAtMillis = evaluatedAtMillis;
+    }
+  }
+
+  public ActionEffectivenessTracker(Clock clock) {
+    this.clock = clock;
+  }
+
+  public synchronized void configure(ActionEffectivenessConfig config) {
+    this.observationWindowMillis = TimeUnit.SECONDS.toMillis(config.getObservationWindowSeconds());
+    this.smoothingFactor = config.getSmoothingFactor();
+    this.minEvaluations = config.getMinEvaluations();
+    this.suppressionThreshold = config.getSuppressionThreshold();
+    this.suppressionMillis = TimeUnit.SECONDS.toMillis(config.getSuppressionSeconds());
+  }
+
+  /**
+   * Records the signals of a cluster RCA flow unit, and evaluates the actions whose observation window
+   * is over.
+   *
+   * @param resources The resources the RCA reports on. Those not in the flow unit are healthy.
+   * @param flowUnit  The latest flow unit of the RCA.
+   */
+  public synchronized void observe(Collection<ResourceEnum> resources, ResourceFlowUnit<HotClusterSummary> flowUnit) {
+    if (flowUnit.isEmpty()) {
+      return;
+    }
+    lastValues.keySet().removeIf(signal -> resources.contains(signal.resource));
+    if (flowUnit.hasResourceSummary()) {
+      for (HotNodeSummary nodeSummary : flowUnit.getSummary().getHotNodeSummaryList()) {
+        NodeKey node = new NodeKey(nodeSummary.getNodeID(), nodeSummary.getHostAddress());
+        for (HotResourceSummary resourceSummary : nodeSummary.getHotResourceSummaryList()) {
+          ResourceEnum resource = resourceSummary.getResource().getResourceEnum();
+          if (resources.contains(resource)) {
+            lastValues.merge(new Signal(node, resource), resourceSummary.getValue(), Math::max);
+          }
+        }
+      }
+    }
+
+    long now = clock.millis();
+    Iterator<Observation> iterator = observations.iterator();
+    while (iterator.hasNext()) {
+      Observation observation = iterator.next();
+      if (now > observation.publishedAtMillis + observationWindowMillis) {
+        evaluate(observation);
+        iterator.remove();
+      } else if (flowUnit.getTimeStamp() > observation.publishedAtMillis
+          && resources.contains(observation.key.signal.resource)) {
+        observation.sample(lastValues.get(observation.key.signal));
+      }
+    }
+  }
+
+  /**
+   * Starts watching the signal the action targets on each of its nodes. A previous publication of the
+   * same action on a node is evaluated on what was observed so far.
+   */
+  @Override
+  public synchronized void actionPublished(Action action) {
+    ResourceEnum resource = targetResource(action);
+    if (resource == null) {
+      return;
+    }
+    long now = clock.millis();
+    for (NodeKey node : action.impactedNodes()) {
+      ScoreKey key = new ScoreKey(action.name(), new Signal(node, resource));
+      Iterator<Observation> iterator = observations.iterator();
+      while (iterator.hasNext()) {
+        Observation observation = iterator.next();
+        if (observation.key.equals(key)) {
+          evaluate(observation);
+          iterator.remove();
+        }
+      }
+      observations.add(new Observation(key, now, lastValues.get(key.signal)));
+    }
+  }
+
+  private void evaluate(Observation observation) {
+    if (observation.samples == 0) {
+      LOG.debug("ActionEffectivenessTracker: No observation of {} on {}, it is not evaluated",
+          observation.key.actionName, observation.key.signal.node);
+      return;
+    }
+    double outcome = (double) observation.improvedSamples / observation.samples;
+    Score score = scores.get(observation.key);
+    if (score == null) {
+      scores.put(observation.key, new Score(outcome, clock.millis()));
+    } else {
+      score.value = smoothingFactor * outcome + (1 - smoothingFactor) * score.value;
+      score.evaluations++;
+      score.evaluatedAtMillis = clock.millis();
+    }
+    LOG.debug("ActionEffectivenessTracker: {} on {} improved {} of {} observations",
+        observation.key.actionName, observation.key.signal.node, observation.improvedSamples, observation.samples);
+  }
+
+  /**
+   * Returns true if the action has been evaluated enough times on each of its nodes, and its score is
+   * under the suppression threshold on all of them. The action is not deemed ineffective on a node
+   * once the suppression period since its last evaluation there is over, so that it gets published
+   * and evaluated again.
+   */
+  public synchronized boolean isIneffective(Action action) {
+    ResourceEnum resource = targetResource(action);
+    if (resource == null || action.impactedNodes().isEmpty()) {
+      return false;
+    }
+    long now = clock.millis();
+    for (NodeKey node : action.impactedNodes()) {
+      Score score = scores.get(new ScoreKey(action.name(), new Signal(node, resource)));
+      if (score == null || score.evaluations < minEvaluations || score.value >= suppressionThreshold
+          || now - score.evaluatedAtMillis > suppressionMillis) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return the effectiveness score of the action on a node, between 0 and 1, or {@link #DEFAULT_SCORE}
+   *     if it has not been evaluated yet.
+   */
+  public synchronized double getScore(Action action, NodeKey node) {
+    ResourceEnum resource = targetResource(action);
+    Score score = resource == null ? null : scores.get(new ScoreKey(action.name(), new Signal(node, resource)));
+    return score == null ? DEFAULT_SCORE : score.value;
+  }
+
+  /**
+   * @return the number of times the action was evaluated on a node.
+   */
+  public synchronized int getEvaluations(Action action, NodeKey node) {
+    ResourceEnum resource = targetResource(action);
+    Score score = resource == null ? null : scores.get(new ScoreKey(action.name(), new Signal(node, resource)));
+    return score == null ? 0 : score.evaluations;
+  }
+
+  /**
+   * @return the resource whose signal the action is expected to relieve, or null if it is not tracked.
+   */
+  @Nullable
+  private static ResourceEnum targetResource(Action action) {
+    if (action instanceof ModifyQueueCapacityAction) {
+      return ((ModifyQueueCapacityAction) action).getThreadPool();
+    } else if (action instanceof ModifyCacheMaxSizeAction) {
+      return ((ModifyCacheMaxSizeAction) action).getCacheType();
+    }
+    return null;
+  }
+}
@@ -0,0 +1,296 @@
+/*
+ * Copyright 2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.decisionmaker.actions;
+
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.decisionmaker.actions.configs.ActionGovernorConfig;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.decisionmaker.actions.configs.ActionGovernorConfig.BucketConfig;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.decisionmaker.deciders.collator.Collator;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.store.rca.cluster.NodeKey;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Limits the rate at which the Publisher changes the cluster, with token buckets for the whole
+ * cluster, for each action type and for each node. An action is published only if every bucket it
+ * draws from has the tokens for it, and it then takes them from all of them.
+ *
+ * <p>The actions over budget are deferred: they are retried on the next evaluations, before the
+ * newly proposed actions of the same impact, until they are published, superseded by a new proposal
+ * of the same action on the same nodes, or expired. The actions are retried in the order of their
+ * impact, the ones that decrease pressure on the most dimensions first.
+ *
+ * <p>The bucket levels are kept in a state file, so that a restart does not hand out a new budget.
+ * The governor does not limit anything until it is configured, nor for the buckets with no capacity.
+ */
+public class ActionGovernor {
+  private static final Logger LOG = LogManager.getLogger(ActionGovernor.class);
+  private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+  private static final String CLUSTER_BUCKET = "cluster";
+  private static final String ACTION_BUCKET_PREFIX = "action/";
+  private static final String NODE_BUCKET_PREFIX = "node/";
+
+  private final Clock clock;
+  private final boolean durable;
+  private final Comparator<Action> priorityComparator = new Collator.ImpactBasedActionComparator().reversed();
+  private final Map<String, TokenBucket> buckets = new HashMap<>();
+  private final Map<String, DeferredAction> deferredActions = new LinkedHashMap<>();
+  // The deferral times of the deferred actions handed out for a retry, until they are deferred again.
+  private final Map<Action, Long> retriedActions = new IdentityHashMap<>();
+  @Nullable private ActionGovernorConfig config;
+  @Nullable private Path stateFile;
+  private boolean dirty = false;
+
+  private static class DeferredAction {
+    private final Action action;
+    private final long deferredAtMillis;
+
+    DeferredAction(Action action, long deferredAtMillis) {
+      this.action = action;
+      this.deferredAtMillis = deferredAtMillis;
+    }
+  }
+
+  private static class Content {
+    private Map<String, TokenBucket> buckets = new HashMap<>();
+  }
+
+  /**
+   * @param clock   The clock the buckets are refilled by.
+   * @param durable Whether the bucket levels are kept in the configured state file.
+   */
+  public ActionGovernor(Clock clock, boolean durable) {
+    this.clock = clock;
+    this.durable = durable;
+  }
+
+  /**
+   * Applies the budgets of the config. The bucket levels are read from the state file the first time
+   * it is configured, and are capped by the capacities of the config.
+   */
+  public void configure(ActionGovernorConfig config) {
+    this.config = config;
+    if (durable) {
+      Path configuredStateFile = Paths.get(config.getStateFile());
+      if (!configuredStateFile.equals(stateFile)) {
+        stateFile = configuredStateFile;
+        load();
+      }
+    }
+    for (Map.Entry<String, TokenBucket> entry : new ArrayList<>(buckets.entrySet())) {
+      BucketConfig bucketConfig = bucketConfig(entry.getKey());
+      if (bucketConfig.isUnlimited()) {
+        buckets.remove(entry.getKey());
+      } else {
+        entry.getValue().resize(bucketConfig.getCapacity(), TimeUnit.SECONDS.toMillis(bucketConfig.getRefillSeconds()));
+      }
+    }
+  }
+
+  /**
+   * Merges the deferred actions that are still due with the newly proposed actions, and orders them
+   * by their impact. A deferred action is dropped when a new action of the same type is proposed for
+   * the same nodes, and once it has been deferred for longer than the deferral period. When there is
+   * no budget to draw from and nothing deferred, the proposed actions are returned as they are.
+   *
+   * @param proposedActions The actions proposed in this evaluation.
+   * @return the actions to publish, in the order they should draw from the budgets.
+   */
+  public List<Action> prioritize(List<Action> proposedActions) {
+    retriedActions.clear();
+    if (deferredActions.isEmpty() && (config == null || config.isUnlimited())) {
+      return proposedActions;
+    }
+    long now = clock.millis();
+    Set<String> proposedKeys = new HashSet<>();
+    for (Action action : proposedActions) {
+      proposedKeys.add(deferralKey(action));
+    }
+
+    List<Action> prioritized = new ArrayList<>();
+    Iterator<Map.Entry<String, DeferredAction>> iterator = deferredActions.entrySet().iterator();
+    while (iterator.hasNext()) {
+      Map.Entry<String, DeferredAction> entry = iterator.next();
+      DeferredAction deferred = entry.getValue();
+      iterator.remove();
+      if (proposedKeys.contains(entry.getKey())) {
+        continue;
+      }
+      if (config == null || now - deferred.deferredAtMillis > TimeUnit.SECONDS.toMillis(config.getDeferralSeconds())) {
+        LOG.debug("ActionGovernor: Dropping deferred action {} on {}", deferred.action.name(),
+            deferred.action.impactedNodes());
+        continue;
+      }
+      retriedActions.put(deferred.action, deferred.deferredAtMillis);
+      prioritized.add(deferred.action);
+    }
+    prioritized.addAll(proposedActions);
+    prioritized.sort(priorityComparator);
+    return prioritized;
+  }
+
+  /**
+   * Takes the tokens of an action from all the buckets it draws from, if they all have them. An
+   * action takes a token per impacted node from the cluster bucket and from the bucket of its type,
+   * and a token from the bucket of each impacted node.
+   *
+   * @return true if the action is within the budgets, and can be published.
+   */
+  public boolean tryAcquire(Action action) {
+    if (config == null) {
+      return true;
+    }
+    long now = clock.millis();
+    int changes = action.impactedNodes().size();
+    Map<TokenBucket, Integer> charges = new LinkedHashMap<>();
+    charge(charges, CLUSTER_BUCKET, changes, now);
+    charge(charges, ACTION_BUCKET_PREFIX + action.name(), changes, now);
+    for (NodeKey node : action.impactedNodes()) {
+      charge(charges, NODE_BUCKET_PREFIX + node.getNodeId(), 1, now);
+    }
+
+    for (Map.Entry<TokenBucket, Integer> charge : charges.entrySet()) {
+      if (!charge.getKey().hasTokens(charge.getValue(), now)) {
+        return false;
+      }
+    }
+    for (Map.Entry<TokenBucket, Integer> charge : charges.entrySet()) {
+      charge.getKey().take(charge.getValue());
+    }
+    if (!charges.isEmpty()) {
+      dirty = true;
+    }
+    return true;
+  }
+
+  /**
+   * Holds an action back until the budgets it draws from have been refilled. An action that was
+   * retried keeps the time it was first deferred at.
+   */
+  public void defer(Action action) {
+    Long deferredAtMillis = retriedActions.remove(action);
+    deferredActions.put(deferralKey(action),
+        new DeferredAction(action, deferredAtMillis != null ? deferredAtMillis : clock.millis()));
+  }
+
+  /**
+   * Writes the bucket levels to the state file, if they changed since they were last written. It
+   * writes to a temporary file and moves it in place, so that a crash never leaves a partial state
+   * behind. The full buckets are left out, as they are the same as new ones.
+   */
+  public void save() throws IOException {
+    if (!durable || !dirty || stateFile == null) {
+      return;
+    }
+    long now = clock.millis();
+    Content content = new Content();
+    for (Map.Entry<String, TokenBucket> entry : buckets.entrySet()) {
+      entry.getValue().refill(now);
+      if (!entry.getValue().isFull()) {
+        content.buckets.put(entry.getKey(), entry.getValue());
+      }
+    }
+    Path tmp = stateFile.resolveSibling(stateFile.getFileName() + ".tmp");
+    try (Writer writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+      GSON.toJson(content, writer);
+    }
+    Files.move(tmp, stateFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    dirty = false;
+  }
+
+  private void load() {
+    buckets.clear();
+    if (!Files.exists(stateFile)) {
+      return;
+    }
+    try (Reader reader = Files.newBufferedReader(stateFile, StandardCharsets.UTF_8)) {
+      Content content = GSON.fromJson(reader, Content.class);
+      if (content != null && content.buckets != null) {
+        buckets.putAll(content.buckets);
+      }
+    } catch (IOException | JsonParseException e) {
+      LOG.error("Could not read the action governor state {}, starting with full budgets.", stateFile, e);
+    }
+  }
+
+  private void charge(Map<TokenBucket, Integer> charges, String key, int tokens, long now) {
+    BucketConfig bucketConfig = bucketConfig(key);
+    if (bucketConfig.isUnlimited()) {
+      return;
+    }
+    long refillPeriodMillis = TimeUnit.SECONDS.toMillis(bucketConfig.getRefillSeconds());
+    TokenBucket bucket = buckets.computeIfAbsent(key,
+        k -> new TokenBucket(bucketConfig.getCapacity(), refillPeriodMillis, now));
+    charges.merge(bucket, tokens, Integer::sum);
+  }
+
+  private BucketConfig bucketConfig(String key) {
+    if (key.startsWith(ACTION_BUCKET_PREFIX)) {
+      return config.getActionBucketConfig(key.substring(ACTION_BUCKET_PREFIX.length()));
+    } else if (key.startsWith(NODE_BUCKET_PREFIX)) {
+      return config.getNodeBucketConfig();
+    }
+    return config.getClusterBucketConfig();
+  }
+
+  private static String deferralKey(Action action) {
+    Set<String> nodes = new TreeSet<>();
+    for (NodeKey node : action.impactedNodes()) {
+      nodes.add(node.toString());
+    }
+    return action.name() + nodes;
+  }
+
+  @VisibleForTesting
+  int getTokens(String bucketKey) {
+    TokenBucket bucket = buckets.get(bucketKey);
+    if (bucket == null) {
+      return -1;
+    }
+    bucket.refill(clock.millis());
+    return bucket.getTokens();
+  }
+
+  @VisibleForTesting
+  int getDeferredActionCount() {
+    return deferredActions.size();
+  }
+}
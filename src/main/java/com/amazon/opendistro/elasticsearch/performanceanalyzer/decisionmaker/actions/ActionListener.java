@@ -21,8 +21,32 @@ package com.amazon.opendistro.elasticsearch.performanceanalyzer.decisionmaker.ac
  */
 public interface ActionListener {
 
+  /**
+   * Why the Publisher held back an action
+   */
+  enum SuppressionReason {
+    /**
+     * The action was published on one of its nodes less than its cool off period ago
+     */
+    COOLING_OFF,
+    /**
+     * The action would undo the impact of a recently published action
+     */
+    FLIP_FLOP,
+    /**
+     * The action is over the budget of the action governor, and is deferred
+     */
+    RATE_LIMITED
+  }
+
   /**
    * Called when Publisher emits an action
    */
   void actionPublished(Action action);
+
+  /**
+   * Called when Publisher holds back an action proposed by the collator
+   */
+  default void actionSuppressed(Action action, SuppressionReason reason) {
+  }
 }
@@ -34,8 +34,16 @@ public class CoolOffDetector {
   private Clock clock;
 
   public CoolOffDetector() {
+    this(Clock.systemUTC());
+  }
+
+  /**
+   * @param clock The clock the cool off periods are measured by. Actions are cooling off from the
+   *              time the detector is constructed.
+   */
+  public CoolOffDetector(Clock clock) {
     this.actionToExecutionTime = new HashMap<>();
-    this.clock = Clock.systemUTC();
+    this.clock = clock;
     this.initTime = clock.millis();
   }
 
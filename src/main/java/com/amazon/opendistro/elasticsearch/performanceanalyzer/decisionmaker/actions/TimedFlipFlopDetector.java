@@ -19,6 +19,7 @@ import com.amazon.opendistro.elasticsearch.performanceanalyzer.collections.TimeE
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.decisionmaker.actions.ImpactVector.Dimension;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.decisionmaker.actions.ImpactVector.Impact;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.store.rca.cluster.NodeKey;
+import com.google.common.base.Ticker;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
@@ -36,11 +37,21 @@ public class TimedFlipFlopDetector implements FlipFlopDetector {
     private Map<NodeKey, TimeExpiringSet<ImpactVector>> flipFlopMap;
     private long expiryDuration;
     private TimeUnit expiryUnit;
+    private Ticker ticker;
 
     public TimedFlipFlopDetector(long duration, TimeUnit unit) {
+        this(duration, unit, Ticker.systemTicker());
+    }
+
+    /**
+     * @param ticker The source of the time the recorded actions expire by, e.g. a virtual clock
+     *               when the actions are replayed
+     */
+    public TimedFlipFlopDetector(long duration, TimeUnit unit, Ticker ticker) {
         flipFlopMap = new HashMap<>();
         this.expiryDuration = duration;
         this.expiryUnit = unit;
+        this.ticker = ticker;
     }
 
     /**
@@ -96,7 +107,7 @@ public class TimedFlipFlopDetector implements FlipFlopDetector {
         for (Map.Entry<NodeKey, ImpactVector> entry : action.impact().entrySet()) {
             flipFlopMap.compute(entry.getKey(), (k, v) -> {
                 if (v == null) {
-                    v = new TimeExpiringSet<>(expiryDuration, expiryUnit);
+                    v = new TimeExpiringSet<>(expiryDuration, expiryUnit, ticker);
                 }
                 v.add(entry.getValue());
                 return v;
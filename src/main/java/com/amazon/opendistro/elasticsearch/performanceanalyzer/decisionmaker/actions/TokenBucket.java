@@ -0,0 +1,81 @@
+/*
+ * Copyright 2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.decisionmaker.actions;
+
+/**
+ * A bucket of tokens that gets a token back every refill period, up to its capacity. The bucket is
+ * refilled lazily, from the time it was last refilled, so that its state is only the level and that
+ * time, and it keeps refilling while the process is down.
+ */
+class TokenBucket {
+  private int capacity;
+  private long refillPeriodMillis;
+  private int tokens;
+  private long lastRefillMillis;
+
+  TokenBucket(int capacity, long refillPeriodMillis, long nowMillis) {
+    this.capacity = capacity;
+    this.refillPeriodMillis = refillPeriodMillis;
+    this.tokens = capacity;
+    this.lastRefillMillis = nowMillis;
+  }
+
+  /**
+   * Applies a new capacity and refill period. The tokens above the new capacity are dropped.
+   */
+  void resize(int capacity, long refillPeriodMillis) {
+    this.capacity = capacity;
+    this.refillPeriodMillis = refillPeriodMillis;
+    this.tokens = Math.min(tokens, capacity);
+  }
+
+  /**
+   * Adds the tokens of the refill periods that elapsed since the last refill. A full bucket does not
+   * bank refill periods, its next token comes a full period after it is first drawn from.
+   */
+  void refill(long nowMillis) {
+    if (tokens >= capacity || nowMillis < lastRefillMillis) {
+      lastRefillMillis = nowMillis;
+      return;
+    }
+    long periods = (nowMillis - lastRefillMillis) / refillPeriodMillis;
+    if (periods > 0) {
+      tokens = (int) Math.min(capacity, tokens + periods);
+      lastRefillMillis = tokens >= capacity ? nowMillis : lastRefillMillis + periods * refillPeriodMillis;
+    }
+  }
+
+  boolean hasTokens(int count, long nowMillis) {
+    refill(nowMillis);
+    return tokens >= count;
+  }
+
+  void take(int count) {
+    tokens -= count;
+  }
+
+  boolean isFull() {
+    return tokens >= capacity;
+  }
+
+  int getTokens() {
+    return tokens;
+  }
+
+  int getCapacity() {
+    return capacity;
+  }
+}
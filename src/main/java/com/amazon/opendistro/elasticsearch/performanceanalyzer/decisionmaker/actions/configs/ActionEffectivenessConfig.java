@@ -0,0 +1,99 @@
+/*
+ * Copyright 2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.decisionmaker.actions.configs;
+
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.core.Config;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.core.NestedConfig;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.core.RcaConf;
+
+/**
+ * Defines how the effectiveness of the published actions is measured, and when the deciders stop
+ * proposing an action that has not helped a node.
+ *
+ * <p>Configs are expected in the following json format:
+ * {
+ *   "action-config-settings": {
+ *     "effectiveness-settings": {
+ *       // How long the signals an action targets are watched for after it is published
+ *       "observation-window-seconds": 600,
+ *       // Weight of the latest evaluation in the effectiveness score, the rest is the past score
+ *       "smoothing-factor": 0.5,
+ *       // Evaluations of an action on a node before its score is trusted
+ *       "min-evaluations": 3,
+ *       // Score under which the deciders stop proposing the action for the node
+ *       "suppression-threshold": 0.2,
+ *       // How long after its last evaluation an action stays suppressed, before it is tried again
+ *       "suppression-seconds": 3600
+ *     }
+ *   }
+ * }
+ */
+public class ActionEffectivenessConfig {
+
+  public static final String EFFECTIVENESS_SETTINGS_CONFIG_NAME = "effectiveness-settings";
+  public static final String OBSERVATION_WINDOW_SECONDS_CONFIG_NAME = "observation-window-seconds";
+  public static final String SMOOTHING_FACTOR_CONFIG_NAME = "smoothing-factor";
+  public static final String MIN_EVALUATIONS_CONFIG_NAME = "min-evaluations";
+  public static final String SUPPRESSION_THRESHOLD_CONFIG_NAME = "suppression-threshold";
+  public static final String SUPPRESSION_SECONDS_CONFIG_NAME = "suppression-seconds";
+
+  public static final int DEFAULT_OBSERVATION_WINDOW_SECONDS = 600;
+  public static final double DEFAULT_SMOOTHING_FACTOR = 0.5;
+  public static final int DEFAULT_MIN_EVALUATIONS = 3;
+  public static final double DEFAULT_SUPPRESSION_THRESHOLD = 0.2;
+  public static final int DEFAULT_SUPPRESSION_SECONDS = 3600;
+
+  private final Config<Integer> observationWindowSeconds;
+  private final Config<Double> smoothingFactor;
+  private final Config<Integer> minEvaluations;
+  private final Config<Double> suppressionThreshold;
+  private final Config<Integer> suppressionSeconds;
+
+  public ActionEffectivenessConfig(RcaConf conf) {
+    NestedConfig effectivenessSettings =
+        new NestedConfig(EFFECTIVENESS_SETTINGS_CONFIG_NAME, conf.getActionConfigSettings());
+    observationWindowSeconds = new Config<>(OBSERVATION_WINDOW_SECONDS_CONFIG_NAME,
+        effectivenessSettings.getValue(), DEFAULT_OBSERVATION_WINDOW_SECONDS, (s) -> (s > 0), Integer.class);
+    smoothingFactor = new Config<>(SMOOTHING_FACTOR_CONFIG_NAME, effectivenessSettings.getValue(),
+        DEFAULT_SMOOTHING_FACTOR, (s) -> (s > 0 && s <= 1), Double.class);
+    minEvaluations = new Config<>(MIN_EVALUATIONS_CONFIG_NAME, effectivenessSettings.getValue(),
+        DEFAULT_MIN_EVALUATIONS, (s) -> (s > 0), Integer.class);
+    suppressionThreshold = new Config<>(SUPPRESSION_THRESHOLD_CONFIG_NAME, effectivenessSettings.getValue(),
+        DEFAULT_SUPPRESSION_THRESHOLD, (s) -> (s >= 0 && s <= 1), Double.class);
+    suppressionSeconds = new Config<>(SUPPRESSION_SECONDS_CONFIG_NAME, effectivenessSettings.getValue(),
+        DEFAULT_SUPPRESSION_SECONDS, (s) -> (s > 0), Integer.class);
+  }
+
+  public int getObservationWindowSeconds() {
+    return observationWindowSeconds.getValue();
+  }
+
+  public double getSmoothingFactor() {
+    return smoothingFactor.getValue();
+  }
+
+  public int getMinEvaluations() {
+    return minEvaluations.getValue();
+  }
+
+  public double getSuppressionThreshold() {
+    return suppressionThreshold.getValue();
+  }
+
+  public int getSuppressionSeconds() {
+    return suppressionSeconds.getValue();
+  }
+}
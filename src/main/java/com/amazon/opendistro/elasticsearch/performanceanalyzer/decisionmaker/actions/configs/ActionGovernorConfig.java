@@ -0,0 +1,165 @@
+/*
+ * Copyright 2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.decisionmaker.actions.configs;
+
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.core.Config;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.core.NestedConfig;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.core.RcaConf;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * Defines the budgets of the action governor, which limits how many changes the Publisher makes
+ * across the cluster. A token is one change on one node: an action costs one token per impacted node
+ * in the cluster bucket and in the bucket of its type, and one token in the bucket of each node.
+ * A bucket with a capacity of 0 does not limit anything, which is the default.
+ *
+ * <p>Configs are expected in the following json format:
+ * {
+ *   "action-config-settings": {
+ *     "governor-settings": {
+ *       // Where the bucket levels are kept across restarts
+ *       "state-file": "/tmp/action_governor.json",
+ *       // How long an action held back by a budget is retried before it is dropped
+ *       "deferral-seconds": 300,
+ *       "cluster": {
+ *         "capacity": 20,
+ *         "refill-seconds": 60
+ *       },
+ *       "node": {
+ *         "capacity": 2,
+ *         "refill-seconds": 600
+ *       },
+ *       "actions": {
+ *         "ModifyQueueCapacity": {
+ *           "capacity": 10,
+ *           "refill-seconds": 60
+ *         }
+ *       }
+ *     }
+ *   }
+ * }
+ */
+public class ActionGovernorConfig {
+
+  public static final String GOVERNOR_SETTINGS_CONFIG_NAME = "governor-settings";
+  public static final String STATE_FILE_CONFIG_NAME = "state-file";
+  public static final String DEFERRAL_SECONDS_CONFIG_NAME = "deferral-seconds";
+  public static final String CLUSTER_CONFIG_NAME = "cluster";
+  public static final String NODE_CONFIG_NAME = "node";
+  public static final String ACTIONS_CONFIG_NAME = "actions";
+  public static final String CAPACITY_CONFIG_NAME = "capacity";
+  public static final String REFILL_SECONDS_CONFIG_NAME = "refill-seconds";
+
+  public static final String DEFAULT_STATE_FILE = "/tmp/action_governor.json";
+  public static final int DEFAULT_DEFERRAL_SECONDS = 300;
+  public static final int DEFAULT_CAPACITY = 0;
+  public static final int DEFAULT_REFILL_SECONDS = 60;
+
+  private final Config<String> stateFile;
+  private final Config<Integer> deferralSeconds;
+  private final BucketConfig clusterBucketConfig;
+  private final BucketConfig nodeBucketConfig;
+  private final Map<String, BucketConfig> actionBucketConfigs;
+
+  public ActionGovernorConfig(RcaConf conf) {
+    NestedConfig governorSettings = new NestedConfig(GOVERNOR_SETTINGS_CONFIG_NAME, conf.getActionConfigSettings());
+    stateFile = new Config<>(STATE_FILE_CONFIG_NAME, governorSettings.getValue(), DEFAULT_STATE_FILE,
+        (s) -> !s.isEmpty(), String.class);
+    deferralSeconds = new Config<>(DEFERRAL_SECONDS_CONFIG_NAME, governorSettings.getValue(),
+        DEFAULT_DEFERRAL_SECONDS, (s) -> (s >= 0), Integer.class);
+    clusterBucketConfig = new BucketConfig(new NestedConfig(CLUSTER_CONFIG_NAME, governorSettings.getValue()));
+    nodeBucketConfig = new BucketConfig(new NestedConfig(NODE_CONFIG_NAME, governorSettings.getValue()));
+
+    Map<String, BucketConfig> actionConfigs = new HashMap<>();
+    NestedConfig actionsConfig = new NestedConfig(ACTIONS_CONFIG_NAME, governorSettings.getValue());
+    if (actionsConfig.getValue() != null) {
+      for (String actionName : actionsConfig.getValue().keySet()) {
+        actionConfigs.put(actionName, new BucketConfig(new NestedConfig(actionName, actionsConfig.getValue())));
+      }
+    }
+    actionBucketConfigs = Collections.unmodifiableMap(actionConfigs);
+  }
+
+  public String getStateFile() {
+    return stateFile.getValue();
+  }
+
+  public int getDeferralSeconds() {
+    return deferralSeconds.getValue();
+  }
+
+  public BucketConfig getClusterBucketConfig() {
+    return clusterBucketConfig;
+  }
+
+  public BucketConfig getNodeBucketConfig() {
+    return nodeBucketConfig;
+  }
+
+  /**
+   * @return the budget of an action type, an unlimited one if it has none configured.
+   */
+  public BucketConfig getActionBucketConfig(String actionName) {
+    return actionBucketConfigs.getOrDefault(actionName, BucketConfig.UNLIMITED);
+  }
+
+  /**
+   * @return true if none of the budgets limits anything.
+   */
+  public boolean isUnlimited() {
+    if (!clusterBucketConfig.isUnlimited() || !nodeBucketConfig.isUnlimited()) {
+      return false;
+    }
+    for (BucketConfig actionBucketConfig : actionBucketConfigs.values()) {
+      if (!actionBucketConfig.isUnlimited()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * The size of a token bucket, and how often it gets a token back.
+   */
+  public static class BucketConfig {
+    static final BucketConfig UNLIMITED = new BucketConfig(new NestedConfig(CAPACITY_CONFIG_NAME, null));
+
+    private final Config<Integer> capacity;
+    private final Config<Integer> refillSeconds;
+
+    BucketConfig(NestedConfig bucketConfig) {
+      @Nullable Map<String, Object> value = bucketConfig.getValue();
+      capacity = new Config<>(CAPACITY_CONFIG_NAME, value, DEFAULT_CAPACITY, (s) -> (s >= 0), Integer.class);
+      refillSeconds = new Config<>(REFILL_SECONDS_CONFIG_NAME, value, DEFAULT_REFILL_SECONDS, (s) -> (s > 0),
+          Integer.class);
+    }
+
+    public int getCapacity() {
+      return capacity.getValue();
+    }
+
+    public int getRefillSeconds() {
+      return refillSeconds.getValue();
+    }
+
+    public boolean isUnlimited() {
+      return getCapacity() == 0;
+    }
+  }
+}
@@ -29,6 +29,7 @@ import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.store.rca.clu
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.store.rca.cluster.ShardRequestCacheClusterRca;
 import com.google.common.collect.ImmutableMap;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -82,18 +83,20 @@ public class CacheHealthDecider extends Decider {
     counter = 0;
 
     for (final ResourceEnum cacheType : modifyCacheActionPriorityList) {
-      getActionsFromRca(cacheTypeBaseClusterRcaMap.get(cacheType), impactedNodes).forEach(decision::addAction);
+      getActionsFromRca(cacheType, cacheTypeBaseClusterRcaMap.get(cacheType), impactedNodes).forEach(decision::addAction);
     }
     return decision;
   }
 
   private <R extends BaseClusterRca> List<Action> getActionsFromRca(
+      final ResourceEnum cacheType,
       final R cacheClusterRca,
       final Set<InstanceDetails.Id> impactedNodes) {
     final List<Action> actions = new ArrayList<>();
 
     if (!cacheClusterRca.getFlowUnits().isEmpty()) {
       final ResourceFlowUnit<HotClusterSummary> flowUnit = cacheClusterRca.getFlowUnits().get(0);
+      observeSignals(Collections.singletonList(cacheType), flowUnit);
       if (!flowUnit.hasResourceSummary()) {
         return actions;
       }
@@ -130,7 +133,12 @@ public class CacheHealthDecider extends Decider {
    * signals going forward.
    */
   private Action computeBestAction(final NodeKey esNode, final ResourceEnum cacheType) {
-    return getAction(ModifyCacheMaxSizeAction.NAME, esNode, cacheType, true);
+    final Action action = getAction(ModifyCacheMaxSizeAction.NAME, esNode, cacheType, true);
+    if (action != null && isIneffective(action)) {
+      LOG.debug("Skipping {} of {} on {}, it has not been effective", action.name(), cacheType, esNode);
+      return null;
+    }
+    return action;
   }
 
   private Action getAction(
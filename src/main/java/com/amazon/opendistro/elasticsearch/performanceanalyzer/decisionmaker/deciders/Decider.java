@@ -16,11 +16,17 @@
 package com.amazon.opendistro.elasticsearch.performanceanalyzer.decisionmaker.deciders;
 
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.PerformanceAnalyzerApp;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.decisionmaker.actions.Action;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.decisionmaker.actions.ActionEffectivenessTracker;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.grpc.ResourceEnum;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.api.flow_units.ResourceFlowUnit;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.api.summaries.HotClusterSummary;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.core.NonLeafNode;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.core.RcaConf;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.metrics.ExceptionsAndErrors;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.metrics.RcaGraphMetrics;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.scheduler.FlowUnitOperationArgWrapper;
+import java.util.Collection;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -43,11 +49,13 @@ public abstract class Decider extends NonLeafNode<Decision> {
   private static final Logger LOG = LogManager.getLogger(Decider.class);
   protected final int decisionFrequency; // Measured in terms of number of evaluationIntervalPeriods
   protected RcaConf rcaConf;
+  private ActionEffectivenessTracker effectivenessTracker;
 
   public Decider(long evalIntervalSeconds, int decisionFrequency) {
     super(0, evalIntervalSeconds);
     this.decisionFrequency = decisionFrequency;
     this.rcaConf = null;
+    this.effectivenessTracker = null;
   }
 
   public abstract String name();
@@ -102,5 +110,35 @@ public abstract class Decider extends NonLeafNode<Decision> {
   @Override
   public void readRcaConf(RcaConf conf) {
     rcaConf = conf;
+    if (effectivenessTracker != null) {
+      effectivenessTracker.configure(conf.getActionEffectivenessConfig());
+    }
+  }
+
+  /**
+   * Sets the tracker the decider reports the signals of its RCAs to, and consults before it proposes
+   * an action. The same tracker has to listen to the actions of the Publisher.
+   */
+  public void setEffectivenessTracker(ActionEffectivenessTracker effectivenessTracker) {
+    this.effectivenessTracker = effectivenessTracker;
+  }
+
+  /**
+   * Reports the latest flow unit of a cluster RCA to the effectiveness tracker.
+   *
+   * @param resources The resources the RCA reports on.
+   * @param flowUnit  The flow unit, with the hot resources of each node.
+   */
+  protected void observeSignals(Collection<ResourceEnum> resources, ResourceFlowUnit<HotClusterSummary> flowUnit) {
+    if (effectivenessTracker != null) {
+      effectivenessTracker.observe(resources, flowUnit);
+    }
+  }
+
+  /**
+   * Returns true if the action has not relieved its nodes the last times it was published.
+   */
+  protected boolean isIneffective(Action action) {
+    return effectivenessTracker != null && effectivenessTracker.isIneffective(action);
   }
 }
@@ -17,16 +17,21 @@ package com.amazon.opendistro.elasticsearch.performanceanalyzer.decisionmaker.de
 
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.PerformanceAnalyzerApp;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.decisionmaker.actions.Action;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.decisionmaker.actions.ActionGovernor;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.decisionmaker.actions.ActionListener;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.decisionmaker.actions.ActionListener.SuppressionReason;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.decisionmaker.actions.CoolOffDetector;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.decisionmaker.actions.FlipFlopDetector;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.decisionmaker.actions.TimedFlipFlopDetector;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.decisionmaker.deciders.collator.Collator;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.core.NonLeafNode;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.core.RcaConf;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.metrics.ExceptionsAndErrors;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.metrics.RcaGraphMetrics;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.scheduler.FlowUnitOperationArgWrapper;
 import com.google.common.annotations.VisibleForTesting;
+import java.io.IOException;
+import java.time.Clock;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
@@ -42,23 +47,43 @@ public class Publisher extends NonLeafNode<EmptyFlowUnit> {
   private FlipFlopDetector flipFlopDetector;
   private boolean isMuted = false;
   private CoolOffDetector coolOffDetector;
+  private ActionGovernor actionGovernor;
   private List<ActionListener> actionListeners;
 
   public Publisher(int evalIntervalSeconds, Collator collator) {
+    // TODO please bring in guice so we can configure this with DI
+    this(evalIntervalSeconds, collator, new CoolOffDetector(), new TimedFlipFlopDetector(1, TimeUnit.HOURS));
+  }
+
+  public Publisher(int evalIntervalSeconds, Collator collator, CoolOffDetector coolOffDetector,
+      FlipFlopDetector flipFlopDetector) {
+    this(evalIntervalSeconds, collator, coolOffDetector, flipFlopDetector,
+        new ActionGovernor(Clock.systemUTC(), true));
+  }
+
+  public Publisher(int evalIntervalSeconds, Collator collator, CoolOffDetector coolOffDetector,
+      FlipFlopDetector flipFlopDetector, ActionGovernor actionGovernor) {
     super(0, evalIntervalSeconds);
     this.collator = collator;
     this.actionListeners = new ArrayList<>();
-    this.coolOffDetector = new CoolOffDetector();
-    // TODO please bring in guice so we can configure this with DI
-    this.flipFlopDetector = new TimedFlipFlopDetector(1, TimeUnit.HOURS);
+    this.coolOffDetector = coolOffDetector;
+    this.flipFlopDetector = flipFlopDetector;
+    this.actionGovernor = actionGovernor;
   }
 
   @Override
   public EmptyFlowUnit operate() {
     // TODO: Need to add dampening, avoidance, state persistence etc.
     Decision decision = collator.getFlowUnits().get(0);
-    for (Action action : decision.getActions()) {
-      if (coolOffDetector.isCooledOff(action) && !flipFlopDetector.isFlipFlop(action)) {
+    for (Action action : actionGovernor.prioritize(decision.getActions())) {
+      if (!coolOffDetector.isCooledOff(action)) {
+        notifySuppressed(action, SuppressionReason.COOLING_OFF);
+      } else if (flipFlopDetector.isFlipFlop(action)) {
+        notifySuppressed(action, SuppressionReason.FLIP_FLOP);
+      } else if (!actionGovernor.tryAcquire(action)) {
+        actionGovernor.defer(action);
+        notifySuppressed(action, SuppressionReason.RATE_LIMITED);
+      } else {
         flipFlopDetector.recordAction(action);
         coolOffDetector.recordAction(action);
         for (ActionListener listener : actionListeners) {
@@ -66,9 +91,31 @@ public class Publisher extends NonLeafNode<EmptyFlowUnit> {
         }
       }
     }
+    try {
+      actionGovernor.save();
+    } catch (IOException e) {
+      LOG.error("Publisher: Could not save the action governor state", e);
+    }
     return new EmptyFlowUnit(Instant.now().toEpochMilli());
   }
 
+  /**
+   * read the budgets of the action governor from rca.conf
+   *
+   * @param conf RcaConf object
+   */
+  @Override
+  public void readRcaConf(RcaConf conf) {
+    actionGovernor.configure(conf.getActionGovernorConfig());
+  }
+
+  private void notifySuppressed(Action action, SuppressionReason reason) {
+    LOG.debug("Publisher: Suppressing action {}, reason: {}", action.name(), reason);
+    for (ActionListener listener : actionListeners) {
+      listener.actionSuppressed(action, reason);
+    }
+  }
+
   @Override
   public void generateFlowUnitListFromLocal(FlowUnitOperationArgWrapper args) {
     LOG.debug("Publisher: Executing fromLocal: {}", name());
@@ -90,7 +137,7 @@ public class Publisher extends NonLeafNode<EmptyFlowUnit> {
   /**
    * Register an action listener with Publisher
    *
-   * <p>The listener is notified whenever an action is published
+   * <p>The listener is notified whenever an action is published, or held back
    */
   public void addActionListener(ActionListener listener) {
     actionListeners.add(listener);
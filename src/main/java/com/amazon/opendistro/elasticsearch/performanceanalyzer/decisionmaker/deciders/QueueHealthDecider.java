@@ -24,6 +24,7 @@ import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.api
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.api.summaries.HotResourceSummary;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.store.rca.cluster.NodeKey;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.store.rca.cluster.QueueRejectionClusterRca;
+import com.google.common.collect.ImmutableList;
 import java.util.ArrayList;
 import java.util.List;
 import org.apache.logging.log4j.LogManager;
@@ -36,6 +37,9 @@ public class QueueHealthDecider extends Decider {
 
   private static final Logger LOG = LogManager.getLogger(Decider.class);
   public static final String NAME = "queue_health";
+  // The thread pools the queue rejection RCA reports on.
+  private static final List<ResourceEnum> QUEUE_RESOURCES =
+      ImmutableList.of(ResourceEnum.WRITE_THREADPOOL, ResourceEnum.SEARCH_THREADPOOL);
 
   private QueueRejectionClusterRca queueRejectionRca;
   List<String> actionsByUserPriority = new ArrayList<>();
@@ -66,6 +70,7 @@ public class QueueHealthDecider extends Decider {
     }
 
     ResourceFlowUnit<HotClusterSummary> flowUnit = queueRejectionRca.getFlowUnits().get(0);
+    observeSignals(QUEUE_RESOURCES, flowUnit);
     if (!flowUnit.hasResourceSummary()) {
       return decision;
     }
@@ -97,6 +102,11 @@ public class QueueHealthDecider extends Decider {
     for (String actionName : actionsByUserPriority) {
       action =
         getAction(actionName, esNode, threadPool, true);
+      if (action != null && isIneffective(action)) {
+        // Fall back to the next action, this one has not relieved the node the last times.
+        LOG.debug("Skipping {} on {}, it has not been effective", actionName, esNode);
+        action = null;
+      }
       if (action != null) {
         break;
       }
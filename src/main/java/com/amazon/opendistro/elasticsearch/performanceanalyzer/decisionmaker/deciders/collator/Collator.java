@@ -63,11 +63,15 @@ public class Collator extends Decider {
 
   private final Comparator<Action> actionComparator;
 
+  // Null when the actions are pruned with the impact assessor and the action comparator instead.
+  private final IndexedImpactAssessor indexedImpactAssessor;
+
   public Collator(Decider... deciders) {
     super(evalIntervalSeconds, collatorFrequency);
     this.deciders = Arrays.asList(deciders);
     this.actionComparator = new ImpactBasedActionComparator();
     this.impactAssessor = new ImpactAssessor();
+    this.indexedImpactAssessor = new IndexedImpactAssessor();
   }
 
   /**
@@ -84,6 +88,7 @@ public class Collator extends Decider {
     this.deciders = Arrays.asList(deciders);
     this.actionComparator = actionComparator;
     this.impactAssessor = impactAssessor;
+    this.indexedImpactAssessor = null;
   }
 
   @Override
@@ -99,12 +104,19 @@ public class Collator extends Decider {
   @Override
   public Decision operate() {
     Decision finalDecision = new Decision(System.currentTimeMillis(), NAME);
-    List<Action> allowedActions = new ArrayList<>();
+    List<Action> allActions = getProposedActions();
+
+    // The indexed impact assessor reaches the same decisions as the steps below, but only
+    // reassesses the nodes whose proposed actions changed since the last period.
+    if (indexedImpactAssessor != null) {
+      finalDecision.addAllActions(indexedImpactAssessor.pruneMisalignedActions(allActions));
+      return finalDecision;
+    }
 
     // First get all the actions proposed by the deciders and assess the overall impact all
     // actions combined have on all the affected nodes.
 
-    List<Action> allActions = getProposedActions();
+    List<Action> allowedActions = new ArrayList<>();
     Map<NodeKey, ImpactAssessment> overallImpactAssessment =
         impactAssessor.assessOverallImpact(allActions);
 
@@ -156,7 +168,7 @@ public class Collator extends Decider {
    * to most.
    */
   @VisibleForTesting
-  static final class ImpactBasedActionComparator implements Comparator<Action>, Serializable {
+  public static final class ImpactBasedActionComparator implements Comparator<Action>, Serializable {
 
     @Override
     public int compare(Action action1, Action action2) {
@@ -0,0 +1,276 @@
+/*
+ * Copyright 2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.decisionmaker.deciders.collator;
+
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.decisionmaker.actions.Action;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.decisionmaker.actions.ImpactVector;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.decisionmaker.actions.ImpactVector.Dimension;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.decisionmaker.actions.ImpactVector.Impact;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.store.rca.cluster.NodeKey;
+import com.google.common.annotations.VisibleForTesting;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+/**
+ * Prunes the proposed actions the way the {@link ImpactAssessor} does when they are replayed in the
+ * order of the {@link Collator.ImpactBasedActionComparator}, but on an index of the actions rather
+ * than on their impact vectors, and only for the nodes whose proposed actions changed.
+ *
+ * <p>The impact of each action is turned once into a {@link Signature}: the impacted nodes, and for
+ * each of them, bit masks of the dimensions the action increases and decreases the pressure of. The
+ * pressure decreasing actions of all the nodes are counted in a single array, indexed by node and
+ * dimension, and an action is aligned if none of the dimensions it increases the pressure of on a
+ * node has a pressure decreasing action left on that node.
+ *
+ * <p>Whether an action is kept only depends on the actions sharing nodes with it, directly or through
+ * other actions. The nodes are therefore split in groups connected by the actions, and the verdicts
+ * of a group are remembered with the signatures of its actions. A group whose actions are the same
+ * as in the previous assessment gets its previous verdicts back without being assessed again.
+ */
+public class IndexedImpactAssessor {
+
+  private static final Logger LOG = LogManager.getLogger(IndexedImpactAssessor.class);
+  private static final Dimension[] DIMENSIONS = Dimension.values();
+
+  // The order of Collator.ImpactBasedActionComparator: the least pressure decreasing actions first,
+  // and among them, the most pressure increasing ones first.
+  private static final Comparator<Signature> REASSESSMENT_ORDER =
+      Comparator.comparingInt((Signature signature) -> signature.decreases)
+          .thenComparing(Comparator.comparingInt((Signature signature) -> signature.increases).reversed());
+
+  private Map<List<Signature>, boolean[]> previousVerdicts = new HashMap<>();
+  private int reassessedNodeCount;
+
+  /**
+   * The impact of an action, computed once per assessment.
+   */
+  static final class Signature {
+    private final String actionName;
+    private final NodeKey[] nodes;
+    private final int[] increasing;
+    private final int[] decreasing;
+    private final int increases;
+    private final int decreases;
+
+    Signature(final Action action) {
+      final Map<NodeKey, ImpactVector> impact = action.impact();
+      this.actionName = action.name();
+      this.nodes = new NodeKey[impact.size()];
+      this.increasing = new int[impact.size()];
+      this.decreasing = new int[impact.size()];
+      int i = 0;
+      int increaseCount = 0;
+      int decreaseCount = 0;
+      for (Map.Entry<NodeKey, ImpactVector> entry : impact.entrySet()) {
+        nodes[i] = entry.getKey();
+        for (Map.Entry<Dimension, Impact> dimensionImpact : entry.getValue().getImpact().entrySet()) {
+          int bit = 1 << dimensionImpact.getKey().ordinal();
+          if (dimensionImpact.getValue() == Impact.INCREASES_PRESSURE) {
+            increasing[i] |= bit;
+            increaseCount++;
+          } else if (dimensionImpact.getValue() == Impact.DECREASES_PRESSURE) {
+            decreasing[i] |= bit;
+            decreaseCount++;
+          }
+        }
+        i++;
+      }
+      this.increases = increaseCount;
+      this.decreases = decreaseCount;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      Signature that = (Signature) o;
+      return actionName.equals(that.actionName) && Arrays.equals(nodes, that.nodes)
+          && Arrays.equals(increasing, that.increasing) && Arrays.equals(decreasing, that.decreasing);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(actionName, Arrays.hashCode(nodes), Arrays.hashCode(increasing),
+          Arrays.hashCode(decreasing));
+    }
+  }
+
+  /**
+   * Prunes the actions whose impact is not aligned with the overall impact of all the actions.
+   *
+   * @param actions The proposed actions.
+   * @return The aligned actions, in the order they were reassessed in.
+   */
+  public @NonNull List<Action> pruneMisalignedActions(@NonNull final List<Action> actions) {
+    final int actionCount = actions.size();
+    final Signature[] signatures = new Signature[actionCount];
+    final Integer[] order = new Integer[actionCount];
+    for (int i = 0; i < actionCount; i++) {
+      signatures[i] = new Signature(actions.get(i));
+      order[i] = i;
+    }
+    // A stable sort, like the List.sort of the collator.
+    Arrays.sort(order, (a, b) -> REASSESSMENT_ORDER.compare(signatures[a], signatures[b]));
+
+    // Index the nodes, and connect the ones impacted by the same actions.
+    final Map<NodeKey, Integer> nodeIndex = new HashMap<>();
+    final int[][] actionNodes = new int[actionCount][];
+    for (int i = 0; i < actionCount; i++) {
+      actionNodes[i] = new int[signatures[i].nodes.length];
+      for (int j = 0; j < actionNodes[i].length; j++) {
+        actionNodes[i][j] = nodeIndex.computeIfAbsent(signatures[i].nodes[j], k -> nodeIndex.size());
+      }
+    }
+    final int[] parent = new int[nodeIndex.size()];
+    for (int node = 0; node < parent.length; node++) {
+      parent[node] = node;
+    }
+    for (int[] nodes : actionNodes) {
+      for (int j = 1; j < nodes.length; j++) {
+        parent[find(parent, nodes[j])] = find(parent, nodes[0]);
+      }
+    }
+
+    // The actions of each group, in reassessment order. Actions impacting no node are always aligned.
+    final Map<Integer, List<Integer>> groups = new LinkedHashMap<>();
+    for (int i : order) {
+      int group = actionNodes[i].length == 0 ? -1 : find(parent, actionNodes[i][0]);
+      groups.computeIfAbsent(group, k -> new ArrayList<>()).add(i);
+    }
+
+    final boolean[] aligned = new boolean[actionCount];
+    final int[] pressureDecreasingActions = new int[nodeIndex.size() * DIMENSIONS.length];
+    final Map<List<Signature>, boolean[]> verdicts = new HashMap<>();
+    reassessedNodeCount = 0;
+    for (Map.Entry<Integer, List<Integer>> group : groups.entrySet()) {
+      final List<Integer> groupActions = group.getValue();
+      final List<Signature> key = new ArrayList<>(groupActions.size());
+      for (int i : groupActions) {
+        key.add(signatures[i]);
+      }
+      boolean[] groupVerdicts = previousVerdicts.get(key);
+      if (groupVerdicts == null) {
+        groupVerdicts = group.getKey() == -1
+            ? alignedVerdicts(groupActions.size())
+            : assess(groupActions, signatures, actionNodes, pressureDecreasingActions);
+        reassessedNodeCount += countNodes(groupActions, actionNodes);
+      }
+      verdicts.put(key, groupVerdicts);
+      for (int k = 0; k < groupActions.size(); k++) {
+        aligned[groupActions.get(k)] = groupVerdicts[k];
+      }
+    }
+    previousVerdicts = verdicts;
+
+    final List<Action> alignedActions = new ArrayList<>();
+    for (int i : order) {
+      if (aligned[i]) {
+        alignedActions.add(actions.get(i));
+      }
+    }
+    return alignedActions;
+  }
+
+  private boolean[] assess(final List<Integer> groupActions, final Signature[] signatures,
+      final int[][] actionNodes, final int[] pressureDecreasingActions) {
+    for (int i : groupActions) {
+      for (int j = 0; j < actionNodes[i].length; j++) {
+        count(pressureDecreasingActions, actionNodes[i][j], signatures[i].decreasing[j], 1);
+      }
+    }
+
+    final boolean[] groupVerdicts = new boolean[groupActions.size()];
+    for (int k = 0; k < groupActions.size(); k++) {
+      final int i = groupActions.get(k);
+      boolean isAligned = true;
+      for (int j = 0; j < actionNodes[i].length && isAligned; j++) {
+        final int base = actionNodes[i][j] * DIMENSIONS.length;
+        final int increasing = signatures[i].increasing[j];
+        for (int d = 0; d < DIMENSIONS.length; d++) {
+          if ((increasing & (1 << d)) != 0 && pressureDecreasingActions[base + d] > 0) {
+            LOG.info("action: {}'s impact is not aligned with node: {}'s overall impact for dimension: {}",
+                signatures[i].actionName, signatures[i].nodes[j], DIMENSIONS[d]);
+            isAligned = false;
+            break;
+          }
+        }
+      }
+      groupVerdicts[k] = isAligned;
+      if (!isAligned) {
+        for (int j = 0; j < actionNodes[i].length; j++) {
+          count(pressureDecreasingActions, actionNodes[i][j], signatures[i].decreasing[j], -1);
+        }
+      }
+    }
+    return groupVerdicts;
+  }
+
+  private static void count(final int[] pressureDecreasingActions, final int node, final int dimensions,
+      final int delta) {
+    for (int d = 0; d < DIMENSIONS.length; d++) {
+      if ((dimensions & (1 << d)) != 0) {
+        pressureDecreasingActions[node * DIMENSIONS.length + d] += delta;
+      }
+    }
+  }
+
+  private static boolean[] alignedVerdicts(final int count) {
+    final boolean[] verdicts = new boolean[count];
+    Arrays.fill(verdicts, true);
+    return verdicts;
+  }
+
+  private static int countNodes(final List<Integer> groupActions, final int[][] actionNodes) {
+    final Set<Integer> nodes = new HashSet<>();
+    for (int i : groupActions) {
+      for (int node : actionNodes[i]) {
+        nodes.add(node);
+      }
+    }
+    return nodes.size();
+  }
+
+  private static int find(final int[] parent, int node) {
+    while (parent[node] != node) {
+      parent[node] = parent[parent[node]];
+      node = parent[node];
+    }
+    return node;
+  }
+
+  /**
+   * @return The number of nodes the last call to {@link #pruneMisalignedActions} had to reassess.
+   */
+  @VisibleForTesting
+  int getReassessedNodeCount() {
+    return reassessedNodeCount;
+  }
+}
@@ -0,0 +1,254 @@
+/*
+ * Copyright 2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.decisionmaker.simulator;
+
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.AppContext;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.decisionmaker.actions.ActionEffectivenessTracker;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.decisionmaker.actions.ActionGovernor;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.decisionmaker.actions.CoolOffDetector;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.decisionmaker.actions.TimedFlipFlopDetector;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.decisionmaker.deciders.CacheHealthDecider;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.decisionmaker.deciders.Decider;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.decisionmaker.deciders.Decision;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.decisionmaker.deciders.Publisher;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.decisionmaker.deciders.QueueHealthDecider;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.decisionmaker.deciders.collator.Collator;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.decisionmaker.simulator.RcaHistory.RecordedFlowUnit;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.decisionmaker.simulator.RcaHistory.RecordedNodeConfig;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.core.RcaConf;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.store.rca.cluster.BaseClusterRca;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.store.rca.cluster.FieldDataCacheClusterRca;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.store.rca.cluster.QueueRejectionClusterRca;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.store.rca.cluster.ShardRequestCacheClusterRca;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Replays a recorded {@link RcaHistory} through the deciders, the collator and the publisher of the
+ * decision maker, faster than real time, to tell which actions they would have emitted.
+ *
+ * <p>The graph is the one the master node runs in
+ * {@link com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.store.ElasticSearchAnalysisGraph},
+ * fed with the recorded cluster level RCA flow units instead of the RCAs below them. The nodes are
+ * evaluated once per evaluation interval of a {@link SimulationClock}, which the cool off and flip
+ * flop detectors of the publisher read, so that an hour of history is replayed in as long as it takes
+ * to evaluate the graph 720 times.
+ *
+ * <p>The actions are not applied, so the node configurations they are sized from only change when the
+ * history records new ones.
+ *
+ * <p>The {@link com.amazon.opendistro.elasticsearch.performanceanalyzer.decisionmaker.deciders.jvm.HeapHealthDecider}
+ * is left out, as the master node graph does not run it either: the collator only reads the queue and
+ * the cache deciders, and the old gen policy of the heap decider reads its config before the decider
+ * is given one. It can be replayed from the HighHeapUsageClusterRca flow units once it is in the graph.
+ */
+public class DecisionSimulator {
+  private static final Logger LOG = LogManager.getLogger(DecisionSimulator.class);
+  // The periods of the master node graph, see ElasticSearchAnalysisGraph.
+  private static final int EVALUATION_INTERVAL_SECONDS = 5;
+  private static final int RCA_PERIOD = 12;
+  private static final int DECISION_FREQUENCY = 12;
+  private static final long FLIP_FLOP_PERIOD_HOURS = 1;
+  private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+
+  private final RcaConf rcaConf;
+  private final int evalIntervalSeconds;
+  private final int decisionFrequency;
+
+  public DecisionSimulator(RcaConf rcaConf) {
+    this(rcaConf, EVALUATION_INTERVAL_SECONDS, DECISION_FREQUENCY);
+  }
+
+  /**
+   * @param rcaConf The configuration of the deciders and the actions.
+   * @param evalIntervalSeconds The time between two evaluations of the graph.
+   * @param decisionFrequency The number of evaluations between two decisions of a decider.
+   */
+  public DecisionSimulator(RcaConf rcaConf, int evalIntervalSeconds, int decisionFrequency) {
+    this.rcaConf = rcaConf;
+    this.evalIntervalSeconds = evalIntervalSeconds;
+    this.decisionFrequency = decisionFrequency;
+  }
+
+  /**
+   * The decision maker nodes of one simulation.
+   */
+  private class Graph {
+    private final AppContext appContext = new AppContext();
+    // Their flow units are replayed, they are never operated.
+    private final Map<String, BaseClusterRca> clusterRcas = new LinkedHashMap<>();
+    private final List<Decider> deciders;
+    private final Collator collator;
+    private final Publisher publisher;
+
+    Graph(SimulationClock clock) {
+      QueueRejectionClusterRca queueRejectionClusterRca = new QueueRejectionClusterRca(RCA_PERIOD, null);
+      FieldDataCacheClusterRca fieldDataCacheClusterRca = new FieldDataCacheClusterRca(RCA_PERIOD, null);
+      ShardRequestCacheClusterRca shardRequestCacheClusterRca = new ShardRequestCacheClusterRca(RCA_PERIOD, null);
+      clusterRcas.put(QueueRejectionClusterRca.RCA_TABLE_NAME, queueRejectionClusterRca);
+      clusterRcas.put(FieldDataCacheClusterRca.RCA_TABLE_NAME, fieldDataCacheClusterRca);
+      clusterRcas.put(ShardRequestCacheClusterRca.RCA_TABLE_NAME, shardRequestCacheClusterRca);
+
+      QueueHealthDecider queueHealthDecider =
+          new QueueHealthDecider(evalIntervalSeconds, decisionFrequency, queueRejectionClusterRca);
+      CacheHealthDecider cacheHealthDecider = new CacheHealthDecider(
+          evalIntervalSeconds, decisionFrequency, fieldDataCacheClusterRca, shardRequestCacheClusterRca);
+      deciders = Arrays.asList(queueHealthDecider, cacheHealthDecider);
+      ActionEffectivenessTracker effectivenessTracker = new ActionEffectivenessTracker(clock);
+      for (Decider decider : deciders) {
+        decider.setAppContext(appContext);
+        decider.setEffectivenessTracker(effectivenessTracker);
+        decider.readRcaConf(rcaConf);
+      }
+
+      collator = new Collator(queueHealthDecider, cacheHealthDecider);
+      publisher = new Publisher(evalIntervalSeconds, collator, new CoolOffDetector(clock),
+          new TimedFlipFlopDetector(FLIP_FLOP_PERIOD_HOURS, TimeUnit.HOURS, clock.ticker()),
+          new ActionGovernor(clock, false));
+      // The budgets start full, and are not written back to the state file of the live governor.
+      publisher.readRcaConf(rcaConf);
+      publisher.addActionListener(effectivenessTracker);
+    }
+  }
+
+  /**
+   * @return The names of the cluster level RCAs the simulation replays.
+   */
+  public List<String> getReplayedRcas() {
+    return Arrays.asList(QueueRejectionClusterRca.RCA_TABLE_NAME, FieldDataCacheClusterRca.RCA_TABLE_NAME,
+        ShardRequestCacheClusterRca.RCA_TABLE_NAME);
+  }
+
+  /**
+   * Replays the history, from its first flow unit to the first decision taken after its last one.
+   *
+   * @param history The recorded flow units and node configurations.
+   * @return What the decision maker would have done.
+   */
+  public SimulationReport run(RcaHistory history) {
+    List<RecordedFlowUnit> flowUnits = history.getFlowUnits();
+    List<RecordedNodeConfig> nodeConfigs = history.getNodeConfigs();
+    long start = flowUnits.isEmpty() ? 0 : flowUnits.get(0).getTimestamp();
+    SimulationClock clock = new SimulationClock(start);
+    SimulationReport report = new SimulationReport(clock);
+    if (flowUnits.isEmpty()) {
+      return report;
+    }
+
+    long evalIntervalMillis = TimeUnit.SECONDS.toMillis(evalIntervalSeconds);
+    long end = flowUnits.get(flowUnits.size() - 1).getTimestamp() + decisionFrequency * evalIntervalMillis;
+    report.recordRange(start, end);
+    Graph graph = new Graph(clock);
+    graph.publisher.addActionListener(report);
+
+    // The latest configuration of each (node, resource), written to the cache at every evaluation as
+    // its entries expire in wall clock time.
+    Map<List<Object>, RecordedNodeConfig> latestNodeConfigs = new LinkedHashMap<>();
+    int nextFlowUnit = 0;
+    int nextNodeConfig = 0;
+    for (long now = start; now <= end; now += evalIntervalMillis) {
+      clock.advanceTo(now);
+      while (nextNodeConfig < nodeConfigs.size() && nodeConfigs.get(nextNodeConfig).getTimestamp() <= now) {
+        RecordedNodeConfig nodeConfig = nodeConfigs.get(nextNodeConfig++);
+        latestNodeConfigs.put(Arrays.asList(nodeConfig.getNodeKey(), nodeConfig.getResource()), nodeConfig);
+      }
+      for (RecordedNodeConfig nodeConfig : latestNodeConfigs.values()) {
+        graph.appContext.getNodeConfigCache().put(nodeConfig.getNodeKey(), nodeConfig.getResource(),
+            nodeConfig.getValue());
+      }
+      while (nextFlowUnit < flowUnits.size() && flowUnits.get(nextFlowUnit).getTimestamp() <= now) {
+        RecordedFlowUnit flowUnit = flowUnits.get(nextFlowUnit++);
+        BaseClusterRca clusterRca = graph.clusterRcas.get(flowUnit.getRcaName());
+        if (clusterRca != null) {
+          clusterRca.setLocalFlowUnit(flowUnit.toFlowUnit());
+        }
+        report.recordFlowUnit(clusterRca != null);
+      }
+      evaluate(graph, report);
+    }
+    return report;
+  }
+
+  private void evaluate(Graph graph, SimulationReport report) {
+    for (Decider decider : graph.deciders) {
+      Decision decision = decider.operate();
+      decider.setLocalFlowUnit(decision);
+      report.recordProposed(decision);
+    }
+    Decision decision = graph.collator.operate();
+    graph.collator.setLocalFlowUnit(decision);
+    report.recordCollated(decision);
+    graph.publisher.operate();
+    report.recordTick();
+  }
+
+  /**
+   * Replays the given rca.sqlite files and traces, and writes the report as JSON.
+   *
+   * <p>Usage: DecisionSimulator --rca-conf &lt;rca.conf&gt; [--output &lt;report.json&gt;] &lt;history file&gt;...
+   */
+  public static void main(String[] args) throws IOException, SQLException {
+    String rcaConfPath = null;
+    Path output = null;
+    List<Path> historyFiles = new ArrayList<>();
+    for (int i = 0; i < args.length; i++) {
+      if (args[i].equals("--rca-conf") && i + 1 < args.length) {
+        rcaConfPath = args[++i];
+      } else if (args[i].equals("--output") && i + 1 < args.length) {
+        output = Paths.get(args[++i]);
+      } else {
+        historyFiles.add(Paths.get(args[i]));
+      }
+    }
+    if (rcaConfPath == null || historyFiles.isEmpty()) {
+      System.err.println("Usage: DecisionSimulator --rca-conf <rca.conf> [--output <report.json>] <history file>...");
+      System.exit(1);
+    }
+
+    DecisionSimulator simulator = new DecisionSimulator(new RcaConf(rcaConfPath));
+    RcaHistory history = new RcaHistory();
+    for (Path historyFile : historyFiles) {
+      history.read(historyFile, simulator.getReplayedRcas());
+    }
+    SimulationReport report = simulator.run(history);
+    LOG.info("Replayed {} flow units in {} evaluations, {} actions published", report.getReplayedFlowUnits(),
+        report.getTicks(), report.getPublishedActions().size());
+
+    String json = GSON.toJson(report.toJson());
+    if (output == null) {
+      System.out.println(json);
+    } else {
+      try (Writer writer = Files.newBufferedWriter(output, StandardCharsets.UTF_8)) {
+        writer.write(json);
+      }
+    }
+  }
+}
@@ -0,0 +1,315 @@
+/*
+ * Copyright 2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.decisionmaker.simulator;
+
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.grpc.MetricEnum;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.grpc.Resource;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.grpc.ResourceEnum;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.api.Resources;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.api.contexts.ResourceContext;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.api.flow_units.ResourceFlowUnit;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.api.flow_units.ResourceFlowUnit.ResourceFlowUnitFieldValue;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.api.flow_units.ResourceFlowUnit.SQL_SCHEMA_CONSTANTS;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.api.summaries.HotClusterSummary;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.api.summaries.HotNodeSummary;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.api.summaries.HotResourceSummary;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.core.GenericSummary;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.util.InstanceDetails;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.util.SQLiteQueryUtils;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.response.RcaResponse;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.store.rca.cluster.NodeKey;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import javax.annotation.Nullable;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.Record;
+import org.jooq.Result;
+import org.jooq.SQLDialect;
+import org.jooq.exception.DataAccessException;
+import org.jooq.impl.DSL;
+
+/**
+ * The recorded cluster level RCA flow units, and node configurations, a simulation replays.
+ *
+ * <p>The history is read from the rca.sqlite files the persistor rotates, or from a trace of JSON
+ * lines, one flow unit per line:
+ * <pre>
+ * {"rca_name": "QueueRejectionClusterRca", "timestamp": 1600000000000, "state": "unhealthy",
+ *  "nodes": [{"node_id": "node1", "host_address": "10.0.0.1",
+ *             "resources": [{"resource": "WRITE_THREADPOOL", "metric": "QUEUE_REJECTION", "value": 3}]}]}
+ * </pre>
+ * The node configurations the actions are sized from are not persisted in rca.sqlite, so a trace can
+ * also carry them, on lines whose rca_name is {@link #NODE_CONFIG}, with the configured values as
+ * the resource values.
+ */
+public class RcaHistory {
+  private static final Logger LOG = LogManager.getLogger(RcaHistory.class);
+  private static final String DB_URL = "jdbc:sqlite:";
+  private static final byte[] SQLITE_HEADER = "SQLite format 3\0".getBytes(StandardCharsets.US_ASCII);
+
+  public static final String NODE_CONFIG = "NodeConfig";
+  public static final String NODES_KEY = "nodes";
+  public static final String RESOURCES_KEY = "resources";
+  public static final String RESOURCE_KEY = "resource";
+  public static final String METRIC_KEY = "metric";
+  public static final String VALUE_KEY = "value";
+
+  private final List<RecordedFlowUnit> flowUnits = new ArrayList<>();
+  private final List<RecordedNodeConfig> nodeConfigs = new ArrayList<>();
+
+  /**
+   * A flow unit of a cluster level RCA, as it was recorded.
+   */
+  public static class RecordedFlowUnit {
+    private final String rcaName;
+    private final long timestamp;
+    private final HotClusterSummary summary;
+
+    /**
+     * @param summary The hot nodes, or null if the RCA found the cluster healthy.
+     */
+    public RecordedFlowUnit(String rcaName, long timestamp, @Nullable HotClusterSummary summary) {
+      this.rcaName = rcaName;
+      this.timestamp = timestamp;
+      this.summary = summary;
+    }
+
+    public String getRcaName() {
+      return rcaName;
+    }
+
+    public long getTimestamp() {
+      return timestamp;
+    }
+
+    /**
+     * @return The flow unit, as the RCA emitted it.
+     */
+    public ResourceFlowUnit<HotClusterSummary> toFlowUnit() {
+      if (summary == null) {
+        return new ResourceFlowUnit<>(timestamp, new ResourceContext(Resources.State.HEALTHY), null);
+      }
+      return new ResourceFlowUnit<>(timestamp, new ResourceContext(Resources.State.UNHEALTHY), summary);
+    }
+  }
+
+  /**
+   * A configured value of a node, e.g. the capacity of one of its queues.
+   */
+  public static class RecordedNodeConfig {
+    private final long timestamp;
+    private final NodeKey nodeKey;
+    private final Resource resource;
+    private final double value;
+
+    public RecordedNodeConfig(long timestamp, NodeKey nodeKey, Resource resource, double value) {
+      this.timestamp = timestamp;
+      this.nodeKey = nodeKey;
+      this.resource = resource;
+      this.value = value;
+    }
+
+    public long getTimestamp() {
+      return timestamp;
+    }
+
+    public NodeKey getNodeKey() {
+      return nodeKey;
+    }
+
+    public Resource getResource() {
+      return resource;
+    }
+
+    public double getValue() {
+      return value;
+    }
+  }
+
+  public void add(RecordedFlowUnit flowUnit) {
+    flowUnits.add(flowUnit);
+  }
+
+  public void add(RecordedNodeConfig nodeConfig) {
+    nodeConfigs.add(nodeConfig);
+  }
+
+  /**
+   * @return The recorded flow units, oldest first.
+   */
+  public List<RecordedFlowUnit> getFlowUnits() {
+    List<RecordedFlowUnit> sorted = new ArrayList<>(flowUnits);
+    sorted.sort(Comparator.comparingLong(RecordedFlowUnit::getTimestamp));
+    return sorted;
+  }
+
+  /**
+   * @return The recorded node configurations, oldest first.
+   */
+  public List<RecordedNodeConfig> getNodeConfigs() {
+    List<RecordedNodeConfig> sorted = new ArrayList<>(nodeConfigs);
+    sorted.sort(Comparator.comparingLong(RecordedNodeConfig::getTimestamp));
+    return sorted;
+  }
+
+  /**
+   * Reads an rca.sqlite file or a trace, telling them apart by the SQLite file header.
+   *
+   * @param file The file to read.
+   * @param rcaNames The cluster level RCAs to read from an rca.sqlite file.
+   */
+  public void read(Path file, Collection<String> rcaNames) throws IOException, SQLException {
+    byte[] header = new byte[SQLITE_HEADER.length];
+    int read;
+    try (InputStream in = Files.newInputStream(file)) {
+      read = in.read(header);
+    }
+    if (read == SQLITE_HEADER.length && Arrays.equals(header, SQLITE_HEADER)) {
+      readSQLite(file, rcaNames);
+    } else {
+      readTrace(file);
+    }
+  }
+
+  /**
+   * Reads the flow units of the given cluster level RCAs persisted in an rca.sqlite file.
+   */
+  public void readSQLite(Path file, Collection<String> rcaNames) throws SQLException {
+    Field<Integer> primaryKeyField = DSL.field(
+        SQLiteQueryUtils.getPrimaryKeyColumnName(ResourceFlowUnit.RCA_TABLE_NAME), Integer.class);
+    try (Connection conn = DriverManager.getConnection(DB_URL + file.toAbsolutePath())) {
+      DSLContext create = DSL.using(conn, SQLDialect.SQLITE);
+      Result<Record> records = create.select()
+          .from(ResourceFlowUnit.RCA_TABLE_NAME)
+          .where(DSL.field(ResourceFlowUnitFieldValue.RCA_NAME_FILELD.getName(), String.class).in(rcaNames))
+          .orderBy(ResourceFlowUnitFieldValue.TIMESTAMP_FIELD.getField())
+          .fetch();
+      for (Record record : records) {
+        RcaResponse response = RcaResponse.buildResponse(record);
+        if (response == null) {
+          continue;
+        }
+        HotClusterSummary summary = null;
+        if (response.getState().equals(Resources.State.UNHEALTHY.toString())) {
+          SQLiteQueryUtils.readNestedSummaries(create, response, record.get(primaryKeyField));
+          for (GenericSummary nested : response.getNestedSummaryList()) {
+            if (nested instanceof HotClusterSummary) {
+              summary = (HotClusterSummary) nested;
+              break;
+            }
+          }
+        }
+        add(new RecordedFlowUnit(response.getRcaName(), response.getTimeStamp(), summary));
+      }
+    } catch (DataAccessException de) {
+      if (!de.getMessage().contains("no such table")) {
+        throw de;
+      }
+      LOG.warn("No RCA was persisted in {}", file);
+    }
+  }
+
+  /**
+   * Reads a trace of JSON lines. Blank lines are skipped and malformed ones logged and skipped.
+   */
+  public void readTrace(Path file) throws IOException {
+    JsonParser parser = new JsonParser();
+    try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+      String line;
+      int lineNumber = 0;
+      while ((line = reader.readLine()) != null) {
+        lineNumber++;
+        if (line.trim().isEmpty()) {
+          continue;
+        }
+        try {
+          readTraceLine(parser.parse(line).getAsJsonObject());
+        } catch (JsonParseException | IllegalStateException | IllegalArgumentException
+            | NullPointerException | UnsupportedOperationException e) {
+          LOG.warn("Skipping the malformed line {} of {}: {}", lineNumber, file, e.getMessage());
+        }
+      }
+    }
+  }
+
+  private void readTraceLine(JsonObject line) {
+    String rcaName = line.get(SQL_SCHEMA_CONSTANTS.RCA_COL_NAME).getAsString();
+    long timestamp = line.get(SQL_SCHEMA_CONSTANTS.TIMESTAMP_COL_NAME).getAsLong();
+    JsonArray nodes = line.has(NODES_KEY) ? line.getAsJsonArray(NODES_KEY) : new JsonArray();
+    if (NODE_CONFIG.equals(rcaName)) {
+      for (JsonElement node : nodes) {
+        NodeKey nodeKey = readNodeKey(node.getAsJsonObject());
+        for (JsonElement resource : node.getAsJsonObject().getAsJsonArray(RESOURCES_KEY)) {
+          add(new RecordedNodeConfig(timestamp, nodeKey, readResource(resource.getAsJsonObject()),
+              resource.getAsJsonObject().get(VALUE_KEY).getAsDouble()));
+        }
+      }
+      return;
+    }
+
+    String state = line.has(SQL_SCHEMA_CONSTANTS.STATE_COL_NAME)
+        ? line.get(SQL_SCHEMA_CONSTANTS.STATE_COL_NAME).getAsString() : Resources.State.UNHEALTHY.toString();
+    if (!state.equals(Resources.State.UNHEALTHY.toString()) || nodes.size() == 0) {
+      add(new RecordedFlowUnit(rcaName, timestamp, null));
+      return;
+    }
+    HotClusterSummary summary = new HotClusterSummary(nodes.size(), nodes.size());
+    for (JsonElement node : nodes) {
+      NodeKey nodeKey = readNodeKey(node.getAsJsonObject());
+      HotNodeSummary nodeSummary = new HotNodeSummary(nodeKey.getNodeId(), nodeKey.getHostAddress());
+      for (JsonElement resource : node.getAsJsonObject().getAsJsonArray(RESOURCES_KEY)) {
+        JsonObject resourceObject = resource.getAsJsonObject();
+        double value = resourceObject.has(VALUE_KEY) ? resourceObject.get(VALUE_KEY).getAsDouble() : 0;
+        nodeSummary.appendNestedSummary(new HotResourceSummary(readResource(resourceObject), 0, value, 0));
+      }
+      summary.appendNestedSummary(nodeSummary);
+    }
+    add(new RecordedFlowUnit(rcaName, timestamp, summary));
+  }
+
+  private static NodeKey readNodeKey(JsonObject node) {
+    return new NodeKey(
+        new InstanceDetails.Id(node.get(HotNodeSummary.SQL_SCHEMA_CONSTANTS.NODE_ID_COL_NAME).getAsString()),
+        new InstanceDetails.Ip(node.get(HotNodeSummary.SQL_SCHEMA_CONSTANTS.HOST_IP_ADDRESS_COL_NAME).getAsString()));
+  }
+
+  private static Resource readResource(JsonObject resource) {
+    return Resource.newBuilder()
+        .setResourceEnum(ResourceEnum.valueOf(resource.get(RESOURCE_KEY).getAsString()))
+        .setMetricEnum(MetricEnum.valueOf(resource.get(METRIC_KEY).getAsString()))
+        .build();
+  }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.decisionmaker.simulator;
+
+import com.google.common.base.Ticker;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A clock that only moves when the simulator advances it, so that the cool off and flip flop periods
+ * elapse in the time of the replayed history rather than in the time it takes to replay it.
+ */
+public class SimulationClock extends Clock {
+  private final AtomicLong millis;
+  private final ZoneId zone;
+
+  public SimulationClock(final long startMillis) {
+    this(new AtomicLong(startMillis), ZoneOffset.UTC);
+  }
+
+  private SimulationClock(final AtomicLong millis, final ZoneId zone) {
+    this.millis = millis;
+    this.zone = zone;
+  }
+
+  /**
+   * Moves the clock to the given time.
+   *
+   * @param timestamp The new time, in epoch millis. The clock never goes back.
+   */
+  public void advanceTo(final long timestamp) {
+    if (timestamp < millis.get()) {
+      throw new IllegalArgumentException("Cannot move the simulation clock back from " + millis.get()
+          + " to " + timestamp);
+    }
+    millis.set(timestamp);
+  }
+
+  /**
+   * @return A {@link Ticker} reading this clock, for the caches expiring entries.
+   */
+  public Ticker ticker() {
+    return new Ticker() {
+      @Override
+      public long read() {
+        return TimeUnit.MILLISECONDS.toNanos(millis.get());
+      }
+    };
+  }
+
+  @Override
+  public long millis() {
+    return millis.get();
+  }
+
+  @Override
+  public Instant instant() {
+    return Instant.ofEpochMilli(millis.get());
+  }
+
+  @Override
+  public ZoneId getZone() {
+    return zone;
+  }
+
+  /**
+   * @return A view of this clock in another zone, which moves with it.
+   */
+  @Override
+  public Clock withZone(final ZoneId zone) {
+    return new SimulationClock(millis, zone);
+  }
+}
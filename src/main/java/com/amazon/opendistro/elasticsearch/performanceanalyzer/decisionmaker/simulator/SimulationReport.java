@@ -0,0 +1,228 @@
+/*
+ * Copyright 2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.decisionmaker.simulator;
+
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.decisionmaker.actions.Action;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.decisionmaker.actions.ActionListener;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.decisionmaker.deciders.Decision;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.store.rca.cluster.NodeKey;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * What a simulation would have done: the actions the publisher would have emitted, in the time of the
+ * replayed history, and how many of the proposed actions were held back, and why.
+ */
+public class SimulationReport implements ActionListener {
+  private final Clock clock;
+  private long startMillis;
+  private long endMillis;
+  private int ticks;
+  private int replayedFlowUnits;
+  private int ignoredFlowUnits;
+  private final List<PublishedAction> publishedActions = new ArrayList<>();
+  private final Map<String, ActionStats> actionStats = new TreeMap<>();
+
+  /**
+   * An action the publisher would have emitted.
+   */
+  public static class PublishedAction {
+    private final long timestamp;
+    private final String name;
+    private final List<NodeKey> nodes;
+    private final String summary;
+
+    PublishedAction(long timestamp, Action action) {
+      this.timestamp = timestamp;
+      this.name = action.name();
+      this.nodes = new ArrayList<>(action.impactedNodes());
+      this.summary = action.summary();
+    }
+
+    public long getTimestamp() {
+      return timestamp;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public List<NodeKey> getNodes() {
+      return nodes;
+    }
+
+    public String getSummary() {
+      return summary;
+    }
+  }
+
+  /**
+   * The counts of an action type, at each stage of the decision maker.
+   */
+  public static class ActionStats {
+    private int proposed;
+    private int collated;
+    private int published;
+    private final Map<SuppressionReason, Integer> suppressed = new EnumMap<>(SuppressionReason.class);
+
+    public int getProposed() {
+      return proposed;
+    }
+
+    public int getCollated() {
+      return collated;
+    }
+
+    public int getPublished() {
+      return published;
+    }
+
+    public int getSuppressed(SuppressionReason reason) {
+      return suppressed.getOrDefault(reason, 0);
+    }
+  }
+
+  public SimulationReport(Clock clock) {
+    this.clock = clock;
+  }
+
+  void recordRange(long startMillis, long endMillis) {
+    this.startMillis = startMillis;
+    this.endMillis = endMillis;
+  }
+
+  void recordTick() {
+    ticks++;
+  }
+
+  void recordFlowUnit(boolean replayed) {
+    if (replayed) {
+      replayedFlowUnits++;
+    } else {
+      ignoredFlowUnits++;
+    }
+  }
+
+  /**
+   * Records the actions a decider proposed.
+   */
+  void recordProposed(Decision decision) {
+    for (Action action : decision.getActions()) {
+      stats(action).proposed++;
+    }
+  }
+
+  /**
+   * Records the actions the collator let through to the publisher.
+   */
+  void recordCollated(Decision decision) {
+    for (Action action : decision.getActions()) {
+      stats(action).collated++;
+    }
+  }
+
+  @Override
+  public void actionPublished(Action action) {
+    publishedActions.add(new PublishedAction(clock.millis(), action));
+    stats(action).published++;
+  }
+
+  @Override
+  public void actionSuppressed(Action action, SuppressionReason reason) {
+    stats(action).suppressed.merge(reason, 1, Integer::sum);
+  }
+
+  private ActionStats stats(Action action) {
+    return actionStats.computeIfAbsent(action.name(), k -> new ActionStats());
+  }
+
+  public int getTicks() {
+    return ticks;
+  }
+
+  public int getReplayedFlowUnits() {
+    return replayedFlowUnits;
+  }
+
+  public int getIgnoredFlowUnits() {
+    return ignoredFlowUnits;
+  }
+
+  public List<PublishedAction> getPublishedActions() {
+    return publishedActions;
+  }
+
+  /**
+   * @return The counts per action name.
+   */
+  public Map<String, ActionStats> getActionStats() {
+    return actionStats;
+  }
+
+  public int getSuppressed(SuppressionReason reason) {
+    int count = 0;
+    for (ActionStats stats : actionStats.values()) {
+      count += stats.getSuppressed(reason);
+    }
+    return count;
+  }
+
+  public JsonObject toJson() {
+    JsonObject report = new JsonObject();
+    report.addProperty("start", startMillis);
+    report.addProperty("end", endMillis);
+    report.addProperty("ticks", ticks);
+    report.addProperty("replayed_flow_units", replayedFlowUnits);
+    report.addProperty("ignored_flow_units", ignoredFlowUnits);
+
+    JsonObject stats = new JsonObject();
+    for (Map.Entry<String, ActionStats> entry : actionStats.entrySet()) {
+      JsonObject actionStat = new JsonObject();
+      actionStat.addProperty("proposed", entry.getValue().proposed);
+      actionStat.addProperty("collated", entry.getValue().collated);
+      actionStat.addProperty("published", entry.getValue().published);
+      JsonObject suppressed = new JsonObject();
+      for (SuppressionReason reason : SuppressionReason.values()) {
+        suppressed.addProperty(reason.name(), entry.getValue().getSuppressed(reason));
+      }
+      actionStat.add("suppressed", suppressed);
+      stats.add(entry.getKey(), actionStat);
+    }
+    report.add("action_stats", stats);
+
+    JsonArray actions = new JsonArray();
+    for (PublishedAction publishedAction : publishedActions) {
+      JsonObject action = new JsonObject();
+      action.addProperty("timestamp", publishedAction.timestamp);
+      action.addProperty("name", publishedAction.name);
+      JsonArray nodes = new JsonArray();
+      for (NodeKey node : publishedAction.nodes) {
+        nodes.add(node.toString());
+      }
+      action.add("nodes", nodes);
+      action.addProperty("summary", publishedAction.summary);
+      actions.add(action);
+    }
+    report.add("published_actions", actions);
+    return report;
+  }
+}
@@ -23,13 +23,13 @@ import com.google.common.annotations.VisibleForTesting;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Map;
-import java.util.Set;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -73,54 +73,150 @@ public class NetworkE2E {
     }
   }
 
-  private static Set<String> inodeSocketList = new HashSet<>();
-  private static Map<String, TCPFlowMetrics> inodeFlowMetricsMap = new HashMap<>();
+  private static final String SOCKET_LINK_PREFIX = "socket:[";
+
+  // Columns of /proc/net/tcp and /proc/net/tcp6 that are read.
+  private static final int REM_ADDRESS_FIELD = 2;
+  private static final int TX_RX_QUEUE_FIELD = 4;
+  private static final int RETRANSMIT_FIELD = 6;
+  private static final int INODE_FIELD = 9;
+  private static final int SEND_CWND_FIELD = 15;
+  private static final int SS_THRESH_FIELD = 16;
+  private static final int MAX_FIELDS = SS_THRESH_FIELD + 1;
+
+  /**
+   * The inodes of the sockets owned by the process, sorted so that the lines of /proc/net/tcp can
+   * be matched with a binary search instead of a boxed lookup. The array is kept across samples
+   * and only grows.
+   */
+  private static long[] socketInodes = new long[1024];
+  private static int socketInodeCount = 0;
+
+  // Offsets of the fields of the line being parsed, kept across lines.
+  private static final int[] fieldStart = new int[MAX_FIELDS];
+  private static final int[] fieldEnd = new int[MAX_FIELDS];
+
+  private static Map<Long, TCPFlowMetrics> inodeFlowMetricsMap = new HashMap<>();
   private static Map<String, destTCPFlowMetrics> destnodeFlowMetricsMap = new HashMap<>();
   private static LinuxTCPMetricsGenerator linuxTCPMetricsHandler = new LinuxTCPMetricsGenerator();
 
   private static StringBuilder value = new StringBuilder();
 
   static void listSockets() {
-    File self = new File("/proc/" + pid + "/fd");
-    File[] filesList = self.listFiles();
-    if (filesList ==  null) {
+    // Each entry is read with a single readlink, without resolving the path to the fd first.
+    try (DirectoryStream<Path> fds = Files.newDirectoryStream(Paths.get("/proc", pid, "fd"))) {
+      for (Path fd : fds) {
+        // no check for file, as this dir is all files/symlinks
+        String target;
+        try {
+          target = Files.readSymbolicLink(fd).toString();
+        } catch (Exception e) {
+          continue;
+        }
+        long inode = parseSocketInode(target);
+        if (inode >= 0) {
+          addSocketInode(inode);
+        }
+      }
+    } catch (Exception e) {
       return;
     }
-    for (File f : filesList) {
-      // no check for file, as this dir is all files/symlinks
-      String target = null;
-      try {
-        Path targetp = Files.readSymbolicLink(Paths.get(f.getCanonicalPath()));
-        target = targetp.toString();
-      } catch (Exception e) {
-        continue;
+    Arrays.sort(socketInodes, 0, socketInodeCount);
+  }
+
+  private static void addSocketInode(long inode) {
+    if (socketInodeCount == socketInodes.length) {
+      socketInodes = Arrays.copyOf(socketInodes, socketInodes.length * 2);
+    }
+    socketInodes[socketInodeCount++] = inode;
+  }
+
+  /**
+   * Parses the inode out of a link target of the form socket:[12345].
+   *
+   * @return the inode or -1 if the target is not a socket.
+   */
+  @VisibleForTesting
+  static long parseSocketInode(String target) {
+    if (!target.startsWith(SOCKET_LINK_PREFIX) || !target.endsWith("]")) {
+      return -1;
+    }
+    try {
+      return parseLong(target, SOCKET_LINK_PREFIX.length(), target.length() - 1, 10);
+    } catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+
+  @VisibleForTesting
+  static boolean isSocketOfProcess(long inode) {
+    return Arrays.binarySearch(socketInodes, 0, socketInodeCount, inode) >= 0;
+  }
+
+  /**
+   * Parses one line of /proc/net/tcp or /proc/net/tcp6 in place. The line is only split as far as
+   * the fields that are read, and the inode is checked before anything is allocated.
+   */
+  @VisibleForTesting
+  static void generateMap(String line) {
+    int fields = 0;
+    int idx = 0;
+    int len = line.length();
+    while (fields < MAX_FIELDS) {
+      while (idx < len && Character.isWhitespace(line.charAt(idx))) {
+        idx++;
       }
-      if (target.contains("socket:")) {
-        target = target.split("socket:\\[")[1];
-        target = target.split("\\]")[0];
-        inodeSocketList.add(target);
+      if (idx == len) {
+        break;
       }
+      fieldStart[fields] = idx;
+      while (idx < len && !Character.isWhitespace(line.charAt(idx))) {
+        idx++;
+      }
+      fieldEnd[fields] = idx;
+      fields++;
+    }
+    if (fields <= INODE_FIELD) {
+      return;
     }
-  }
 
-  private static void generateMap(String line, String ver) {
-    String[] toks = line.trim().split("\\s+");
-    if (!inodeSocketList.contains(toks[9])) { // inode
+    long inode = parseLong(line, fieldStart[INODE_FIELD], fieldEnd[INODE_FIELD], 10);
+    if (!isSocketOfProcess(inode)) {
       return;
     }
     TCPFlowMetrics m = new TCPFlowMetrics();
-    m.destIP = toks[2].split(":")[0];
-    m.txQueue = Long.decode("0x" + toks[4].split(":")[0]);
-    m.rxQueue = Long.decode("0x" + toks[4].split(":")[1]);
-    m.currentLost = Long.decode("0x" + toks[6]);
-    if (toks.length > 16) {
-      m.sendCWND = Long.parseLong(toks[15]);
-      m.SSThresh = Long.parseLong(toks[16]);
+    m.destIP = line.substring(fieldStart[REM_ADDRESS_FIELD],
+        line.indexOf(':', fieldStart[REM_ADDRESS_FIELD]));
+    int queueSeparator = line.indexOf(':', fieldStart[TX_RX_QUEUE_FIELD]);
+    m.txQueue = parseLong(line, fieldStart[TX_RX_QUEUE_FIELD], queueSeparator, 16);
+    m.rxQueue = parseLong(line, queueSeparator + 1, fieldEnd[TX_RX_QUEUE_FIELD], 16);
+    m.currentLost = parseLong(line, fieldStart[RETRANSMIT_FIELD], fieldEnd[RETRANSMIT_FIELD], 16);
+    if (fields > SS_THRESH_FIELD) {
+      m.sendCWND = parseLong(line, fieldStart[SEND_CWND_FIELD], fieldEnd[SEND_CWND_FIELD], 10);
+      m.SSThresh = parseLong(line, fieldStart[SS_THRESH_FIELD], fieldEnd[SS_THRESH_FIELD], 10);
     } else {
       m.sendCWND = -1;
       m.SSThresh = -1;
     }
-    inodeFlowMetricsMap.put(toks[9], m);
+    inodeFlowMetricsMap.put(inode, m);
+  }
+
+  /** Parses a signed number out of line[start, end) without creating substrings. */
+  private static long parseLong(String line, int start, int end, int radix) {
+    boolean negative = start < end && line.charAt(start) == '-';
+    int idx = negative ? start + 1 : start;
+    if (idx >= end) {
+      throw new NumberFormatException("Empty number in: " + line);
+    }
+    long value = 0;
+    for (; idx < end; idx++) {
+      int digit = Character.digit(line.charAt(idx), radix);
+      if (digit < 0) {
+        throw new NumberFormatException("Invalid number in: " + line);
+      }
+      value = value * radix + digit;
+    }
+    return negative ? -value : value;
   }
 
   private static void mapTCPMetrics(String ver) {
@@ -130,7 +226,7 @@ public class NetworkE2E {
       String line = null;
       while ((line = bufferedReader.readLine()) != null) {
         if (ln != 0) { // first line is keys
-          generateMap(line, ver);
+          generateMap(line);
         }
         ln++;
       }
@@ -149,13 +245,13 @@ public class NetworkE2E {
   }
 
   private static void clearAll() {
-    inodeSocketList.clear();
+    socketInodeCount = 0;
     inodeFlowMetricsMap.clear();
     destnodeFlowMetricsMap.clear();
   }
 
   private static void computeSummary() {
-    for (Map.Entry<String, TCPFlowMetrics> entry : inodeFlowMetricsMap.entrySet()) {
+    for (Map.Entry<Long, TCPFlowMetrics> entry : inodeFlowMetricsMap.entrySet()) {
       TCPFlowMetrics m = entry.getValue();
       destTCPFlowMetrics exist = destnodeFlowMetricsMap.get(m.destIP);
       if (exist == null) {
@@ -214,6 +310,18 @@ public class NetworkE2E {
     computeSummary();
   }
 
+  @VisibleForTesting
+  static Map<Long, TCPFlowMetrics> getInodeFlowMetricsMap() {
+    return inodeFlowMetricsMap;
+  }
+
+  @VisibleForTesting
+  static void setSocketInodes(long... inodes) {
+    socketInodes = Arrays.copyOf(inodes, Math.max(inodes.length, 1));
+    socketInodeCount = inodes.length;
+    Arrays.sort(socketInodes, 0, socketInodeCount);
+  }
+
   @VisibleForTesting
   protected static void setDestnodeFlowMetricsMap(
       Map<String, destTCPFlowMetrics> destnodeFlowMetricsMap) {
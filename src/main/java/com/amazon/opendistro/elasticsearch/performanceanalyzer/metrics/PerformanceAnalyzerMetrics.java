@@ -15,15 +15,17 @@
 
 package com.amazon.opendistro.elasticsearch.performanceanalyzer.metrics;
 
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.collections.MpscRingBuffer;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.collectors.StatExceptionCode;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.collectors.StatsCollector;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.config.PluginSettings;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.reader_writer_shared.Event;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.telemetry.Counter;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.telemetry.TelemetryRegistry;
 import java.io.File;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -61,7 +63,23 @@ public class PerformanceAnalyzerMetrics {
   public static final int QUEUE_SIZE = PluginSettings.instance().getWriterQueueSize();
 
   // TODO: Comeup with a more sensible number.
-  public static final BlockingQueue<Event> metricQueue = new ArrayBlockingQueue<>(QUEUE_SIZE);
+  // Written to by the collector and Elasticsearch threads, drained by a single writer thread.
+  // The ring buffer rounds QUEUE_SIZE up to the next power of two, so the queue holds up to twice
+  // as many events as writer-queue-size asks for: the default of 100000 gives 131072 slots.
+  public static final BlockingQueue<Event> metricQueue = new MpscRingBuffer<>(QUEUE_SIZE);
+
+  private static final Counter DROPPED_EVENTS = TelemetryRegistry.instance().counter(
+      "pa_writer_queue_dropped_events", "Number of metric events dropped because the writer queue was full.");
+
+  // The drain loop of the writer is not in this repository, so the fill of the queue is read when
+  // the telemetry is rendered rather than recorded when the queue is drained.
+  static {
+    TelemetryRegistry.instance().gauge(
+        "pa_writer_queue_fill_events", "Number of metric events waiting in the writer queue.", metricQueue::size);
+    TelemetryRegistry.instance().gauge(
+        "pa_writer_queue_capacity_events", "Number of metric events the writer queue holds.",
+        () -> metricQueue.size() + metricQueue.remainingCapacity());
+  }
 
   private static final int NUM_RETRIES_FOR_TMP_FILE = 10;
 
@@ -114,7 +132,7 @@ public class PerformanceAnalyzerMetrics {
 
   private static void emitMetric(BlockingQueue<Event> q, Event entry) {
     if (!q.offer(entry)) {
-      // TODO: Emit a metric here.
+      DROPPED_EVENTS.inc();
       LOG.debug("Could not enter metric {}", entry);
     }
   }
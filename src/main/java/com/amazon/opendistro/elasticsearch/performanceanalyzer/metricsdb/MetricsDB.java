@@ -20,9 +20,11 @@ import com.amazon.opendistro.elasticsearch.performanceanalyzer.collectors.StatEx
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.collectors.StatsCollector;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.config.PluginSettings;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.reader.Removable;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.retention.RetentionManager;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.math.BigDecimal;
 import java.nio.file.DirectoryNotEmptyException;
 import java.nio.file.FileSystems;
 import java.nio.file.Files;
@@ -37,8 +39,12 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Stream;
 
 import org.apache.logging.log4j.LogManager;
@@ -80,10 +86,16 @@ public class MetricsDB implements Removable {
   public static final String MAX = "max";
   public static final Set<String> AGG_VALUES =
       Collections.unmodifiableSet(new HashSet<>(Arrays.asList(SUM, AVG, MIN, MAX)));
+  public static final String SKETCH = "sketch";
+  private static final String SKETCH_TABLE_SUFFIX = "_sketch";
+  // Percentile aggregations, such as p50, p99 or p99.9.
+  private static final Pattern QUANTILE_AGG = Pattern.compile("p(\\d{1,3}(\\.\\d+)?)");
+  // SQLite rejects compound selects with more terms than this.
+  private static final int MAX_COMPOUND_SELECT = 500;
 
   private long windowStartTime;
 
-  private static String getDBFilePath(long windowStartTime) {
+  public static String getDBFilePath(long windowStartTime) {
     return PluginSettings.instance()
             .getSettingValue(DB_FILE_PREFIX_PATH_CONF_NAME, DB_FILE_PREFIX_PATH_DEFAULT) + windowStartTime;
   }
@@ -169,6 +181,129 @@ public class MetricsDB implements Removable {
         .execute();
   }
 
+  public static String getSketchTableName(String metric) {
+    return metric + SKETCH_TABLE_SUFFIX;
+  }
+
+  /**
+   * Creates the table that holds the latency distribution of a metric, as one serialized
+   * {@link QuantileSketch} per row of dimensions.
+   */
+  public void createSketch(Metric<?> metric, List<String> dimensions) {
+    String tableName = getSketchTableName(metric.getName());
+    if (DBUtils.checkIfTableExists(create, tableName)) {
+      return;
+    }
+    List<Field<?>> fields = DBUtils.getFieldsFromList(dimensions);
+    fields.add(DSL.field(SKETCH, byte[].class));
+    create.createTable(tableName).columns(fields).execute();
+  }
+
+  public BatchBindStep startSketchBatchPut(Metric<?> metric, List<String> dimensions) {
+    List<?> dummyValues = new ArrayList<>();
+    for (String dim : dimensions) {
+      dummyValues.add(null);
+    }
+    dummyValues.add(null);
+    return create.batch(
+        create.insertInto(DSL.table(getSketchTableName(metric.getName()))).values(dummyValues));
+  }
+
+  /**
+   * Merges the sketches of a metric that share the same values of the given dimensions.
+   *
+   * @param metric the metric name
+   * @param dimensions the dimensions to group the sketches by
+   * @return the merged sketch for each distinct list of dimension values, in the order of the
+   *     dimensions, or null if the metric has no sketch table.
+   */
+  public Map<List<String>, QuantileSketch> querySketches(String metric, List<String> dimensions) {
+    String tableName = getSketchTableName(metric);
+    if (!DBUtils.checkIfTableExists(create, tableName)) {
+      return null;
+    }
+    List<Field<?>> fields = DBUtils.getFieldsFromList(dimensions);
+    fields.add(DSL.field(DSL.name(SKETCH), byte[].class));
+    Map<List<String>, QuantileSketch> sketches = new LinkedHashMap<>();
+    for (Record record : create.select(fields).from(DSL.table(tableName)).fetch()) {
+      byte[] bytes = record.get(SKETCH, byte[].class);
+      if (bytes == null) {
+        continue;
+      }
+      List<String> key = new ArrayList<>(dimensions.size());
+      for (int i = 0; i < dimensions.size(); i++) {
+        key.add(record.get(i, String.class));
+      }
+      QuantileSketch sketch = QuantileSketch.fromBytes(bytes);
+      QuantileSketch merged = sketches.putIfAbsent(key, sketch);
+      if (merged != null) {
+        merged.merge(sketch);
+      }
+    }
+    return sketches;
+  }
+
+  public static boolean isQuantileAgg(String aggType) {
+    return parseQuantile(aggType) >= 0;
+  }
+
+  /**
+   * Parses a percentile aggregation such as p99 or p99.9.
+   *
+   * @return the quantile between 0 and 1, or -1 if aggType is not a percentile.
+   */
+  public static double parseQuantile(String aggType) {
+    Matcher matcher = QUANTILE_AGG.matcher(aggType);
+    if (!matcher.matches()) {
+      return -1;
+    }
+    double percentile = Double.parseDouble(matcher.group(1));
+    return percentile <= 100 ? percentile / 100 : -1;
+  }
+
+  /** The inverse of {@link #parseQuantile(String)}, 0.999 gives p99.9. */
+  public static String getQuantileFieldName(double quantile) {
+    return "p" + BigDecimal.valueOf(quantile).movePointRight(2).stripTrailingZeros().toPlainString();
+  }
+
+  // Percentiles cannot be computed by SQLite, so the sketches are merged here and the result is
+  // handed back as a table of literal rows.
+  private TableLike<Record> getQuantileTable(String metric, double quantile, List<String> dimensions) {
+    Map<List<String>, QuantileSketch> sketches = querySketches(metric, dimensions);
+    if (sketches == null || sketches.isEmpty()) {
+      return null;
+    }
+    List<Select<Record>> chunks = new ArrayList<>();
+    Select<Record> chunk = null;
+    int terms = 0;
+    for (Map.Entry<List<String>, QuantileSketch> entry : sketches.entrySet()) {
+      List<Field<?>> row = new ArrayList<>();
+      for (int i = 0; i < dimensions.size(); i++) {
+        row.add(DSL.val(entry.getKey().get(i), String.class).as(dimensions.get(i)));
+      }
+      row.add(DSL.val(entry.getValue().getQuantile(quantile), Double.class).as(metric));
+      Select<Record> select = create.select(row);
+      chunk = chunk == null ? select : chunk.unionAll(select);
+      if (++terms == MAX_COMPOUND_SELECT) {
+        chunks.add(chunk);
+        chunk = null;
+        terms = 0;
+      }
+    }
+    if (chunk != null) {
+      chunks.add(chunk);
+    }
+    if (chunks.size() == 1) {
+      return chunks.get(0).asTable();
+    }
+    Select<Record> table = null;
+    for (Select<Record> part : chunks) {
+      Select<Record> select = create.select().from(part.asTable());
+      table = table == null ? select : table.unionAll(select);
+    }
+    return table.asTable();
+  }
+
   // We have a table per metric. We do a group by/aggregate on
   // every dimension and return all the metric tables.
   public List<TableLike<Record>> getAggregatedMetricTables(
@@ -180,6 +315,10 @@ public class MetricsDB implements Removable {
       String metric = metrics.get(i);
       List<Field<?>> selectFields = DBUtils.getFieldsFromList(dimensions);
       String aggType = aggregations.get(i);
+      if (isQuantileAgg(aggType)) {
+        tList.add(getQuantileTable(metric, parseQuantile(aggType), dimensions));
+        continue;
+      }
       if (aggType.equals(SUM)) {
         Field<Double> field = DSL.field(SUM, Double.class);
         selectFields.add(DSL.sum(field).as(metric));
@@ -226,8 +365,8 @@ public class MetricsDB implements Removable {
    * @param aggregations aggregation we want to use for each metric
    * @param dimensions dimension we want to use for each metric
    * @return result of query
-   * @throws Exception if one of the aggregations contains sth other than "sum", "avg", "min", and
-   *     "max".
+   * @throws Exception if one of the aggregations contains sth other than "sum", "avg", "min", "max"
+   *     and percentiles such as "p99".
    */
   public Result<Record> queryMetric(
       List<String> metrics, List<String> aggregations, List<String> dimensions) throws Exception {
@@ -276,6 +415,51 @@ public class MetricsDB implements Removable {
     return create.select().from(DSL.table(metric)).fetch();
   }
 
+  /**
+   * Queries all the data associated with the given metric, along with the requested percentiles of
+   * each row. The percentiles are added as columns named by {@link #getQuantileFieldName(double)},
+   * and are null for the rows that have no sketch.
+   *
+   * @param metric the desired metric
+   * @param quantiles the quantiles to add, between 0 and 1
+   * @return the result of the query
+   */
+  public Result<Record> queryMetric(String metric, double... quantiles) {
+    Result<Record> rows = queryMetric(metric);
+    if (quantiles.length == 0) {
+      return rows;
+    }
+    List<Field<?>> fields = new ArrayList<>(Arrays.asList(rows.fields()));
+    List<String> dimensions = new ArrayList<>();
+    for (Field<?> field : fields) {
+      if (!AGG_VALUES.contains(field.getName())) {
+        dimensions.add(field.getName());
+      }
+    }
+    for (double quantile : quantiles) {
+      fields.add(DSL.field(DSL.name(getQuantileFieldName(quantile)), Double.class));
+    }
+    Map<List<String>, QuantileSketch> sketches = querySketches(metric, dimensions);
+
+    Field<?>[] resultFields = fields.toArray(new Field<?>[0]);
+    Result<Record> result = create.newResult(resultFields);
+    for (Record row : rows) {
+      List<String> key = new ArrayList<>(dimensions.size());
+      for (String dim : dimensions) {
+        key.add(row.get(dim, String.class));
+      }
+      QuantileSketch sketch = sketches == null ? null : sketches.get(key);
+      Object[] values = Arrays.copyOf(row.intoArray(), resultFields.length);
+      for (int i = 0; i < quantiles.length; i++) {
+        values[row.size() + i] = sketch == null ? null : sketch.getQuantile(quantiles[i]);
+      }
+      Record record = create.newRecord(resultFields);
+      record.fromArray(values);
+      result.add(record);
+    }
+    return result;
+  }
+
   /**
    * Queries all the data associated with a given metric.
    *
@@ -324,6 +508,7 @@ public class MetricsDB implements Removable {
     Path dbFilePath = Paths.get(getDBFilePath(windowStartTime));
     try {
       Files.delete(dbFilePath);
+      RetentionManager.instance().untrack(dbFilePath);
     } catch (IOException | SecurityException e) {
             LOG.error("Failed to delete File - {} with ExceptionCode: {}",
               dbFilePath, StatExceptionCode.OTHER.toString(), e);
@@ -0,0 +1,319 @@
+/*
+ * Copyright 2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.metricsdb;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * A mergeable quantile sketch with relative error guarantees, after DDSketch.
+ *
+ * <p>Positive values are counted in logarithmically sized bins: bin {@code i} holds the values in
+ * {@code (gamma^(i-1), gamma^i]}, with {@code gamma = (1 + a) / (1 - a)} for a relative accuracy
+ * {@code a}. Any quantile is then answered within a relative error of {@code a} of the true value.
+ * Zero and negative values are counted together as zero.
+ *
+ * <p>The number of bins is bounded. When the values span more bins than that, the lowest bins are
+ * collapsed into one, so the accuracy of the higher quantiles, the ones latency is judged by, is
+ * kept. With the defaults, 2048 bins at 1% accuracy span more than 17 orders of magnitude.
+ *
+ * <p>Two sketches with the same accuracy can be merged, for instance to get the quantiles of a
+ * metric across several windows or nodes. A sketch is persisted with {@link #toBytes()}.
+ */
+public class QuantileSketch {
+  public static final double DEFAULT_RELATIVE_ACCURACY = 0.01;
+  public static final int DEFAULT_MAX_BINS = 2048;
+
+  private static final byte SERIAL_VERSION = 1;
+  // Extra room allocated around the bins in use, so that the array is not copied on every new bin.
+  private static final int GROWTH_SLACK = 32;
+
+  private final double relativeAccuracy;
+  private final double gamma;
+  private final double logGamma;
+  private final int maxBins;
+
+  private long[] bins;
+  // The bin index held in bins[0].
+  private int offset;
+  private int minIndex;
+  private int maxIndex;
+  private long zeroCount;
+  private long count;
+  private double min;
+  private double max;
+
+  public QuantileSketch() {
+    this(DEFAULT_RELATIVE_ACCURACY, DEFAULT_MAX_BINS);
+  }
+
+  public QuantileSketch(double relativeAccuracy, int maxBins) {
+    if (relativeAccuracy <= 0 || relativeAccuracy >= 1) {
+      throw new IllegalArgumentException("Relative accuracy must be in (0, 1): " + relativeAccuracy);
+    }
+    if (maxBins < 1) {
+      throw new IllegalArgumentException("A sketch needs at least one bin: " + maxBins);
+    }
+    this.relativeAccuracy = relativeAccuracy;
+    this.gamma = (1 + relativeAccuracy) / (1 - relativeAccuracy);
+    this.logGamma = Math.log(gamma);
+    this.maxBins = maxBins;
+    this.bins = new long[0];
+    this.minIndex = Integer.MAX_VALUE;
+    this.maxIndex = Integer.MIN_VALUE;
+    this.min = Double.POSITIVE_INFINITY;
+    this.max = Double.NEGATIVE_INFINITY;
+  }
+
+  public double getRelativeAccuracy() {
+    return relativeAccuracy;
+  }
+
+  public long getCount() {
+    return count;
+  }
+
+  public boolean isEmpty() {
+    return count == 0;
+  }
+
+  public void add(double value) {
+    add(value, 1);
+  }
+
+  public void add(double value, long n) {
+    if (n <= 0 || Double.isNaN(value)) {
+      return;
+    }
+    if (value > 0) {
+      addToBin(index(value), n);
+    } else {
+      zeroCount += n;
+    }
+    count += n;
+    min = Math.min(min, value);
+    max = Math.max(max, value);
+  }
+
+  /**
+   * Adds the values counted by another sketch to this one.
+   *
+   * @throws IllegalArgumentException if the sketches do not have the same relative accuracy.
+   */
+  public void merge(QuantileSketch other) {
+    if (other.relativeAccuracy != relativeAccuracy) {
+      throw new IllegalArgumentException(
+          "Cannot merge sketches of accuracy " + relativeAccuracy + " and " + other.relativeAccuracy);
+    }
+    if (other.isEmpty()) {
+      return;
+    }
+    // From the top, so that bins are collapsed the same way as if the values were added here.
+    for (int i = other.maxIndex; i >= other.minIndex; i--) {
+      long binCount = other.bins[i - other.offset];
+      if (binCount > 0) {
+        addToBin(i, binCount);
+      }
+    }
+    zeroCount += other.zeroCount;
+    count += other.count;
+    min = Math.min(min, other.min);
+    max = Math.max(max, other.max);
+  }
+
+  /**
+   * The value at the given quantile, within the relative accuracy of the sketch. NaN if the sketch
+   * is empty.
+   *
+   * @param quantile between 0 and 1, such as 0.99 for the 99th percentile.
+   */
+  public double getQuantile(double quantile) {
+    if (quantile < 0 || quantile > 1) {
+      throw new IllegalArgumentException("Quantile must be in [0, 1]: " + quantile);
+    }
+    if (count == 0) {
+      return Double.NaN;
+    }
+    double rank = quantile * (count - 1);
+    long seen = zeroCount;
+    if (seen > rank) {
+      return clamp(0);
+    }
+    for (int i = minIndex; i <= maxIndex; i++) {
+      seen += bins[i - offset];
+      if (seen > rank) {
+        return clamp(value(i));
+      }
+    }
+    return max;
+  }
+
+  private int index(double value) {
+    return (int) Math.ceil(Math.log(value) / logGamma);
+  }
+
+  /** The value that is within the relative accuracy of every value in the bin. */
+  private double value(int index) {
+    return 2 * Math.pow(gamma, index) / (gamma + 1);
+  }
+
+  private double clamp(double value) {
+    return Math.max(min, Math.min(max, value));
+  }
+
+  private void addToBin(int index, long n) {
+    if (minIndex > maxIndex) {
+      reshape(index, index);
+    } else if (index < minIndex || index > maxIndex) {
+      int newMin = Math.min(minIndex, index);
+      int newMax = Math.max(maxIndex, index);
+      if ((long) newMax - newMin + 1 > maxBins) {
+        newMin = newMax - maxBins + 1;
+        index = Math.max(index, newMin);
+      }
+      reshape(newMin, newMax);
+    }
+    bins[index - offset] += n;
+  }
+
+  /**
+   * Makes the bins cover [newMin, newMax], with newMax never below the current maxIndex. The counts
+   * of the bins below newMin are collapsed into newMin.
+   */
+  private void reshape(int newMin, int newMax) {
+    if (newMin >= offset && newMax < offset + bins.length) {
+      if (newMin > minIndex) {
+        long collapsed = 0;
+        for (int i = minIndex; i < newMin && i <= maxIndex; i++) {
+          collapsed += bins[i - offset];
+          bins[i - offset] = 0;
+        }
+        bins[newMin - offset] += collapsed;
+      }
+      minIndex = newMin;
+      maxIndex = newMax;
+      return;
+    }
+    int span = newMax - newMin + 1;
+    int slack = Math.max(0, Math.min(GROWTH_SLACK, maxBins - span));
+    long[] newBins = new long[span + 2 * slack];
+    int newOffset = newMin - slack;
+    for (int i = minIndex; i <= maxIndex; i++) {
+      newBins[Math.max(i, newMin) - newOffset] += bins[i - offset];
+    }
+    bins = newBins;
+    offset = newOffset;
+    minIndex = newMin;
+    maxIndex = newMax;
+  }
+
+  /**
+   * Serializes the sketch. Bin counts are written as varints, so a typical latency sketch takes a
+   * few hundred bytes.
+   */
+  public byte[] toBytes() {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    out.write(SERIAL_VERSION);
+    writeDouble(out, relativeAccuracy);
+    writeVarLong(out, maxBins);
+    writeVarLong(out, zeroCount);
+    writeDouble(out, min);
+    writeDouble(out, max);
+    if (minIndex > maxIndex) {
+      writeVarLong(out, 0);
+    } else {
+      writeVarLong(out, maxIndex - minIndex + 1);
+      writeVarLong(out, zigZag(minIndex));
+      for (int i = minIndex; i <= maxIndex; i++) {
+        writeVarLong(out, bins[i - offset]);
+      }
+    }
+    return out.toByteArray();
+  }
+
+  /**
+   * Reads a sketch written by {@link #toBytes()}.
+   *
+   * @throws IllegalArgumentException if the bytes are not a serialized sketch.
+   */
+  public static QuantileSketch fromBytes(byte[] bytes) {
+    try {
+      ByteBuffer in = ByteBuffer.wrap(bytes);
+      byte version = in.get();
+      if (version != SERIAL_VERSION) {
+        throw new IllegalArgumentException("Unknown sketch version " + version);
+      }
+      double relativeAccuracy = in.getDouble();
+      int maxBins = (int) readVarLong(in);
+      QuantileSketch sketch = new QuantileSketch(relativeAccuracy, maxBins);
+      sketch.zeroCount = readVarLong(in);
+      sketch.min = in.getDouble();
+      sketch.max = in.getDouble();
+      sketch.count = sketch.zeroCount;
+      int numBins = (int) readVarLong(in);
+      if (numBins > 0) {
+        int first = (int) unZigZag(readVarLong(in));
+        sketch.reshape(first, first + numBins - 1);
+        for (int i = 0; i < numBins; i++) {
+          long binCount = readVarLong(in);
+          sketch.bins[first + i - sketch.offset] = binCount;
+          sketch.count += binCount;
+        }
+      }
+      return sketch;
+    } catch (RuntimeException e) {
+      if (e instanceof IllegalArgumentException) {
+        throw e;
+      }
+      throw new IllegalArgumentException("Malformed sketch", e);
+    }
+  }
+
+  private static void writeDouble(ByteArrayOutputStream out, double value) {
+    long bits = Double.doubleToLongBits(value);
+    for (int shift = 56; shift >= 0; shift -= 8) {
+      out.write((int) (bits >>> shift));
+    }
+  }
+
+  private static void writeVarLong(ByteArrayOutputStream out, long value) {
+    while ((value & ~0x7FL) != 0) {
+      out.write((int) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    out.write((int) value);
+  }
+
+  private static long readVarLong(ByteBuffer in) {
+    long value = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      byte b = in.get();
+      value |= (long) (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+    }
+    throw new IllegalArgumentException("Malformed varint");
+  }
+
+  private static long zigZag(int value) {
+    return ((long) value << 1) ^ (value >> 31);
+  }
+
+  private static long unZigZag(long value) {
+    return (value >>> 1) ^ -(value & 1);
+  }
+}
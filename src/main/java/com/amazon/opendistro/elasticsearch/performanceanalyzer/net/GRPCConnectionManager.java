@@ -20,7 +20,10 @@ import com.amazon.opendistro.elasticsearch.performanceanalyzer.core.Util;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.grpc.InterNodeRpcServiceGrpc;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.grpc.InterNodeRpcServiceGrpc.InterNodeRpcServiceStub;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.util.InstanceDetails;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.telemetry.Counter;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.telemetry.TelemetryRegistry;
 import com.google.common.annotations.VisibleForTesting;
+import io.grpc.ConnectivityState;
 import io.grpc.ManagedChannel;
 import io.grpc.ManagedChannelBuilder;
 import io.grpc.netty.shaded.io.grpc.netty.GrpcSslContexts;
@@ -28,11 +31,14 @@ import io.grpc.netty.shaded.io.grpc.netty.NettyChannelBuilder;
 import io.grpc.netty.shaded.io.netty.handler.ssl.SslContextBuilder;
 
 import java.io.File;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 import javax.net.ssl.SSLException;
 
 import org.apache.logging.log4j.LogManager;
@@ -44,10 +50,31 @@ import org.apache.logging.log4j.Logger;
  *
  * <p>It also listens to cluster state changes and manages handling connections to the changed
  * hosts.
+ *
+ * <p>Channels send keepalive pings, so that a peer that went away is noticed even when nothing is
+ * being sent to it, and their connectivity state is watched. A channel that fails is shut down and
+ * evicted, and the peer is put under a backoff by the {@link PeerHealthTracker}: callers are
+ * expected to check {@link #isPeerAvailable} and skip the peer until a new channel can be dialed.
  */
 public class GRPCConnectionManager {
 
   private static final Logger LOG = LogManager.getLogger(GRPCConnectionManager.class);
+
+  /**
+   * Interval of the keepalive pings of the client channels. The server has to permit pings this
+   * frequent.
+   */
+  public static final long KEEPALIVE_TIME_SECONDS = 30;
+  public static final long KEEPALIVE_TIMEOUT_SECONDS = 10;
+
+  private static final String CONNECT_LATENCY_NAME = "pa_grpc_connect_duration_seconds";
+  private static final String CONNECT_LATENCY_HELP = "Time for a channel to a peer to become ready.";
+  private static final String RECONNECT_LATENCY_NAME = "pa_grpc_reconnect_duration_seconds";
+  private static final String RECONNECT_LATENCY_HELP =
+      "Time from the failure of the channel to a peer until a new channel is ready.";
+  private static final Counter CHANNEL_FAILURES = TelemetryRegistry.instance().counter(
+      "pa_grpc_channel_failures", "Channels to peers evicted after a failure.");
+
   private final int port;
   // TLS certificate, private key, and trusted root CA files
   private File certFile;
@@ -70,6 +97,17 @@ public class GRPCConnectionManager {
    */
   private final boolean shouldUseHttps;
 
+  /**
+   * The peers whose channel failed, and the backoff before they are dialed again.
+   */
+  private final PeerHealthTracker peerHealth = new PeerHealthTracker();
+
+  /**
+   * Called with the host whenever its channel is evicted, so that the streams opened on it can be
+   * dropped.
+   */
+  private final List<Consumer<InstanceDetails.Id>> evictionListeners = new CopyOnWriteArrayList<>();
+
   public GRPCConnectionManager(final boolean shouldUseHttps) {
     this.shouldUseHttps = shouldUseHttps;
     this.port = 0;
@@ -139,6 +177,37 @@ public class GRPCConnectionManager {
     terminateAllConnections();
   }
 
+  /**
+   * Whether RPCs can be attempted to the host. False while the host is backed off after a failure
+   * of its channel, in which case sending to it would only fail again.
+   *
+   * @param remoteHost The host to check.
+   * @return true if a channel to the host can be used or dialed.
+   */
+  public boolean isPeerAvailable(final InstanceDetails.Id remoteHost) {
+    return peerHealth.isAvailable(remoteHost);
+  }
+
+  public void addEvictionListener(final Consumer<InstanceDetails.Id> listener) {
+    evictionListeners.add(listener);
+  }
+
+  /**
+   * Reports an RPC failure to the host, noticed before the channel state changed. The channel is
+   * evicted and the host is backed off.
+   *
+   * @param remoteHost The host the RPC failed for.
+   */
+  public void reportFailure(final InstanceDetails.Id remoteHost) {
+    final AtomicReference<ManagedChannel> channelReference = perHostChannelMap.get(remoteHost);
+    final ManagedChannel channel = channelReference == null ? null : channelReference.get();
+    if (channel != null) {
+      evictChannel(remoteHost, channel);
+    } else {
+      peerHealth.onFailure(remoteHost);
+    }
+  }
+
   private ManagedChannel getChannelForHost(final InstanceDetails remoteHost) {
     final AtomicReference<ManagedChannel> managedChannelAtomicReference = perHostChannelMap.get(remoteHost.getInstanceId());
     if (managedChannelAtomicReference != null) {
@@ -159,9 +228,76 @@ public class GRPCConnectionManager {
     final ManagedChannel channel = buildChannelForHost(remoteHost);
     perHostChannelMap.computeIfAbsent(remoteHost.getInstanceId(), s -> new AtomicReference<>());
     perHostChannelMap.get(remoteHost.getInstanceId()).set(channel);
+    watchChannel(remoteHost.getInstanceId(), channel, ConnectivityState.IDLE, System.nanoTime());
     return channel;
   }
 
+  /**
+   * Follows the connectivity state of a channel until it fails or is shut down.
+   *
+   * @param remoteHost The host the channel is to.
+   * @param channel The channel.
+   * @param lastState The state the channel was last seen in.
+   * @param connectStartNanos When the channel last started connecting.
+   */
+  private void watchChannel(final InstanceDetails.Id remoteHost, final ManagedChannel channel,
+      final ConnectivityState lastState, final long connectStartNanos) {
+    final ConnectivityState state = channel.getState(false);
+    long startNanos = connectStartNanos;
+    switch (state) {
+      case CONNECTING:
+        if (lastState != ConnectivityState.CONNECTING) {
+          startNanos = System.nanoTime();
+        }
+        break;
+      case READY:
+        if (lastState != ConnectivityState.READY) {
+          onChannelReady(remoteHost, startNanos);
+        }
+        break;
+      case TRANSIENT_FAILURE:
+        evictChannel(remoteHost, channel);
+        return;
+      case SHUTDOWN:
+        return;
+      default:
+        break;
+    }
+    final long since = startNanos;
+    channel.notifyWhenStateChanged(state, () -> watchChannel(remoteHost, channel, state, since));
+  }
+
+  private void onChannelReady(final InstanceDetails.Id remoteHost, final long connectStartNanos) {
+    final String peer = remoteHost.toString();
+    TelemetryRegistry.instance().histogram(CONNECT_LATENCY_NAME, CONNECT_LATENCY_HELP, "peer", peer)
+                     .recordSince(connectStartNanos);
+    final long downMillis = peerHealth.onSuccess(remoteHost);
+    if (downMillis >= 0) {
+      LOG.info("Reconnected to host: {} after {} ms", remoteHost, downMillis);
+      TelemetryRegistry.instance().histogram(RECONNECT_LATENCY_NAME, RECONNECT_LATENCY_HELP, "peer", peer)
+                       .recordNanos(TimeUnit.MILLISECONDS.toNanos(downMillis));
+    }
+  }
+
+  /**
+   * Shuts down a failed channel and removes it, and its stub, if they are still the ones in use for
+   * the host. The host is backed off before the next channel is dialed.
+   */
+  private synchronized void evictChannel(final InstanceDetails.Id remoteHost, final ManagedChannel channel) {
+    final long backoffMillis = peerHealth.onFailure(remoteHost);
+    final AtomicReference<ManagedChannel> channelReference = perHostChannelMap.get(remoteHost);
+    if (channelReference != null && channelReference.get() == channel) {
+      LOG.warn("Channel to host: {} failed, retrying in {} ms", remoteHost, backoffMillis);
+      CHANNEL_FAILURES.inc();
+      perHostChannelMap.remove(remoteHost);
+      perHostClientStubMap.remove(remoteHost);
+      for (Consumer<InstanceDetails.Id> listener : evictionListeners) {
+        listener.accept(remoteHost);
+      }
+    }
+    channel.shutdownNow();
+  }
+
   private ManagedChannel buildChannelForHost(final InstanceDetails remoteHost) {
     return shouldUseHttps ? buildSecureChannel(remoteHost) : buildInsecureChannel(remoteHost);
   }
@@ -178,7 +314,11 @@ public class GRPCConnectionManager {
     return ManagedChannelBuilder.forAddress(
             remoteHost.getInstanceIp().toString(),
             getPortFromHost(remoteHost)
-    ).usePlaintext().build();
+    ).usePlaintext()
+        .keepAliveTime(KEEPALIVE_TIME_SECONDS, TimeUnit.SECONDS)
+        .keepAliveTimeout(KEEPALIVE_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+        .keepAliveWithoutCalls(true)
+        .build();
   }
 
   private ManagedChannel buildSecureChannel(final InstanceDetails remoteHost) {
@@ -191,6 +331,9 @@ public class GRPCConnectionManager {
               remoteHost.getInstanceIp().toString(),
               getPortFromHost(remoteHost))
               .sslContext(sslContextBuilder.build())
+              .keepAliveTime(KEEPALIVE_TIME_SECONDS, TimeUnit.SECONDS)
+              .keepAliveTimeout(KEEPALIVE_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+              .keepAliveWithoutCalls(true)
               .build();
     } catch (SSLException e) {
       LOG.error("Unable to build an SSL gRPC client. Exception: {}", e.getMessage());
@@ -236,6 +379,10 @@ public class GRPCConnectionManager {
    */
   public void terminateConnection(InstanceDetails.Id remoteHost) {
     perHostClientStubMap.remove(remoteHost);
-    perHostChannelMap.remove(remoteHost);
+    final AtomicReference<ManagedChannel> channelReference = perHostChannelMap.remove(remoteHost);
+    if (channelReference != null && channelReference.get() != null) {
+      channelReference.get().shutdown();
+    }
+    peerHealth.remove(remoteHost);
   }
 }
@@ -27,6 +27,9 @@ import com.amazon.opendistro.elasticsearch.performanceanalyzer.grpc.SubscribeMes
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.grpc.SubscribeResponse;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.metrics.RcaGraphMetrics;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.util.InstanceDetails;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.telemetry.Counter;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.telemetry.LatencyHistogram;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.telemetry.TelemetryRegistry;
 import io.grpc.StatusRuntimeException;
 import io.grpc.stub.StreamObserver;
 import java.util.Map;
@@ -43,6 +46,24 @@ import org.apache.logging.log4j.Logger;
 public class NetClient {
 
   private static final Logger LOG = LogManager.getLogger(NetClient.class);
+  private static final String BYTES_SENT_NAME = "pa_grpc_sent_bytes";
+  private static final String BYTES_SENT_HELP = "Bytes of gRPC messages sent to other nodes.";
+  private static final String SEND_LATENCY_NAME = "pa_grpc_send_duration_seconds";
+  private static final String SEND_LATENCY_HELP = "Time taken to hand a gRPC message to the transport.";
+  private static final Counter PUBLISH_BYTES_SENT =
+      TelemetryRegistry.instance().counter(BYTES_SENT_NAME, BYTES_SENT_HELP, "rpc", "publish");
+  private static final Counter SUBSCRIBE_BYTES_SENT =
+      TelemetryRegistry.instance().counter(BYTES_SENT_NAME, BYTES_SENT_HELP, "rpc", "subscribe");
+  private static final LatencyHistogram PUBLISH_LATENCY =
+      TelemetryRegistry.instance().histogram(SEND_LATENCY_NAME, SEND_LATENCY_HELP, "rpc", "publish");
+  private static final LatencyHistogram SUBSCRIBE_LATENCY =
+      TelemetryRegistry.instance().histogram(SEND_LATENCY_NAME, SEND_LATENCY_HELP, "rpc", "subscribe");
+  private static final String SKIPPED_NAME = "pa_grpc_skipped_sends";
+  private static final String SKIPPED_HELP = "gRPC messages not sent because the peer is backed off after a failure.";
+  private static final Counter PUBLISH_SKIPPED =
+      TelemetryRegistry.instance().counter(SKIPPED_NAME, SKIPPED_HELP, "rpc", "publish");
+  private static final Counter SUBSCRIBE_SKIPPED =
+      TelemetryRegistry.instance().counter(SKIPPED_NAME, SKIPPED_HELP, "rpc", "subscribe");
 
   /**
    * The connection manager instance that holds objects needed to make RPCs.
@@ -51,6 +72,8 @@ public class NetClient {
 
   public NetClient(final GRPCConnectionManager connectionManager) {
     this.connectionManager = connectionManager;
+    // A stream opened on an evicted channel is dead, the next publish opens a new one.
+    connectionManager.addEvictionListener(this::flushStream);
   }
 
   public GRPCConnectionManager getConnectionManager() {
@@ -74,14 +97,23 @@ public class NetClient {
       final SubscribeMessage subscribeMessage,
       StreamObserver<SubscribeResponse> serverResponseStream) {
     LOG.debug("Trying to send intent message to {}", remoteHost);
+    if (!connectionManager.isPeerAvailable(remoteHost.getInstanceId())) {
+      LOG.debug("Not subscribing to {} as it is backed off after a failure", remoteHost);
+      SUBSCRIBE_SKIPPED.inc();
+      return;
+    }
     try {
+      long start = System.nanoTime();
       connectionManager.getClientStubForHost(remoteHost).subscribe(subscribeMessage, serverResponseStream);
+      SUBSCRIBE_LATENCY.recordSince(start);
+      SUBSCRIBE_BYTES_SENT.inc(subscribeMessage.getSerializedSize());
       PerformanceAnalyzerApp.RCA_GRAPH_METRICS_AGGREGATOR
           .updateStat(RcaGraphMetrics.NET_BYTES_OUT, subscribeMessage.getRequesterGraphNode(),
               subscribeMessage.getSerializedSize());
     } catch (StatusRuntimeException sre) {
       LOG.error("Encountered an error trying to subscribe. Status: {}",
           sre.getStatus(), sre);
+      connectionManager.reportFailure(remoteHost.getInstanceId());
       StatsCollector.instance().logException(StatExceptionCode.RCA_NETWORK_ERROR);
     }
   }
@@ -94,23 +126,37 @@ public class NetClient {
    * @param remoteHost           The remote host to which we need to send flow units to.
    * @param flowUnitMessage      The flow unit to send to the remote host.
    * @param serverResponseStream The stream for the server to communicate back on.
+   * @return true if the flow unit was handed to the stream, false if it was not sent because the
+   *     host is backed off or the stream failed.
    */
-  public void publish(
+  public boolean publish(
       final InstanceDetails remoteHost,
       final FlowUnitMessage flowUnitMessage,
       final StreamObserver<PublishResponse> serverResponseStream) {
     LOG.debug("Publishing {} data to {}", flowUnitMessage.getGraphNode(), remoteHost);
+    if (!connectionManager.isPeerAvailable(remoteHost.getInstanceId())) {
+      LOG.debug("Not publishing to {} as it is backed off after a failure", remoteHost);
+      PUBLISH_SKIPPED.inc();
+      return false;
+    }
     try {
       final StreamObserver<FlowUnitMessage> stream =
           getDataStreamForHost(remoteHost, serverResponseStream);
+      long start = System.nanoTime();
       stream.onNext(flowUnitMessage);
+      PUBLISH_LATENCY.recordSince(start);
+      PUBLISH_BYTES_SENT.inc(flowUnitMessage.getSerializedSize());
       PerformanceAnalyzerApp.RCA_GRAPH_METRICS_AGGREGATOR
           .updateStat(RcaGraphMetrics.NET_BYTES_OUT, flowUnitMessage.getGraphNode(),
               flowUnitMessage.getSerializedSize());
+      return true;
     } catch (StatusRuntimeException sre) {
       LOG.error("rca: Encountered an error trying to publish a flow unit. Status: {}",
           sre.getStatus(), sre);
+      connectionManager.reportFailure(remoteHost.getInstanceId());
+      flushStream(remoteHost.getInstanceId());
       StatsCollector.instance().logException(StatExceptionCode.RCA_NETWORK_ERROR);
+      return false;
     }
   }
 
@@ -27,6 +27,7 @@ import com.amazon.opendistro.elasticsearch.performanceanalyzer.metrics.handler.M
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.net.handler.PublishRequestHandler;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.net.handler.SubscribeServerHandler;
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 import io.grpc.Server;
 import io.grpc.netty.shaded.io.grpc.netty.GrpcSslContexts;
@@ -39,6 +40,7 @@ import io.grpc.stub.StreamObserver;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import javax.net.ssl.SSLException;
@@ -60,10 +62,15 @@ public class NetServer extends InterNodeRpcServiceGrpc.InterNodeRpcServiceImplBa
   private final int port;
 
   /**
-   * Number of threads to be used by the server.
+   * Number of Netty event loop threads doing the network I/O of the server.
    */
   private final int numServerThreads;
 
+  /**
+   * Number of threads running the RPC handlers.
+   */
+  private final int numExecutorThreads;
+
   /**
    * Flag indicating if a secure channel is to be used or otherwise.
    */
@@ -89,11 +96,22 @@ public class NetServer extends InterNodeRpcServiceGrpc.InterNodeRpcServiceImplBa
    */
   protected Server server;
 
+  /**
+   * The executor the RPC handlers run on.
+   */
+  private ExecutorService serverExecutor;
+
   private volatile boolean attemptedShutdown;
 
   public NetServer(final int port, final int numServerThreads, final boolean useHttps) {
+    this(port, numServerThreads, 1, useHttps);
+  }
+
+  public NetServer(final int port, final int numServerThreads, final int numExecutorThreads,
+      final boolean useHttps) {
     this.port = port;
     this.numServerThreads = numServerThreads;
+    this.numExecutorThreads = numExecutorThreads;
     this.useHttps = useHttps;
     this.attemptedShutdown = false;
   }
@@ -117,9 +135,11 @@ public class NetServer extends InterNodeRpcServiceGrpc.InterNodeRpcServiceImplBa
   @Override
   public void run() {
     LOG.info(
-        "Starting the gRPC server on port {} with {} threads. Using HTTPS: {}",
+        "Starting the gRPC server on port {} with {} event loop threads and {} executor threads. "
+            + "Using HTTPS: {}",
         port,
         numServerThreads,
+        numExecutorThreads,
         useHttps);
     try {
       if (useHttps) {
@@ -144,15 +164,22 @@ public class NetServer extends InterNodeRpcServiceGrpc.InterNodeRpcServiceImplBa
   }
 
   private NettyServerBuilder buildBaseServer() {
+    // A single boss thread is enough to accept the connections of the other nodes.
+    serverExecutor = Executors.newFixedThreadPool(numExecutorThreads,
+        new ThreadFactoryBuilder().setNameFormat("pa-grpc-server-%d").setDaemon(true).build());
     return NettyServerBuilder.forPort(port)
             .addService(this)
-            .bossEventLoopGroup(new NioEventLoopGroup(numServerThreads))
+            .bossEventLoopGroup(new NioEventLoopGroup(1))
             .workerEventLoopGroup(new NioEventLoopGroup(numServerThreads))
-            .channelType(NioServerSocketChannel.class);
+            .channelType(NioServerSocketChannel.class)
+            .executor(serverExecutor)
+            // Let the peers ping as often as GRPCConnectionManager does.
+            .permitKeepAliveTime(GRPCConnectionManager.KEEPALIVE_TIME_SECONDS, TimeUnit.SECONDS)
+            .permitKeepAliveWithoutCalls(true);
   }
 
   private Server buildHttpServer() {
-    return buildBaseServer().executor(Executors.newSingleThreadExecutor()).build();
+    return buildBaseServer().build();
   }
 
   protected Server buildHttpsServer(File trustedCasFile, File certFile, File pkeyFile) throws SSLException {
@@ -273,6 +300,9 @@ public class NetServer extends InterNodeRpcServiceGrpc.InterNodeRpcServiceImplBa
         Thread.currentThread().interrupt();
       }
     }
+    if (serverExecutor != null) {
+      serverExecutor.shutdown();
+    }
   }
 
   public void setAttemptedShutdown() {
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.net;
+
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.util.InstanceDetails;
+import com.google.common.annotations.VisibleForTesting;
+import java.time.Clock;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Keeps track of the peers whose channel failed, and of when they can be dialed again.
+ *
+ * <p>Each consecutive failure of a peer doubles its backoff, from {@code initialBackoffMillis} up
+ * to {@code maxBackoffMillis}, and the backoff is randomized by up to {@code jitter} of its value
+ * so that the nodes of a cluster do not all re-dial a restarted peer at the same time. Until the
+ * backoff has elapsed the peer is unavailable and sends to it can be skipped.
+ */
+public class PeerHealthTracker {
+  public static final long DEFAULT_INITIAL_BACKOFF_MILLIS = 1000;
+  public static final long DEFAULT_MAX_BACKOFF_MILLIS = 60 * 1000;
+  public static final double DEFAULT_JITTER = 0.2;
+
+  private final long initialBackoffMillis;
+  private final long maxBackoffMillis;
+  private final double jitter;
+  private final Random random;
+  private final ConcurrentMap<InstanceDetails.Id, PeerState> unhealthyPeers;
+  private Clock clock;
+
+  public PeerHealthTracker() {
+    this(DEFAULT_INITIAL_BACKOFF_MILLIS, DEFAULT_MAX_BACKOFF_MILLIS, DEFAULT_JITTER, new Random());
+  }
+
+  public PeerHealthTracker(long initialBackoffMillis, long maxBackoffMillis, double jitter, Random random) {
+    if (initialBackoffMillis < 1 || maxBackoffMillis < initialBackoffMillis) {
+      throw new IllegalArgumentException(
+          "Invalid backoff range: [" + initialBackoffMillis + ", " + maxBackoffMillis + "]");
+    }
+    if (jitter < 0 || jitter >= 1) {
+      throw new IllegalArgumentException("Jitter must be in [0, 1): " + jitter);
+    }
+    this.initialBackoffMillis = initialBackoffMillis;
+    this.maxBackoffMillis = maxBackoffMillis;
+    this.jitter = jitter;
+    this.random = random;
+    this.unhealthyPeers = new ConcurrentHashMap<>();
+    this.clock = Clock.systemUTC();
+  }
+
+  /**
+   * @return true unless the peer failed and its backoff has not elapsed yet.
+   */
+  public boolean isAvailable(final InstanceDetails.Id peer) {
+    PeerState state = unhealthyPeers.get(peer);
+    return state == null || clock.millis() >= state.retryAtMillis;
+  }
+
+  /**
+   * @return true if the last connection attempt to the peer failed.
+   */
+  public boolean isUnhealthy(final InstanceDetails.Id peer) {
+    return unhealthyPeers.containsKey(peer);
+  }
+
+  /**
+   * Records a failure of the channel to the peer, and backs off from it.
+   *
+   * @return the backoff in milliseconds.
+   */
+  public long onFailure(final InstanceDetails.Id peer) {
+    final long now = clock.millis();
+    PeerState state = unhealthyPeers.compute(peer, (id, current) -> {
+      PeerState next = current == null ? new PeerState(now) : current;
+      // A failure reported during the backoff, for instance by each pending send, is the same one.
+      if (current == null || now >= current.retryAtMillis) {
+        next.failures++;
+        next.backoffMillis = nextBackoff(next.failures);
+        next.retryAtMillis = now + next.backoffMillis;
+      }
+      return next;
+    });
+    return state.backoffMillis;
+  }
+
+  /**
+   * Records that the channel to the peer is ready.
+   *
+   * @return the milliseconds since the peer first failed, -1 if it was healthy.
+   */
+  public long onSuccess(final InstanceDetails.Id peer) {
+    PeerState state = unhealthyPeers.remove(peer);
+    return state == null ? -1 : clock.millis() - state.firstFailureMillis;
+  }
+
+  public void remove(final InstanceDetails.Id peer) {
+    unhealthyPeers.remove(peer);
+  }
+
+  private long nextBackoff(int failures) {
+    long backoff = initialBackoffMillis << Math.min(failures - 1, 30);
+    if (backoff <= 0 || backoff > maxBackoffMillis) {
+      backoff = maxBackoffMillis;
+    }
+    double spread = jitter * (2 * random.nextDouble() - 1);
+    return Math.max(1, Math.round(backoff * (1 + spread)));
+  }
+
+  @VisibleForTesting
+  void setClock(Clock clock) {
+    this.clock = clock;
+  }
+
+  private static class PeerState {
+    private final long firstFailureMillis;
+    private int failures;
+    private long backoffMillis;
+    private long retryAtMillis;
+
+    PeerState(long firstFailureMillis) {
+      this.firstFailureMillis = firstFailureMillis;
+    }
+  }
+}
@@ -22,6 +22,7 @@ import com.amazon.opendistro.elasticsearch.performanceanalyzer.ClientServers;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.PerformanceAnalyzerApp;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.PerformanceAnalyzerThreads;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.collectors.StatsCollector;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.config.ConfigFileWatcher;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.config.PluginSettings;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.core.Util;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.metrics.AllMetrics.NodeRole;
@@ -51,6 +52,9 @@ import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.persistence.P
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.scheduler.RCAScheduler;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.scheduler.RcaSchedulerState;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.rest.QueryRcaRequestHandler;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rest.TimedHttpHandler;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.telemetry.Counter;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.telemetry.TelemetryRegistry;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.threads.ThreadProvider;
 import com.google.common.annotations.VisibleForTesting;
 import com.sun.net.httpserver.HttpServer;
@@ -83,6 +87,8 @@ public class RcaController {
   private static final Logger LOG = LogManager.getLogger(RcaController.class);
 
   public static final String RCA_ENABLED_CONF_FILE = "rca_enabled.conf";
+  private static final Counter CONFIG_RELOADS_REJECTED = TelemetryRegistry.instance().counter(
+      "pa_rca_config_reloads_rejected", "Changed rca.conf files that could not be parsed and were not applied.");
 
   private final ScheduledExecutorService netOpsExecutorService;
   private final boolean useHttps;
@@ -113,6 +119,13 @@ public class RcaController {
 
   private SubscriptionManager subscriptionManager;
   private volatile RcaConf rcaConf;
+  private NodeRole rcaConfRole;
+
+  // Tells the controller loop whether a config file changed, so that it does not need to re-read
+  // them every tick. Null until run() starts.
+  private ConfigFileWatcher configWatcher;
+  private final Object configChangeMonitor = new Object();
+  private boolean configChanged = true;
 
   private final String RCA_ENABLED_CONF_LOCATION;
   private final long rcaStateCheckIntervalMillis;
@@ -153,6 +166,8 @@ public class RcaController {
     this.useHttps = PluginSettings.instance().getHttpsEnabled();
     subscriptionManager = new SubscriptionManager(grpcConnectionManager);
     nodeStateManager = new NodeStateManager(this.appContext);
+    this.appContext.addClusterMembershipListener(subscriptionManager);
+    this.appContext.addClusterMembershipListener(nodeStateManager);
     queryRcaRequestHandler = new QueryRcaRequestHandler(this.appContext);
     this.rcaScheduler = null;
     this.rcaStateCheckIntervalMillis = rcaStateCheckIntervalMillis;
@@ -288,13 +303,19 @@ public class RcaController {
   }
 
   public void run() {
+    startConfigWatcher();
     long tick = 0;
     long nodeRoleCheckInTicks = roleCheckPeriodicity / rcaStateCheckIntervalMillis;
     while (true) {
       try {
         long startTime = System.currentTimeMillis();
-        readRcaEnabledFromConf();
-        if (rcaEnabled && tick % nodeRoleCheckInTicks == 0) {
+        // The files are also re-read with every role check, in case a watch event got lost.
+        boolean resync = tick % nodeRoleCheckInTicks == 0;
+        boolean reload = consumeConfigChange() || resync;
+        if (reload) {
+          readRcaEnabledFromConf();
+        }
+        if (rcaEnabled && resync) {
           tick = 0;
           final InstanceDetails nodeDetails = appContext.getMyInstanceDetails();
           if (nodeDetails.getRole() != NodeRole.UNKNOWN) {
@@ -304,7 +325,10 @@ public class RcaController {
 
         // If RCA is enabled, update Analysis graph with Muted RCAs value
         if (rcaEnabled) {
-          rcaConf = getRcaConfForMyRole(currentRole);
+          if (reload || rcaConf == null || rcaConfRole != currentRole) {
+            swapRcaConf(getRcaConfForMyRole(currentRole));
+            rcaConfRole = currentRole;
+          }
           LOG.debug("Updating Analysis Graph with Muted RCAs");
           readAndUpdateMutedComponents();
         }
@@ -312,7 +336,7 @@ public class RcaController {
 
         long duration = System.currentTimeMillis() - startTime;
         if (duration < rcaStateCheckIntervalMillis) {
-          Thread.sleep(rcaStateCheckIntervalMillis - duration);
+          waitForConfigChange(rcaStateCheckIntervalMillis - duration);
         }
       } catch (InterruptedException ie) {
         if (deliberateInterrupt) {
@@ -325,9 +349,81 @@ public class RcaController {
       }
       tick++;
     }
+    if (configWatcher != null) {
+      configWatcher.close();
+    }
     LOG.error("RcaController exits..");
   }
 
+  private void startConfigWatcher() {
+    configWatcher = new ConfigFileWatcher(RcaConsts.CONFIG_CHANGE_DEBOUNCE_IN_MS);
+    if (!configWatcher.isWatching()) {
+      return;
+    }
+    configWatcher.subscribe(changedFiles -> {
+      synchronized (configChangeMonitor) {
+        configChanged = true;
+        configChangeMonitor.notifyAll();
+      }
+    });
+    watchConfigFiles();
+    threadProvider.createThreadForRunnable(configWatcher, PerformanceAnalyzerThreads.RCA_CONFIG_WATCHER).start();
+  }
+
+  /**
+   * Adds the rca enabled file and the rca.conf of every role to the watched files. The rca.conf
+   * paths can change at runtime, and a newly watched file counts as changed.
+   */
+  private void watchConfigFiles() {
+    boolean added = configWatcher.watch(Paths.get(RCA_ENABLED_CONF_LOCATION, RCA_ENABLED_CONF_FILE));
+    for (String confPath : RcaControllerHelper.getAllConfFilePaths()) {
+      added |= configWatcher.watch(Paths.get(confPath));
+    }
+    if (added) {
+      synchronized (configChangeMonitor) {
+        configChanged = true;
+      }
+    }
+  }
+
+  /**
+   * Whether a config file changed since the last call. Always true when the files cannot be
+   * watched, so that they are polled every tick instead.
+   */
+  private boolean consumeConfigChange() {
+    if (configWatcher == null || !configWatcher.isWatching()) {
+      return true;
+    }
+    watchConfigFiles();
+    synchronized (configChangeMonitor) {
+      boolean changed = configChanged;
+      configChanged = false;
+      return changed;
+    }
+  }
+
+  /** Sleeps for the given time, or until a watched config file changes. */
+  private void waitForConfigChange(long timeoutMillis) throws InterruptedException {
+    synchronized (configChangeMonitor) {
+      if (!configChanged) {
+        configChangeMonitor.wait(timeoutMillis);
+      }
+    }
+  }
+
+  /**
+   * Replaces the config in use with a freshly read one, unless the new one could not be parsed, for
+   * instance because it was read while being written. The previous config is kept in that case.
+   */
+  private void swapRcaConf(RcaConf newConf) {
+    if (newConf.isValid() || rcaConf == null) {
+      rcaConf = newConf;
+    } else {
+      LOG.error("Could not parse {}, keeping the previous RCA config.", newConf.getConfigFileLoc());
+      CONFIG_RELOADS_REJECTED.inc();
+    }
+  }
+
   /**
    * Reads the enabled/disabled value for RCA from the conf file.
    */
@@ -499,7 +595,7 @@ public class RcaController {
   }
 
   private void addRcaRequestHandler() {
-    httpServer.createContext(Util.RCA_QUERY_URL, queryRcaRequestHandler);
+    httpServer.createContext(Util.RCA_QUERY_URL, new TimedHttpHandler(Util.RCA_QUERY_URL, queryRcaRequestHandler));
   }
 
   public void setDeliberateInterrupt() {
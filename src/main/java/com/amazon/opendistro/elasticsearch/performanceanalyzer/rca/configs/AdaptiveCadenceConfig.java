@@ -0,0 +1,62 @@
+/*
+ * Copyright 2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.configs;
+
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.core.RcaConf;
+
+/**
+ * Settings for backing off the evaluation of connected components whose RCAs have stayed healthy.
+ * Read from the "adaptive-cadence" block under "rca-config-settings" in rca.conf.
+ */
+public class AdaptiveCadenceConfig {
+  private Boolean enabled;
+  private Integer healthyPeriodsBeforeBackoff;
+  private Integer maxBackoffMultiplier;
+
+  public static final boolean DEFAULT_ENABLED = false;
+  public static final int DEFAULT_HEALTHY_PERIODS_BEFORE_BACKOFF = 3;
+  public static final int DEFAULT_MAX_BACKOFF_MULTIPLIER = 8;
+  public static final String CONFIG_NAME = "adaptive-cadence";
+
+  public AdaptiveCadenceConfig(final RcaConf rcaConf) {
+    enabled = rcaConf.readRcaConfig(
+        CONFIG_NAME, RCA_CONF_KEY_CONSTANTS.ENABLED, DEFAULT_ENABLED, Boolean.class);
+    healthyPeriodsBeforeBackoff = rcaConf.readRcaConfig(
+        CONFIG_NAME, RCA_CONF_KEY_CONSTANTS.HEALTHY_PERIODS_BEFORE_BACKOFF,
+        DEFAULT_HEALTHY_PERIODS_BEFORE_BACKOFF, (s) -> (s > 0), Integer.class);
+    maxBackoffMultiplier = rcaConf.readRcaConfig(
+        CONFIG_NAME, RCA_CONF_KEY_CONSTANTS.MAX_BACKOFF_MULTIPLIER,
+        DEFAULT_MAX_BACKOFF_MULTIPLIER, (s) -> (s >= 1), Integer.class);
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public int getHealthyPeriodsBeforeBackoff() {
+    return healthyPeriodsBeforeBackoff;
+  }
+
+  public int getMaxBackoffMultiplier() {
+    return maxBackoffMultiplier;
+  }
+
+  public static class RCA_CONF_KEY_CONSTANTS {
+    public static final String ENABLED = "enabled";
+    public static final String HEALTHY_PERIODS_BEFORE_BACKOFF = "healthy-periods-before-backoff";
+    public static final String MAX_BACKOFF_MULTIPLIER = "max-backoff-multiplier";
+  }
+}
@@ -8,10 +8,14 @@ public class HotShardClusterRcaConfig {
     private Double cpuUtilizationClusterThreshold;
     private Double ioTotThroughputClusterThreshold;
     private Double ioTotSysCallRateClusterThreshold;
+    private Integer maxTrackedShardsPerIndex;
+    private Double medianRelativeError;
 
     public static final double DEFAULT_CPU_UTILIZATION_CLUSTER_THRESHOLD = 0.3;
     public static final double DEFAULT_IO_TOTAL_THROUGHPUT_CLUSTER_THRESHOLD = 0.3;
     public static final double DEFAULT_IO_TOTAL_SYSCALL_RATE_CLUSTER_THRESHOLD = 0.3;
+    public static final int DEFAULT_MAX_TRACKED_SHARDS_PER_INDEX = 256;
+    public static final double DEFAULT_MEDIAN_RELATIVE_ERROR = 0.01;
 
     public HotShardClusterRcaConfig(final RcaConf rcaConf) {
         cpuUtilizationClusterThreshold = rcaConf.readRcaConfig(CONFIG_NAME,
@@ -23,6 +27,12 @@ public class HotShardClusterRcaConfig {
         ioTotSysCallRateClusterThreshold = rcaConf.readRcaConfig(CONFIG_NAME,
                 HotShardClusterRcaConfig.RCA_CONF_KEY_CONSTANTS.CLUSTER_IO_SYSCALLRATE_CLUSTER_THRESHOLD,
                 DEFAULT_IO_TOTAL_SYSCALL_RATE_CLUSTER_THRESHOLD, (s) -> (s > 0), Double.class);
+        maxTrackedShardsPerIndex = rcaConf.readRcaConfig(CONFIG_NAME,
+                HotShardClusterRcaConfig.RCA_CONF_KEY_CONSTANTS.MAX_TRACKED_SHARDS_PER_INDEX,
+                DEFAULT_MAX_TRACKED_SHARDS_PER_INDEX, (s) -> (s > 0), Integer.class);
+        medianRelativeError = rcaConf.readRcaConfig(CONFIG_NAME,
+                HotShardClusterRcaConfig.RCA_CONF_KEY_CONSTANTS.MEDIAN_RELATIVE_ERROR,
+                DEFAULT_MEDIAN_RELATIVE_ERROR, (s) -> (s > 0 && s < 1), Double.class);
     }
 
     public double getCpuUtilizationClusterThreshold() {
@@ -37,9 +47,19 @@ public class HotShardClusterRcaConfig {
         return ioTotSysCallRateClusterThreshold;
     }
 
+    public int getMaxTrackedShardsPerIndex() {
+        return maxTrackedShardsPerIndex;
+    }
+
+    public double getMedianRelativeError() {
+        return medianRelativeError;
+    }
+
     public static class RCA_CONF_KEY_CONSTANTS {
         private static final String CPU_UTILIZATION_CLUSTER_THRESHOLD = "cpu-utilization-cluster-percentage";
         private static final String CLUSTER_IO_THROUGHPUT_CLUSTER_THRESHOLD =  "io-total-throughput-cluster-percentage";
         private static final String CLUSTER_IO_SYSCALLRATE_CLUSTER_THRESHOLD = "io-total-syscallrate-cluster-percentage";
+        private static final String MAX_TRACKED_SHARDS_PER_INDEX = "max-tracked-shards-per-index";
+        private static final String MEDIAN_RELATIVE_ERROR = "median-relative-error";
     }
 }
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.configs;
+
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.core.RcaConf;
+
+/**
+ * Per evaluation budgets for the vertices of the RCA graph. Read from the "vertex-budget" block
+ * under "rca-config-settings" in rca.conf. A budget of 0 means that dimension is not limited.
+ */
+public class VertexBudgetConfig {
+  private Integer cpuTimeMillis;
+  private Integer wallClockMillis;
+  private Integer allocatedMegabytes;
+  private Integer tolerance;
+  private String action;
+  private Integer maxThrottleMultiplier;
+  private Integer topN;
+
+  public static final String ACTION_THROTTLE = "throttle";
+  public static final String ACTION_MUTE = "mute";
+
+  public static final int DEFAULT_CPU_TIME_MILLIS = 0;
+  public static final int DEFAULT_WALL_CLOCK_MILLIS = 0;
+  public static final int DEFAULT_ALLOCATED_MEGABYTES = 0;
+  public static final int DEFAULT_TOLERANCE = 3;
+  public static final String DEFAULT_ACTION = ACTION_THROTTLE;
+  public static final int DEFAULT_MAX_THROTTLE_MULTIPLIER = 8;
+  public static final int DEFAULT_TOP_N = 5;
+  public static final String CONFIG_NAME = "vertex-budget";
+
+  public VertexBudgetConfig(final RcaConf rcaConf) {
+    cpuTimeMillis = rcaConf.readRcaConfig(
+        CONFIG_NAME, RCA_CONF_KEY_CONSTANTS.CPU_TIME_MILLIS,
+        DEFAULT_CPU_TIME_MILLIS, (s) -> (s >= 0), Integer.class);
+    wallClockMillis = rcaConf.readRcaConfig(
+        CONFIG_NAME, RCA_CONF_KEY_CONSTANTS.WALL_CLOCK_MILLIS,
+        DEFAULT_WALL_CLOCK_MILLIS, (s) -> (s >= 0), Integer.class);
+    allocatedMegabytes = rcaConf.readRcaConfig(
+        CONFIG_NAME, RCA_CONF_KEY_CONSTANTS.ALLOCATED_MEGABYTES,
+        DEFAULT_ALLOCATED_MEGABYTES, (s) -> (s >= 0), Integer.class);
+    tolerance = rcaConf.readRcaConfig(
+        CONFIG_NAME, RCA_CONF_KEY_CONSTANTS.TOLERANCE,
+        DEFAULT_TOLERANCE, (s) -> (s > 0), Integer.class);
+    action = rcaConf.readRcaConfig(
+        CONFIG_NAME, RCA_CONF_KEY_CONSTANTS.ACTION, DEFAULT_ACTION,
+        (s) -> (ACTION_THROTTLE.equals(s) || ACTION_MUTE.equals(s)), String.class);
+    maxThrottleMultiplier = rcaConf.readRcaConfig(
+        CONFIG_NAME, RCA_CONF_KEY_CONSTANTS.MAX_THROTTLE_MULTIPLIER,
+        DEFAULT_MAX_THROTTLE_MULTIPLIER, (s) -> (s >= 1), Integer.class);
+    topN = rcaConf.readRcaConfig(
+        CONFIG_NAME, RCA_CONF_KEY_CONSTANTS.TOP_N, DEFAULT_TOP_N, (s) -> (s >= 0), Integer.class);
+  }
+
+  public long getCpuTimeNanos() {
+    return cpuTimeMillis * 1_000_000L;
+  }
+
+  public long getWallClockNanos() {
+    return wallClockMillis * 1_000_000L;
+  }
+
+  public long getAllocatedBytes() {
+    return allocatedMegabytes * 1024L * 1024L;
+  }
+
+  public int getTolerance() {
+    return tolerance;
+  }
+
+  public boolean shouldMute() {
+    return ACTION_MUTE.equals(action);
+  }
+
+  public int getMaxThrottleMultiplier() {
+    return maxThrottleMultiplier;
+  }
+
+  public int getTopN() {
+    return topN;
+  }
+
+  public static class RCA_CONF_KEY_CONSTANTS {
+    public static final String CPU_TIME_MILLIS = "cpu-time-millis";
+    public static final String WALL_CLOCK_MILLIS = "wall-clock-millis";
+    public static final String ALLOCATED_MEGABYTES = "allocated-megabytes";
+    public static final String TOLERANCE = "tolerance";
+    public static final String ACTION = "action";
+    public static final String MAX_THROTTLE_MULTIPLIER = "max-throttle-multiplier";
+    public static final String TOP_N = "top-n";
+  }
+}
@@ -44,11 +44,21 @@ public abstract class Metric extends LeafNode<MetricFlowUnit> {
   }
 
   private String name;
+  private final double[] quantiles;
   private static final Logger LOG = LogManager.getLogger(Metric.class);
 
   public Metric(String name, long evaluationIntervalSeconds) {
+    this(name, evaluationIntervalSeconds, new double[0]);
+  }
+
+  /**
+   * A metric whose flow units also carry the given quantiles, as columns named like p99. Only the
+   * metrics that have sketches in the MetricsDB, such as latency, get values for them.
+   */
+  public Metric(String name, long evaluationIntervalSeconds, double[] quantiles) {
     super(0, evaluationIntervalSeconds);
     this.name = name.isEmpty() ? this.getClass().getSimpleName() : name;
+    this.quantiles = quantiles.clone();
   }
 
   @Override
@@ -70,7 +80,10 @@ public abstract class Metric extends LeafNode<MetricFlowUnit> {
       return MetricFlowUnit.generic();
     }
     try {
-      Result<Record> result = queryable.queryMetrics(db, name);
+      Result<Record> result =
+          quantiles.length == 0
+              ? queryable.queryMetrics(db, name)
+              : queryable.queryMetrics(db, name, quantiles);
       return new MetricFlowUnit(queryable.getDBTimestamp(db), result);
     } catch (DataAccessException dex) {
       // This can happen if the RCA started querying for metrics before the Reader obtained them.
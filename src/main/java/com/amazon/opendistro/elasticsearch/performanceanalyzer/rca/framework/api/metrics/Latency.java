@@ -22,4 +22,15 @@ public class Latency extends Metric {
   public Latency(long evaluationIntervalSeconds) {
     super(AllMetrics.ShardBulkMetric.LATENCY.name(), evaluationIntervalSeconds);
   }
+
+  /**
+   * Latency metric that also gathers some of its percentiles.
+   *
+   * @param evaluationIntervalSeconds how often the metric is gathered
+   * @param quantiles the latency percentiles to gather, such as 0.99, in addition to the sum, avg,
+   *     min and max of each operation.
+   */
+  public Latency(long evaluationIntervalSeconds, double... quantiles) {
+    super(AllMetrics.ShardBulkMetric.LATENCY.name(), evaluationIntervalSeconds, quantiles);
+  }
 }
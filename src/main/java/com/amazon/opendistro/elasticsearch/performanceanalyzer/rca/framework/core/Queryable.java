@@ -26,6 +26,14 @@ public interface Queryable {
 
   Result<Record> queryMetrics(MetricsDB db, String metricName);
 
+  /**
+   * Same as {@link #queryMetrics(MetricsDB, String)}, with a column for each of the requested
+   * quantiles of the metric, for the metrics that keep their distribution.
+   */
+  default Result<Record> queryMetrics(MetricsDB db, String metricName, double[] quantiles) {
+    return db.queryMetric(metricName, quantiles);
+  }
+
   Result<Record> queryMetrics(
       MetricsDB db, String metricName, String dimension, String aggregation) throws Exception;
 
@@ -17,10 +17,13 @@ package com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.co
 
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.PerformanceAnalyzerApp;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.collectors.StatsCollector;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.decisionmaker.actions.configs.ActionEffectivenessConfig;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.decisionmaker.actions.configs.ActionGovernorConfig;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.decisionmaker.actions.configs.CacheActionConfig;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.decisionmaker.actions.configs.QueueActionConfig;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.decisionmaker.deciders.configs.DeciderConfig;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.RcaControllerHelper;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.configs.AdaptiveCadenceConfig;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.configs.FieldDataCacheRcaConfig;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.configs.HighHeapUsageOldGenRcaConfig;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.configs.HighHeapUsageYoungGenRcaConfig;
@@ -29,6 +32,7 @@ import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.configs.HotSh
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.configs.HotShardRcaConfig;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.configs.QueueRejectionRcaConfig;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.configs.ShardRequestCacheRcaConfig;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.configs.VertexBudgetConfig;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.util.RcaConsts;
 import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonParser;
@@ -136,6 +140,11 @@ public class RcaConf {
     return configFileLoc;
   }
 
+  /** False if the config file could not be read or parsed. */
+  public boolean isValid() {
+    return conf != null;
+  }
+
   // Returns the last modified time of Rca Conf file
   public long getLastModifiedTime() {
     return lastModifiedTime;
@@ -212,6 +221,22 @@ public class RcaConf {
   public QueueActionConfig getQueueActionConfig() {
     return new QueueActionConfig(this);
   }
+
+  public ActionGovernorConfig getActionGovernorConfig() {
+    return new ActionGovernorConfig(this);
+  }
+
+  public ActionEffectivenessConfig getActionEffectivenessConfig() {
+    return new ActionEffectivenessConfig(this);
+  }
+
+  public AdaptiveCadenceConfig getAdaptiveCadenceConfig() {
+    return new AdaptiveCadenceConfig(this);
+  }
+
+  public VertexBudgetConfig getVertexBudgetConfig() {
+    return new VertexBudgetConfig(this);
+  }
   
   public <T> T readRcaConfig(String rcaName, String key, T defaultValue, Class<? extends T> clazz) {
     return readRcaConfig(rcaName, key, defaultValue, (s) -> true, clazz);
@@ -222,7 +247,8 @@ public class RcaConf {
     T setting = defaultValue;
     try {
       Map<String, Object> rcaObj = null;
-      if (conf.getRcaConfigSettings() != null
+      if (conf != null
+              && conf.getRcaConfigSettings() != null
               && conf.getRcaConfigSettings().containsKey(rcaName)
               && conf.getRcaConfigSettings().get(rcaName) != null) {
         rcaObj = (Map<String, Object>) conf.getRcaConfigSettings().get(rcaName);
@@ -37,6 +37,18 @@ public enum RcaGraphMetrics implements MeasurementSet {
   METRIC_GATHER_CALL(
       "MetricGatherCall", "millis", Arrays.asList(Statistics.MAX, Statistics.MEAN, Statistics.SUM)),
 
+  /** Measures the CPU time of the thread that evaluated a graph node locally. */
+  GRAPH_NODE_CPU_TIME(
+      "VertexCpuTime", "micros", Arrays.asList(Statistics.MAX, Statistics.MEAN, Statistics.SUM)),
+
+  /** Measures the bytes allocated by the thread that evaluated a graph node locally. */
+  GRAPH_NODE_ALLOCATED_BYTES(
+      "VertexAllocatedBytes", "bytes", Arrays.asList(Statistics.MAX, Statistics.MEAN, Statistics.SUM)),
+
+  /** The graph nodes with the highest average CPU time per evaluation. */
+  MOST_EXPENSIVE_VERTICES(
+      "MostExpensiveVertices", "micros", Collections.singletonList(Statistics.NAMED_SAMPLES)),
+
   /** Measures the time spent in the persistence layer. */
   RCA_PERSIST_CALL(
       "RcaPersistCall", "micros", Arrays.asList(Statistics.MAX, Statistics.MEAN, Statistics.SUM)),
@@ -46,6 +58,10 @@ public enum RcaGraphMetrics implements MeasurementSet {
   NUM_GRAPH_NODES_MUTED(
       "NUMOfMutedGraphNodes", "count", Collections.singletonList(Statistics.SAMPLE)),
 
+  /** Number of graph nodes evaluated less often because they went over their budget. */
+  NUM_GRAPH_NODES_THROTTLED(
+      "NumOfThrottledGraphNodes", "count", Collections.singletonList(Statistics.SAMPLE)),
+
   NUM_NODES_EXECUTED_LOCALLY(
       "NodesExecutedLocally", "count", Collections.singletonList(Statistics.COUNT)),
 
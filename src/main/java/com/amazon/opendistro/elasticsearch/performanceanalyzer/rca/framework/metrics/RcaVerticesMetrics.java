@@ -30,7 +30,14 @@ public enum RcaVerticesMetrics implements MeasurementSet {
   NUM_OLD_GEN_RCA_TRIGGERED(
       "YoungGenRcaCount", "count", Collections.singletonList(Statistics.COUNT)),
   NUM_HIGH_HEAP_CLUSTER_RCA_TRIGGERED(
-      "HighHeapClusterRcaCount", "count", Collections.singletonList(Statistics.COUNT));
+      "HighHeapClusterRcaCount", "count", Collections.singletonList(Statistics.COUNT)),
+
+  /**
+   * The interval at which each vertex is currently evaluated, after the adaptive cadence has
+   * backed off its connected component.
+   */
+  RCA_VERTEX_EFFECTIVE_CADENCE(
+      "RcaVertexEffectiveCadence", "seconds", Collections.singletonList(Statistics.NAMED_SAMPLES));
 
   /** What we want to appear as the metric name. */
   private String name;
@@ -0,0 +1,201 @@
+/*
+ * Copyright 2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ *  A copy of the License is located at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed
+ *  on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.util;
+
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.metrics.AllMetrics;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.reader.ClusterDetailsEventProcessor;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.Nullable;
+
+/**
+ * An immutable, versioned snapshot of the cluster membership as last reported by the writer.
+ *
+ * <p>The snapshot is built once per change of the cluster details and then shared by every reader of
+ * the {@link com.amazon.opendistro.elasticsearch.performanceanalyzer.AppContext}. Along with the ordered
+ * list of instances, it carries hash indexes by instance id, role and IP so that the per-tick
+ * membership checks done by the networking layer are constant time and allocation free.
+ */
+public class ClusterMembership {
+  public static final ClusterMembership EMPTY = new ClusterMembership(
+      0L, ImmutableList.of(), ImmutableList.of());
+
+  private final long version;
+
+  /**
+   * All the instances in the cluster. The first entry is always the current instance.
+   */
+  private final ImmutableList<InstanceDetails> allInstances;
+  private final ImmutableList<InstanceDetails> dataNodeInstances;
+  private final ImmutableSet<InstanceDetails> peerInstances;
+  private final ImmutableMap<InstanceDetails.Id, InstanceDetails> instancesById;
+  private final ImmutableListMultimap<AllMetrics.NodeRole, InstanceDetails> instancesByRole;
+  private final ImmutableListMultimap<InstanceDetails.Ip, InstanceDetails> instancesByIp;
+
+  public ClusterMembership(final long version,
+                           final List<InstanceDetails> allInstances,
+                           final List<InstanceDetails> dataNodeInstances) {
+    this.version = version;
+    this.allInstances = ImmutableList.copyOf(allInstances);
+    this.dataNodeInstances = ImmutableList.copyOf(dataNodeInstances);
+    // Skipping the first instance as it is self.
+    this.peerInstances = this.allInstances.isEmpty()
+        ? ImmutableSet.of() : ImmutableSet.copyOf(this.allInstances.subList(1, this.allInstances.size()));
+
+    // The writer de-duplicates node ids, but we don't want a malformed event to fail the whole
+    // snapshot, so the first instance seen for an id wins.
+    Map<InstanceDetails.Id, InstanceDetails> byId = new HashMap<>();
+    ImmutableListMultimap.Builder<AllMetrics.NodeRole, InstanceDetails> byRole = ImmutableListMultimap.builder();
+    ImmutableListMultimap.Builder<InstanceDetails.Ip, InstanceDetails> byIp = ImmutableListMultimap.builder();
+    for (InstanceDetails instance : this.allInstances) {
+      byId.putIfAbsent(instance.getInstanceId(), instance);
+      byRole.put(instance.getRole(), instance);
+      byIp.put(instance.getInstanceIp(), instance);
+    }
+    this.instancesById = ImmutableMap.copyOf(byId);
+    this.instancesByRole = byRole.build();
+    this.instancesByIp = byIp.build();
+  }
+
+  /**
+   * Builds a membership snapshot from the node details reported by the writer.
+   *
+   * @param version     The version of the node details this snapshot is built from.
+   * @param nodeDetails The node details with the current node as the first element.
+   * @return The membership snapshot.
+   */
+  public static ClusterMembership fromNodeDetails(final long version,
+                                                  final List<ClusterDetailsEventProcessor.NodeDetails> nodeDetails) {
+    ImmutableList.Builder<InstanceDetails> all = ImmutableList.builder();
+    ImmutableList.Builder<InstanceDetails> dataNodes = ImmutableList.builder();
+    for (ClusterDetailsEventProcessor.NodeDetails node : nodeDetails) {
+      InstanceDetails instance = new InstanceDetails(node);
+      all.add(instance);
+      if (AllMetrics.NodeRole.DATA.toString().equals(node.getRole())) {
+        dataNodes.add(instance);
+      }
+    }
+    return new ClusterMembership(version, all.build(), dataNodes.build());
+  }
+
+  public long getVersion() {
+    return version;
+  }
+
+  public ImmutableList<InstanceDetails> getAllInstances() {
+    return allInstances;
+  }
+
+  public ImmutableList<InstanceDetails> getDataNodeInstances() {
+    return dataNodeInstances;
+  }
+
+  public ImmutableSet<InstanceDetails> getPeerInstances() {
+    return peerInstances;
+  }
+
+  public boolean containsInstance(final InstanceDetails.Id instanceId) {
+    return instancesById.containsKey(instanceId);
+  }
+
+  @Nullable
+  public InstanceDetails getInstance(final InstanceDetails.Id instanceId) {
+    return instancesById.get(instanceId);
+  }
+
+  /**
+   * Looks up a peer of the current instance by its id.
+   *
+   * @param instanceId The id of the peer.
+   * @return The peer instance, or null if there is no peer with this id in the cluster.
+   */
+  @Nullable
+  public InstanceDetails getPeerInstance(final InstanceDetails.Id instanceId) {
+    InstanceDetails instance = instancesById.get(instanceId);
+    if (instance == null || instance.equals(allInstances.get(0))) {
+      return null;
+    }
+    return instance;
+  }
+
+  public ImmutableList<InstanceDetails> getInstancesByRole(final AllMetrics.NodeRole role) {
+    return instancesByRole.get(role);
+  }
+
+  public ImmutableList<InstanceDetails> getInstancesByIp(final InstanceDetails.Ip ip) {
+    return instancesByIp.get(ip);
+  }
+
+  /**
+   * Gets the ids of the instances that are present in the given snapshot, but not in this one.
+   *
+   * @param previous The snapshot this one replaces.
+   * @return The set of ids of the instances that left the cluster.
+   */
+  public Set<InstanceDetails.Id> getDepartedInstanceIds(final ClusterMembership previous) {
+    ImmutableSet.Builder<InstanceDetails.Id> departed = ImmutableSet.builder();
+    for (InstanceDetails.Id id : previous.instancesById.keySet()) {
+      if (!instancesById.containsKey(id)) {
+        departed.add(id);
+      }
+    }
+    return departed.build();
+  }
+
+  /**
+   * Gets the ids of the instances that are present in both snapshots, but with a different role.
+   *
+   * @param previous The snapshot this one replaces.
+   * @return The set of ids of the instances whose role changed.
+   */
+  public Set<InstanceDetails.Id> getRoleChangedInstanceIds(final ClusterMembership previous) {
+    ImmutableSet.Builder<InstanceDetails.Id> changed = ImmutableSet.builder();
+    for (Map.Entry<InstanceDetails.Id, InstanceDetails> entry : previous.instancesById.entrySet()) {
+      InstanceDetails instance = instancesById.get(entry.getKey());
+      if (instance != null && instance.getRole() != entry.getValue().getRole()) {
+        changed.add(entry.getKey());
+      }
+    }
+    return changed.build();
+  }
+
+  /**
+   * Gets the instances that are present in this snapshot, but not in the given one.
+   *
+   * @param previous The snapshot this one replaces.
+   * @return The list of instances that joined the cluster.
+   */
+  public List<InstanceDetails> getJoinedInstances(final ClusterMembership previous) {
+    ImmutableList.Builder<InstanceDetails> joined = ImmutableList.builder();
+    for (InstanceDetails instance : allInstances) {
+      if (!previous.instancesById.containsKey(instance.getInstanceId())) {
+        joined.add(instance);
+      }
+    }
+    return joined.build();
+  }
+
+  @Override
+  public String toString() {
+    return "ClusterMembership{version=" + version + ", instances=" + allInstances + "}";
+  }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ *  A copy of the License is located at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed
+ *  on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.util;
+
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.reader.ClusterDetailsEventProcessor;
+import com.google.common.collect.ImmutableList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Publishes the changes of the cluster membership to the components that keep per-host state.
+ *
+ * <p>The feed is fed with the node details of every {@link ClusterDetailsEventProcessor} the reader
+ * produces, but a new {@link ClusterMembership} snapshot is only built, and the listeners only
+ * notified, when the node details actually differ from the last ones. Snapshot versions are assigned
+ * by the feed, so they keep increasing across processors and a listener can tell the order of two
+ * snapshots by their versions alone. The joined and departed instances of a change are given by
+ * {@link ClusterMembership#getJoinedInstances} and {@link ClusterMembership#getDepartedInstanceIds}.
+ *
+ * <p>Listeners are notified synchronously on the thread that updates the feed, which for the
+ * context of the reader is the reader thread, and on the registering thread in
+ * {@link #addListener}. See {@link ClusterMembershipListener}.
+ */
+public class ClusterMembershipFeed {
+  private static final Logger LOG = LogManager.getLogger(ClusterMembershipFeed.class);
+
+  private volatile ClusterMembership current = ClusterMembership.EMPTY;
+  private List<ClusterDetailsEventProcessor.NodeDetails> currentNodeDetails = ImmutableList.of();
+  private final List<ClusterMembershipListener> listeners = new CopyOnWriteArrayList<>();
+
+  public ClusterMembershipFeed() {
+  }
+
+  /**
+   * Creates a feed that starts from the current snapshot of another feed. The listeners are not
+   * copied, and later updates of either feed are not seen by the other.
+   *
+   * @param other The feed to copy the current snapshot from.
+   */
+  public ClusterMembershipFeed(final ClusterMembershipFeed other) {
+    synchronized (other) {
+      this.current = other.current;
+      this.currentNodeDetails = other.currentNodeDetails;
+    }
+  }
+
+  public ClusterMembership getCurrent() {
+    return current;
+  }
+
+  /**
+   * Swaps in a new membership snapshot if the node details changed, and notifies the listeners.
+   *
+   * @param nodeDetails The node details with the current node as the first element.
+   * @return The membership snapshot in effect after the update.
+   */
+  public synchronized ClusterMembership update(final List<ClusterDetailsEventProcessor.NodeDetails> nodeDetails) {
+    if (currentNodeDetails.equals(nodeDetails)) {
+      return current;
+    }
+    final ClusterMembership previous = current;
+    currentNodeDetails = ImmutableList.copyOf(nodeDetails);
+    current = ClusterMembership.fromNodeDetails(previous.getVersion() + 1, currentNodeDetails);
+    for (ClusterMembershipListener listener : listeners) {
+      notify(listener, previous, current);
+    }
+    return current;
+  }
+
+  /**
+   * Registers a listener. A listener registered after the membership is known is sent the current
+   * snapshot right away, as a change from the empty membership, so that it starts from the same
+   * state as the listeners registered earlier.
+   *
+   * @param listener The listener to register.
+   */
+  public synchronized void addListener(final ClusterMembershipListener listener) {
+    listeners.add(listener);
+    if (current != ClusterMembership.EMPTY) {
+      notify(listener, ClusterMembership.EMPTY, current);
+    }
+  }
+
+  public void removeListener(final ClusterMembershipListener listener) {
+    listeners.remove(listener);
+  }
+
+  private static void notify(final ClusterMembershipListener listener,
+                             final ClusterMembership previous,
+                             final ClusterMembership current) {
+    try {
+      listener.onMembershipChange(previous, current);
+    } catch (Exception ex) {
+      LOG.error("Cluster membership listener {} failed.", listener.getClass().getSimpleName(), ex);
+    }
+  }
+}
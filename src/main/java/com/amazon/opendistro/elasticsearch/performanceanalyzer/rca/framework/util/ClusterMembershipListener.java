@@ -0,0 +1,37 @@
+/*
+ * Copyright 2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ *  A copy of the License is located at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed
+ *  on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.util;
+
+/**
+ * Implemented by components that keep per-host state and need to know when the set of instances in
+ * the cluster changes.
+ *
+ * <p>Listeners are called on the thread that feeds the membership, usually the reader thread while
+ * it sets the cluster details of a new window, and not on the thread that owns the listener. They
+ * must return quickly and must not touch state that is not safe to publish across threads; a
+ * listener that owns such state should only record the snapshot and apply it on its own thread, as
+ * {@code BaseClusterRca} does.
+ */
+public interface ClusterMembershipListener {
+
+  /**
+   * Called once for every new membership snapshot, after it has been swapped in.
+   *
+   * @param previous The snapshot that was replaced.
+   * @param current  The snapshot that is now in effect.
+   */
+  void onMembershipChange(ClusterMembership previous, ClusterMembership current);
+}
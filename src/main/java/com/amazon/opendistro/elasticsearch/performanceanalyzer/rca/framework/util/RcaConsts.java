@@ -33,6 +33,8 @@ public class RcaConsts {
   public static final String RCA_SCHEDULER_RESTART_METRIC = "RcaSchedulerRestart";
   public static final int DEFAULT_PER_NODE_FLOWUNIT_Q_SIZE = 200;
   public static final long RCA_STATE_CHECK_INTERVAL_IN_MS = 5000;
+  // How long the config files need to stay untouched after a change before it is applied.
+  public static final long CONFIG_CHANGE_DEBOUNCE_IN_MS = 200;
   private static final String RCA_CONF_FILENAME = "rca.conf";
   private static final String RCA_CONF_IDLE_MASTER_FILENAME = "rca_idle_master.conf";
   private static final String THRESHOLDS_DIR_NAME = "thresholds";
@@ -63,6 +65,7 @@ public class RcaConsts {
   public static final String DATASTORE_RESOURCE_COL_NAME = "resource";
   public static final String DATASTORE_STATE_COL_NAME = "state";
   public static final String DATASTORE_STORAGE_FILE_RETENTION_COUNT = "storage-file-retention-count";
+  public static final String DATASTORE_ARCHIVE_SIZE_BUDGET_BYTES = "archive-size-budget-bytes";
 
   // The next two lines says that the RCA sqlite files needs to be rotated every hour
   public static final TimeUnit DB_FILE_ROTATION_TIME_UNIT = TimeUnit.HOURS;
@@ -19,6 +19,7 @@ import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.api
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.api.flow_units.ResourceFlowUnit.ResourceFlowUnitFieldValue;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.api.summaries.temperature.ClusterDimensionalSummary;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.api.summaries.temperature.ClusterTemperatureSummary;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.core.GenericSummary;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.store.rca.HighHeapUsageClusterRca;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.store.rca.HotNodeClusterRca;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.store.rca.cluster.FieldDataCacheClusterRca;
@@ -37,16 +38,21 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import org.jooq.DSLContext;
 import org.jooq.Field;
 import org.jooq.Record;
+import org.jooq.Result;
 import org.jooq.SelectJoinStep;
+import org.jooq.exception.DataAccessException;
 import org.jooq.impl.DSL;
 
 /**
  * A utility class to query cluster, node and resource level summary for a rca
  */
 public class SQLiteQueryUtils {
+  private static final Logger LOG = LogManager.getLogger(SQLiteQueryUtils.class);
   private static final Set<String> clusterLevelRCA;
   private static final Set<String> temperatureProfileRCASet;
 
@@ -142,6 +148,43 @@ public class SQLiteQueryUtils {
     return summaryQuery;
   }
 
+  /**
+   * Reads the summaries nested under a summary, recursively, and adds them to it
+   * @param ctx DSLContext
+   * @param upperLevelSummary the summary to read the nested summaries of
+   * @param upperLevelPrimaryKey the primary key of the summary in its table
+   */
+  public static void readNestedSummaries(final DSLContext ctx,
+      final GenericSummary upperLevelSummary,
+      final int upperLevelPrimaryKey) {
+    String upperLevelTable = upperLevelSummary.getTableName();
+
+    // stop the recursion here if the summary does not have any nested summary table.
+    if (upperLevelSummary.getNestedSummaryTables() == null) {
+      return;
+    }
+
+    for (String nestedTableName : upperLevelSummary.getNestedSummaryTables()) {
+      Field<Integer> foreignKeyField = DSL.field(getPrimaryKeyColumnName(upperLevelTable), Integer.class);
+      SelectJoinStep<Record> rcaQuery = buildSummaryQuery(ctx, nestedTableName, upperLevelPrimaryKey, foreignKeyField);
+      try {
+        Result<Record> recordList = rcaQuery.fetch();
+        for (Record record : recordList) {
+          GenericSummary summary = upperLevelSummary.buildNestedSummary(nestedTableName, record);
+          if (summary != null) {
+            Field<Integer> primaryKeyField = DSL.field(getPrimaryKeyColumnName(summary.getTableName()), Integer.class);
+            readNestedSummaries(ctx, summary, record.get(primaryKeyField));
+          }
+        }
+      } catch (DataAccessException de) {
+        // it is totally fine if we fail to read some certain tables as some types of summaries might be missing
+        LOG.warn("Fail to read Summary table : {}, query = {}", nestedTableName, rcaQuery.toString(), de);
+      } catch (IllegalArgumentException ie) {
+        LOG.error("Reading nested summary from wrong table, message : {}", ie.getMessage());
+      }
+    }
+  }
+
   /**
    * generate the name of primary key field in each table
    * @param tableName table name
@@ -0,0 +1,222 @@
+/*
+ * Copyright 2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.net;
+
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.telemetry.Gauge;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.telemetry.LatencyHistogram;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.telemetry.TelemetryRegistry;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Runs the work received from the peers of this node on a shared executor, in a fair order across
+ * peers.
+ *
+ * <p>The work of each peer is queued separately, and the queues are served by deficit round robin
+ * on the size of the messages: each peer gets to process the same number of bytes in turn, however
+ * many messages it sends. A chatty peer then only delays its own messages.
+ *
+ * <p>Each submitted task comes with a release callback, run once the task has run or was dropped,
+ * which lets the caller give flow control credit back to the peer.
+ */
+public class FairReceiveScheduler {
+  public static final int DEFAULT_QUANTUM_BYTES = 16 * 1024;
+
+  private static final String QUEUE_DELAY_METRIC = "pa_grpc_receive_queue_delay_seconds";
+  private static final String QUEUE_DELAY_HELP =
+      "Time a received flow unit waits for a network thread, per peer.";
+  private static final String QUEUE_DEPTH_METRIC = "pa_grpc_receive_queue_depth";
+  private static final String QUEUE_DEPTH_HELP = "Number of received flow units waiting for a network thread, per peer.";
+
+  private final int quantumBytes;
+  private final Map<String, PeerQueue> peers;
+  // Peers with queued work, in round robin order.
+  private final ArrayDeque<PeerQueue> activePeers;
+
+  public FairReceiveScheduler() {
+    this(DEFAULT_QUANTUM_BYTES);
+  }
+
+  public FairReceiveScheduler(int quantumBytes) {
+    if (quantumBytes < 1) {
+      throw new IllegalArgumentException("Quantum must be positive: " + quantumBytes);
+    }
+    this.quantumBytes = quantumBytes;
+    this.peers = new HashMap<>();
+    this.activePeers = new ArrayDeque<>();
+  }
+
+  /**
+   * Queues a task for the given peer and schedules a run on the executor.
+   *
+   * @param executor the executor to run the task on
+   * @param peer the peer the work came from
+   * @param costBytes the size of the received message
+   * @param task the work to do
+   * @param release run after the task, or when it is dropped
+   * @return false if the executor rejected the work, in which case one task of the peer was
+   *     dropped and released.
+   */
+  public boolean submit(Executor executor, String peer, int costBytes, Runnable task, Runnable release) {
+    Pending pending = new Pending(task, Math.max(costBytes, 1), release);
+    PeerQueue queue;
+    synchronized (this) {
+      queue = peers.computeIfAbsent(peer, PeerQueue::new);
+      queue.add(pending);
+      if (!queue.active) {
+        queue.active = true;
+        activePeers.addLast(queue);
+      }
+    }
+    try {
+      executor.execute(this::runNext);
+      return true;
+    } catch (RejectedExecutionException e) {
+      // Every queued task needs a run of its own, so one has to go. This peer's newest one.
+      Pending dropped;
+      synchronized (this) {
+        dropped = queue.removeLast();
+        if (queue.isEmpty()) {
+          deactivate(queue);
+        }
+      }
+      if (dropped != null) {
+        dropped.release();
+      }
+      return false;
+    }
+  }
+
+  /** Runs the next task in the fair order, if there is any. */
+  void runNext() {
+    Pending next;
+    PeerQueue queue;
+    synchronized (this) {
+      queue = pollPeer();
+      if (queue == null) {
+        return;
+      }
+      next = queue.poll();
+    }
+    queue.queueDelay.recordSince(next.enqueuedNanos);
+    try {
+      next.task.run();
+    } finally {
+      next.release();
+    }
+  }
+
+  /** The number of tasks queued for the given peer. */
+  public synchronized int getQueuedCount(String peer) {
+    PeerQueue queue = peers.get(peer);
+    return queue == null ? 0 : queue.size();
+  }
+
+  // Deficit round robin: the peer at the head of the ring is served as long as its deficit covers
+  // its next message, then moves to the back with one more quantum.
+  private PeerQueue pollPeer() {
+    while (!activePeers.isEmpty()) {
+      PeerQueue queue = activePeers.peekFirst();
+      Pending head = queue.peek();
+      if (head == null) {
+        deactivate(queue);
+        continue;
+      }
+      if (queue.deficit >= head.cost) {
+        queue.deficit -= head.cost;
+        if (queue.size() == 1) {
+          deactivate(queue);
+        }
+        return queue;
+      }
+      queue.deficit += quantumBytes;
+      activePeers.addLast(activePeers.pollFirst());
+    }
+    return null;
+  }
+
+  private void deactivate(PeerQueue queue) {
+    activePeers.remove(queue);
+    queue.active = false;
+    queue.deficit = 0;
+  }
+
+  private static class Pending {
+    private final Runnable task;
+    private final int cost;
+    private final Runnable release;
+    private final long enqueuedNanos;
+
+    Pending(Runnable task, int cost, Runnable release) {
+      this.task = task;
+      this.cost = cost;
+      this.release = release;
+      this.enqueuedNanos = System.nanoTime();
+    }
+
+    void release() {
+      if (release != null) {
+        release.run();
+      }
+    }
+  }
+
+  private static class PeerQueue {
+    private final ArrayDeque<Pending> pending;
+    private final LatencyHistogram queueDelay;
+    private final Gauge queueDepth;
+    private long deficit;
+    private boolean active;
+
+    PeerQueue(String peer) {
+      this.pending = new ArrayDeque<>();
+      this.queueDelay = TelemetryRegistry.instance().histogram(QUEUE_DELAY_METRIC, QUEUE_DELAY_HELP, "peer", peer);
+      this.queueDepth = TelemetryRegistry.instance().gauge(QUEUE_DEPTH_METRIC, QUEUE_DEPTH_HELP, "peer", peer);
+    }
+
+    void add(Pending task) {
+      pending.addLast(task);
+      queueDepth.set(pending.size());
+    }
+
+    Pending peek() {
+      return pending.peekFirst();
+    }
+
+    Pending poll() {
+      Pending task = pending.pollFirst();
+      queueDepth.set(pending.size());
+      return task;
+    }
+
+    Pending removeLast() {
+      Pending task = pending.pollLast();
+      queueDepth.set(pending.size());
+      return task;
+    }
+
+    int size() {
+      return pending.size();
+    }
+
+    boolean isEmpty() {
+      return pending.isEmpty();
+    }
+  }
+}
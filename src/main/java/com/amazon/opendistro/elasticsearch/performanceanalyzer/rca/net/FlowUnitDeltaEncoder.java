@@ -0,0 +1,114 @@
+/*
+ * Copyright 2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.net;
+
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.grpc.FlowUnitMessage;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.api.Resources;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.util.InstanceDetails;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Replaces the healthy flow units that did not change since the last one published to a subscriber
+ * with compact heartbeats. The subscriber materializes the last flow unit it got for the vertex
+ * on each heartbeat, see {@link ReceivedFlowUnitStore#materialize}.
+ *
+ * <p>The full flow unit is published again after {@code fullUpdateInterval} heartbeats, so that a
+ * subscriber that lost a flow unit does not repeat a wrong state for long, and whenever the
+ * subscriber (re)subscribes.
+ */
+public class FlowUnitDeltaEncoder {
+  private final boolean enabled;
+  private final int fullUpdateInterval;
+
+  /**
+   * Map of subscriber to vertex to the last flow unit published in full, without its timestamp.
+   */
+  private final ConcurrentMap<InstanceDetails.Id, ConcurrentMap<String, LastPublished>> lastPublished =
+      new ConcurrentHashMap<>();
+
+  public FlowUnitDeltaEncoder(final boolean enabled, final int fullUpdateInterval) {
+    this.enabled = enabled;
+    this.fullUpdateInterval = fullUpdateInterval;
+  }
+
+  /**
+   * Gets the message to publish to a subscriber for a flow unit.
+   *
+   * @param graphNode  The vertex the flow unit is for.
+   * @param subscriber The host the flow unit is published to.
+   * @param message    The full flow unit message.
+   * @return the message itself, or a heartbeat if it is healthy and the same as the last one.
+   */
+  public FlowUnitMessage encode(final String graphNode, final InstanceDetails.Id subscriber,
+      final FlowUnitMessage message) {
+    if (!enabled) {
+      return message;
+    }
+    final FlowUnitMessage content = message.toBuilder().clearTimeStamp().build();
+    final boolean healthy = isHealthy(message);
+    final LastPublished next = lastPublished
+        .computeIfAbsent(subscriber, s -> new ConcurrentHashMap<>())
+        .compute(graphNode, (node, last) -> {
+          if (healthy && last != null && last.content.equals(content) && last.heartbeats < fullUpdateInterval) {
+            return new LastPublished(last.content, last.heartbeats + 1);
+          }
+          return new LastPublished(content, 0);
+        });
+    if (next.heartbeats == 0) {
+      return message;
+    }
+    return FlowUnitMessage.newBuilder()
+                          .setGraphNode(message.getGraphNode())
+                          .setEsNode(message.getEsNode())
+                          .setTimeStamp(message.getTimeStamp())
+                          .setHeartbeat(true)
+                          .build();
+  }
+
+  /**
+   * Makes the next flow unit for the vertex be published to the subscriber in full.
+   */
+  public void reset(final String graphNode, final InstanceDetails.Id subscriber) {
+    final ConcurrentMap<String, LastPublished> vertices = lastPublished.get(subscriber);
+    if (vertices != null) {
+      vertices.remove(graphNode);
+    }
+  }
+
+  /**
+   * Makes the next flow unit of every vertex be published to the subscriber in full.
+   */
+  public void reset(final InstanceDetails.Id subscriber) {
+    lastPublished.remove(subscriber);
+  }
+
+  private static boolean isHealthy(final FlowUnitMessage message) {
+    return message.hasResourceContext()
+        && message.getResourceContext().getState() == Resources.State.HEALTHY.ordinal();
+  }
+
+  private static class LastPublished {
+    private final FlowUnitMessage content;
+    // The number of heartbeats sent since the flow unit was published in full.
+    private final int heartbeats;
+
+    LastPublished(final FlowUnitMessage content, final int heartbeats) {
+      this.content = content;
+      this.heartbeats = heartbeats;
+    }
+  }
+}
@@ -17,6 +17,8 @@ package com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.net;
 
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.AppContext;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.grpc.SubscribeResponse.SubscriptionStatus;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.util.ClusterMembership;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.util.ClusterMembershipListener;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.util.InstanceDetails;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.util.ClusterUtils;
 import com.google.common.annotations.VisibleForTesting;
@@ -31,7 +33,7 @@ import java.util.concurrent.atomic.AtomicReference;
 /**
  * Manages the subscription state for the nodes in the graph.
  */
-public class NodeStateManager {
+public class NodeStateManager implements ClusterMembershipListener {
 
   private static final String SEPARATOR = ".";
 
@@ -119,6 +121,7 @@ public class NodeStateManager {
       final long maxIdleDuration, Set<InstanceDetails.Id> publishers) {
     final long currentTime = System.currentTimeMillis();
     final Set<InstanceDetails> hostsToSubscribeTo = new HashSet<>();
+    final ClusterMembership clusterMembership = appContext.getClusterMembership();
 
     for (final InstanceDetails.Id publisher : publishers) {
       long lastRxTimestamp = getLastReceivedTimestamp(graphNode, publisher);
@@ -128,7 +131,7 @@ public class NodeStateManager {
       // something and forgot that we want to subscribe to its data.
       if (lastRxTimestamp > 0
               && currentTime - lastRxTimestamp > maxIdleDuration
-              && ClusterUtils.isHostIdInCluster(publisher, appContext.getAllClusterInstances())) {
+              && ClusterUtils.isHostIdInCluster(publisher, clusterMembership)) {
         hostsToSubscribeTo.add(appContext.getInstanceById(publisher));
       }
     }
@@ -136,19 +139,48 @@ public class NodeStateManager {
     // Then we go over all the nodes in the cluster once more. There might be new nodes that have joined the cluster
     // that are evaluating the graph nodes whose data we are interested in. So, we want to send them a subscription
     // message as well.
-    final Set<InstanceDetails> peers = appContext.getPeerInstances();
-    if (peers != null) {
-      for (final InstanceDetails peerHost : peers) {
-        String compositeKey = graphNode + SEPARATOR + peerHost.getInstanceId();
-        if (!subscriptionStatusMap.containsKey(compositeKey)) {
-          hostsToSubscribeTo.add(peerHost);
-        }
+    for (final InstanceDetails peerHost : clusterMembership.getPeerInstances()) {
+      String compositeKey = graphNode + SEPARATOR + peerHost.getInstanceId();
+      if (!subscriptionStatusMap.containsKey(compositeKey)) {
+        hostsToSubscribeTo.add(peerHost);
       }
     }
 
     return ImmutableList.copyOf(hostsToSubscribeTo);
   }
 
+  /**
+   * Drops the receive timestamps and the subscription states of the hosts that left the cluster. If
+   * a host with the same id joins back, it is treated as a new host and is sent a fresh subscription.
+   *
+   * @param previous The membership snapshot that was replaced.
+   * @param current  The membership snapshot that is now in effect.
+   */
+  @Override
+  public void onMembershipChange(final ClusterMembership previous, final ClusterMembership current) {
+    final Set<InstanceDetails.Id> departed = current.getDepartedInstanceIds(previous);
+    if (departed.isEmpty()) {
+      return;
+    }
+    final Set<String> suffixes = new HashSet<>();
+    for (InstanceDetails.Id host : departed) {
+      suffixes.add(SEPARATOR + host);
+    }
+    lastReceivedTimestampMap.keySet().removeIf(key -> hasAnySuffix(key, suffixes));
+    synchronized (this) {
+      subscriptionStatusMap.keySet().removeIf(key -> hasAnySuffix(key, suffixes));
+    }
+  }
+
+  private static boolean hasAnySuffix(final String key, final Set<String> suffixes) {
+    for (String suffix : suffixes) {
+      if (key.endsWith(suffix)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   @VisibleForTesting
   public AppContext getAppContext() {
     return appContext;
@@ -18,6 +18,7 @@ package com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.net;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.collectors.StatExceptionCode;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.collectors.StatsCollector;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.grpc.FlowUnitMessage;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.util.InstanceDetails;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.util.RcaConsts;
 import com.google.common.collect.ImmutableList;
 import java.util.ArrayList;
@@ -43,6 +44,13 @@ public class ReceivedFlowUnitStore {
   private ConcurrentMap<String, BlockingQueue<FlowUnitMessage>> flowUnitMap =
       new ConcurrentHashMap<>();
 
+  /**
+   * Map of vertex to publisher to the last full flow unit received from the publisher for the
+   * vertex, which heartbeats stand for.
+   */
+  private ConcurrentMap<String, ConcurrentMap<String, FlowUnitMessage>> lastFullFlowUnitMap =
+      new ConcurrentHashMap<>();
+
   /**
    * The per vertex flow unit queue size.
    */
@@ -79,6 +87,42 @@ public class ReceivedFlowUnitStore {
     return retValue;
   }
 
+  /**
+   * Gets the flow unit that a received message stands for. A full flow unit stands for itself and
+   * is remembered, a heartbeat for the last full flow unit from the same publisher for the vertex,
+   * with the timestamp of the heartbeat: the time the publisher last confirmed that state.
+   *
+   * @param flowUnitMessage The message received from the network.
+   * @return The flow unit to store, or null for a heartbeat from a publisher we have no state of,
+   *         for instance because this node restarted since.
+   */
+  public FlowUnitMessage materialize(final FlowUnitMessage flowUnitMessage) {
+    final ConcurrentMap<String, FlowUnitMessage> lastByPublisher =
+        lastFullFlowUnitMap.computeIfAbsent(flowUnitMessage.getGraphNode(), s -> new ConcurrentHashMap<>());
+    if (!flowUnitMessage.getHeartbeat()) {
+      lastByPublisher.put(flowUnitMessage.getEsNode(), flowUnitMessage);
+      return flowUnitMessage;
+    }
+    final FlowUnitMessage last = lastByPublisher.get(flowUnitMessage.getEsNode());
+    if (last == null) {
+      return null;
+    }
+    return last.toBuilder().setTimeStamp(flowUnitMessage.getTimeStamp()).build();
+  }
+
+  /**
+   * Forgets the last flow unit received from a publisher for a vertex.
+   *
+   * @param graphNode The vertex.
+   * @param publisher The host that no longer publishes flow units for the vertex.
+   */
+  public void removePublisher(final String graphNode, final InstanceDetails.Id publisher) {
+    final ConcurrentMap<String, FlowUnitMessage> lastByPublisher = lastFullFlowUnitMap.get(graphNode);
+    if (lastByPublisher != null) {
+      lastByPublisher.remove(publisher.toString());
+    }
+  }
+
   /**
    * Drain the flow units enqueued for the vertex.
    *
@@ -15,8 +15,11 @@
 
 package com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.net;
 
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.config.PluginSettings;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.grpc.SubscribeResponse.SubscriptionStatus;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.net.GRPCConnectionManager;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.util.ClusterMembership;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.util.ClusterMembershipListener;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.util.InstanceDetails;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.util.RcaConsts.RcaTagConstants;
 import com.google.common.collect.ImmutableSet;
@@ -33,7 +36,7 @@ import org.apache.logging.log4j.Logger;
 /**
  * Handles adding and removing of subscriptions for the vertices in the analysis graph.
  */
-public class SubscriptionManager {
+public class SubscriptionManager implements ClusterMembershipListener {
 
   private static final Logger LOG = LogManager.getLogger(SubscriptionManager.class);
 
@@ -58,9 +61,26 @@ public class SubscriptionManager {
    */
   private volatile String currentLocus;
 
+  /**
+   * Turns the unchanged flow units published to each subscriber into heartbeats.
+   */
+  private final FlowUnitDeltaEncoder deltaEncoder;
+
   public SubscriptionManager(
       final GRPCConnectionManager connectionManager) {
+    this(connectionManager, new FlowUnitDeltaEncoder(PluginSettings.instance().getRcaPublishChangesOnly(),
+        PluginSettings.instance().getRcaPublishFullUpdateInterval()));
+  }
+
+  public SubscriptionManager(
+      final GRPCConnectionManager connectionManager,
+      final FlowUnitDeltaEncoder deltaEncoder) {
     this.connectionManager = connectionManager;
+    this.deltaEncoder = deltaEncoder;
+  }
+
+  public FlowUnitDeltaEncoder getDeltaEncoder() {
+    return deltaEncoder;
   }
 
   /**
@@ -82,6 +102,7 @@ public class SubscriptionManager {
         subscriberMap.remove(graphNode);
       }
     }
+    deltaEncoder.reset(graphNode, remoteHost);
     connectionManager.terminateConnection(remoteHost);
   }
 
@@ -107,6 +128,8 @@ public class SubscriptionManager {
     // happens-before: update to a java.util.concurrent collection. Updated value will be visible
     // to subsequent reads.
     subscriberMap.put(graphNode, currentSubscribers);
+    // The subscriber may have restarted and lost the flow units it got, send it the next in full.
+    deltaEncoder.reset(graphNode, subscriberHostId);
 
     LOG.debug("locus matched. Added subscriber {} for {}", subscriberHostId, graphNode);
     return SubscriptionStatus.SUCCESS;
@@ -157,4 +180,41 @@ public class SubscriptionManager {
   public Set<InstanceDetails.Id> getPublishersForNode(String graphNode) {
     return publisherMap.getOrDefault(graphNode, Collections.emptySet());
   }
+
+  /**
+   * Removes the hosts that left the cluster as publishers and subscribers of every vertex and
+   * terminates the connections to them. Callers: the thread that swaps in a new membership snapshot.
+   *
+   * @param previous The membership snapshot that was replaced.
+   * @param current  The membership snapshot that is now in effect.
+   */
+  @Override
+  public synchronized void onMembershipChange(final ClusterMembership previous, final ClusterMembership current) {
+    final Set<InstanceDetails.Id> departed = current.getDepartedInstanceIds(previous);
+    if (departed.isEmpty()) {
+      return;
+    }
+    LOG.info("Removing subscriptions for hosts that left the cluster: {}", departed);
+
+    // The sets are replaced rather than updated in place as the flow unit send threads iterate over
+    // them without holding a lock.
+    for (final String graphNode : publisherMap.keySet()) {
+      publisherMap.computeIfPresent(graphNode, (node, publishers) -> withoutHosts(publishers, departed));
+    }
+    for (final String graphNode : subscriberMap.keySet()) {
+      subscriberMap.computeIfPresent(graphNode, (node, subscribers) -> withoutHosts(subscribers, departed));
+    }
+    for (final InstanceDetails.Id host : departed) {
+      deltaEncoder.reset(host);
+      connectionManager.terminateConnection(host);
+    }
+  }
+
+  private static Set<InstanceDetails.Id> withoutHosts(final Set<InstanceDetails.Id> hosts,
+                                                      final Set<InstanceDetails.Id> toRemove) {
+    final Set<InstanceDetails.Id> remaining = new HashSet<>(hosts);
+    remaining.removeAll(toRemove);
+    // Returning null removes the mapping.
+    return remaining.isEmpty() ? null : remaining;
+  }
 }
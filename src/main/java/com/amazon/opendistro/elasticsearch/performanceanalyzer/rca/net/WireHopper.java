@@ -21,6 +21,7 @@ import com.amazon.opendistro.elasticsearch.performanceanalyzer.collectors.StatsC
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.grpc.FlowUnitMessage;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.net.NetClient;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.core.Node;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.util.ClusterMembership;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.util.InstanceDetails;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.messages.DataMsg;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.messages.IntentMsg;
@@ -111,10 +112,12 @@ public class WireHopper {
     // Publishers are a set of cluster-instances that send out flowUnits for the corresponding graph node,
     // when one is generated.
     final Set<InstanceDetails.Id> publisherSet = subscriptionManager.getPublishersForNode(nodeName);
+    final ClusterMembership clusterMembership = appContext.getClusterMembership();
 
     for (final InstanceDetails.Id publisher : publisherSet) {
-      if (!ClusterUtils.isHostIdInCluster(publisher, appContext.getAllClusterInstances())) {
+      if (!ClusterUtils.isHostIdInCluster(publisher, clusterMembership)) {
         subscriptionManager.unsubscribeAndTerminateConnection(nodeName, publisher);
+        receivedFlowUnitStore.removePublisher(nodeName, publisher);
       }
     }
 
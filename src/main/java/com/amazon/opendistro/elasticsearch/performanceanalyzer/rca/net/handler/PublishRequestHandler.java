@@ -18,32 +18,46 @@ package com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.net.handler;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.PerformanceAnalyzerApp;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.collectors.StatExceptionCode;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.collectors.StatsCollector;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.config.PluginSettings;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.grpc.FlowUnitMessage;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.grpc.PublishResponse;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.grpc.PublishResponse.PublishResponseStatus;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.metrics.RcaGraphMetrics;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.net.FairReceiveScheduler;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.net.NodeStateManager;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.net.ReceivedFlowUnitStore;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.net.tasks.FlowUnitRxTask;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.telemetry.Counter;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.telemetry.TelemetryRegistry;
+import io.grpc.stub.ServerCallStreamObserver;
 import io.grpc.stub.StreamObserver;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.atomic.AtomicReference;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 /**
  * Service handler for the /sendData RPC.
+ *
+ * <p>Each publish stream uses manual inbound flow control: gRPC delivers at most
+ * {@code streamWindow} messages of a stream that are not handled yet, and asks the peer for the
+ * next one each time one is handled or dropped. A slow network thread pool then pushes back on the
+ * peers instead of queueing their flow units without bound, and a {@link FairReceiveScheduler}
+ * keeps the peers from starving each other.
  */
 public class PublishRequestHandler {
 
   private static final Logger LOG = LogManager.getLogger(PublishRequestHandler.class);
+  private static final Counter BYTES_RECEIVED = TelemetryRegistry.instance().counter(
+      "pa_grpc_received_bytes", "Bytes of gRPC messages received from other nodes.", "rpc", "publish");
   private final AtomicReference<ExecutorService> executorReference;
   private final NodeStateManager nodeStateManager;
   private final ReceivedFlowUnitStore receivedFlowUnitStore;
+  private final FairReceiveScheduler receiveScheduler;
+  private final int streamWindow;
   private List<StreamObserver<PublishResponse>> upstreamResponseStreamList =
       Collections.synchronizedList(new ArrayList<>());
 
@@ -51,14 +65,31 @@ public class PublishRequestHandler {
       NodeStateManager nodeStateManager,
       ReceivedFlowUnitStore receivedFlowUnitStore,
       final AtomicReference<ExecutorService> executorReference) {
+    this(nodeStateManager, receivedFlowUnitStore, executorReference,
+        PluginSettings.instance().getRpcPublishStreamWindow());
+  }
+
+  public PublishRequestHandler(
+      NodeStateManager nodeStateManager,
+      ReceivedFlowUnitStore receivedFlowUnitStore,
+      final AtomicReference<ExecutorService> executorReference,
+      final int streamWindow) {
     this.executorReference = executorReference;
     this.nodeStateManager = nodeStateManager;
     this.receivedFlowUnitStore = receivedFlowUnitStore;
+    this.receiveScheduler = new FairReceiveScheduler();
+    this.streamWindow = streamWindow;
   }
 
   public StreamObserver<FlowUnitMessage> getClientStream(
       final StreamObserver<PublishResponse> serviceResponse) {
     upstreamResponseStreamList.add(serviceResponse);
+    if (serviceResponse instanceof ServerCallStreamObserver) {
+      ServerCallStreamObserver<PublishResponse> serverCall =
+          (ServerCallStreamObserver<PublishResponse>) serviceResponse;
+      serverCall.disableAutoInboundFlowControl();
+      serverCall.request(streamWindow);
+    }
     return new SendDataClientStreamUpdateConsumer(serviceResponse);
   }
 
@@ -86,19 +117,42 @@ public class PublishRequestHandler {
     @Override
     public void onNext(FlowUnitMessage flowUnitMessage) {
       final ExecutorService executorService = executorReference.get();
-      if (executorService != null) {
-        try {
-          executorService.execute(
-              new FlowUnitRxTask(nodeStateManager, receivedFlowUnitStore, flowUnitMessage));
-          PerformanceAnalyzerApp.RCA_GRAPH_METRICS_AGGREGATOR
-              .updateStat(RcaGraphMetrics.NET_BYTES_IN, flowUnitMessage.getGraphNode(),
-                  flowUnitMessage.getSerializedSize());
-        } catch (final RejectedExecutionException ree) {
-          LOG.warn("Dropped handling received flow unit because the netwwork threadpool queue is "
-              + "full");
-          StatsCollector.instance()
-                        .logException(StatExceptionCode.RCA_NETWORK_THREADPOOL_QUEUE_FULL_ERROR);
+      if (executorService == null) {
+        requestNext();
+        return;
+      }
+      final int size = flowUnitMessage.getSerializedSize();
+      boolean accepted = receiveScheduler.submit(executorService, flowUnitMessage.getEsNode(), size,
+          new FlowUnitRxTask(nodeStateManager, receivedFlowUnitStore, flowUnitMessage),
+          this::requestNext);
+      if (accepted) {
+        BYTES_RECEIVED.inc(size);
+        PerformanceAnalyzerApp.RCA_GRAPH_METRICS_AGGREGATOR
+            .updateStat(RcaGraphMetrics.NET_BYTES_IN, flowUnitMessage.getGraphNode(), size);
+      } else {
+        LOG.warn("Dropped handling received flow unit because the netwwork threadpool queue is "
+            + "full");
+        StatsCollector.instance()
+                      .logException(StatExceptionCode.RCA_NETWORK_THREADPOOL_QUEUE_FULL_ERROR);
+      }
+    }
+
+    /**
+     * Asks the peer for one more message, once a received one is out of the way.
+     */
+    private void requestNext() {
+      if (!(serviceResponse instanceof ServerCallStreamObserver)) {
+        return;
+      }
+      ServerCallStreamObserver<PublishResponse> serverCall =
+          (ServerCallStreamObserver<PublishResponse>) serviceResponse;
+      try {
+        if (!serverCall.isCancelled()) {
+          serverCall.request(1);
         }
+      } catch (RuntimeException e) {
+        // The call completed in the meantime, there is nothing left to ask for.
+        LOG.debug("Could not request the next flow unit: {}", e.getMessage());
       }
     }
 
@@ -24,6 +24,8 @@ import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.met
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.net.SubscriptionManager;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.net.requests.CompositeSubscribeRequest;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.net.tasks.SubscriptionRxTask;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.telemetry.Counter;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.telemetry.TelemetryRegistry;
 import io.grpc.stub.StreamObserver;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.RejectedExecutionException;
@@ -37,6 +39,8 @@ import org.apache.logging.log4j.Logger;
 public class SubscribeServerHandler {
 
   private static final Logger LOG = LogManager.getLogger(SubscribeServerHandler.class);
+  private static final Counter BYTES_RECEIVED = TelemetryRegistry.instance().counter(
+      "pa_grpc_received_bytes", "Bytes of gRPC messages received from other nodes.", "rpc", "subscribe");
   private final AtomicReference<ExecutorService> executorServiceAtomicReference;
   private final SubscriptionManager subscriptionManager;
 
@@ -54,6 +58,7 @@ public class SubscribeServerHandler {
     if (executorService != null) {
       try {
         executorService.execute(new SubscriptionRxTask(subscriptionManager, subscribeRequest));
+        BYTES_RECEIVED.inc(request.getSerializedSize());
         PerformanceAnalyzerApp.RCA_GRAPH_METRICS_AGGREGATOR.updateStat(RcaGraphMetrics.NET_BYTES_IN,
             subscribeRequest.getSubscribeMessage().getRequesterGraphNode(),
             subscribeRequest.getSubscribeMessage().getSerializedSize());
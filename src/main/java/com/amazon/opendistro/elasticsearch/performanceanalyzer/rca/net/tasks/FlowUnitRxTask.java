@@ -23,6 +23,9 @@ import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.uti
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.util.RcaConsts;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.net.NodeStateManager;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.net.ReceivedFlowUnitStore;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.telemetry.Counter;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.telemetry.LatencyHistogram;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.telemetry.TelemetryRegistry;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -32,6 +35,12 @@ import org.apache.logging.log4j.Logger;
 public class FlowUnitRxTask implements Runnable {
 
   private static final Logger LOG = LogManager.getLogger(FlowUnitRxTask.class);
+  private static final LatencyHistogram RECEIVE_LATENCY = TelemetryRegistry.instance().histogram(
+      "pa_grpc_receive_duration_seconds",
+      "Time from the arrival of a flow unit to it being buffered for its vertex, including the wait for a "
+          + "network thread.");
+  private static final Counter UNKNOWN_HEARTBEATS = TelemetryRegistry.instance().counter(
+      "pa_rca_unknown_heartbeats", "Heartbeats received from a publisher whose last flow unit is not known.");
   /**
    * Node state manager instance.
    */
@@ -47,6 +56,11 @@ public class FlowUnitRxTask implements Runnable {
    */
   private final FlowUnitMessage flowUnitMessage;
 
+  /**
+   * The value of System.nanoTime() when the flow unit arrived.
+   */
+  private final long receivedNanos;
+
   public FlowUnitRxTask(
       final NodeStateManager nodeStateManager,
       final ReceivedFlowUnitStore receivedFlowUnitStore,
@@ -54,6 +68,7 @@ public class FlowUnitRxTask implements Runnable {
     this.nodeStateManager = nodeStateManager;
     this.receivedFlowUnitStore = receivedFlowUnitStore;
     this.flowUnitMessage = flowUnitMessage;
+    this.receivedNanos = System.nanoTime();
   }
 
   /**
@@ -66,14 +81,24 @@ public class FlowUnitRxTask implements Runnable {
     final InstanceDetails.Id host = new InstanceDetails.Id(flowUnitMessage.getEsNode());
     final String vertex = flowUnitMessage.getGraphNode();
 
+    final FlowUnitMessage flowUnit = receivedFlowUnitStore.materialize(flowUnitMessage);
+    if (flowUnit == null) {
+      // The receive time is not updated, so the publisher goes stale and gets subscribed to again.
+      // A new subscription makes it publish the full flow unit.
+      LOG.debug("rca: [pub-rx]: heartbeat for {} from {} without a known flow unit", vertex, host);
+      UNKNOWN_HEARTBEATS.inc();
+      RECEIVE_LATENCY.recordSince(receivedNanos);
+      return;
+    }
     nodeStateManager.updateReceiveTime(host, vertex, System.currentTimeMillis());
     LOG.debug("rca: [pub-rx]: {} <- {}", vertex, host);
-    if (!receivedFlowUnitStore.enqueue(vertex, flowUnitMessage)) {
+    if (!receivedFlowUnitStore.enqueue(vertex, flowUnit)) {
       LOG.warn("Dropped a flow unit because the vertex buffer was full for vertex: {}", vertex);
       StatsCollector.instance().logMetric(RcaConsts.VERTEX_BUFFER_FULL_METRIC);
     }
 
     PerformanceAnalyzerApp.RCA_GRAPH_METRICS_AGGREGATOR
         .updateStat(RcaGraphMetrics.RCA_NODES_FU_CONSUME_COUNT, vertex, 1);
+    RECEIVE_LATENCY.recordSince(receivedNanos);
   }
 }
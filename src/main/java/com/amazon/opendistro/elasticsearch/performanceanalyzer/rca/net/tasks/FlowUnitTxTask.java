@@ -19,6 +19,7 @@ import com.amazon.opendistro.elasticsearch.performanceanalyzer.AppContext;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.PerformanceAnalyzerApp;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.collectors.StatExceptionCode;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.collectors.StatsCollector;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.grpc.FlowUnitMessage;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.grpc.PublishResponse;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.grpc.PublishResponse.PublishResponseStatus;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.net.NetClient;
@@ -83,14 +84,17 @@ public class FlowUnitTxTask implements Runnable {
       for (final InstanceDetails.Id downstreamHostId : downstreamHostIds) {
         for (final GenericFlowUnit flowUnit : dataMsg.getFlowUnits()) {
           LOG.debug("rca: [pub-tx]: {} -> {}", sourceGraphNode, downstreamHostId);
-          client.publish(
+          final FlowUnitMessage message = subscriptionManager.getDeltaEncoder().encode(sourceGraphNode,
+              downstreamHostId, flowUnit.buildFlowUnitMessage(sourceGraphNode, esInstanceDetails.getInstanceId()));
+          final boolean sent = client.publish(
               appContext.getInstanceById(downstreamHostId),
-              flowUnit.buildFlowUnitMessage(sourceGraphNode, esInstanceDetails.getInstanceId()),
+              message,
               new StreamObserver<PublishResponse>() {
                 @Override
                 public void onNext(final PublishResponse value) {
                   LOG.debug("rca: Received acknowledgement from the server. status: {}", value.getDataStatus());
                   if (value.getDataStatus() == PublishResponseStatus.NODE_SHUTDOWN) {
+                    subscriptionManager.getDeltaEncoder().reset(downstreamHostId);
                     subscriptionManager.unsubscribeAndTerminateConnection(sourceGraphNode, downstreamHostId);
                     client.flushStream(downstreamHostId);
                   }
@@ -100,6 +104,8 @@ public class FlowUnitTxTask implements Runnable {
                 public void onError(final Throwable t) {
                   LOG.error("rca: Encountered an exception at the server: ", t);
                   StatsCollector.instance().logException(StatExceptionCode.RCA_NETWORK_ERROR);
+                  // The flow units on the failed stream may not have made it.
+                  subscriptionManager.getDeltaEncoder().reset(downstreamHostId);
                   subscriptionManager.unsubscribeAndTerminateConnection(sourceGraphNode, downstreamHostId);
                   client.flushStream(downstreamHostId);
                 }
@@ -109,6 +115,11 @@ public class FlowUnitTxTask implements Runnable {
                   LOG.debug("rca: Server closed the data channel!");
                 }
               });
+          if (!sent) {
+            // The encoder already took the flow unit as published. The subscriber did not get it,
+            // so it must not be sent heartbeats for it.
+            subscriptionManager.getDeltaEncoder().reset(sourceGraphNode, downstreamHostId);
+          }
           PerformanceAnalyzerApp.RCA_GRAPH_METRICS_AGGREGATOR
               .updateStat(RcaGraphMetrics.RCA_NODES_FU_PUBLISH_COUNT, sourceGraphNode, 1);
         }
@@ -15,6 +15,7 @@
 
 package com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.persistence;
 
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.retention.RetentionManager;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
@@ -145,6 +146,7 @@ public class FileGC {
     Path path = Paths.get(file.toURI());
     try {
       Files.deleteIfExists(path);
+      RetentionManager.instance().untrack(path);
     } catch (IOException e) {
       LOG.error("Could not delete file: {}. Error: {}", file, e);
       throw e;
@@ -18,6 +18,7 @@ package com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.persistence;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.api.flow_units.ResourceFlowUnit;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.core.Node;
 import com.google.common.annotations.VisibleForTesting;
+import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
@@ -52,6 +53,16 @@ public interface Persistable {
    */
   JsonElement read(String rca);
 
+  /**
+   * Read the flow units of a particular RCA in a time range, from the current database and the
+   * archived ones, and convert them into json
+   * @param rca name of RCA to query
+   * @param fromMillis start of the time range, inclusive
+   * @param toMillis end of the time range, inclusive
+   * @return json array of the flow units, with their timestamp and state, oldest first
+   */
+  JsonArray readRange(String rca, long fromMillis, long toMillis);
+
   /**
    * This API reads the latest row from the table corresponding to the Object.
    * @param clz The Class whose Object is desired.
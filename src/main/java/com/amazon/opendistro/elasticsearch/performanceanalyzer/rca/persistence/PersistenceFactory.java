@@ -21,6 +21,8 @@ import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.uti
 import java.io.IOException;
 import java.sql.SQLException;
 import java.util.Map;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 
 /**
  * The interfaces are called to read data for a resource by the runtime before calling the operate
@@ -32,6 +34,8 @@ import java.util.Map;
  * OSS can write an adaptor to their favorite data store.
  */
 public class PersistenceFactory {
+  private static final Logger LOG = LogManager.getLogger(PersistenceFactory.class);
+
   public static Persistable create(RcaConf rcaConf) throws MalformedConfig, SQLException, IOException {
     Map<String, String> datastore = rcaConf.getDatastore();
     switch (datastore.get(RcaConsts.DATASTORE_TYPE_KEY).toLowerCase()) {
@@ -40,10 +44,24 @@ public class PersistenceFactory {
             datastore.get(RcaConsts.DATASTORE_LOC_KEY),
             datastore.get(RcaConsts.DATASTORE_FILENAME),
             datastore.get(RcaConsts.DATASTORE_STORAGE_FILE_RETENTION_COUNT),
-                RcaConsts.DB_FILE_ROTATION_TIME_UNIT, RcaConsts.ROTATION_PERIOD);
+                RcaConsts.DB_FILE_ROTATION_TIME_UNIT, RcaConsts.ROTATION_PERIOD,
+            parseArchiveSizeBudget(datastore.get(RcaConsts.DATASTORE_ARCHIVE_SIZE_BUDGET_BYTES)));
       default:
         String err = "The datastore value can only be sqlite in any case format";
         throw new MalformedConfig(rcaConf.getConfigFileLoc(), err);
     }
   }
+
+  // The rotated files are not archived if no budget is configured.
+  private static long parseArchiveSizeBudget(String archiveSizeBudgetBytes) {
+    if (archiveSizeBudgetBytes == null) {
+      return 0;
+    }
+    try {
+      return Long.parseLong(archiveSizeBudgetBytes);
+    } catch (NumberFormatException exp) {
+      LOG.error(String.format("Unable to parse '%s' as long, not archiving the RCA files", archiveSizeBudgetBytes));
+      return 0;
+    }
+  }
 }
@@ -18,6 +18,7 @@ package com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.persistence;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.api.flow_units.ResourceFlowUnit;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.core.GenericSummary;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.core.Node;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.retention.RetentionManager;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
@@ -62,6 +63,8 @@ public abstract class PersistorBase implements Persistable {
 
   private final FileRotate fileRotate;
   private final FileGC fileGC;
+  // Null if the rotated files are not archived.
+  private final RcaArchiver archiver;
 
   enum RotationType {
     TRY_ROTATE,
@@ -71,6 +74,17 @@ public abstract class PersistorBase implements Persistable {
   PersistorBase(String dir, String filename, String dbProtocolString,
                 String storageFileRetentionCount, TimeUnit fileRotationTimeUnit,
                 long fileRotationPeriod) throws SQLException, IOException {
+    this(dir, filename, dbProtocolString, storageFileRetentionCount, fileRotationTimeUnit,
+        fileRotationPeriod, 0);
+  }
+
+  /**
+   * @param archiveSizeBudgetBytes If positive, the rotated files are compacted into archives in the
+   *     background, and the oldest archives are deleted when they take more than this many bytes.
+   */
+  PersistorBase(String dir, String filename, String dbProtocolString,
+                String storageFileRetentionCount, TimeUnit fileRotationTimeUnit,
+                long fileRotationPeriod, long archiveSizeBudgetBytes) throws SQLException, IOException {
     this.dir = dir;
     this.filenameParam = filename;
     this.dbProtocol = dbProtocolString;
@@ -92,11 +106,25 @@ public abstract class PersistorBase implements Persistable {
 
     fileGC =  new FileGC(Paths.get(dir), filenameParam, fileRotationTimeUnit, fileRotationPeriod,
             STORAGE_FILE_RETENTION_COUNT);
+    if (archiveSizeBudgetBytes > 0) {
+      archiver = new RcaArchiver(Paths.get(dir), dbProtocolString, archiveSizeBudgetBytes);
+      // Archive what the previous runs left behind, including the file rotated above.
+      fileGC.eligibleForGc.forEach(file -> archiver.archiveAsync(file.toPath()));
+    } else {
+      archiver = null;
+    }
     openNewDBFile();
   }
 
   @Override
   public synchronized void close() throws SQLException {
+    if (archiver != null) {
+      archiver.close();
+    }
+    closeConnection();
+  }
+
+  private synchronized void closeConnection() throws SQLException {
     if (conn != null) {
       // conn.commit();
       conn.close();
@@ -117,6 +145,8 @@ public abstract class PersistorBase implements Persistable {
 
   abstract JsonElement readRca(String rca);
 
+  abstract JsonArray readRcaRange(String rca, long fromMillis, long toMillis);
+
   abstract void createNewDSLContext();
 
   @VisibleForTesting
@@ -148,12 +178,26 @@ public abstract class PersistorBase implements Persistable {
     return rcaJson;
   }
 
+  /**
+   * Reads the flow units of an RCA in the time range, first from the archived files, if any, and
+   * then from the current file. The archives are read without holding the lock of the persistor,
+   * so that a long range query does not hold back the writes.
+   */
+  @Override
+  public JsonArray readRange(String rca, long fromMillis, long toMillis) {
+    JsonArray flowUnits = archiver != null ? archiver.readRange(rca, fromMillis, toMillis) : new JsonArray();
+    synchronized (this) {
+      flowUnits.addAll(readRcaRange(rca, fromMillis, toMillis));
+    }
+    return flowUnits;
+  }
+
   private synchronized void openNewDBFile() throws SQLException {
     this.fileCreateTime = new Date(System.currentTimeMillis());
     this.filename = Paths.get(dir, filenameParam).toString();
     this.tableNames = new HashSet<>();
     String url = String.format("%s%s", this.dbProtocol, this.filename);
-    close();
+    closeConnection();
     conn = DriverManager.getConnection(url);
     createNewDSLContext();
   }
@@ -226,7 +270,11 @@ public abstract class PersistorBase implements Persistable {
         break;
     }
     if (rotatedFile != null) {
+      RetentionManager.instance().track(RetentionManager.RCA, rotatedFile, currTime);
       fileGC.eligibleForGc(rotatedFile.toFile().getName());
+      if (archiver != null) {
+        archiver.archiveAsync(rotatedFile);
+      }
     }
 
     // If we are here that means the tryRotate or the forceRotate didn't throw exception and therefore,
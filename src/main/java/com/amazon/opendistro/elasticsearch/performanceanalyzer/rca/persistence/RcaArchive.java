@@ -0,0 +1,320 @@
+/*
+ * Copyright 2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.persistence;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A compressed, column oriented copy of the tables of a rotated RCA database file.
+ *
+ * <p>Each column of each table is encoded and gzipped on its own, and the file starts with a table of
+ * contents giving the offset of every column. Reading the history of an RCA therefore only
+ * decompresses the few columns of the RCA table it needs. Columns are encoded by type: integers are
+ * delta encoded as variable length longs, which makes the timestamps and the row ids of a table a few
+ * bits each, strings are dictionary encoded and the doubles are written as is.
+ *
+ * <pre>
+ * magic, version, number of tables
+ * for each table: name, number of rows, number of columns,
+ *                 for each column: name, type, offset, length
+ * the column blocks, each one a gzip stream of: null flags, encoded values
+ * </pre>
+ */
+public class RcaArchive {
+  private static final int MAGIC = 0x52434141;
+  private static final int FORMAT_VERSION = 1;
+
+  enum ColumnType {
+    LONG,
+    DOUBLE,
+    STRING
+  }
+
+  private RcaArchive() {
+  }
+
+  /**
+   * A table read from, or to be written to, an archive. The values of a column are Long, Double
+   * or String objects, or null.
+   */
+  public static class Table {
+    private final String name;
+    private final Map<String, List<Object>> columns;
+    private final int rowCount;
+
+    public Table(final String name, final Map<String, List<Object>> columns, final int rowCount) {
+      this.name = name;
+      this.columns = columns;
+      this.rowCount = rowCount;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public int getRowCount() {
+      return rowCount;
+    }
+
+    public List<String> getColumnNames() {
+      return new ArrayList<>(columns.keySet());
+    }
+
+    /**
+     * @return the values of the column, or null if the table has no such column.
+     */
+    public List<Object> getColumn(final String column) {
+      return columns.get(column);
+    }
+  }
+
+  /**
+   * Writes the tables to the archive file.
+   *
+   * @param file   The archive file to create.
+   * @param tables The tables to archive.
+   * @throws IOException if the file could not be written.
+   */
+  public static void write(final Path file, final List<Table> tables) throws IOException {
+    ByteArrayOutputStream blocks = new ByteArrayOutputStream();
+    ByteArrayOutputStream header = new ByteArrayOutputStream();
+    DataOutputStream headerOut = new DataOutputStream(header);
+    headerOut.writeInt(MAGIC);
+    headerOut.writeInt(FORMAT_VERSION);
+    headerOut.writeInt(tables.size());
+    for (Table table : tables) {
+      headerOut.writeUTF(table.name);
+      headerOut.writeInt(table.rowCount);
+      headerOut.writeInt(table.columns.size());
+      for (Map.Entry<String, List<Object>> column : table.columns.entrySet()) {
+        ColumnType type = typeOf(column.getValue());
+        int offset = blocks.size();
+        encodeColumn(type, column.getValue(), blocks);
+        headerOut.writeUTF(column.getKey());
+        headerOut.writeByte(type.ordinal());
+        headerOut.writeInt(offset);
+        headerOut.writeInt(blocks.size() - offset);
+      }
+    }
+    headerOut.flush();
+
+    try (OutputStream out = Files.newOutputStream(file)) {
+      DataOutputStream dataOut = new DataOutputStream(out);
+      dataOut.writeInt(header.size());
+      header.writeTo(dataOut);
+      blocks.writeTo(dataOut);
+      dataOut.flush();
+    }
+  }
+
+  /**
+   * Reads some columns of a table from an archive file. Only those columns are decompressed.
+   *
+   * @param file    The archive file.
+   * @param table   The name of the table.
+   * @param columns The names of the columns to read.
+   * @return the table with the requested columns it has, or null if the archive has no such table.
+   * @throws IOException if the file could not be read or is not an archive.
+   */
+  public static Table readTable(final Path file, final String table, final List<String> columns)
+      throws IOException {
+    try (RandomAccessFile in = new RandomAccessFile(file.toFile(), "r")) {
+      int headerLength = in.readInt();
+      byte[] headerBytes = new byte[headerLength];
+      in.readFully(headerBytes);
+      long blocksStart = 4L + headerLength;
+
+      DataInputStream header = new DataInputStream(new ByteArrayInputStream(headerBytes));
+      if (header.readInt() != MAGIC) {
+        throw new IOException("Not an RCA archive: " + file);
+      }
+      int version = header.readInt();
+      if (version != FORMAT_VERSION) {
+        throw new IOException("Unsupported RCA archive version " + version + ": " + file);
+      }
+      int tableCount = header.readInt();
+      for (int t = 0; t < tableCount; t++) {
+        String tableName = header.readUTF();
+        int rowCount = header.readInt();
+        int columnCount = header.readInt();
+        Map<String, List<Object>> read = tableName.equals(table) ? new LinkedHashMap<>() : null;
+        for (int c = 0; c < columnCount; c++) {
+          String columnName = header.readUTF();
+          ColumnType type = ColumnType.values()[header.readByte()];
+          int offset = header.readInt();
+          int length = header.readInt();
+          if (read != null && columns.contains(columnName)) {
+            byte[] block = new byte[length];
+            in.seek(blocksStart + offset);
+            in.readFully(block);
+            read.put(columnName, decodeColumn(type, rowCount, block));
+          }
+        }
+        if (read != null) {
+          return new Table(tableName, read, rowCount);
+        }
+      }
+      return null;
+    }
+  }
+
+  private static ColumnType typeOf(final List<Object> values) {
+    ColumnType type = ColumnType.LONG;
+    for (Object value : values) {
+      if (value == null) {
+        continue;
+      }
+      if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+        continue;
+      }
+      if (value instanceof Number) {
+        type = ColumnType.DOUBLE;
+      } else {
+        return ColumnType.STRING;
+      }
+    }
+    return type;
+  }
+
+  private static void encodeColumn(final ColumnType type, final List<Object> values, final OutputStream blocks)
+      throws IOException {
+    GZIPOutputStream gzip = new GZIPOutputStream(blocks);
+    DataOutputStream out = new DataOutputStream(gzip);
+    for (Object value : values) {
+      out.writeBoolean(value == null);
+    }
+    switch (type) {
+      case LONG:
+        long previous = 0;
+        for (Object value : values) {
+          if (value != null) {
+            long current = ((Number) value).longValue();
+            writeVarLong(out, current - previous);
+            previous = current;
+          }
+        }
+        break;
+      case DOUBLE:
+        for (Object value : values) {
+          if (value != null) {
+            out.writeDouble(((Number) value).doubleValue());
+          }
+        }
+        break;
+      default:
+        Map<String, Integer> dictionary = new LinkedHashMap<>();
+        for (Object value : values) {
+          if (value != null) {
+            dictionary.putIfAbsent(value.toString(), dictionary.size());
+          }
+        }
+        out.writeInt(dictionary.size());
+        for (String entry : dictionary.keySet()) {
+          out.writeUTF(entry);
+        }
+        for (Object value : values) {
+          if (value != null) {
+            writeVarLong(out, dictionary.get(value.toString()));
+          }
+        }
+    }
+    out.flush();
+    gzip.finish();
+  }
+
+  private static List<Object> decodeColumn(final ColumnType type, final int rowCount, final byte[] block)
+      throws IOException {
+    DataInputStream in = new DataInputStream(new GZIPInputStream(new ByteArrayInputStream(block)));
+    boolean[] isNull = new boolean[rowCount];
+    for (int i = 0; i < rowCount; i++) {
+      isNull[i] = in.readBoolean();
+    }
+    List<Object> values = new ArrayList<>(rowCount);
+    switch (type) {
+      case LONG:
+        long previous = 0;
+        for (int i = 0; i < rowCount; i++) {
+          if (isNull[i]) {
+            values.add(null);
+          } else {
+            previous += readVarLong(in);
+            values.add(previous);
+          }
+        }
+        break;
+      case DOUBLE:
+        for (int i = 0; i < rowCount; i++) {
+          values.add(isNull[i] ? null : in.readDouble());
+        }
+        break;
+      default:
+        int size = in.readInt();
+        List<String> dictionary = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+          dictionary.add(in.readUTF());
+        }
+        for (int i = 0; i < rowCount; i++) {
+          values.add(isNull[i] ? null : dictionary.get((int) readVarLong(in)));
+        }
+    }
+    return Collections.unmodifiableList(values);
+  }
+
+  // Zig-zag encoded, so that small negative deltas are small too.
+  private static void writeVarLong(final DataOutputStream out, final long value) throws IOException {
+    long v = (value << 1) ^ (value >> 63);
+    while ((v & ~0x7FL) != 0) {
+      out.writeByte((int) ((v & 0x7F) | 0x80));
+      v >>>= 7;
+    }
+    out.writeByte((int) v);
+  }
+
+  private static long readVarLong(final DataInputStream in) throws IOException {
+    long v = 0;
+    int shift = 0;
+    int b;
+    do {
+      b = in.readUnsignedByte();
+      v |= (long) (b & 0x7F) << shift;
+      shift += 7;
+    } while ((b & 0x80) != 0);
+    return (v >>> 1) ^ -(v & 1);
+  }
+
+  static Map<String, List<Object>> newColumns(final List<String> names) {
+    Map<String, List<Object>> columns = new LinkedHashMap<>();
+    for (String name : names) {
+      columns.put(name, new ArrayList<>());
+    }
+    return columns;
+  }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright 2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.persistence;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * The list of the RCA archives in a directory, with the time range each one covers. It is kept as a
+ * human readable JSON file next to the archives, and is the time index used to find the archives a
+ * range query has to read.
+ */
+public class RcaArchiveManifest {
+  private static final Logger LOG = LogManager.getLogger(RcaArchiveManifest.class);
+  private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+
+  private final Path file;
+  private final List<Entry> archives;
+
+  /**
+   * An archive, as listed in the manifest.
+   */
+  public static class Entry {
+    private String file;
+    private String source;
+    private long startMillis;
+    private long endMillis;
+    private int rows;
+    private long bytes;
+
+    public Entry(String file, String source, long startMillis, long endMillis, int rows, long bytes) {
+      this.file = file;
+      this.source = source;
+      this.startMillis = startMillis;
+      this.endMillis = endMillis;
+      this.rows = rows;
+      this.bytes = bytes;
+    }
+
+    public String getFile() {
+      return file;
+    }
+
+    public String getSource() {
+      return source;
+    }
+
+    public long getStartMillis() {
+      return startMillis;
+    }
+
+    public long getEndMillis() {
+      return endMillis;
+    }
+
+    public int getRows() {
+      return rows;
+    }
+
+    public long getBytes() {
+      return bytes;
+    }
+
+    boolean overlaps(long fromMillis, long toMillis) {
+      return startMillis <= toMillis && endMillis >= fromMillis;
+    }
+  }
+
+  private static class Content {
+    private List<Entry> archives = new ArrayList<>();
+  }
+
+  private RcaArchiveManifest(final Path file, final List<Entry> archives) {
+    this.file = file;
+    this.archives = archives;
+  }
+
+  /**
+   * Loads the manifest, or starts an empty one if the file does not exist or cannot be parsed.
+   */
+  public static RcaArchiveManifest load(final Path file) {
+    List<Entry> archives = new ArrayList<>();
+    if (Files.exists(file)) {
+      try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+        Content content = GSON.fromJson(reader, Content.class);
+        if (content != null && content.archives != null) {
+          archives.addAll(content.archives);
+        }
+      } catch (IOException | JsonParseException e) {
+        LOG.error("Could not read the RCA archive manifest {}, starting a new one.", file, e);
+      }
+    }
+    archives.sort(Comparator.comparingLong(Entry::getStartMillis));
+    return new RcaArchiveManifest(file, archives);
+  }
+
+  /**
+   * Writes the manifest to a temporary file and moves it in place, so that a crash never leaves a
+   * partial manifest behind.
+   */
+  public void save() throws IOException {
+    Content content = new Content();
+    content.archives = archives;
+    Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+    try (Writer writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+      GSON.toJson(content, writer);
+    }
+    Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  public void add(final Entry entry) {
+    archives.removeIf(e -> e.file.equals(entry.file));
+    archives.add(entry);
+    archives.sort(Comparator.comparingLong(Entry::getStartMillis));
+  }
+
+  public void remove(final Entry entry) {
+    archives.remove(entry);
+  }
+
+  /**
+   * @return the archives, oldest first.
+   */
+  public List<Entry> getArchives() {
+    return Collections.unmodifiableList(archives);
+  }
+
+  /**
+   * @return the archives with data in the time range, oldest first.
+   */
+  public List<Entry> getArchives(final long fromMillis, final long toMillis) {
+    List<Entry> overlapping = new ArrayList<>();
+    for (Entry entry : archives) {
+      if (entry.overlaps(fromMillis, toMillis)) {
+        overlapping.add(entry);
+      }
+    }
+    return overlapping;
+  }
+
+  public long getTotalBytes() {
+    long total = 0;
+    for (Entry entry : archives) {
+      total += entry.bytes;
+    }
+    return total;
+  }
+}
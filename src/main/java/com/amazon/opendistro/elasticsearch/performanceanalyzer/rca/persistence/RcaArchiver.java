@@ -0,0 +1,279 @@
+/*
+ * Copyright 2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.persistence;
+
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.api.flow_units.ResourceFlowUnit;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.retention.RetentionManager;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Compacts the rotated RCA database files into {@link RcaArchive}s in the background, and serves the
+ * RCA history they hold.
+ *
+ * <p>Once a rotated file is archived it is deleted and the archive is added to the
+ * {@link RcaArchiveManifest}. The archives are then garbage collected by size: the oldest ones are
+ * deleted as long as all of them take more than {@code sizeBudgetBytes}. The archives are also under
+ * the retention of the RCA files, and are dropped from the manifest when it deletes them.
+ */
+public class RcaArchiver {
+  private static final Logger LOG = LogManager.getLogger(RcaArchiver.class);
+  static final String ARCHIVE_DIR = "archive";
+  static final String MANIFEST_FILENAME = "manifest.json";
+  static final String ARCHIVE_SUFFIX = ".archive";
+  private static final List<String> RCA_COLUMNS = Arrays.asList(
+      ResourceFlowUnit.SQL_SCHEMA_CONSTANTS.TIMESTAMP_COL_NAME,
+      ResourceFlowUnit.SQL_SCHEMA_CONSTANTS.RCA_COL_NAME,
+      ResourceFlowUnit.SQL_SCHEMA_CONSTANTS.STATE_COL_NAME);
+
+  private final Path archiveDir;
+  private final String dbProtocol;
+  private final long sizeBudgetBytes;
+  private final RcaArchiveManifest manifest;
+  private final ExecutorService executor;
+  private final Consumer<Path> retentionDeletionListener = this::onRetentionDeletion;
+
+  RcaArchiver(final Path dbDir, final String dbProtocol, final long sizeBudgetBytes) throws IOException {
+    this.archiveDir = dbDir.resolve(ARCHIVE_DIR);
+    this.dbProtocol = dbProtocol;
+    this.sizeBudgetBytes = sizeBudgetBytes;
+    Files.createDirectories(archiveDir);
+    this.manifest = RcaArchiveManifest.load(archiveDir.resolve(MANIFEST_FILENAME));
+    this.executor = Executors.newSingleThreadExecutor(
+        new ThreadFactoryBuilder().setNameFormat("pa-rca-archiver-%d").setDaemon(true).build());
+    RetentionManager.instance().addDeletionListener(RetentionManager.RCA, retentionDeletionListener);
+  }
+
+  /**
+   * Archives the rotated file in the background.
+   */
+  void archiveAsync(final Path rotatedFile) {
+    try {
+      executor.execute(() -> {
+        try {
+          archive(rotatedFile);
+        } catch (Exception e) {
+          LOG.error("RCA: Could not archive {}, it is left to the file GC.", rotatedFile, e);
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      LOG.warn("RCA: The archiver is shut down, not archiving {}", rotatedFile);
+    }
+  }
+
+  /**
+   * Copies all the tables of the rotated file into an archive, registers the archive in the
+   * manifest and deletes the rotated file.
+   *
+   * @return the archive, or null if the rotated file no longer exists.
+   */
+  Path archive(final Path rotatedFile) throws IOException, SQLException {
+    if (!Files.exists(rotatedFile)) {
+      return null;
+    }
+    List<RcaArchive.Table> tables = readTables(rotatedFile);
+    Path archive = archiveDir.resolve(rotatedFile.getFileName() + ARCHIVE_SUFFIX);
+    Path tmp = archiveDir.resolve(archive.getFileName() + ".tmp");
+    RcaArchive.write(tmp, tables);
+    Files.move(tmp, archive, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+    long start = Long.MAX_VALUE;
+    long end = Long.MIN_VALUE;
+    int rows = 0;
+    for (RcaArchive.Table table : tables) {
+      rows += table.getRowCount();
+      List<Object> timestamps = table.getColumn(ResourceFlowUnit.SQL_SCHEMA_CONSTANTS.TIMESTAMP_COL_NAME);
+      if (timestamps == null) {
+        continue;
+      }
+      for (Object timestamp : timestamps) {
+        if (timestamp instanceof Number) {
+          start = Math.min(start, ((Number) timestamp).longValue());
+          end = Math.max(end, ((Number) timestamp).longValue());
+        }
+      }
+    }
+    if (start > end) {
+      // Nothing timestamped, the archive is indexed by the time it was rotated at.
+      start = end = Files.getLastModifiedTime(rotatedFile).toMillis();
+    }
+
+    synchronized (this) {
+      manifest.add(new RcaArchiveManifest.Entry(archive.getFileName().toString(),
+          rotatedFile.getFileName().toString(), start, end, rows, Files.size(archive)));
+      enforceSizeBudget();
+      manifest.save();
+    }
+    LOG.info("RCA: Archived {} ({} bytes) to {} ({} bytes)", rotatedFile, Files.size(rotatedFile), archive,
+        Files.size(archive));
+    Files.deleteIfExists(rotatedFile);
+    RetentionManager.instance().untrack(rotatedFile);
+    RetentionManager.instance().track(RetentionManager.RCA, archive, end);
+    return archive;
+  }
+
+  private List<RcaArchive.Table> readTables(final Path dbFile) throws SQLException {
+    List<RcaArchive.Table> tables = new ArrayList<>();
+    try (Connection conn = DriverManager.getConnection(dbProtocol + dbFile.toString());
+         Statement statement = conn.createStatement()) {
+      List<String> tableNames = new ArrayList<>();
+      try (ResultSet rs = statement.executeQuery(
+          "SELECT name FROM sqlite_master WHERE type='table' AND name NOT LIKE 'sqlite_%'")) {
+        while (rs.next()) {
+          tableNames.add(rs.getString(1));
+        }
+      }
+      for (String tableName : tableNames) {
+        try (ResultSet rs = statement.executeQuery("SELECT * FROM \"" + tableName.replace("\"", "\"\"") + "\"")) {
+          ResultSetMetaData metaData = rs.getMetaData();
+          List<String> columnNames = new ArrayList<>();
+          for (int i = 1; i <= metaData.getColumnCount(); i++) {
+            columnNames.add(metaData.getColumnName(i));
+          }
+          Map<String, List<Object>> columns = RcaArchive.newColumns(columnNames);
+          int rows = 0;
+          while (rs.next()) {
+            for (int i = 0; i < columnNames.size(); i++) {
+              columns.get(columnNames.get(i)).add(rs.getObject(i + 1));
+            }
+            rows++;
+          }
+          tables.add(new RcaArchive.Table(tableName, columns, rows));
+        }
+      }
+    }
+    return tables;
+  }
+
+  private void enforceSizeBudget() throws IOException {
+    List<RcaArchiveManifest.Entry> archives = new ArrayList<>(manifest.getArchives());
+    for (RcaArchiveManifest.Entry oldest : archives) {
+      if (manifest.getTotalBytes() <= sizeBudgetBytes) {
+        break;
+      }
+      LOG.info("RCA: Archives are over the {} bytes budget, deleting {}", sizeBudgetBytes, oldest.getFile());
+      Files.deleteIfExists(archiveDir.resolve(oldest.getFile()));
+      RetentionManager.instance().untrack(archiveDir.resolve(oldest.getFile()));
+      manifest.remove(oldest);
+    }
+  }
+
+  private synchronized void onRetentionDeletion(final Path file) {
+    if (!file.getParent().equals(archiveDir.toAbsolutePath().normalize())) {
+      return;
+    }
+    for (RcaArchiveManifest.Entry entry : manifest.getArchives()) {
+      if (entry.getFile().equals(file.getFileName().toString())) {
+        manifest.remove(entry);
+        try {
+          manifest.save();
+        } catch (IOException e) {
+          LOG.error("RCA: Could not save the archive manifest", e);
+        }
+        return;
+      }
+    }
+  }
+
+  /**
+   * Reads the flow units of an RCA in the time range from the archives.
+   *
+   * @param rca        The name of the RCA.
+   * @param fromMillis The start of the range, inclusive.
+   * @param toMillis   The end of the range, inclusive.
+   * @return the flow units, with their timestamp, RCA name and state, oldest first.
+   */
+  JsonArray readRange(final String rca, final long fromMillis, final long toMillis) {
+    List<RcaArchiveManifest.Entry> archives;
+    synchronized (this) {
+      archives = manifest.getArchives(fromMillis, toMillis);
+    }
+    JsonArray flowUnits = new JsonArray();
+    for (RcaArchiveManifest.Entry entry : archives) {
+      try {
+        RcaArchive.Table table = RcaArchive.readTable(archiveDir.resolve(entry.getFile()),
+            ResourceFlowUnit.RCA_TABLE_NAME, RCA_COLUMNS);
+        if (table != null) {
+          addFlowUnits(table, rca, fromMillis, toMillis, flowUnits);
+        }
+      } catch (IOException e) {
+        // It may have been garbage collected since the manifest was read.
+        LOG.warn("RCA: Could not read the archive {}", entry.getFile(), e);
+      }
+    }
+    return flowUnits;
+  }
+
+  private static void addFlowUnits(final RcaArchive.Table table, final String rca, final long fromMillis,
+      final long toMillis, final JsonArray flowUnits) {
+    List<Object> timestamps = table.getColumn(ResourceFlowUnit.SQL_SCHEMA_CONSTANTS.TIMESTAMP_COL_NAME);
+    List<Object> names = table.getColumn(ResourceFlowUnit.SQL_SCHEMA_CONSTANTS.RCA_COL_NAME);
+    List<Object> states = table.getColumn(ResourceFlowUnit.SQL_SCHEMA_CONSTANTS.STATE_COL_NAME);
+    if (timestamps == null || names == null || states == null) {
+      return;
+    }
+    for (int i = 0; i < table.getRowCount(); i++) {
+      Object timestamp = timestamps.get(i);
+      if (!rca.equals(names.get(i)) || !(timestamp instanceof Number)) {
+        continue;
+      }
+      long millis = ((Number) timestamp).longValue();
+      if (millis < fromMillis || millis > toMillis) {
+        continue;
+      }
+      JsonObject flowUnit = new JsonObject();
+      flowUnit.addProperty(ResourceFlowUnit.SQL_SCHEMA_CONSTANTS.RCA_COL_NAME, rca);
+      flowUnit.addProperty(ResourceFlowUnit.SQL_SCHEMA_CONSTANTS.TIMESTAMP_COL_NAME, millis);
+      flowUnit.addProperty(ResourceFlowUnit.SQL_SCHEMA_CONSTANTS.STATE_COL_NAME, String.valueOf(states.get(i)));
+      flowUnits.add(flowUnit);
+    }
+  }
+
+  void close() {
+    RetentionManager.instance().removeDeletionListener(RetentionManager.RCA, retentionDeletionListener);
+    executor.shutdown();
+    try {
+      if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+        executor.shutdownNow();
+      }
+    } catch (InterruptedException e) {
+      executor.shutdownNow();
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -112,7 +112,13 @@ class SQLitePersistor extends PersistorBase {
 
   SQLitePersistor(String dir, String filename, String storageFileRetentionCount,
                   TimeUnit rotationTime, long rotationPeriod) throws SQLException, IOException {
-    super(dir, filename, DB_URL, storageFileRetentionCount, rotationTime, rotationPeriod);
+    this(dir, filename, storageFileRetentionCount, rotationTime, rotationPeriod, 0);
+  }
+
+  SQLitePersistor(String dir, String filename, String storageFileRetentionCount,
+                  TimeUnit rotationTime, long rotationPeriod, long archiveSizeBudgetBytes)
+      throws SQLException, IOException {
+    super(dir, filename, DB_URL, storageFileRetentionCount, rotationTime, rotationPeriod, archiveSizeBudgetBytes);
     create = DSL.using(conn, SQLDialect.SQLITE);
     jooqTableColumns = new HashMap<>();
     tableNameToJavaClassMap = new HashMap<>();
@@ -776,35 +782,7 @@ class SQLitePersistor extends PersistorBase {
   }
 
   private synchronized void readSummary(GenericSummary upperLevelSummary, int upperLevelPrimaryKey) {
-    String upperLevelTable = upperLevelSummary.getTableName();
-
-    // stop the recursion here if the summary does not have any nested summary table.
-    if (upperLevelSummary.getNestedSummaryTables() == null) {
-      return;
-    }
-
-    for (String nestedTableName : upperLevelSummary.getNestedSummaryTables()) {
-      Field<Integer> foreignKeyField = DSL.field(
-          SQLiteQueryUtils.getPrimaryKeyColumnName(upperLevelTable), Integer.class);
-      SelectJoinStep<Record> rcaQuery = SQLiteQueryUtils
-          .buildSummaryQuery(create, nestedTableName, upperLevelPrimaryKey, foreignKeyField);
-      try {
-        Result<Record> recordList = rcaQuery.fetch();
-        for (Record record : recordList) {
-          GenericSummary summary = upperLevelSummary.buildNestedSummary(nestedTableName, record);
-          if (summary != null) {
-            Field<Integer> primaryKeyField = DSL.field(
-                SQLiteQueryUtils.getPrimaryKeyColumnName(summary.getTableName()), Integer.class);
-            readSummary(summary, record.get(primaryKeyField));
-          }
-        }
-      } catch (DataAccessException de) {
-        // it is totally fine if we fail to read some certain tables as some types of summaries might be missing
-        LOG.warn("Fail to read Summary table : {}, query = {}", nestedTableName, rcaQuery.toString(), de);
-      } catch (IllegalArgumentException ie) {
-        LOG.error("Reading nested summary from wrong table, message : {}", ie.getMessage());
-      }
-    }
+    SQLiteQueryUtils.readNestedSummaries(create, upperLevelSummary, upperLevelPrimaryKey);
   }
 
   private synchronized JsonElement getTemperatureRca(String rca) {
@@ -859,6 +837,33 @@ class SQLitePersistor extends PersistorBase {
     return json;
   }
 
+  @Override
+  synchronized JsonArray readRcaRange(String rca, long fromMillis, long toMillis) {
+    JsonArray flowUnits = new JsonArray();
+    Field<Long> timestampField = DSL.field(ResourceFlowUnitFieldValue.TIMESTAMP_FIELD.getName(), Long.class);
+    try {
+      Result<Record> result = create.select()
+          .from(ResourceFlowUnit.RCA_TABLE_NAME)
+          .where(DSL.field(ResourceFlowUnitFieldValue.RCA_NAME_FILELD.getName(), String.class).equal(rca))
+          .and(timestampField.between(fromMillis, toMillis))
+          .orderBy(timestampField)
+          .fetch();
+      for (Record record : result) {
+        JsonObject flowUnit = new JsonObject();
+        flowUnit.addProperty(ResourceFlowUnit.SQL_SCHEMA_CONSTANTS.RCA_COL_NAME, rca);
+        flowUnit.addProperty(ResourceFlowUnit.SQL_SCHEMA_CONSTANTS.TIMESTAMP_COL_NAME, record.get(timestampField));
+        flowUnit.addProperty(ResourceFlowUnit.SQL_SCHEMA_CONSTANTS.STATE_COL_NAME,
+            String.valueOf(record.get(ResourceFlowUnitFieldValue.STATE_NAME_FILELD.getField())));
+        flowUnits.add(flowUnit);
+      }
+    } catch (DataAccessException dex) {
+      if (!dex.getMessage().contains("no such table")) {
+        LOG.error("Fail to read the range of RCA : {}.", rca, dex);
+      }
+    }
+    return flowUnits;
+  }
+
   private synchronized JsonElement readTemperatureProfileRca(String rca) {
     RcaResponse response = null;
     Field<Integer> primaryKeyField = DSL.field(
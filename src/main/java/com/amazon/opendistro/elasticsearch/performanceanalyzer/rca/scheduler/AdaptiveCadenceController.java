@@ -0,0 +1,109 @@
+/*
+ * Copyright 2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.scheduler;
+
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.api.flow_units.ResourceFlowUnit;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.core.GenericFlowUnit;
+import java.util.List;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Decides how often the tasklets of one connected component are evaluated.
+ *
+ * <p>The tasklets report the flow units they produce. Every scheduler tick in which the component
+ * produced at least one non-empty {@link ResourceFlowUnit} and none of them was unhealthy counts as
+ * a healthy period. After {@code healthyPeriodsBeforeBackoff} consecutive healthy periods the
+ * multiplier applied to the evaluation interval of every non-leaf vertex in the component is
+ * doubled, up to {@code maxMultiplier}. As soon as a tasklet reports an unhealthy flow unit, the
+ * multiplier drops back to 1, so the rest of the component runs at full rate from the next tick on.
+ *
+ * <p>The leaf (metric) vertices are never backed off. They keep reading at their own rate, so an RCA
+ * that is evaluated always finds the current data of its metrics.
+ *
+ * <p>An RCA that counts its own evaluations to close a window, such as a {@code BaseClusterRca}
+ * with its {@code rcaPeriod}, sees that window stretched by the multiplier while it is backed off.
+ * It gets back its configured length once the multiplier drops back to 1.
+ */
+public class AdaptiveCadenceController {
+  private static final Logger LOG = LogManager.getLogger(AdaptiveCadenceController.class);
+
+  private final int componentId;
+  private final int healthyPeriodsBeforeBackoff;
+  private final int maxMultiplier;
+
+  private volatile int multiplier;
+  private int healthyPeriods;
+  private boolean healthySeenThisTick;
+  private boolean unhealthySeenThisTick;
+
+  public AdaptiveCadenceController(int componentId, int healthyPeriodsBeforeBackoff, int maxMultiplier) {
+    this.componentId = componentId;
+    this.healthyPeriodsBeforeBackoff = healthyPeriodsBeforeBackoff;
+    this.maxMultiplier = Math.max(1, maxMultiplier);
+    this.multiplier = 1;
+  }
+
+  /**
+   * The factor by which the evaluation interval of the vertices of this component is stretched.
+   */
+  public int getMultiplier() {
+    return multiplier;
+  }
+
+  /**
+   * Called by a tasklet of this component with the flow units its vertex just produced.
+   *
+   * @param flowUnits The flow units of the vertex.
+   */
+  public synchronized void onFlowUnits(List<? extends GenericFlowUnit> flowUnits) {
+    for (GenericFlowUnit flowUnit : flowUnits) {
+      if (!(flowUnit instanceof ResourceFlowUnit) || flowUnit.isEmpty()) {
+        continue;
+      }
+      ResourceFlowUnit<?> resourceFlowUnit = (ResourceFlowUnit<?>) flowUnit;
+      if (resourceFlowUnit.getResourceContext() != null
+          && resourceFlowUnit.getResourceContext().isUnhealthy()) {
+        unhealthySeenThisTick = true;
+        healthyPeriods = 0;
+        if (multiplier != 1) {
+          LOG.debug("rca: component {} turned unhealthy, resuming full rate evaluation", componentId);
+          multiplier = 1;
+        }
+      } else {
+        healthySeenThisTick = true;
+      }
+    }
+  }
+
+  /**
+   * Called by the scheduler once per tick, after the tasklets of the tick have completed.
+   */
+  public synchronized void onTickComplete() {
+    if (healthySeenThisTick && !unhealthySeenThisTick) {
+      healthyPeriods += 1;
+      if (healthyPeriods >= healthyPeriodsBeforeBackoff) {
+        healthyPeriods = 0;
+        if (multiplier < maxMultiplier) {
+          multiplier = Math.min(multiplier * 2, maxMultiplier);
+          LOG.debug("rca: component {} is healthy, backing off to {}x", componentId, multiplier);
+        }
+      }
+    }
+    healthySeenThisTick = false;
+    unhealthySeenThisTick = false;
+  }
+}
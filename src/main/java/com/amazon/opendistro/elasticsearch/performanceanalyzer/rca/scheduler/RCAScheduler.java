@@ -174,6 +174,8 @@ public class RCAScheduler {
     waitForShutdown(scheduledPool);
     rcaSchedulerPeriodicExecutor.shutdown();
     waitForShutdown(rcaSchedulerPeriodicExecutor);
+    // The graph nodes of this scheduler registered for membership changes on its context.
+    appContext.removeClusterMembershipListeners();
     try {
       persistable.close();
     } catch (SQLException e) {
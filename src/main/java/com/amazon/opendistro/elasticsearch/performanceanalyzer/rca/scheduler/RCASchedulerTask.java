@@ -17,7 +17,9 @@ package com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.scheduler;
 
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.AppContext;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.PerformanceAnalyzerApp;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.configs.AdaptiveCadenceConfig;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.core.ConnectedComponent;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.core.LeafNode;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.core.Node;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.core.Queryable;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.core.RcaConf;
@@ -89,6 +91,18 @@ public class RCASchedulerTask implements Runnable {
    */
   private final List<List<Tasklet>> locallyExecutableTasklets;
 
+  /**
+   * One controller per connected component that is allowed to back off when its RCAs stay healthy.
+   * Components that publish flow units to remote subscribers keep running at full rate, because
+   * the subscribers treat a silent publisher as stale and re-subscribe to it. On a data node the
+   * components usually feed the cluster RCAs of the elected master, so there is little or nothing
+   * to back off there.
+   */
+  private final List<AdaptiveCadenceController> cadenceControllers;
+
+  /** Accounts the cost of the local evaluations of the graph nodes against their budgets. */
+  private final VertexCostTracker costTracker;
+
   // TODO: Q/ : maybe the max Ticks should be determined by what the max periodicity the user has
   // specified for a
   //  graph node? If this periodicity is lower than that, then some nodes may never get executed. I
@@ -107,7 +121,10 @@ public class RCASchedulerTask implements Runnable {
     this.maxTicks = maxTicks;
     this.executorPool = executorPool;
     this.remotelyDesirableNodeSet = new HashMap<>();
+    this.cadenceControllers = new ArrayList<>();
+    this.costTracker = new VertexCostTracker(conf.getVertexBudgetConfig());
     Map<Node<?>, Tasklet> nodeTaskletMap = new HashMap<>();
+    AdaptiveCadenceConfig cadenceConfig = conf.getAdaptiveCadenceConfig();
 
     List<List<Tasklet>> dependencyOrderedLocallyExecutables = Collections.emptyList();
     for (ConnectedComponent component : connectedComponents) {
@@ -121,6 +138,21 @@ public class RCASchedulerTask implements Runnable {
               nodeTaskletMap,
               appContext);
 
+      if (cadenceConfig.isEnabled() && !publishesToRemote(orderedTasklets)) {
+        AdaptiveCadenceController controller =
+            new AdaptiveCadenceController(
+                component.getGraphId(),
+                cadenceConfig.getHealthyPeriodsBeforeBackoff(),
+                cadenceConfig.getMaxBackoffMultiplier());
+        // The leaf nodes keep reading metrics at their own rate, so a backed off RCA never reads
+        // the empty flow units of a metric that was skipped in the same tick.
+        orderedTasklets.forEach(
+            level -> level.stream()
+                .filter(t -> !(t.getNode() instanceof LeafNode))
+                .forEach(t -> t.setCadenceController(controller)));
+        cadenceControllers.add(controller);
+      }
+
       // Merge the list across connected components.
       dependencyOrderedLocallyExecutables =
           mergeLists(orderedTasklets, dependencyOrderedLocallyExecutables);
@@ -130,6 +162,17 @@ public class RCASchedulerTask implements Runnable {
     LOG.debug("rca: locally executable tasklet size: {}", locallyExecutableTasklets.size());
   }
 
+  private boolean publishesToRemote(List<List<Tasklet>> orderedTasklets) {
+    for (List<Tasklet> level : orderedTasklets) {
+      for (Tasklet tasklet : level) {
+        if (remotelyDesirableNodeSet.containsKey(tasklet.getNode())) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
   /**
    * Merge two list of lists level wise, that is the level0 list of the first list is merged with
    * the level 0 of the second list, level 1 of the first list is merged with the level 1 of the
@@ -288,6 +331,7 @@ public class RCASchedulerTask implements Runnable {
             remotelyDesirableNodeSet,
             hopper,
             GraphNodeOperations::readFromLocal);
+    tasklet.setCostTracker(costTracker);
     CreatedTasklets ret = new CreatedTasklets(tasklet);
 
     final String aggregationLocus = graphNode.getTags().get(RcaTagConstants.TAG_AGGREGATE_UPSTREAM);
@@ -361,6 +405,8 @@ public class RCASchedulerTask implements Runnable {
     List<CompletableFuture<Void>> lastLevelTasks = createAsyncTasks();
     preWait();
     lastLevelTasks.forEach(CompletableFuture::join);
+    cadenceControllers.forEach(AdaptiveCadenceController::onTickComplete);
+    costTracker.report();
     postCompletion(runStartTime);
   }
 
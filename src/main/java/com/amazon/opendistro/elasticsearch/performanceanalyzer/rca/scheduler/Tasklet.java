@@ -15,8 +15,10 @@
 
 package com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.scheduler;
 
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.PerformanceAnalyzerApp;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.core.Node;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.core.Queryable;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.metrics.RcaVerticesMetrics;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.messages.DataMsg;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.net.WireHopper;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.persistence.NetPersistor;
@@ -38,6 +40,12 @@ import org.apache.logging.log4j.Logger;
 public class Tasklet {
   private static final Logger LOG = LogManager.getLogger(Tasklet.class);
 
+  /**
+   * Returned by the tasklets that are not due in a tick. It is already complete, so the downstream
+   * tasklets waiting on it do not have to go through the common pool.
+   */
+  private static final CompletableFuture<Void> SKIPPED = CompletableFuture.completedFuture(null);
+
   protected List<Tasklet> predecessors;
 
   private Node<?> node;
@@ -47,8 +55,12 @@ public class Tasklet {
   private final WireHopper hopper;
   private final NetPersistor netPersistor;
   private int ticks;
+  /** The tick of the last evaluation of this tasklet, or 0 if it has not run since the reset. */
+  private int lastRunTick;
   private Consumer<FlowUnitOperationArgWrapper> exec;
   private boolean isNet = false;
+  private AdaptiveCadenceController cadenceController;
+  private VertexCostTracker costTracker;
 
   /**
    * A tasklet is always built on top of a Node.
@@ -80,6 +92,7 @@ public class Tasklet {
 
   void resetTicks() {
     ticks = 0;
+    lastRunTick = 0;
   }
 
   Tasklet addPredecessor(Tasklet tasklet) {
@@ -87,15 +100,48 @@ public class Tasklet {
     return this;
   }
 
+  void setCadenceController(AdaptiveCadenceController cadenceController) {
+    this.cadenceController = cadenceController;
+  }
+
+  void setCostTracker(VertexCostTracker costTracker) {
+    this.costTracker = costTracker;
+  }
+
+  /**
+   * The number of ticks between two evaluations of this tasklet. This is the evaluation interval of
+   * the node, stretched by the adaptive cadence of its connected component if there is one and by
+   * the throttling of the node if it went over its budget.
+   */
+  long getEffectiveIntervalSeconds() {
+    long intervalSeconds = node.getEvaluationIntervalSeconds();
+    if (cadenceController != null) {
+      intervalSeconds *= cadenceController.getMultiplier();
+    }
+    if (costTracker != null) {
+      intervalSeconds *= costTracker.getThrottleMultiplier(node.name());
+    }
+    return intervalSeconds;
+  }
+
   public CompletableFuture<Void> execute(
       ExecutorService executorPool, Map<Tasklet, CompletableFuture<Void>> taskletToFutureMap) {
     ticks += 1;
-    if (ticks % node.getEvaluationIntervalSeconds() != 0) {
+    long intervalSeconds = getEffectiveIntervalSeconds();
+    if (cadenceController != null) {
+      PerformanceAnalyzerApp.RCA_VERTICES_METRICS_AGGREGATOR.updateStat(
+          RcaVerticesMetrics.RCA_VERTEX_EFFECTIVE_CADENCE, node.name(), intervalSeconds);
+    }
+    // The interval is counted from the last evaluation, not from the first tick. A tasklet whose
+    // interval changes with the cadence or the throttling keeps its phase, and one whose multiplier
+    // drops back runs as soon as its base interval has passed since it last ran.
+    if (ticks - lastRunTick < intervalSeconds) {
       // If its not time to run this tasklet, return an isEmpty flowUnit.
       node.setEmptyFlowUnitList();
       node.setEmptyLocalFlowUnit();
-      return CompletableFuture.supplyAsync(() -> null);
+      return SKIPPED;
     }
+    lastRunTick = ticks;
 
     // Create a list of the Futures that corresponds to my predecessor nodes.
     List<CompletableFuture<Void>> predecessorResultFutures =
@@ -109,7 +155,15 @@ public class Tasklet {
     CompletableFuture<Void> retCompletableFuture =
         completedPredecessorTasks.thenAcceptAsync(
             a -> {
-              exec.accept(new FlowUnitOperationArgWrapper(node, db, persistable, hopper));
+              FlowUnitOperationArgWrapper args = new FlowUnitOperationArgWrapper(node, db, persistable, hopper);
+              if (costTracker == null) {
+                exec.accept(args);
+              } else {
+                costTracker.measure(node.name(), () -> exec.accept(args));
+              }
+              if (cadenceController != null) {
+                cadenceController.onFlowUnits(node.getFlowUnits());
+              }
               sendToRemote();
             },
             executorPool);
@@ -0,0 +1,253 @@
+/*
+ * Copyright 2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.scheduler;
+
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.PerformanceAnalyzerApp;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.configs.VertexBudgetConfig;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.core.Stats;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.metrics.RcaGraphMetrics;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.telemetry.Gauge;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.telemetry.LatencyHistogram;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.telemetry.TelemetryRegistry;
+import com.google.common.annotations.VisibleForTesting;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Accounts the wall clock time, the thread CPU time and the bytes allocated by every local
+ * evaluation of a graph vertex, and enforces the budgets from rca.conf on them.
+ *
+ * <p>A vertex that goes over any of its budgets for {@code tolerance} evaluations in a row is
+ * either muted, the same way a vertex that keeps throwing in {@code operate()} is, or throttled:
+ * the interval at which it is evaluated is doubled, up to a ceiling. A throttled vertex that stays
+ * within its budgets for {@code tolerance} evaluations in a row has its interval halved again.
+ *
+ * <p>Once per scheduler tick, the vertices with the highest average CPU time per evaluation are
+ * reported as {@link RcaGraphMetrics#MOST_EXPENSIVE_VERTICES}.
+ */
+public class VertexCostTracker {
+  private static final Logger LOG = LogManager.getLogger(VertexCostTracker.class);
+  private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+
+  /** The weight of the latest evaluation in the moving average of the cost of a vertex. */
+  private static final double EWMA_WEIGHT = 0.2;
+
+  private static final String VERTEX_LATENCY_NAME = "pa_rca_vertex_duration_seconds";
+  private static final String VERTEX_LATENCY_HELP = "Wall clock time taken by one evaluation of an RCA vertex.";
+  private static final Gauge VERTICES_THROTTLED = TelemetryRegistry.instance().gauge(
+      "pa_rca_vertices_throttled", "Number of RCA vertices evaluated less often for going over their budget.");
+
+  private final VertexBudgetConfig budget;
+  private final boolean cpuTimeSupported;
+  private final boolean allocatedBytesSupported;
+  private final Map<String, VertexCost> costs;
+
+  static class VertexCost {
+    private final String name;
+    private final LatencyHistogram latency;
+    private volatile double avgWallNanos;
+    private volatile double avgCpuNanos;
+    private volatile int throttleMultiplier;
+    private int overBudgetRuns;
+    private int withinBudgetRuns;
+
+    VertexCost(String name) {
+      this.name = name;
+      this.latency = TelemetryRegistry.instance().histogram(VERTEX_LATENCY_NAME, VERTEX_LATENCY_HELP, "vertex", name);
+      this.throttleMultiplier = 1;
+    }
+
+    String getName() {
+      return name;
+    }
+
+    double getAvgCpuNanos() {
+      return avgCpuNanos;
+    }
+
+    double getAvgWallNanos() {
+      return avgWallNanos;
+    }
+  }
+
+  public VertexCostTracker(VertexBudgetConfig budget) {
+    this.budget = budget;
+    this.costs = new ConcurrentHashMap<>();
+    this.cpuTimeSupported =
+        THREAD_MX_BEAN.isCurrentThreadCpuTimeSupported() && THREAD_MX_BEAN.isThreadCpuTimeEnabled();
+    this.allocatedBytesSupported =
+        THREAD_MX_BEAN instanceof com.sun.management.ThreadMXBean
+            && ((com.sun.management.ThreadMXBean) THREAD_MX_BEAN).isThreadAllocatedMemorySupported()
+            && ((com.sun.management.ThreadMXBean) THREAD_MX_BEAN).isThreadAllocatedMemoryEnabled();
+  }
+
+  /**
+   * Runs the evaluation of a vertex on the calling thread and accounts its cost to the vertex.
+   *
+   * @param vertexName The name of the vertex being evaluated.
+   * @param evaluation The evaluation.
+   */
+  public void measure(String vertexName, Runnable evaluation) {
+    long startCpu = currentThreadCpuTime();
+    long startAllocated = currentThreadAllocatedBytes();
+    long startWall = System.nanoTime();
+    try {
+      evaluation.run();
+    } finally {
+      // An evaluation that throws is accounted too, it used the resources all the same.
+      long wallNanos = System.nanoTime() - startWall;
+      long cpuNanos = currentThreadCpuTime() - startCpu;
+      long allocatedBytes = currentThreadAllocatedBytes() - startAllocated;
+      record(vertexName, wallNanos, cpuNanos, allocatedBytes);
+    }
+  }
+
+  @VisibleForTesting
+  void record(String vertexName, long wallNanos, long cpuNanos, long allocatedBytes) {
+    PerformanceAnalyzerApp.RCA_GRAPH_METRICS_AGGREGATOR.updateStat(
+        RcaGraphMetrics.GRAPH_NODE_CPU_TIME, vertexName, cpuNanos / 1000);
+    PerformanceAnalyzerApp.RCA_GRAPH_METRICS_AGGREGATOR.updateStat(
+        RcaGraphMetrics.GRAPH_NODE_ALLOCATED_BYTES, vertexName, allocatedBytes);
+
+    VertexCost cost = costs.get(vertexName);
+    if (cost == null) {
+      cost = costs.computeIfAbsent(vertexName, VertexCost::new);
+    }
+    cost.latency.recordNanos(wallNanos);
+    synchronized (cost) {
+      cost.avgWallNanos = ewma(cost.avgWallNanos, wallNanos);
+      cost.avgCpuNanos = ewma(cost.avgCpuNanos, cpuNanos);
+
+      if (isOverBudget(wallNanos, cpuNanos, allocatedBytes)) {
+        cost.withinBudgetRuns = 0;
+        cost.overBudgetRuns += 1;
+        if (cost.overBudgetRuns >= budget.getTolerance()) {
+          cost.overBudgetRuns = 0;
+          onOverBudget(cost, wallNanos, cpuNanos, allocatedBytes);
+        }
+      } else {
+        cost.overBudgetRuns = 0;
+        cost.withinBudgetRuns += 1;
+        if (cost.withinBudgetRuns >= budget.getTolerance() && cost.throttleMultiplier > 1) {
+          cost.withinBudgetRuns = 0;
+          cost.throttleMultiplier = cost.throttleMultiplier / 2;
+          LOG.info("Vertex {} is back within its budget, throttled to {}x", vertexName, cost.throttleMultiplier);
+        }
+      }
+    }
+  }
+
+  private void onOverBudget(VertexCost cost, long wallNanos, long cpuNanos, long allocatedBytes) {
+    if (budget.shouldMute()) {
+      if (Stats.getInstance().addToMutedGraphNodes(cost.getName())) {
+        LOG.warn(
+            "Vertex {} got muted for going over its budget {} times in a row. "
+                + "Last evaluation: wall {} ns, cpu {} ns, allocated {} bytes.",
+            cost.getName(), budget.getTolerance(), wallNanos, cpuNanos, allocatedBytes);
+      }
+    } else if (cost.throttleMultiplier < budget.getMaxThrottleMultiplier()) {
+      cost.throttleMultiplier = Math.min(cost.throttleMultiplier * 2, budget.getMaxThrottleMultiplier());
+      LOG.warn(
+          "Vertex {} went over its budget {} times in a row, throttled to {}x. "
+              + "Last evaluation: wall {} ns, cpu {} ns, allocated {} bytes.",
+          cost.getName(), budget.getTolerance(), cost.throttleMultiplier, wallNanos, cpuNanos, allocatedBytes);
+    }
+  }
+
+  private boolean isOverBudget(long wallNanos, long cpuNanos, long allocatedBytes) {
+    return (budget.getWallClockNanos() > 0 && wallNanos > budget.getWallClockNanos())
+        || (budget.getCpuTimeNanos() > 0 && cpuNanos > budget.getCpuTimeNanos())
+        || (budget.getAllocatedBytes() > 0 && allocatedBytes > budget.getAllocatedBytes());
+  }
+
+  private static double ewma(double average, long sample) {
+    return average == 0 ? sample : average + EWMA_WEIGHT * (sample - average);
+  }
+
+  /**
+   * The factor by which the evaluation interval of a vertex is stretched because it went over its
+   * budget.
+   */
+  public int getThrottleMultiplier(String vertexName) {
+    VertexCost cost = costs.get(vertexName);
+    return cost == null ? 1 : cost.throttleMultiplier;
+  }
+
+  /**
+   * Reports the most expensive vertices and the number of throttled vertices. It is called by the
+   * scheduler once per tick.
+   */
+  public void report() {
+    int throttled = 0;
+    for (VertexCost cost : costs.values()) {
+      if (cost.throttleMultiplier > 1) {
+        throttled += 1;
+      }
+    }
+    PerformanceAnalyzerApp.RCA_GRAPH_METRICS_AGGREGATOR.updateStat(
+        RcaGraphMetrics.NUM_GRAPH_NODES_THROTTLED, "", throttled);
+    VERTICES_THROTTLED.set(throttled);
+
+    List<VertexCost> mostExpensive = getMostExpensive(budget.getTopN());
+    Set<String> names = new HashSet<>();
+    for (VertexCost cost : mostExpensive) {
+      names.add(cost.getName());
+    }
+    // The samples of the vertices that dropped out of the top N since the last reset are stale.
+    PerformanceAnalyzerApp.RCA_GRAPH_METRICS_AGGREGATOR.retainNamedSamples(
+        RcaGraphMetrics.MOST_EXPENSIVE_VERTICES, names);
+    for (VertexCost cost : mostExpensive) {
+      double avgNanos = cpuTimeSupported ? cost.getAvgCpuNanos() : cost.getAvgWallNanos();
+      PerformanceAnalyzerApp.RCA_GRAPH_METRICS_AGGREGATOR.updateStat(
+          RcaGraphMetrics.MOST_EXPENSIVE_VERTICES, cost.getName(), (long) (avgNanos / 1000));
+    }
+  }
+
+  /**
+   * The vertices with the highest average CPU time per evaluation. Wall clock time is used
+   * instead when the JVM does not support measuring the CPU time of a thread.
+   */
+  @VisibleForTesting
+  List<VertexCost> getMostExpensive(int n) {
+    List<VertexCost> all = new ArrayList<>(costs.values());
+    Comparator<VertexCost> byCost = cpuTimeSupported
+        ? Comparator.comparingDouble(VertexCost::getAvgCpuNanos)
+        : Comparator.comparingDouble(VertexCost::getAvgWallNanos);
+    all.sort(byCost.reversed());
+    return all.subList(0, Math.min(n, all.size()));
+  }
+
+  private long currentThreadCpuTime() {
+    return cpuTimeSupported ? THREAD_MX_BEAN.getCurrentThreadCpuTime() : 0;
+  }
+
+  private long currentThreadAllocatedBytes() {
+    if (!allocatedBytesSupported) {
+      return 0;
+    }
+    return ((com.sun.management.ThreadMXBean) THREAD_MX_BEAN)
+        .getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+}
@@ -22,6 +22,7 @@ import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.stats.eval.im
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.stats.eval.impl.Mean;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.stats.eval.impl.Min;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.stats.eval.impl.NamedCounter;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.stats.eval.impl.NamedSample;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.stats.eval.impl.Sample;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.stats.eval.impl.Sum;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.stats.eval.impl.vals.Value;
@@ -111,6 +112,9 @@ public class SampleAggregator {
           case NAMED_COUNTERS:
             impls.add(new NamedCounter());
             break;
+          case NAMED_SAMPLES:
+            impls.add(new NamedSample());
+            break;
           case SAMPLE:
             impls.add(new Sample());
             break;
@@ -161,6 +165,26 @@ public class SampleAggregator {
     }
   }
 
+  /**
+   * Drops the named samples of a measurement whose keys are not in the given set. This is for
+   * measurements that report the current members of a changing set, say the most expensive graph
+   * nodes, where a key that fell out of the set should not be reported any more.
+   *
+   * @param metric The measurement whose named samples are pruned.
+   * @param keys The keys that are kept.
+   */
+  public void retainNamedSamples(MeasurementSet metric, Set<String> keys) {
+    Set<IStatistic> statistics = statMap.get(metric);
+    if (statistics == null) {
+      return;
+    }
+    for (IStatistic statistic : statistics) {
+      if (statistic instanceof NamedSample) {
+        ((NamedSample) statistic).retainKeys(keys);
+      }
+    }
+  }
+
   /**
    * This gets the current set of Measurements collected and re-initiates the objects for the next
    * iteration.
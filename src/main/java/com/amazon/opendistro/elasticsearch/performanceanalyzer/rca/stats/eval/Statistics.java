@@ -33,5 +33,12 @@ public enum Statistics {
   // x: 3, y: 1, z: 1, h:1
   // This is helpful in calculating metric like which rca nodes threw exceptions and count per
   // graph node.
-  NAMED_COUNTERS
+  NAMED_COUNTERS,
+
+  // The last value reported for each name. So if you update your stats as these values:
+  // (x, 1), (y, 4), (x, 2)
+  // then the named samples will give you:
+  // x: 2, y: 4
+  // This is helpful in reporting a current setting per graph node, such as its evaluation interval.
+  NAMED_SAMPLES
 }
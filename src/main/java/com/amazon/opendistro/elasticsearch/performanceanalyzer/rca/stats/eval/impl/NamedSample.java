@@ -0,0 +1,65 @@
+/*
+ *  Copyright 2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License").
+ *  You may not use this file except in compliance with the License.
+ *  A copy of the License is located at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed
+ *  on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.stats.eval.impl;
+
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.stats.eval.Statistics;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.stats.eval.impl.vals.NamedAggregateValue;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/** Keeps the last value reported for each key. */
+public class NamedSample implements IStatistic<NamedAggregateValue> {
+  private boolean empty;
+  private Map<String, NamedAggregateValue> samples;
+
+  public NamedSample() {
+    samples = new ConcurrentHashMap<>();
+    empty = true;
+  }
+
+  @Override
+  public Statistics type() {
+    return Statistics.NAMED_SAMPLES;
+  }
+
+  @Override
+  public void calculate(String key, Number value) {
+    samples.put(key, new NamedAggregateValue(value, Statistics.NAMED_SAMPLES, key));
+    empty = false;
+  }
+
+  /**
+   * Drops the samples of all the keys that are not in the given set, so a key that was reported
+   * once does not linger until the next reset.
+   *
+   * @param keys The keys whose samples are kept.
+   */
+  public void retainKeys(Set<String> keys) {
+    samples.keySet().retainAll(keys);
+  }
+
+  @Override
+  public Collection<NamedAggregateValue> get() {
+    return samples.values();
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return empty;
+  }
+}
@@ -15,6 +15,8 @@
 
 package com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.store.rca.cluster;
 
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.AppContext;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.metrics.AllMetrics;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.api.Rca;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.api.Resources;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.api.Resources.State;
@@ -22,10 +24,13 @@ import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.api
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.api.flow_units.ResourceFlowUnit;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.api.summaries.HotClusterSummary;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.api.summaries.HotNodeSummary;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.util.ClusterMembership;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.util.ClusterMembershipListener;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.util.InstanceDetails;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.scheduler.FlowUnitOperationArgWrapper;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.HashBasedTable;
+import com.google.common.collect.Sets;
 import com.google.common.collect.Table;
 import java.time.Clock;
 import java.util.ArrayList;
@@ -45,6 +50,10 @@ import org.apache.logging.log4j.Logger;
  * the cluster. This table is a two dimensional table indexed by (NodeKey, Rca Name) and each cells stores
  * that last numOfFlowUnitsInMap flowunits it receives. This RCA will
  * mark the cluster as unhealthy if the flowunits from any data nodes are unhealthy.
+ * The RCA listens to the cluster membership changes and drops the rows of the nodes that left
+ * the cluster or changed their role when a change is published, instead of checking the table against the membership
+ * in every time window. A node can report before the membership change that adds it reaches this RCA, so flowunits
+ * from unknown nodes are kept until the next change is applied and dropped then if the node is still not tracked.
  * <p></p>
  * A few protected variables that can be overridden by derived class:
  * numOfFlowUnitsInMap : number of consecutive flowunits stored in hashtable. Default is 1
@@ -53,7 +62,8 @@ import org.apache.logging.log4j.Logger;
  * method that can be overriden :
  * generateNodeSummary(NodeKey) : how do we want to parse the table and generate summary for one node.
  */
-public class BaseClusterRca extends Rca<ResourceFlowUnit<HotClusterSummary>> {
+public class BaseClusterRca extends Rca<ResourceFlowUnit<HotClusterSummary>>
+    implements ClusterMembershipListener {
 
   private static final Logger LOG = LogManager.getLogger(BaseClusterRca.class);
   private static final int DEFAULT_NUM_OF_FLOWUNITS = 1;
@@ -67,7 +77,12 @@ public class BaseClusterRca extends Rca<ResourceFlowUnit<HotClusterSummary>> {
   protected int numOfFlowUnitsInMap;
   protected boolean collectFromMasterNode;
   protected long expirationTimeWindow;
-
+  // The latest membership published to this RCA, and the one the node table is up to date with.
+  // The table is only accessed by the scheduler thread, so the changes are applied in operate().
+  private volatile ClusterMembership membership;
+  private ClusterMembership appliedMembership;
+  // nodes that sent flowunits while they were not part of the applied membership.
+  private final Set<NodeKey> pendingNodes;
 
   @SafeVarargs
   public <R extends Rca<ResourceFlowUnit<HotNodeSummary>>> BaseClusterRca(final int rcaPeriod,
@@ -81,6 +96,20 @@ public class BaseClusterRca extends Rca<ResourceFlowUnit<HotClusterSummary>> {
     this.collectFromMasterNode = false;
     this.expirationTimeWindow = TIMESTAMP_EXPIRATION_IN_MILLIS;
     this.nodeRcas = Arrays.asList(nodeRca);
+    this.membership = ClusterMembership.EMPTY;
+    this.appliedMembership = ClusterMembership.EMPTY;
+    this.pendingNodes = new HashSet<>();
+  }
+
+  @Override
+  public void setAppContext(final AppContext appContext) {
+    super.setAppContext(appContext);
+    appContext.addClusterMembershipListener(this);
+  }
+
+  @Override
+  public void onMembershipChange(final ClusterMembership previous, final ClusterMembership current) {
+    this.membership = current;
   }
 
   @VisibleForTesting
@@ -102,6 +131,13 @@ public class BaseClusterRca extends Rca<ResourceFlowUnit<HotClusterSummary>> {
       }
       HotNodeSummary nodeSummary = flowUnit.getSummary();
       NodeKey nodeKey = new NodeKey(nodeSummary.getNodeID(), nodeSummary.getHostAddress());
+      // keep flowunits from nodes the applied membership does not know yet until the next
+      // membership change is applied, and skip the ones from nodes this RCA does not track.
+      if (appliedMembership.getInstance(nodeSummary.getNodeID()) == null) {
+        pendingNodes.add(nodeKey);
+      } else if (!isClusterNode(appliedMembership, nodeSummary.getNodeID())) {
+        continue;
+      }
 
       if (nodeTable.get(nodeKey, nodeRca.name()) == null) {
         nodeTable.put(nodeKey, nodeRca.name(), new LinkedList<>());
@@ -114,31 +150,41 @@ public class BaseClusterRca extends Rca<ResourceFlowUnit<HotClusterSummary>> {
     }
   }
 
+  private boolean isClusterNode(ClusterMembership clusterMembership, InstanceDetails.Id nodeId) {
+    InstanceDetails instance = clusterMembership.getInstance(nodeId);
+    return instance != null && (collectFromMasterNode || instance.getRole() == AllMetrics.NodeRole.DATA);
+  }
+
   private List<InstanceDetails> getClusterNodesDetails() {
     if (collectFromMasterNode) {
-      return getAllClusterInstances();
+      return appliedMembership.getAllInstances();
     }
     else {
-      return getDataNodeInstances();
+      return appliedMembership.getDataNodeInstances();
     }
   }
 
-  // TODO : we might need to change this function later to use EventListener
-  // to update the nodeMap whenever the ClusterDetailsEventProcessor is updated
-  // so we don't have to keep polling the NodeDetails in every time window.
-  private void removeInactiveNodeFromNodeMap() {
-    Set<InstanceDetails.Id> nodeIdSet = new HashSet<>();
-    List<NodeKey> inactiveNodes = new ArrayList<>();
-    for (InstanceDetails nodeDetail : getClusterNodesDetails()) {
-      nodeIdSet.add(nodeDetail.getInstanceId());
+  // remove the rows of the nodes that left the cluster or changed their role since the last
+  // membership change was applied. The flowunits of a node that changed its role were sent for
+  // the old role. The rows of pending nodes are kept only if the new membership tracks them.
+  private void applyMembershipChange() {
+    ClusterMembership latest = membership;
+    if (latest == appliedMembership) {
+      return;
     }
+    Set<InstanceDetails.Id> removed = Sets.union(latest.getDepartedInstanceIds(appliedMembership),
+        latest.getRoleChangedInstanceIds(appliedMembership));
+    List<NodeKey> inactiveNodes = new ArrayList<>();
     for (NodeKey nodeKey : nodeTable.rowKeySet()) {
-      if (!nodeIdSet.contains(nodeKey.getNodeId())) {
+      if (removed.contains(nodeKey.getNodeId())
+          || (pendingNodes.contains(nodeKey) && !isClusterNode(latest, nodeKey.getNodeId()))) {
         inactiveNodes.add(nodeKey);
         LOG.info("RCA: remove node {} from node map", nodeKey);
       }
     }
     inactiveNodes.forEach(nodeKey -> nodeTable.row(nodeKey).clear());
+    pendingNodes.clear();
+    appliedMembership = latest;
   }
 
   /**
@@ -217,11 +263,11 @@ public class BaseClusterRca extends Rca<ResourceFlowUnit<HotClusterSummary>> {
   @Override
   public ResourceFlowUnit<HotClusterSummary> operate() {
     counter += 1;
+    applyMembershipChange();
     nodeRcas.forEach(this::addUpstreamFlowUnits);
 
     if (counter >= rcaPeriod) {
       counter = 0;
-      removeInactiveNodeFromNodeMap();
       return generateFlowUnit();
     } else {
       return new ResourceFlowUnit<>(System.currentTimeMillis());
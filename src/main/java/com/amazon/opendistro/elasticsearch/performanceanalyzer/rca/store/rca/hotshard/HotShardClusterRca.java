@@ -30,11 +30,9 @@ import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.cor
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.core.RcaConf;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.util.InstanceDetails;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.scheduler.FlowUnitOperationArgWrapper;
-import com.google.common.collect.HashBasedTable;
-import com.google.common.collect.Table;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -44,8 +42,11 @@ import org.apache.logging.log4j.Logger;
 /**
  * This RCA is used to find hot shards per index in a cluster using the HotShardSummary
  * sent from each node via 'HotShardRca'. If the resource utilization is (threshold)%
- * higher than the mean resource utilization for the index, we declare the shard hot.
+ * higher than the median resource utilization for the index, we declare the shard hot.
  *
+ * <p>The usage of the shards is folded into a {@link ShardUsageEstimator} per index as the flow
+ * units arrive, so that indices with a large number of shards are evaluated in bounded memory and
+ * without sorting all their shards.
  */
 public class HotShardClusterRca extends Rca<ResourceFlowUnit<HotClusterSummary>> {
 
@@ -56,16 +57,18 @@ public class HotShardClusterRca extends Rca<ResourceFlowUnit<HotClusterSummary>>
     private double cpuUtilizationClusterThreshold;
     private double ioTotThroughputClusterThreshold;
     private double ioTotSysCallRateClusterThreshold;
+    private int maxTrackedShardsPerIndex;
+    private double medianRelativeError;
 
     private final Rca<ResourceFlowUnit<HotNodeSummary>> hotShardRca;
     private int rcaPeriod;
     private int counter;
     private Set<String> unhealthyNodes;
 
-    // Guava Table with Row: 'Index_Name', Column: 'NodeShardKey', Cell Value: 'Value'
-    private Table<String, NodeShardKey, Double> cpuUtilizationInfoTable;
-    private Table<String, NodeShardKey, Double> IOThroughputInfoTable;
-    private Table<String, NodeShardKey, Double> IOSysCallRateInfoTable;
+    // Usage of the shards per 'Index_Name'
+    private Map<String, ShardUsageEstimator> cpuUtilizationInfoTable;
+    private Map<String, ShardUsageEstimator> IOThroughputInfoTable;
+    private Map<String, ShardUsageEstimator> IOSysCallRateInfoTable;
 
     public <R extends Rca<ResourceFlowUnit<HotNodeSummary>>> HotShardClusterRca(final int rcaPeriod, final R hotShardRca) {
         super(5);
@@ -73,22 +76,20 @@ public class HotShardClusterRca extends Rca<ResourceFlowUnit<HotClusterSummary>>
         this.rcaPeriod = rcaPeriod;
         this.counter = 0;
         this.unhealthyNodes = new HashSet<>();
-        this.cpuUtilizationInfoTable = HashBasedTable.create();
-        this.IOThroughputInfoTable = HashBasedTable.create();
-        this.IOSysCallRateInfoTable = HashBasedTable.create();
+        this.cpuUtilizationInfoTable = new LinkedHashMap<>();
+        this.IOThroughputInfoTable = new LinkedHashMap<>();
+        this.IOSysCallRateInfoTable = new LinkedHashMap<>();
         this.cpuUtilizationClusterThreshold = HotShardClusterRcaConfig.DEFAULT_CPU_UTILIZATION_CLUSTER_THRESHOLD;
         this.ioTotThroughputClusterThreshold = HotShardClusterRcaConfig.DEFAULT_IO_TOTAL_THROUGHPUT_CLUSTER_THRESHOLD;
         this.ioTotSysCallRateClusterThreshold = HotShardClusterRcaConfig.DEFAULT_IO_TOTAL_SYSCALL_RATE_CLUSTER_THRESHOLD;
+        this.maxTrackedShardsPerIndex = HotShardClusterRcaConfig.DEFAULT_MAX_TRACKED_SHARDS_PER_INDEX;
+        this.medianRelativeError = HotShardClusterRcaConfig.DEFAULT_MEDIAN_RELATIVE_ERROR;
     }
 
     private void populateResourceInfoTable(String indexName, NodeShardKey nodeShardKey,
-                                           double metricValue, Table<String, NodeShardKey, Double> metricMap) {
-        if (null == metricMap.get(indexName, nodeShardKey)) {
-            metricMap.put(indexName, nodeShardKey, metricValue);
-        } else {
-            double existingOccurence = metricMap.get(indexName, nodeShardKey);
-            metricMap.put(indexName, nodeShardKey, existingOccurence + metricValue);
-        }
+                                           double metricValue, Map<String, ShardUsageEstimator> metricMap) {
+        metricMap.computeIfAbsent(indexName, k -> new ShardUsageEstimator(maxTrackedShardsPerIndex, medianRelativeError))
+                .add(nodeShardKey, metricValue);
     }
 
     private void consumeFlowUnit(ResourceFlowUnit<HotNodeSummary> resourceFlowUnit) {
@@ -108,50 +109,32 @@ public class HotShardClusterRca extends Rca<ResourceFlowUnit<HotClusterSummary>>
         }
     }
 
-    /**
-     * Evaluates the threshold value for resource usage across shards for given index.
-     * @param perIndexShardInfo Resource usage across shards for given index
-     * @param thresholdInPercentage Threshold for the resource in percentage
-     *
-     */
-    private double getThresholdValue(Map<NodeShardKey, Double> perIndexShardInfo, double thresholdInPercentage) {
-        // To handle the outlier(s) in the data, using median instead of mean
-        double[] perIndexShardUsage = perIndexShardInfo.values().stream().mapToDouble(usage -> usage).toArray();
-        Arrays.sort(perIndexShardUsage);
-
-        double median;
-        int length = perIndexShardUsage.length;
-        if (length % 2 != 0) {
-            median = perIndexShardUsage[length / 2];
-        } else {
-            median = (perIndexShardUsage[(length - 1) / 2] + perIndexShardUsage[length / 2]) / 2.0;
-        }
-        return (median * (1 + thresholdInPercentage));
-    }
-
     /**
      * Finds hot shard(s) across an index and creates HotResourceSummary for them.
-     * @param resourceInfoTable Guava Table with 'Index_Name', 'NodeShardKey' and 'UsageValue'
+     * @param resourceInfoTable Usage of the shards per 'Index_Name'
      * @param thresholdInPercentage Threshold for the resource in percentage
      * @param hotResourceSummaryList Summary List for hot shards
      * @param resource Resource message object defined in protobuf
      *
      */
-    private void findHotShardAndCreateSummary(Table<String, NodeShardKey, Double> resourceInfoTable, double thresholdInPercentage,
+    private void findHotShardAndCreateSummary(Map<String, ShardUsageEstimator> resourceInfoTable, double thresholdInPercentage,
                                               List<HotResourceSummary> hotResourceSummaryList, Resource resource) {
-        for (String indexName : resourceInfoTable.rowKeySet()) {
-            Map<NodeShardKey, Double> perIndexShardInfo = resourceInfoTable.row(indexName);
-            double thresholdValue = getThresholdValue(perIndexShardInfo, thresholdInPercentage);
-            for (Map.Entry<NodeShardKey, Double> shardInfo : perIndexShardInfo.entrySet()) {
-                if (shardInfo.getValue() > thresholdValue) {
-                    // Shard Identifier is represented by "Node_ID Index_Name Shard_ID" string
-                    String shardIdentifier =  String.join(" ", new String[]
-                            { shardInfo.getKey().getNodeId(), indexName, shardInfo.getKey().getShardId() });
-
-                    // Add to hotResourceSummaryList
-                    hotResourceSummaryList.add(new HotResourceSummary(resource, thresholdValue,
-                            shardInfo.getValue(), SLIDING_WINDOW_IN_SECONDS, shardIdentifier));
-                }
+        for (Map.Entry<String, ShardUsageEstimator> indexInfo : resourceInfoTable.entrySet()) {
+            String indexName = indexInfo.getKey();
+            ShardUsageEstimator perIndexShardInfo = indexInfo.getValue();
+            if (!perIndexShardInfo.isExact()) {
+                LOG.debug("rca: Index {} has more than {} shards, median usage per report {} is estimated", indexName,
+                        maxTrackedShardsPerIndex, perIndexShardInfo.getMedian());
+            }
+            // To handle the outlier(s) in the data, using median instead of mean
+            for (ShardUsageEstimator.HotShard shardInfo : perIndexShardInfo.getHotShards(thresholdInPercentage)) {
+                // Shard Identifier is represented by "Node_ID Index_Name Shard_ID" string
+                String shardIdentifier =  String.join(" ", new String[]
+                        { shardInfo.getKey().getNodeId(), indexName, shardInfo.getKey().getShardId() });
+
+                // Add to hotResourceSummaryList
+                hotResourceSummaryList.add(new HotResourceSummary(resource, shardInfo.getThreshold(),
+                        shardInfo.getUsage(), SLIDING_WINDOW_IN_SECONDS, shardIdentifier));
             }
         }
     }
@@ -238,6 +221,8 @@ public class HotShardClusterRca extends Rca<ResourceFlowUnit<HotClusterSummary>>
         cpuUtilizationClusterThreshold = configObj.getCpuUtilizationClusterThreshold();
         ioTotThroughputClusterThreshold = configObj.getIoTotThroughputClusterThreshold();
         ioTotSysCallRateClusterThreshold = configObj.getIoTotSysCallRateClusterThreshold();
+        maxTrackedShardsPerIndex = configObj.getMaxTrackedShardsPerIndex();
+        medianRelativeError = configObj.getMedianRelativeError();
     }
 
     /**
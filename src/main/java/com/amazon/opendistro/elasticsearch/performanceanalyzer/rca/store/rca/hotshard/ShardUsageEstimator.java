@@ -0,0 +1,234 @@
+/*
+ * Copyright 2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.store.rca.hotshard;
+
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.metricsdb.QuantileSketch;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streaming estimate of the resource usage of the shards of one index, for the median and the
+ * most loaded shards, in bounded memory.
+ *
+ * <p>Usage values are added as the HotShardSummary flow units arrive, so a shard is usually
+ * reported once per evaluation of the RCA over its period. The estimator keeps:
+ * <ul>
+ * <li>the total usage and the number of reports of the {@code maxTrackedShards} shards with the
+ * highest usage per report, in a min-heap.</li>
+ * <li>a {@link QuantileSketch} of the individual reports, for the median.</li>
+ * </ul>
+ *
+ * <p>As long as the index has no more than {@code maxTrackedShards} shards, every shard is tracked
+ * and a shard is hot when its total usage is above the median of the totals, as before. Beyond
+ * that, the totals of the shards that are not tracked are unknown, so the comparison is done per
+ * report: a shard is hot when its usage per report is above the median of all the reports, which
+ * the sketch estimates within its relative error. Only the tracked shards can be reported. A shard
+ * that was dropped from the heap and reported again starts over from its new reports.
+ */
+public class ShardUsageEstimator {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final int maxTrackedShards;
+    private final QuantileSketch sketch;
+    private final Map<NodeShardKey, Integer> positions;
+    // Min-heap on usage per report of the tracked shards, along with the order in which they were
+    // first seen.
+    private NodeShardKey[] keys;
+    private double[] usages;
+    private int[] reports;
+    private long[] arrivals;
+    private int size;
+    private long nextArrival;
+    private boolean truncated;
+
+    /** A shard whose usage is above the threshold derived from the median. */
+    public static class HotShard {
+        private final NodeShardKey key;
+        private final double usage;
+        private final double threshold;
+
+        HotShard(NodeShardKey key, double usage, double threshold) {
+            this.key = key;
+            this.usage = usage;
+            this.threshold = threshold;
+        }
+
+        public NodeShardKey getKey() {
+            return key;
+        }
+
+        /** The total usage of the shard over the reports it was tracked for. */
+        public double getUsage() {
+            return usage;
+        }
+
+        /** The usage above which the shard is hot, over the same number of reports. */
+        public double getThreshold() {
+            return threshold;
+        }
+    }
+
+    public ShardUsageEstimator(int maxTrackedShards, double medianRelativeError) {
+        if (maxTrackedShards < 1) {
+            throw new IllegalArgumentException("At least one shard must be tracked: " + maxTrackedShards);
+        }
+        this.maxTrackedShards = maxTrackedShards;
+        this.sketch = new QuantileSketch(medianRelativeError, QuantileSketch.DEFAULT_MAX_BINS);
+        this.positions = new HashMap<>();
+        int capacity = Math.min(INITIAL_CAPACITY, maxTrackedShards);
+        this.keys = new NodeShardKey[capacity];
+        this.usages = new double[capacity];
+        this.reports = new int[capacity];
+        this.arrivals = new long[capacity];
+    }
+
+    public void add(NodeShardKey shard, double usage) {
+        sketch.add(usage);
+        Integer position = positions.get(shard);
+        if (position != null) {
+            usages[position] += usage;
+            reports[position] += 1;
+            siftDown(position);
+            siftUp(positions.get(shard));
+        } else if (size < maxTrackedShards) {
+            if (size == keys.length) {
+                grow();
+            }
+            set(size, shard, usage, 1, nextArrival++);
+            size++;
+            siftUp(size - 1);
+        } else {
+            truncated = true;
+            if (usage > perReport(0)) {
+                positions.remove(keys[0]);
+                set(0, shard, usage, 1, nextArrival++);
+                siftDown(0);
+            }
+        }
+    }
+
+    /** True while every reported shard is tracked, in which case the estimates are exact. */
+    public boolean isExact() {
+        return !truncated;
+    }
+
+    /**
+     * The median the thresholds are derived from, NaN if no shard was reported. While every shard
+     * is tracked, it is the exact median of the total usage of the shards. Beyond that, it is the
+     * estimated median of the individual reports.
+     */
+    public double getMedian() {
+        if (size == 0) {
+            return Double.NaN;
+        }
+        if (truncated) {
+            return sketch.getQuantile(0.5);
+        }
+        double[] sorted = Arrays.copyOf(usages, size);
+        Arrays.sort(sorted);
+        if (size % 2 != 0) {
+            return sorted[size / 2];
+        }
+        return (sorted[(size - 1) / 2] + sorted[size / 2]) / 2.0;
+    }
+
+    /**
+     * The tracked shards whose usage is more than {@code thresholdInPercentage} above the median,
+     * in the order they were first reported. When not every shard is tracked, the threshold of a
+     * shard is the median per report scaled to the number of reports of the shard.
+     */
+    public List<HotShard> getHotShards(double thresholdInPercentage) {
+        double threshold = getMedian() * (1 + thresholdInPercentage);
+        List<Integer> found = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            if (usages[i] > thresholdFor(i, threshold)) {
+                found.add(i);
+            }
+        }
+        found.sort((a, b) -> Long.compare(arrivals[a], arrivals[b]));
+        List<HotShard> shards = new ArrayList<>(found.size());
+        for (int i : found) {
+            shards.add(new HotShard(keys[i], usages[i], thresholdFor(i, threshold)));
+        }
+        return shards;
+    }
+
+    private double thresholdFor(int i, double threshold) {
+        return truncated ? threshold * reports[i] : threshold;
+    }
+
+    private double perReport(int i) {
+        return usages[i] / reports[i];
+    }
+
+    private void grow() {
+        int capacity = (int) Math.min((long) keys.length * 2, maxTrackedShards);
+        keys = Arrays.copyOf(keys, capacity);
+        usages = Arrays.copyOf(usages, capacity);
+        reports = Arrays.copyOf(reports, capacity);
+        arrivals = Arrays.copyOf(arrivals, capacity);
+    }
+
+    private void set(int i, NodeShardKey shard, double usage, int reportCount, long arrival) {
+        keys[i] = shard;
+        usages[i] = usage;
+        reports[i] = reportCount;
+        arrivals[i] = arrival;
+        positions.put(shard, i);
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (perReport(parent) <= perReport(i)) {
+                return;
+            }
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int smallest = i;
+            int left = 2 * i + 1;
+            int right = left + 1;
+            if (left < size && perReport(left) < perReport(smallest)) {
+                smallest = left;
+            }
+            if (right < size && perReport(right) < perReport(smallest)) {
+                smallest = right;
+            }
+            if (smallest == i) {
+                return;
+            }
+            swap(i, smallest);
+            i = smallest;
+        }
+    }
+
+    private void swap(int i, int j) {
+        NodeShardKey key = keys[i];
+        double usage = usages[i];
+        int reportCount = reports[i];
+        long arrival = arrivals[i];
+        set(i, keys[j], usages[j], reports[j], arrivals[j]);
+        set(j, key, usage, reportCount, arrival);
+    }
+}
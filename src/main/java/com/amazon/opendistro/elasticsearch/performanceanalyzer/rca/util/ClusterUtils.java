@@ -1,6 +1,7 @@
 package com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.util;
 
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.AppContext;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.util.ClusterMembership;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.util.InstanceDetails;
 import java.util.List;
 
@@ -15,4 +16,12 @@ public class ClusterUtils {
                     x -> hostId.equals(x.getInstanceId())
             );
   }
+
+  /**
+   * Same as {@link #isHostIdInCluster(InstanceDetails.Id, List)} but uses the id index of the
+   * membership snapshot instead of scanning the instances.
+   */
+  public static boolean isHostIdInCluster(final InstanceDetails.Id hostId, final ClusterMembership clusterMembership) {
+    return clusterMembership.containsInstance(hostId);
+  }
 }
@@ -23,6 +23,7 @@ import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.RcaController
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.reader_writer_shared.Event;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.util.JsonConverter;
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Objects;
 import com.google.common.collect.ImmutableList;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -42,6 +43,12 @@ public class ClusterDetailsEventProcessor implements EventProcessor {
    */
   private volatile ImmutableList<NodeDetails> nodesDetails = null;
 
+  /**
+   * Incremented every time the node details change. Consumers use it to tell if the snapshots they
+   * derived from the node details are stale without comparing the node lists.
+   */
+  private volatile long nodesDetailsVersion = 0;
+
   private final ConfigOverridesApplier overridesApplier;
 
   public ClusterDetailsEventProcessor() {
@@ -59,6 +66,7 @@ public class ClusterDetailsEventProcessor implements EventProcessor {
         builder.add(new NodeDetails(oldDetails));
       }
       this.nodesDetails = builder.build();
+      this.nodesDetailsVersion = other.nodesDetailsVersion;
       this.overridesApplier = other.getOverridesApplier();
     } else {
       this.overridesApplier = new ConfigOverridesApplier();
@@ -128,8 +136,18 @@ public class ClusterDetailsEventProcessor implements EventProcessor {
 
   }
 
-  public void setNodesDetails(final List<NodeDetails> nodesDetails) {
-    this.nodesDetails = ImmutableList.copyOf(nodesDetails);
+  public synchronized void setNodesDetails(final List<NodeDetails> nodesDetails) {
+    final ImmutableList<NodeDetails> newNodesDetails = ImmutableList.copyOf(nodesDetails);
+    if (!newNodesDetails.equals(this.nodesDetails)) {
+      this.nodesDetails = newNodesDetails;
+      // The version is bumped after the list is published, so a reader that sees the new version
+      // also sees the new list.
+      this.nodesDetailsVersion++;
+    }
+  }
+
+  public long getNodesDetailsVersion() {
+    return nodesDetailsVersion;
   }
 
   public List<NodeDetails> getNodesDetails() {
@@ -203,6 +221,27 @@ public class ClusterDetailsEventProcessor implements EventProcessor {
       this.grpcPort = grpcPort;
     }
 
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof NodeDetails)) {
+        return false;
+      }
+      NodeDetails that = (NodeDetails) o;
+      return grpcPort == that.grpcPort
+          && Objects.equal(id, that.id)
+          && Objects.equal(hostAddress, that.hostAddress)
+          && Objects.equal(role, that.role)
+          && Objects.equal(isMasterNode, that.isMasterNode);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hashCode(id, hostAddress, role, isMasterNode, grpcPort);
+    }
+
     @Override
     public String toString() {
       StringBuilder stringBuilder = new StringBuilder();
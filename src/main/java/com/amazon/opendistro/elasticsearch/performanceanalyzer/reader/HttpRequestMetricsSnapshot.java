@@ -20,11 +20,14 @@ import com.amazon.opendistro.elasticsearch.performanceanalyzer.metrics.AllMetric
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.metrics.AllMetrics.HttpDimension;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.metrics.AllMetrics.HttpMetric;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.metricsdb.MetricsDB;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.metricsdb.QuantileSketch;
 import java.sql.Connection;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.jooq.BatchBindStep;
@@ -310,6 +313,32 @@ public class HttpRequestMetricsSnapshot implements Removable {
     return create.select(fields).from(fetchLatencyTable()).groupBy(groupByFields).fetch();
   }
 
+  /**
+   * Builds the latency distribution of the completed requests, grouped like
+   * {@link #fetchLatencyByOp()}.
+   *
+   * @return a sketch for each distinct (operation, exception, indices, status), in that order.
+   */
+  public Map<List<String>, QuantileSketch> fetchLatencySketches() {
+    Map<List<String>, QuantileSketch> sketches = new HashMap<>();
+    for (Record r : create.select().from(fetchLatencyTable()).fetch()) {
+      Object latency = r.get(Fields.LAT.toString());
+      if (latency == null) {
+        continue;
+      }
+      List<String> key =
+          Arrays.asList(
+              Objects.toString(r.get(Fields.OPERATION.toString()), null),
+              Objects.toString(r.get(Fields.EXCEPTION.toString()), null),
+              Objects.toString(r.get(Fields.INDICES.toString()), null),
+              Objects.toString(r.get(Fields.HTTP_RESP_CODE.toString()), null));
+      sketches
+          .computeIfAbsent(key, k -> new QuantileSketch())
+          .add(Double.parseDouble(latency.toString()));
+    }
+    return sketches;
+  }
+
   /**
    * This function returns requests with a missing end event. A request maybe long running and the
    * end event might not have occured in this snapshot.
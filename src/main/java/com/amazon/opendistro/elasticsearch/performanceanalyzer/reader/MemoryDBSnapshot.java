@@ -19,7 +19,9 @@ import com.amazon.opendistro.elasticsearch.performanceanalyzer.DBUtils;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.metrics.AllMetrics.MetricName;
 import java.sql.Connection;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -27,6 +29,7 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.jooq.BatchBindStep;
 import org.jooq.Condition;
+import org.jooq.Cursor;
 import org.jooq.DSLContext;
 import org.jooq.Field;
 import org.jooq.Record;
@@ -45,6 +48,21 @@ public class MemoryDBSnapshot implements Removable {
 
   private static final Field<Double> WEIGHT_FIELD = DSL.field(WEIGHT, Double.class);
 
+  // Orders the dimension keys the way SQLite orders GROUP BY groups: NULLs first, then by value.
+  private static final Comparator<String> NULLS_FIRST =
+      Comparator.nullsFirst(Comparator.naturalOrder());
+
+  private static final Comparator<List<String>> DIMENSION_KEY_COMPARATOR =
+      (left, right) -> {
+        for (int i = 0; i < left.size(); i++) {
+          int cmp = NULLS_FIRST.compare(left.get(i), right.get(i));
+          if (cmp != 0) {
+            return cmp;
+          }
+        }
+        return 0;
+      };
+
   protected final DSLContext create;
   protected final String tableName;
 
@@ -225,6 +243,119 @@ public class MemoryDBSnapshot implements Removable {
     }
   }
 
+  /**
+   * Same as {@link #alignWindow}, but computes the aligned window in process instead of in SQL.
+   *
+   * <p>The rows of both windows are read once and hash-merged by their dimension values, into
+   * primitive arrays that hold, for each group, the sum of metric * weight per metric and the sum of
+   * the weights. The aligned rows are then written with a single batched insert. The arithmetic
+   * mirrors the SQL path so that both produce the same numbers: the weights are integers, the
+   * metrics are summed in the order the rows are scanned, left window first, NULL metrics are
+   * skipped but their rows still count in the weight, and a group with no metric value gets NULL.
+   * Groups are inserted in the order SQLite emits them.
+   *
+   * @param leftWindow MemoryDBSnapshot for the /dev/shm/performanceanalyzer file written before t.
+   * @param rightWindow MemoryDBSnapshot for the /dev/shm/performanceanalyzer file written after t
+   * @param a aligned window start time.
+   * @param b aligned window end time.
+   * @param t leftWindow end time, as well as right window start time
+   */
+  public void alignWindowInMemory(
+      MemoryDBSnapshot leftWindow, MemoryDBSnapshot rightWindow, long t, long a, long b) {
+    int dimensionCount = getDimensions().size();
+    int metricCount = getMetrics().size();
+    WindowAccumulator accumulator = new WindowAccumulator(dimensionCount, metricCount);
+    accumulator.add(leftWindow, t - a);
+    accumulator.add(rightWindow, b - t);
+
+    if (dimensionCount == 0 && accumulator.groups.isEmpty()) {
+      // An aggregate without GROUP BY returns a row even when there is nothing to aggregate.
+      insertMultiRows(new Object[][] {new Object[metricCount]});
+      return;
+    }
+
+    List<List<String>> keys = new ArrayList<>(accumulator.groups.keySet());
+    keys.sort(DIMENSION_KEY_COMPARATOR);
+    Object[][] rows = new Object[keys.size()][];
+    for (int i = 0; i < keys.size(); i++) {
+      List<String> key = keys.get(i);
+      int group = accumulator.groups.get(key);
+      Object[] row = new Object[dimensionCount + metricCount];
+      for (int d = 0; d < dimensionCount; d++) {
+        row[d] = key.get(d);
+      }
+      long weight = accumulator.weights[group];
+      for (int m = 0; m < metricCount; m++) {
+        int slot = group * metricCount + m;
+        if (accumulator.hasValue[slot] && weight != 0) {
+          row[dimensionCount + m] = accumulator.sums[slot] / weight;
+        }
+      }
+      rows[i] = row;
+    }
+    insertMultiRows(rows);
+  }
+
+  /**
+   * Time-weighted sums of the metrics of the two windows, per dimension key. The group of a key is
+   * its index in the primitive arrays, the metrics of a group are stored contiguously.
+   */
+  private class WindowAccumulator {
+    private final int dimensionCount;
+    private final int metricCount;
+    private final Map<List<String>, Integer> groups = new HashMap<>();
+    private long[] weights = new long[16];
+    private double[] sums;
+    private boolean[] hasValue;
+
+    private WindowAccumulator(int dimensionCount, int metricCount) {
+      this.dimensionCount = dimensionCount;
+      this.metricCount = metricCount;
+      this.sums = new double[weights.length * metricCount];
+      this.hasValue = new boolean[weights.length * metricCount];
+    }
+
+    private void add(MemoryDBSnapshot window, long weight) {
+      List<Field<?>> fields = new ArrayList<>(dimensionCount + metricCount);
+      fields.addAll(getDimensions());
+      fields.addAll(getMetrics());
+      try (Cursor<Record> cursor =
+          create.select(fields).from(DSL.table(window.getTableName())).fetchLazy()) {
+        for (Record record : cursor) {
+          String[] dimensions = new String[dimensionCount];
+          for (int d = 0; d < dimensionCount; d++) {
+            dimensions[d] = (String) record.get(d);
+          }
+          int group = groupOf(Arrays.asList(dimensions));
+          weights[group] += weight;
+          for (int m = 0; m < metricCount; m++) {
+            Double value = (Double) record.get(dimensionCount + m);
+            if (value != null) {
+              int slot = group * metricCount + m;
+              sums[slot] += value * weight;
+              hasValue[slot] = true;
+            }
+          }
+        }
+      }
+    }
+
+    private int groupOf(List<String> key) {
+      Integer group = groups.get(key);
+      if (group != null) {
+        return group;
+      }
+      group = groups.size();
+      if (group == weights.length) {
+        weights = Arrays.copyOf(weights, group * 2);
+        sums = Arrays.copyOf(sums, group * 2 * metricCount);
+        hasValue = Arrays.copyOf(hasValue, group * 2 * metricCount);
+      }
+      groups.put(key, group);
+      return group;
+    }
+  }
+
   /**
    * Precondition: The order of columns in each values[i] should match the table we have created in
    * the constructor. We cannot check this programmatically. People who write code calling this
@@ -0,0 +1,520 @@
+/*
+ * Copyright 2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.reader;
+
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.collectors.StatExceptionCode;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.collectors.StatsCollector;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.metrics.MetricDimension;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.metrics.MetricValue;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.telemetry.Counter;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.telemetry.TelemetryRegistry;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Decodes one line of a metric event, a flat JSON object such as
+ * {"CBType":"request","CB_EstimatedSize":0,"CB_TrippedEvents":0,"CB_ConfiguredSize":1.0E9},
+ * straight into the row that is bound to the in-memory table of the metric.
+ *
+ * <p>The decoder is built from the dimensions and values of a {@link MetricProperties}. It scans
+ * the line in place: keys are matched against the known field names without being copied, values
+ * of unknown keys are skipped, numbers are parsed without going through a String and only the
+ * values of dimensions become Strings. A line that is not well formed JSON is rejected as a whole
+ * and counted in {@code pa_reader_malformed_metric_lines}, labelled with what was wrong with it.
+ *
+ * <p>The decoder keeps no state between calls and can be shared between threads.
+ */
+class MetricLineDecoder {
+  private static final Logger LOG = LogManager.getLogger(MetricLineDecoder.class);
+
+  enum Error {
+    UNEXPECTED_END("unexpected_end"),
+    UNEXPECTED_CHARACTER("unexpected_character"),
+    BAD_NUMBER("bad_number"),
+    BAD_ESCAPE("bad_escape"),
+    UNEXPECTED_TYPE("unexpected_type");
+
+    private final String label;
+    private final Counter counter;
+
+    Error(String label) {
+      this.label = label;
+      this.counter = TelemetryRegistry.instance().counter(
+          "pa_reader_malformed_metric_lines", "Number of metric event lines rejected by the reader.", "error", label);
+    }
+
+    /** Errors are returned from the scanning methods as negative positions. */
+    int code() {
+      return -1 - ordinal();
+    }
+
+    static Error fromCode(int code) {
+      return values()[-1 - code];
+    }
+  }
+
+  private static final double[] POWERS_OF_TEN = {
+      1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+      1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+  };
+  private static final int MAX_FAST_PATH_DIGITS = 18;
+
+  private final String[] names;
+  private final boolean[] isDimension;
+  private final int[] rowIndex;
+
+  /**
+   * Creates a decoder.
+   *
+   * @param firstIndex The index in the row of the first direct dimension. The derived dimensions
+   *     come before it.
+   * @param dimensions The dimensions read from the line, in row order.
+   * @param values The metric values read from the line, in row order after the dimensions.
+   */
+  MetricLineDecoder(int firstIndex, MetricDimension[] dimensions, MetricValue[] values) {
+    int numFields = dimensions.length + values.length;
+    this.names = new String[numFields];
+    this.isDimension = new boolean[numFields];
+    this.rowIndex = new int[numFields];
+    for (int i = 0; i < dimensions.length; i++) {
+      names[i] = dimensions[i].toString();
+      isDimension[i] = true;
+      rowIndex[i] = firstIndex + i;
+    }
+    for (int i = 0; i < values.length; i++) {
+      int field = dimensions.length + i;
+      names[field] = values[i].toString();
+      rowIndex[field] = firstIndex + field;
+    }
+  }
+
+  /**
+   * Decodes the line between {@code start} and {@code end} into {@code row}.
+   *
+   * @return true if the line is an object with at least one key and the row should be bound;
+   *     false if the line is blank, an empty object or malformed.
+   */
+  boolean decode(String text, int start, int end, Object[] row) {
+    int pos = skipWhitespace(text, start, end);
+    if (pos == end) {
+      return false;
+    }
+    if (text.charAt(pos) != '{') {
+      return reject(Error.UNEXPECTED_CHARACTER, text, start, end);
+    }
+    pos = skipWhitespace(text, pos + 1, end);
+    if (pos < end && text.charAt(pos) == '}') {
+      // Like an empty map from JsonConverter, an empty object has nothing to bind.
+      checkTrailing(text, pos + 1, start, end);
+      return false;
+    }
+
+    while (true) {
+      if (pos >= end) {
+        return reject(Error.UNEXPECTED_END, text, start, end);
+      }
+      if (text.charAt(pos) != '"') {
+        return reject(Error.UNEXPECTED_CHARACTER, text, start, end);
+      }
+      int keyEnd = scanString(text, pos + 1, end);
+      if (keyEnd < 0) {
+        return reject(Error.fromCode(keyEnd), text, start, end);
+      }
+      int field = lookup(text, pos + 1, keyEnd);
+
+      pos = skipWhitespace(text, keyEnd + 1, end);
+      if (pos >= end) {
+        return reject(Error.UNEXPECTED_END, text, start, end);
+      }
+      if (text.charAt(pos) != ':') {
+        return reject(Error.UNEXPECTED_CHARACTER, text, start, end);
+      }
+      pos = skipWhitespace(text, pos + 1, end);
+      pos = field < 0 ? skipValue(text, pos, end) : readValue(text, pos, end, field, row);
+      if (pos < 0) {
+        return reject(Error.fromCode(pos), text, start, end);
+      }
+
+      pos = skipWhitespace(text, pos, end);
+      if (pos >= end) {
+        return reject(Error.UNEXPECTED_END, text, start, end);
+      }
+      char c = text.charAt(pos);
+      if (c == ',') {
+        pos = skipWhitespace(text, pos + 1, end);
+      } else if (c == '}') {
+        return checkTrailing(text, pos + 1, start, end);
+      } else {
+        return reject(Error.UNEXPECTED_CHARACTER, text, start, end);
+      }
+    }
+  }
+
+  private boolean checkTrailing(String text, int pos, int start, int end) {
+    if (skipWhitespace(text, pos, end) != end) {
+      return reject(Error.UNEXPECTED_CHARACTER, text, start, end);
+    }
+    return true;
+  }
+
+  private boolean reject(Error error, String text, int start, int end) {
+    error.counter.inc();
+    StatsCollector.instance().logException(StatExceptionCode.JSON_PARSER_ERROR);
+    LOG.debug("Rejected malformed metric line ({}): {}", error.label, text.substring(start, end));
+    return false;
+  }
+
+  private int lookup(String text, int start, int end) {
+    int length = end - start;
+    for (int field = 0; field < names.length; field++) {
+      String name = names[field];
+      if (name.length() == length && text.regionMatches(start, name, 0, length)) {
+        return field;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Reads the value of a known field into the row.
+   *
+   * @return The position after the value, or a negative error code.
+   */
+  private int readValue(String text, int pos, int end, int field, Object[] row) {
+    if (pos >= end) {
+      return Error.UNEXPECTED_END.code();
+    }
+    int index = rowIndex[field];
+    char c = text.charAt(pos);
+    if (c == '"') {
+      int stringEnd = scanString(text, pos + 1, end);
+      if (stringEnd < 0) {
+        return stringEnd;
+      }
+      String value = unescape(text, pos + 1, stringEnd);
+      if (isDimension[field]) {
+        row[index] = value;
+      } else {
+        row[index] = parseDoubleOrNull(value);
+      }
+      return stringEnd + 1;
+    }
+    if (c == '-' || (c >= '0' && c <= '9')) {
+      int numberEnd = scanNumber(text, pos, end);
+      if (numberEnd < 0) {
+        return numberEnd;
+      }
+      if (isDimension[field]) {
+        row[index] = text.substring(pos, numberEnd);
+      } else {
+        row[index] = parseDouble(text, pos, numberEnd);
+      }
+      return numberEnd;
+    }
+    if (pos + 4 <= end && text.startsWith("true", pos)) {
+      row[index] = isDimension[field] ? "true" : (Object) 1.0;
+      return pos + 4;
+    }
+    if (pos + 5 <= end && text.startsWith("false", pos)) {
+      row[index] = isDimension[field] ? "false" : (Object) 0.0;
+      return pos + 5;
+    }
+    if (pos + 4 <= end && text.startsWith("null", pos)) {
+      row[index] = null;
+      return pos + 4;
+    }
+    if (c == '{' || c == '[') {
+      return Error.UNEXPECTED_TYPE.code();
+    }
+    return Error.UNEXPECTED_CHARACTER.code();
+  }
+
+  /**
+   * Skips the value of an unknown key, including nested objects and arrays.
+   *
+   * @return The position after the value, or a negative error code.
+   */
+  private static int skipValue(String text, int pos, int end) {
+    if (pos >= end) {
+      return Error.UNEXPECTED_END.code();
+    }
+    char c = text.charAt(pos);
+    if (c == '"') {
+      int stringEnd = scanString(text, pos + 1, end);
+      return stringEnd < 0 ? stringEnd : stringEnd + 1;
+    }
+    if (c == '-' || (c >= '0' && c <= '9')) {
+      return scanNumber(text, pos, end);
+    }
+    if (c == '{' || c == '[') {
+      int depth = 0;
+      while (pos < end) {
+        c = text.charAt(pos);
+        if (c == '"') {
+          int stringEnd = scanString(text, pos + 1, end);
+          if (stringEnd < 0) {
+            return stringEnd;
+          }
+          pos = stringEnd;
+        } else if (c == '{' || c == '[') {
+          depth += 1;
+        } else if (c == '}' || c == ']') {
+          depth -= 1;
+          if (depth == 0) {
+            return pos + 1;
+          }
+        }
+        pos += 1;
+      }
+      return Error.UNEXPECTED_END.code();
+    }
+    if (pos + 4 <= end && (text.startsWith("true", pos) || text.startsWith("null", pos))) {
+      return pos + 4;
+    }
+    if (pos + 5 <= end && text.startsWith("false", pos)) {
+      return pos + 5;
+    }
+    return Error.UNEXPECTED_CHARACTER.code();
+  }
+
+  private static int skipWhitespace(String text, int pos, int end) {
+    while (pos < end) {
+      char c = text.charAt(pos);
+      if (c != ' ' && c != '\t' && c != '\r' && c != '\n') {
+        break;
+      }
+      pos += 1;
+    }
+    return pos;
+  }
+
+  /**
+   * Finds the closing quote of a string whose content starts at {@code pos}.
+   *
+   * @return The position of the closing quote, or a negative error code.
+   */
+  private static int scanString(String text, int pos, int end) {
+    while (pos < end) {
+      char c = text.charAt(pos);
+      if (c == '"') {
+        return pos;
+      }
+      if (c == '\\') {
+        if (pos + 1 >= end) {
+          return Error.UNEXPECTED_END.code();
+        }
+        char escaped = text.charAt(pos + 1);
+        if (escaped == 'u') {
+          if (pos + 6 > end) {
+            return Error.UNEXPECTED_END.code();
+          }
+          for (int i = pos + 2; i < pos + 6; i++) {
+            if (Character.digit(text.charAt(i), 16) < 0) {
+              return Error.BAD_ESCAPE.code();
+            }
+          }
+          pos += 6;
+          continue;
+        }
+        if ("\"\\/bfnrt".indexOf(escaped) < 0) {
+          return Error.BAD_ESCAPE.code();
+        }
+        pos += 2;
+        continue;
+      }
+      if (c < 0x20) {
+        return Error.UNEXPECTED_CHARACTER.code();
+      }
+      pos += 1;
+    }
+    return Error.UNEXPECTED_END.code();
+  }
+
+  /**
+   * Unescapes the content of a string that {@link #scanString} accepted. Strings without escapes,
+   * which is all of them in practice, are copied out with a single substring.
+   */
+  private static String unescape(String text, int start, int end) {
+    int backslash = text.indexOf('\\', start);
+    if (backslash < 0 || backslash >= end) {
+      return text.substring(start, end);
+    }
+    StringBuilder sb = new StringBuilder(end - start);
+    sb.append(text, start, backslash);
+    int pos = backslash;
+    while (pos < end) {
+      char c = text.charAt(pos);
+      if (c != '\\') {
+        sb.append(c);
+        pos += 1;
+        continue;
+      }
+      char escaped = text.charAt(pos + 1);
+      switch (escaped) {
+        case 'b':
+          sb.append('\b');
+          break;
+        case 'f':
+          sb.append('\f');
+          break;
+        case 'n':
+          sb.append('\n');
+          break;
+        case 'r':
+          sb.append('\r');
+          break;
+        case 't':
+          sb.append('\t');
+          break;
+        case 'u':
+          sb.append((char) Integer.parseInt(text.substring(pos + 2, pos + 6), 16));
+          pos += 4;
+          break;
+        default:
+          sb.append(escaped);
+          break;
+      }
+      pos += 2;
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Checks that a JSON number starts at {@code pos}.
+   *
+   * @return The position after the number, or a negative error code.
+   */
+  private static int scanNumber(String text, int pos, int end) {
+    if (text.charAt(pos) == '-') {
+      pos += 1;
+    }
+    int digitsStart = pos;
+    pos = skipDigits(text, pos, end);
+    if (pos == digitsStart || (text.charAt(digitsStart) == '0' && pos - digitsStart > 1)) {
+      return Error.BAD_NUMBER.code();
+    }
+    if (pos < end && text.charAt(pos) == '.') {
+      int fractionStart = pos + 1;
+      pos = skipDigits(text, fractionStart, end);
+      if (pos == fractionStart) {
+        return Error.BAD_NUMBER.code();
+      }
+    }
+    if (pos < end && (text.charAt(pos) == 'e' || text.charAt(pos) == 'E')) {
+      pos += 1;
+      if (pos < end && (text.charAt(pos) == '+' || text.charAt(pos) == '-')) {
+        pos += 1;
+      }
+      int exponentStart = pos;
+      pos = skipDigits(text, exponentStart, end);
+      if (pos == exponentStart) {
+        return Error.BAD_NUMBER.code();
+      }
+    }
+    return pos;
+  }
+
+  private static int skipDigits(String text, int pos, int end) {
+    while (pos < end) {
+      char c = text.charAt(pos);
+      if (c < '0' || c > '9') {
+        break;
+      }
+      pos += 1;
+    }
+    return pos;
+  }
+
+  /**
+   * Parses a number that {@link #scanNumber} accepted.
+   *
+   * <p>When the significant digits fit in a long that a double represents exactly and the decimal
+   * exponent is within the exactly representable powers of ten, the result is a single correctly
+   * rounded multiplication or division. Anything else goes through {@link Double#parseDouble}.
+   */
+  static double parseDouble(String text, int start, int end) {
+    int pos = start;
+    boolean negative = text.charAt(pos) == '-';
+    if (negative) {
+      pos += 1;
+    }
+    long mantissa = 0;
+    int digits = 0;
+    int exponent = 0;
+    boolean fastPath = true;
+    for (; pos < end; pos++) {
+      char c = text.charAt(pos);
+      if (c >= '0' && c <= '9') {
+        if (mantissa != 0 || c != '0') {
+          digits += 1;
+        }
+        mantissa = mantissa * 10 + (c - '0');
+        if (digits > MAX_FAST_PATH_DIGITS) {
+          fastPath = false;
+          break;
+        }
+      } else {
+        break;
+      }
+    }
+    if (fastPath && pos < end && text.charAt(pos) == '.') {
+      for (pos = pos + 1; pos < end; pos++) {
+        char c = text.charAt(pos);
+        if (c < '0' || c > '9') {
+          break;
+        }
+        if (mantissa != 0 || c != '0') {
+          digits += 1;
+        }
+        mantissa = mantissa * 10 + (c - '0');
+        exponent -= 1;
+        if (digits > MAX_FAST_PATH_DIGITS) {
+          fastPath = false;
+          break;
+        }
+      }
+    }
+    if (fastPath && pos < end) {
+      // An exponent: 'e' or 'E', an optional sign and digits.
+      pos += 1;
+      boolean negativeExponent = text.charAt(pos) == '-';
+      if (negativeExponent || text.charAt(pos) == '+') {
+        pos += 1;
+      }
+      int explicitExponent = 0;
+      for (; pos < end && explicitExponent < 1000; pos++) {
+        explicitExponent = explicitExponent * 10 + (text.charAt(pos) - '0');
+      }
+      if (pos < end) {
+        fastPath = false;
+      }
+      exponent += negativeExponent ? -explicitExponent : explicitExponent;
+    }
+    if (!fastPath || mantissa > (1L << 53) || exponent < -22 || exponent > 22) {
+      return Double.parseDouble(text.substring(start, end));
+    }
+    double value = exponent >= 0 ? mantissa * POWERS_OF_TEN[exponent] : mantissa / POWERS_OF_TEN[-exponent];
+    return negative ? -value : value;
+  }
+
+  private static Double parseDoubleOrNull(String value) {
+    try {
+      return Double.valueOf(value);
+    } catch (NumberFormatException e) {
+      return null;
+    }
+  }
+}
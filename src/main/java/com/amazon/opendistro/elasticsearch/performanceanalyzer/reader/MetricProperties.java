@@ -96,6 +96,9 @@ public class MetricProperties {
 
   private Map<String, Condition> inMemoryTableWhereClauseMap = new HashMap<>();
 
+  // decodes the lines of a metric event straight into rows of the in-memory table.
+  private MetricLineDecoder lineDecoder;
+
   public MetricProperties(
       MetricDimension[] derivedDimension,
       MetricDimension[] dimensions,
@@ -119,6 +122,7 @@ public class MetricProperties {
     this.directDimensions = dimensions.clone();
     this.metadata = values.clone();
     this.inMemoryTableSelectFieldsMap = new HashMap<>();
+    this.lineDecoder = new MetricLineDecoder(this.derivedDimension.length, directDimensions, metadata);
 
     initializeFields();
 
@@ -217,14 +221,14 @@ public class MetricProperties {
     if (event.value.isEmpty()) {
       return false;
     }
-    String[] lines = event.value.split(System.getProperty("line.separator"));
+    String firstLine = getFirstLine(event.value);
 
     // First line should be
     // {"current_time":1566152878118}
     long lastModifiedTime = 0;
     try {
       lastModifiedTime =
-          JsonConverter.getLongValue(lines[0], PerformanceAnalyzerMetrics.METRIC_CURRENT_TIME);
+          JsonConverter.getLongValue(firstLine, PerformanceAnalyzerMetrics.METRIC_CURRENT_TIME);
     } catch (JsonPathNotFoundException ex) {
       LOG.warn(
           String.format(
@@ -237,7 +241,7 @@ public class MetricProperties {
       LOG.warn(
           String.format(
               "Malformed json (%s) ExceptionCode: %s",
-              lines[0], StatExceptionCode.JSON_PARSER_ERROR.toString()),
+              firstLine, StatExceptionCode.JSON_PARSER_ERROR.toString()),
           ex);
       StatsCollector.instance().logException(StatExceptionCode.JSON_PARSER_ERROR);
       return false;
@@ -245,7 +249,7 @@ public class MetricProperties {
       LOG.warn(
           String.format(
               "I/O exception processing metric %s with value: %s.%s" + "ExceptionCode: %s",
-              event.key, lines[0], File.separator, StatExceptionCode.JSON_PARSER_ERROR.toString()),
+              event.key, firstLine, File.separator, StatExceptionCode.JSON_PARSER_ERROR.toString()),
           ex);
       StatsCollector.instance().logException(StatExceptionCode.JSON_PARSER_ERROR);
       return false;
@@ -275,44 +279,57 @@ public class MetricProperties {
       valIndex += 1;
     }
 
-    boolean processed = false;
     // first line is last modified time of the file.
     // We need last modified time in milliseconds. But JDK method
     // File.lastModified() cannot give that precision. So we need
     // to add last modified time by ourselves.
     // See:
     // https://bugs.java.com/bugdatabase/view_bug.do?bug_id=6939260
-
-    for (int lineNum = 1; lineNum < lines.length; lineNum++) {
-      processed = processJsonLine(lines[lineNum], batchHandle, templateMetricVals) || processed;
-    }
-    return processed;
+    return processJsonLines(event.value, firstLine.length(), batchHandle, templateMetricVals);
   }
 
   boolean processJsonLine(String line, BatchBindStep batchHandle, Object[] templateMetricVals) {
-    Map<String, Object> map = JsonConverter.createMapFrom(line);
-
-    if (map.isEmpty()) {
-      return false;
-    }
+    return processJsonLine(line, 0, line.length(), batchHandle, templateMetricVals);
+  }
 
+  private boolean processJsonLine(
+      String text, int start, int end, BatchBindStep batchHandle, Object[] templateMetricVals) {
     Object[] metricVals = templateMetricVals.clone();
-    int startIndex = derivedDimension.length;
-
-    for (int i = 0; i < directDimensions.length; i++) {
-      metricVals[startIndex + i] = map.get(directDimensions[i].toString());
+    if (!lineDecoder.decode(text, start, end, metricVals)) {
+      return false;
     }
+    batchHandle.bind(metricVals);
+    return true;
+  }
 
-    startIndex += directDimensions.length;
-    for (int i = 0; i < metadata.length; i++) {
-      String key = metadata[i].toString();
-      if (map.containsKey(key)) {
-        metricVals[startIndex + i] = map.get(key);
+  /**
+   * Binds a row for every line of an event value, starting at {@code start}. The lines are decoded
+   * in place, without splitting the value. Empty lines are skipped.
+   */
+  boolean processJsonLines(
+      String value, int start, BatchBindStep batchHandle, Object[] templateMetricVals) {
+    String separator = PerformanceAnalyzerMetrics.sMetricNewLineDelimitor;
+    boolean processed = false;
+    int lineStart = start;
+    while (lineStart <= value.length()) {
+      int lineEnd = value.indexOf(separator, lineStart);
+      if (lineEnd < 0) {
+        lineEnd = value.length();
+      }
+      if (lineEnd > lineStart) {
+        processed = processJsonLine(value, lineStart, lineEnd, batchHandle, templateMetricVals) || processed;
       }
+      lineStart = lineEnd + separator.length();
     }
+    return processed;
+  }
 
-    batchHandle.bind(metricVals);
-    return true;
+  /**
+   * The first line of an event value, which holds the time the metric was written at.
+   */
+  static String getFirstLine(String value) {
+    int end = value.indexOf(PerformanceAnalyzerMetrics.sMetricNewLineDelimitor);
+    return end < 0 ? value : value.substring(0, end);
   }
 
   /**
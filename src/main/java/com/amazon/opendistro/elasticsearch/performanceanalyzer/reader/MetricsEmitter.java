@@ -20,10 +20,13 @@ import com.amazon.opendistro.elasticsearch.performanceanalyzer.config.Troublesho
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.metrics.AllMetrics;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.metrics.AllMetrics.CommonMetric;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.metrics.AllMetrics.OSMetrics;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.metrics.MetricsConfiguration;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.metricsdb.Dimensions;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.metricsdb.Metric;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.metricsdb.MetricsDB;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.metricsdb.QuantileSketch;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -32,14 +35,11 @@ import java.util.regex.Pattern;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.jooq.BatchBindStep;
-import org.jooq.Condition;
 import org.jooq.DSLContext;
 import org.jooq.Field;
 import org.jooq.Record;
 import org.jooq.Result;
-import org.jooq.SelectField;
 import org.jooq.SelectHavingStep;
-import org.jooq.impl.DSL;
 
 @SuppressWarnings("serial")
 public class MetricsEmitter {
@@ -84,6 +84,12 @@ public class MetricsEmitter {
         }
       };
 
+  /**
+   * Emits the OS metrics of the threads that served shard requests, by shard, index, operation and
+   * shard role. The OS counters of each thread are split between the requests that ran on it, in
+   * proportion to the time they spent on it in the window, by the {@link ThreadRegistry} of the
+   * window.
+   */
   public static void emitAggregatedOSMetrics(
       final DSLContext create,
       final MetricsDB db,
@@ -91,151 +97,45 @@ public class MetricsEmitter {
       final ShardRequestMetricsSnapshot rqMetricsSnap)
       throws Exception {
 
-    SelectHavingStep<Record> rqTable = rqMetricsSnap.fetchThreadUtilizationRatioTable();
-    SelectHavingStep<Record> osTable = osMetricsSnap.selectAll();
-
-    List<SelectField<?>> fields =
-        new ArrayList<SelectField<?>>() {
-          {
-            this.add(
-                DSL.field(
-                    DSL.name(ShardRequestMetricsSnapshot.Fields.SHARD_ID.toString()),
-                    String.class));
-            this.add(
-                DSL.field(
-                    DSL.name(ShardRequestMetricsSnapshot.Fields.INDEX_NAME.toString()),
-                    String.class));
-            this.add(
-                DSL.field(
-                    DSL.name(ShardRequestMetricsSnapshot.Fields.OPERATION.toString()),
-                    String.class));
-            this.add(
-                DSL.field(
-                    DSL.name(ShardRequestMetricsSnapshot.Fields.SHARD_ROLE.toString()),
-                    String.class));
-          }
-        };
-
-    for (OSMetrics metric : OSMetrics.values()) {
-      fields.add(
-          DSL.field(ShardRequestMetricsSnapshot.Fields.TUTIL.toString(), Double.class)
-              .mul(DSL.field(DSL.name(metric.toString()), Double.class))
-              .as(metric.toString()));
-    }
-
-    ArrayList<Field<?>> groupByFields =
-        new ArrayList<Field<?>>() {
-          {
-            this.add(
-                DSL.field(
-                    DSL.name(ShardRequestMetricsSnapshot.Fields.SHARD_ID.toString()),
-                    String.class));
-            this.add(
-                DSL.field(
-                    DSL.name(ShardRequestMetricsSnapshot.Fields.INDEX_NAME.toString()),
-                    String.class));
-            this.add(
-                DSL.field(
-                    DSL.name(ShardRequestMetricsSnapshot.Fields.OPERATION.toString()),
-                    String.class));
-            this.add(
-                DSL.field(
-                    DSL.name(ShardRequestMetricsSnapshot.Fields.SHARD_ROLE.toString()),
-                    String.class));
-          }
-        };
-
-    List<SelectField<?>> aggFields =
-        new ArrayList<SelectField<?>>() {
-          {
-            this.add(
-                DSL.field(
-                    DSL.name(ShardRequestMetricsSnapshot.Fields.SHARD_ID.toString()),
-                    String.class));
-            this.add(
-                DSL.field(
-                    DSL.name(ShardRequestMetricsSnapshot.Fields.INDEX_NAME.toString()),
-                    String.class));
-            this.add(
-                DSL.field(
-                    DSL.name(ShardRequestMetricsSnapshot.Fields.OPERATION.toString()),
-                    String.class));
-            this.add(
-                DSL.field(
-                    DSL.name(ShardRequestMetricsSnapshot.Fields.SHARD_ROLE.toString()),
-                    String.class));
-          }
-        };
-
-    for (OSMetrics metric : OSMetrics.values()) {
-      aggFields.add(
-          DSL.sum(DSL.field(DSL.name(metric.toString()), Double.class))
-              .as(MetricsDB.SUM + "_" + metric.toString()));
-      aggFields.add(
-          DSL.avg(DSL.field(DSL.name(metric.toString()), Double.class))
-              .as(MetricsDB.AVG + "_" + metric.toString()));
-      aggFields.add(
-          DSL.min(DSL.field(DSL.name(metric.toString()), Double.class))
-              .as(MetricsDB.MIN + "_" + metric.toString()));
-      aggFields.add(
-          DSL.max(DSL.field(DSL.name(metric.toString()), Double.class))
-              .as(MetricsDB.MAX + "_" + metric.toString()));
-    }
-
     long mCurrT = System.currentTimeMillis();
-    Result<Record> res =
-        create
-            .select(aggFields)
-            .from(
-                create
-                    .select(fields)
-                    .from(rqTable)
-                    .join(osTable)
-                    .on(
-                        osTable
-                            .field(OSMetricsSnapshot.Fields.tid.toString(), String.class)
-                            .eq(
-                                rqTable.field(
-                                    OSMetricsSnapshot.Fields.tid.toString(), String.class))))
-            .groupBy(groupByFields)
-            .fetch();
+    ThreadRegistry threadRegistry = rqMetricsSnap.getThreadRegistry();
+    threadRegistry.loadOSMetrics(osMetricsSnap);
+    Collection<ThreadRegistry.OpUtilization> res =
+        threadRegistry.aggregateByOperation(
+            rqMetricsSnap.windowStartTime,
+            rqMetricsSnap.windowStartTime + MetricsConfiguration.SAMPLING_INTERVAL);
     long mFinalT = System.currentTimeMillis();
     LOG.debug("Total time taken for tid corelation: {}", mFinalT - mCurrT);
-    checkInvalidData(rqTable, osTable, create);
+    checkInvalidData(threadRegistry);
 
-    Set<String> metricColumns = osMetricsSnap.getMetricColumns();
+    List<String> dims =
+        new ArrayList<String>() {
+          {
+            this.add(AllMetrics.CommonDimension.SHARD_ID.toString());
+            this.add(AllMetrics.CommonDimension.INDEX_NAME.toString());
+            this.add(AllMetrics.CommonDimension.OPERATION.toString());
+            this.add(AllMetrics.CommonDimension.SHARD_ROLE.toString());
+          }
+        };
 
     mCurrT = System.currentTimeMillis();
-    for (String metricColumn : metricColumns) {
-      List<String> dims =
-          new ArrayList<String>() {
-            {
-              this.add(AllMetrics.CommonDimension.SHARD_ID.toString());
-              this.add(AllMetrics.CommonDimension.INDEX_NAME.toString());
-              this.add(AllMetrics.CommonDimension.OPERATION.toString());
-              this.add(AllMetrics.CommonDimension.SHARD_ROLE.toString());
-            }
-          };
+    for (OSMetrics metric : OSMetrics.values()) {
+      String metricColumn = metric.toString();
       db.createMetric(new Metric<Double>(metricColumn, 0d), dims);
       BatchBindStep handle = db.startBatchPut(new Metric<Double>(metricColumn, 0d), dims);
-      for (Record r : res) {
-        if (r.get(MetricsDB.SUM + "_" + metricColumn) == null) {
+      for (ThreadRegistry.OpUtilization r : res) {
+        if (!r.hasValue(metric)) {
           continue;
         }
-
-        Double sumMetric = Double.parseDouble(r.get(MetricsDB.SUM + "_" + metricColumn).toString());
-        Double avgMetric = Double.parseDouble(r.get(MetricsDB.AVG + "_" + metricColumn).toString());
-        Double minMetric = Double.parseDouble(r.get(MetricsDB.MIN + "_" + metricColumn).toString());
-        Double maxMetric = Double.parseDouble(r.get(MetricsDB.MAX + "_" + metricColumn).toString());
         handle.bind(
-            r.get(ShardRequestMetricsSnapshot.Fields.SHARD_ID.toString()).toString(),
-            r.get(ShardRequestMetricsSnapshot.Fields.INDEX_NAME.toString()).toString(),
-            r.get(ShardRequestMetricsSnapshot.Fields.OPERATION.toString()).toString(),
-            r.get(ShardRequestMetricsSnapshot.Fields.SHARD_ROLE.toString()).toString(),
-            sumMetric,
-            avgMetric,
-            minMetric,
-            maxMetric);
+            r.getShardId(),
+            r.getIndexName(),
+            r.getOperation(),
+            r.getShardRole(),
+            r.getSum(metric),
+            r.getAvg(metric),
+            r.getMin(metric),
+            r.getMax(metric));
       }
 
       if (handle.size() > 0) {
@@ -250,32 +150,18 @@ public class MetricsEmitter {
    * Check if there is any invalid data. Invalid data is if we have tid in request table but not in
    * OS tables.
    *
-   * @param rqTable request table select
-   * @param osTable OS table select
-   * @param create db connection
+   * @param threadRegistry the threads of the window
    */
-  @SuppressWarnings("unchecked")
-  private static void checkInvalidData(
-      SelectHavingStep<Record> rqTable, SelectHavingStep<Record> osTable, final DSLContext create) {
+  private static void checkInvalidData(ThreadRegistry threadRegistry) {
     if (!TroubleshootingConfig.getEnableDevAssert()) {
       return;
     }
 
-    Condition condition = DSL.trueCondition();
-    Field tidField = DSL.field(DSL.name(OSMetricsSnapshot.Fields.tid.toString()), String.class);
-    Field tNameField = DSL.field(DSL.name(OSMetricsSnapshot.Fields.tName.toString()), String.class);
-
-    Set<String> rqSet = DBUtils.getRecordSetByField(rqTable, tidField, condition, create);
-    condition = tNameField.contains("[bulk]").or(tNameField.contains("[search]"));
-    Set<String> osSet = DBUtils.getRecordSetByField(osTable, tidField, condition, create);
-
-    if (!osSet.containsAll(rqSet)) {
+    List<Long> unmatched = threadRegistry.getUnmatchedRequestThreads();
+    if (!unmatched.isEmpty()) {
       String msg =
-          String.format(
-              "[Invalid Data] Unmatched tid between %s and %s", rqSet.toString(), osSet.toString());
+          String.format("[Invalid Data] Unmatched tid %s between requests and OS metrics", unmatched);
       LOG.error(msg);
-      LOG.error(create.select().from(rqTable).fetch().toString());
-      LOG.error(create.select().from(osTable).where(condition).fetch().toString());
       throw new RuntimeException(msg);
     }
   }
@@ -284,13 +170,17 @@ public class MetricsEmitter {
       final DSLContext create, final MetricsDB db, final ShardRequestMetricsSnapshot rqMetricsSnap)
       throws Exception {
     long mCurrT = System.currentTimeMillis();
-    Result<Record> res = rqMetricsSnap.fetchLatencyByOp();
 
     db.createMetric(
         new Metric<Double>(CommonMetric.LATENCY.toString(), 0d), LATENCY_TABLE_DIMENSIONS);
     BatchBindStep handle =
         db.startBatchPut(
             new Metric<Double>(CommonMetric.LATENCY.toString(), 0d), LATENCY_TABLE_DIMENSIONS);
+    db.createSketch(
+        new Metric<Double>(CommonMetric.LATENCY.toString(), 0d), LATENCY_TABLE_DIMENSIONS);
+    BatchBindStep sketchHandle =
+        db.startSketchBatchPut(
+            new Metric<Double>(CommonMetric.LATENCY.toString(), 0d), LATENCY_TABLE_DIMENSIONS);
 
     // Dims need to be changed.
     List<String> shardDims =
@@ -317,66 +207,47 @@ public class MetricsEmitter {
         db.startBatchPut(
             new Metric<Double>(AllMetrics.ShardBulkMetric.DOC_COUNT.toString(), 0d), shardDims);
 
-    for (Record r : res) {
-      Double sumLatency =
-          Double.parseDouble(
-              r.get(
-                      DBUtils.getAggFieldName(
-                          ShardRequestMetricsSnapshot.Fields.LAT.toString(), MetricsDB.SUM))
-                  .toString());
-      Double avgLatency =
-          Double.parseDouble(
-              r.get(
-                      DBUtils.getAggFieldName(
-                          ShardRequestMetricsSnapshot.Fields.LAT.toString(), MetricsDB.AVG))
-                  .toString());
-      Double minLatency =
-          Double.parseDouble(
-              r.get(
-                      DBUtils.getAggFieldName(
-                          ShardRequestMetricsSnapshot.Fields.LAT.toString(), MetricsDB.MIN))
-                  .toString());
-      Double maxLatency =
-          Double.parseDouble(
-              r.get(
-                      DBUtils.getAggFieldName(
-                          ShardRequestMetricsSnapshot.Fields.LAT.toString(), MetricsDB.MAX))
-                  .toString());
-
+    for (ShardRequestTracker.OpLatency latency : rqMetricsSnap.getLatencyByOp()) {
       handle.bind(
-          r.get(ShardRequestMetricsSnapshot.Fields.OPERATION.toString()).toString(),
+          latency.getOperation(),
+          null,
+          null,
           null,
+          latency.getShardId(),
+          latency.getIndexName(),
+          latency.getShardRole(),
+          latency.getSum(),
+          latency.getAvg(),
+          latency.getMin(),
+          latency.getMax());
+      sketchHandle.bind(
+          latency.getOperation(),
           null,
           null,
-          r.get(ShardRequestMetricsSnapshot.Fields.SHARD_ID.toString()).toString(),
-          r.get(ShardRequestMetricsSnapshot.Fields.INDEX_NAME.toString()).toString(),
-          r.get(ShardRequestMetricsSnapshot.Fields.SHARD_ROLE.toString()).toString(),
-          sumLatency,
-          avgLatency,
-          minLatency,
-          maxLatency);
+          null,
+          latency.getShardId(),
+          latency.getIndexName(),
+          latency.getShardRole(),
+          latency.getSketch().toBytes());
 
-      Double count =
-          Double.parseDouble(
-              r.get(AllMetrics.ShardOperationMetric.SHARD_OP_COUNT.toString()).toString());
+      Double count = (double) latency.getCount();
       countHandle.bind(
-          r.get(ShardRequestMetricsSnapshot.Fields.OPERATION.toString()).toString(),
-          r.get(ShardRequestMetricsSnapshot.Fields.SHARD_ID.toString()).toString(),
-          r.get(ShardRequestMetricsSnapshot.Fields.INDEX_NAME.toString()).toString(),
-          r.get(ShardRequestMetricsSnapshot.Fields.SHARD_ROLE.toString()).toString(),
+          latency.getOperation(),
+          latency.getShardId(),
+          latency.getIndexName(),
+          latency.getShardRole(),
           count,
           count,
           count,
           count);
 
-      Object bulkDocCountObj = r.get(AllMetrics.ShardBulkMetric.DOC_COUNT.toString());
-      if (bulkDocCountObj != null) {
-        Double bulkDocCount = Double.parseDouble(bulkDocCountObj.toString());
+      Double bulkDocCount = latency.getDocCount();
+      if (bulkDocCount != null) {
         bulkDocHandle.bind(
-            r.get(ShardRequestMetricsSnapshot.Fields.OPERATION.toString()).toString(),
-            r.get(ShardRequestMetricsSnapshot.Fields.SHARD_ID.toString()).toString(),
-            r.get(ShardRequestMetricsSnapshot.Fields.INDEX_NAME.toString()).toString(),
-            r.get(ShardRequestMetricsSnapshot.Fields.SHARD_ROLE.toString()).toString(),
+            latency.getOperation(),
+            latency.getShardId(),
+            latency.getIndexName(),
+            latency.getShardRole(),
             bulkDocCount,
             bulkDocCount,
             bulkDocCount,
@@ -386,6 +257,9 @@ public class MetricsEmitter {
     if (handle.size() > 0) {
       handle.execute();
     }
+    if (sketchHandle.size() > 0) {
+      sketchHandle.execute();
+    }
     if (countHandle.size() > 0) {
       countHandle.execute();
     }
@@ -605,6 +479,30 @@ public class MetricsEmitter {
           0);
     }
 
+    db.createSketch(
+        new Metric<Double>(AllMetrics.CommonMetric.LATENCY.toString(), 0d),
+        LATENCY_TABLE_DIMENSIONS);
+    BatchBindStep sketchHandle =
+        db.startSketchBatchPut(
+            new Metric<Double>(AllMetrics.CommonMetric.LATENCY.toString(), 0d),
+            LATENCY_TABLE_DIMENSIONS);
+    for (Map.Entry<List<String>, QuantileSketch> entry :
+        rqMetricsSnap.fetchLatencySketches().entrySet()) {
+      List<String> dimValues = entry.getKey();
+      sketchHandle.bind(
+          dimValues.get(0),
+          dimValues.get(1),
+          dimValues.get(2),
+          dimValues.get(3),
+          null,
+          null,
+          null,
+          entry.getValue().toBytes());
+    }
+    if (sketchHandle.size() > 0) {
+      sketchHandle.execute();
+    }
+
     long mFinalT = System.currentTimeMillis();
     LOG.debug("Total time taken for writing http metrics metricsdb: {}", mFinalT - mCurrT);
   }
@@ -142,14 +142,14 @@ public class NodeMetricsEventProcessor implements EventProcessor {
       BatchBindStep batchHandle,
       MetricProperties metricProperties) {
 
-    String[] lines = event.value.split(System.getProperty("line.separator"));
+    String firstLine = MetricProperties.getFirstLine(event.value);
 
     // First line should be
     // {"current_time":1566152878118}
     long lastModifiedTime = 0;
     try {
       lastModifiedTime =
-          JsonConverter.getLongValue(lines[0], PerformanceAnalyzerMetrics.METRIC_CURRENT_TIME);
+          JsonConverter.getLongValue(firstLine, PerformanceAnalyzerMetrics.METRIC_CURRENT_TIME);
     } catch (JsonPathNotFoundException ex) {
       LOG.warn(
           String.format(
@@ -162,7 +162,7 @@ public class NodeMetricsEventProcessor implements EventProcessor {
       LOG.warn(
           String.format(
               "Malformed json (%s) ExceptionCode: %s",
-              lines[0], StatExceptionCode.JSON_PARSER_ERROR.toString()),
+              firstLine, StatExceptionCode.JSON_PARSER_ERROR.toString()),
           ex);
       StatsCollector.instance().logException(StatExceptionCode.JSON_PARSER_ERROR);
       return false;
@@ -170,7 +170,7 @@ public class NodeMetricsEventProcessor implements EventProcessor {
       LOG.warn(
           String.format(
               "I/O exception processing metric %s with value: %s.%s" + "ExceptionCode: %s",
-              event.key, lines[0], File.separator, StatExceptionCode.JSON_PARSER_ERROR.toString()),
+              event.key, firstLine, File.separator, StatExceptionCode.JSON_PARSER_ERROR.toString()),
           ex);
       StatsCollector.instance().logException(StatExceptionCode.JSON_PARSER_ERROR);
       return false;
@@ -202,13 +202,7 @@ public class NodeMetricsEventProcessor implements EventProcessor {
     // to add last modified time by ourselves.
     // See:
     // https://bugs.java.com/bugdatabase/view_bug.do?bug_id=6939260
-
-    boolean processed = false;
-    for (int lineNum = 1; lineNum < lines.length; lineNum++) {
-      processed =
-          metricProperties.processJsonLine(lines[lineNum], batchHandle, templateMetricVals)
-              || processed;
-    }
-    return processed;
+    return metricProperties.processJsonLines(
+        event.value, firstLine.length(), batchHandle, templateMetricVals);
   }
 }
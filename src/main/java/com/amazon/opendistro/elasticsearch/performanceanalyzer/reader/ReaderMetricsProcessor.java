@@ -28,6 +28,11 @@ import com.amazon.opendistro.elasticsearch.performanceanalyzer.metrics.Performan
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.metricsdb.MetricsDB;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.reader_writer_shared.EventLog;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.reader_writer_shared.EventLogFileHandler;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.retention.RetentionManager;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.telemetry.Counter;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.telemetry.Gauge;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.telemetry.LatencyHistogram;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.telemetry.TelemetryRegistry;
 import com.google.common.annotations.VisibleForTesting;
 
 import java.io.IOException;
@@ -47,6 +52,7 @@ import java.util.TreeMap;
 import java.util.TreeSet;
 import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Consumer;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -80,6 +86,19 @@ public class ReaderMetricsProcessor implements Runnable {
   private static final Map<String, Double> TIMING_STATS = new HashMap<>();
   private static final Map<String, String> STATS_DATA = new HashMap<>();
 
+  private static final LatencyHistogram WINDOW_LATENCY = TelemetryRegistry.instance().histogram(
+      "pa_reader_window_duration_seconds", "Time taken by the reader to process one sampling window.");
+  private static final LatencyHistogram ALIGN_OS_PHASE_LATENCY = TelemetryRegistry.instance().histogram(
+      "pa_reader_emit_phase_duration_seconds", "Time taken by each phase of emitting the metrics of a window.",
+      "phase", "align_os");
+  private static final LatencyHistogram EMIT_PHASE_LATENCY = TelemetryRegistry.instance().histogram(
+      "pa_reader_emit_phase_duration_seconds", "Time taken by each phase of emitting the metrics of a window.",
+      "phase", "emit");
+  private static final Counter WINDOWS_PROCESSED = TelemetryRegistry.instance().counter(
+      "pa_reader_windows", "Number of sampling windows processed by the reader.");
+  private static final Gauge METRICSDB_WINDOWS = TelemetryRegistry.instance().gauge(
+      "pa_reader_metricsdb_windows", "Number of windows currently held in metricsdb files.");
+
   private final AppContext appContext;
   private final ConfigOverridesApplier configOverridesApplier;
 
@@ -88,6 +107,8 @@ public class ReaderMetricsProcessor implements Runnable {
   private static final boolean defaultBatchMetricsEnabled = false;
   // This needs to be concurrent since it may be concurrently accessed by the metrics processor thread and the query handler thread.
   private ConcurrentSkipListSet<Long> batchMetricsDBSet;
+  // Forgets the batch metrics DBs the retention manager deletes.
+  private final Consumer<Path> metricsDBDeletionListener;
 
   static {
     STATS_DATA.put("MethodName", "ProcessMetrics");
@@ -130,6 +151,9 @@ public class ReaderMetricsProcessor implements Runnable {
     this.appContext = appContext;
     batchMetricsEnabled = defaultBatchMetricsEnabled;
     batchMetricsDBSet = new ConcurrentSkipListSet<>();
+    metricsDBDeletionListener = path -> batchMetricsDBSet.removeIf(
+        timestamp -> path.equals(Paths.get(MetricsDB.getDBFilePath(timestamp)).toAbsolutePath().normalize()));
+    RetentionManager.instance().addDeletionListener(RetentionManager.METRICS_DB, metricsDBDeletionListener);
     cleanupMetricsDBFiles();
   }
 
@@ -166,6 +190,7 @@ public class ReaderMetricsProcessor implements Runnable {
         conn.commit();
         conn.setAutoCommit(true);
         trimOldMetricsDBFiles();
+        RetentionManager.instance().enforce();
         long duration = System.currentTimeMillis() - startTime;
         LOG.debug("Total time taken: {}", duration);
         if (duration < runInterval) {
@@ -203,6 +228,7 @@ public class ReaderMetricsProcessor implements Runnable {
   }
 
   public void shutdown() {
+    RetentionManager.instance().removeDeletionListener(RetentionManager.METRICS_DB, metricsDBDeletionListener);
     try {
       conn.close();
     } catch (Exception e) {
@@ -326,6 +352,7 @@ public class ReaderMetricsProcessor implements Runnable {
       return;
     }
 
+    long phaseStart = System.nanoTime();
     long mCurrT = System.currentTimeMillis();
     // This is object holds a reference to the temporary os snapshot. It is used to delete tables at
     // the end of this
@@ -340,7 +367,9 @@ public class ReaderMetricsProcessor implements Runnable {
 
     long mFinalT = System.currentTimeMillis();
     LOG.debug("Total time taken for aligning OS Metrics: {}", mFinalT - mCurrT);
+    ALIGN_OS_PHASE_LATENCY.recordSince(phaseStart);
 
+    phaseStart = System.nanoTime();
     mCurrT = System.currentTimeMillis();
     MetricsDB metricsDB = createMetricsDB(prevWindowStartTime);
 
@@ -351,12 +380,18 @@ public class ReaderMetricsProcessor implements Runnable {
 
     metricsDB.commit();
     metricsDBMap.put(prevWindowStartTime, metricsDB);
+    if (PluginSettings.instance().shouldCleanupMetricsDBFiles()) {
+      RetentionManager.instance().track(
+          RetentionManager.METRICS_DB, Paths.get(metricsDB.getDBFilePath()), prevWindowStartTime);
+    }
     if (batchMetricsEnabled) {
       batchMetricsDBSet.add(prevWindowStartTime);
     }
     mFinalT = System.currentTimeMillis();
     LOG.debug("Total time taken for emitting Metrics: {}", mFinalT - mCurrT);
     TIMING_STATS.put("emitMetrics", (double) (mFinalT - mCurrT));
+    EMIT_PHASE_LATENCY.recordSince(phaseStart);
+    METRICSDB_WINDOWS.set(metricsDBMap.size());
   }
 
   private void emitHttpRequestMetrics(long prevWindowStartTime, MetricsDB metricsDB)
@@ -391,7 +426,6 @@ public class ReaderMetricsProcessor implements Runnable {
           create, metricsDB, preShardRequestMetricsSnapshot); // calculate latency
       if (osAlignedSnap != null) {
         // LOG.info(osAlignedSnap.fetchAll());
-        // LOG.info(preShardRequestMetricsSnapshot.fetchAll());
         MetricsEmitter.emitAggregatedOSMetrics(
             create, metricsDB, osAlignedSnap, preShardRequestMetricsSnapshot); // table join
         MetricsEmitter.emitThreadNameMetrics(
@@ -479,6 +513,7 @@ public class ReaderMetricsProcessor implements Runnable {
 
     // Step 1 from above.
     long start = System.currentTimeMillis();
+    long startNanos = System.nanoTime();
 
     // Step 2 from above.
     long currWindowStartTime =
@@ -494,7 +529,7 @@ public class ReaderMetricsProcessor implements Runnable {
             currWindowStartTime, currWindowEndTime, conn, osMetricsMap);
     EventProcessor requestProcessor =
         RequestEventProcessor.buildRequestMetricEventsProcessor(
-            currWindowStartTime, currWindowEndTime, conn, shardRqMetricsMap);
+            currWindowStartTime, currWindowEndTime, shardRqMetricsMap);
     EventProcessor httpProcessor =
         HttpRequestEventProcessor.buildHttpRequestMetricEventsProcessor(
             currWindowStartTime, currWindowEndTime, conn, httpRqMetricsMap);
@@ -543,6 +578,8 @@ public class ReaderMetricsProcessor implements Runnable {
 
     StatsCollector.instance()
         .logStatsRecord(null, STATS_DATA, TIMING_STATS, start, System.currentTimeMillis());
+    WINDOW_LATENCY.recordSince(startNanos);
+    WINDOWS_PROCESSED.inc();
   }
 
   /**
@@ -728,7 +765,7 @@ public class ReaderMetricsProcessor implements Runnable {
     MemoryDBSnapshot leftWindow = metricMap.get(t1);
     MemoryDBSnapshot rightWindow = metricMap.get(t2);
 
-    alignedWindow.alignWindow(leftWindow, rightWindow, t1, readerStartTime, readerEndTime);
+    alignedWindow.alignWindowInMemory(leftWindow, rightWindow, t1, readerStartTime, readerEndTime);
     return alignedWindow;
   }
 
@@ -20,19 +20,16 @@ import com.amazon.opendistro.elasticsearch.performanceanalyzer.metrics.AllMetric
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.metrics.PerformanceAnalyzerMetrics;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.reader_writer_shared.Event;
 import java.io.File;
-import java.sql.Connection;
 import java.util.Map;
 import java.util.NavigableMap;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.jooq.BatchBindStep;
 
 public class RequestEventProcessor implements EventProcessor {
 
   private static final Logger LOG = LogManager.getLogger(RequestEventProcessor.class);
 
   private ShardRequestMetricsSnapshot rqSnap;
-  private BatchBindStep handle;
   private long startTime;
   private long endTime;
 
@@ -43,12 +40,9 @@ public class RequestEventProcessor implements EventProcessor {
   static RequestEventProcessor buildRequestMetricEventsProcessor(
       long currWindowStartTime,
       long currWindowEndTime,
-      Connection conn,
-      NavigableMap<Long, ShardRequestMetricsSnapshot> shardRqMetricsMap)
-      throws Exception {
+      NavigableMap<Long, ShardRequestMetricsSnapshot> shardRqMetricsMap) {
     if (shardRqMetricsMap.get(currWindowStartTime) == null) {
-      ShardRequestMetricsSnapshot rqSnap =
-          new ShardRequestMetricsSnapshot(conn, currWindowStartTime);
+      ShardRequestMetricsSnapshot rqSnap = new ShardRequestMetricsSnapshot(currWindowStartTime);
       Map.Entry<Long, ShardRequestMetricsSnapshot> entry = shardRqMetricsMap.lastEntry();
       if (entry != null) {
         rqSnap.rolloverInflightRequests(entry.getValue());
@@ -74,32 +68,20 @@ public class RequestEventProcessor implements EventProcessor {
   public void initializeProcessing(long startTime, long endTime) {
     this.startTime = startTime;
     this.endTime = endTime;
-    this.handle = rqSnap.startBatchPut();
   }
 
-  public void finalizeProcessing() {
-    if (handle.size() > 0) {
-      handle.execute();
-    }
-    // LOG.info("Final request metrics {}", rqSnap.fetchAll());
-  }
+  // The tracker pairs each event as it is processed, nothing is left to aggregate at the end of
+  // the window.
+  public void finalizeProcessing() {}
 
   public void processEvent(Event event) {
     handleESMetrics(event);
-    // Flush data to sqlite when batch size is 500
-    if (handle.size() == 500) {
-      handle.execute();
-      handle = rqSnap.startBatchPut();
-    }
   }
 
+  // The events go to the in-memory request tracker of the snapshot, there is no sqlite batch to
+  // flush. The interface still requires the method.
   @Override
-  public void commitBatchIfRequired() {
-    if (handle.size() > BATCH_LIMIT) {
-      handle.execute();
-      handle = rqSnap.startBatchPut();
-    }
-  }
+  public void commitBatchIfRequired() {}
 
   private void handleESMetrics(Event entry) {
     // operation is of the form - shardBulk, shardSearch etc..
@@ -137,7 +119,8 @@ public class RequestEventProcessor implements EventProcessor {
     String threadId = metricKeyPathElements[1];
     String operation = metricKeyPathElements[2];
     String rid = metricKeyPathElements[3];
-    handle.bind(shardId, indexName, rid, threadId, operation, primary, startTime, null, docCount);
+    rqSnap.getRequestTracker()
+        .start(shardId, indexName, rid, threadId, operation, primary, startTime, docCount);
   }
 
   private String getPrimary(String primary) {
@@ -155,6 +138,7 @@ public class RequestEventProcessor implements EventProcessor {
     String threadId = metricKeyPathElements[1];
     String operation = metricKeyPathElements[2];
     String rid = metricKeyPathElements[3];
-    handle.bind(shardId, indexName, rid, threadId, operation, primary, null, finishTime, null);
+    rqSnap.getRequestTracker()
+        .finish(shardId, indexName, rid, threadId, operation, primary, finishTime);
   }
 }
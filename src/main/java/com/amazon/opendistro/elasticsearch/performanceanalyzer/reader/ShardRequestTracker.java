@@ -0,0 +1,523 @@
+/*
+ * Copyright 2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.reader;
+
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.metricsdb.QuantileSketch;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.telemetry.Counter;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.telemetry.Gauge;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.telemetry.TelemetryRegistry;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Pairs the start and finish events of shard requests as they are read, and aggregates the
+ * latency of the completed requests by shard, index, operation and shard role.
+ *
+ * <p>This computes the same numbers as the group-by on rid and operation the reader used to run
+ * over a sqlite table of the events of each window, without the table. Requests are kept in an
+ * open addressing table keyed by the numeric request id and the operation, so matching an event
+ * costs a probe and no allocation. A request is removed from the table as soon as both its events
+ * are seen.
+ *
+ * <p>Requests that have not finished by the end of a window are carried over to the tracker of the
+ * next window by {@link #rollover(long)}, with the same rules the sqlite queries applied: a
+ * request older than {@link #EXPIRE_AFTER} is dropped, and so is a request that started before the
+ * window if a later request started on the same thread. The table never holds more than
+ * {@code maxInflight} requests; the events of requests beyond that are dropped and counted.
+ *
+ * <p>The requests are also recorded by thread in the {@link ThreadRegistry} of the window, which
+ * attributes the OS metrics of the threads to the requests that ran on them. A dropped event is
+ * not recorded there either.
+ */
+public class ShardRequestTracker {
+  static final long EXPIRE_AFTER = 600000L;
+  static final int DEFAULT_MAX_INFLIGHT = 1 << 16;
+
+  private static final int INITIAL_CAPACITY = 64;
+  private static final long NONE = Long.MIN_VALUE;
+  private static final int FREE = 0;
+
+  private static final Counter DROPPED_EVENTS = TelemetryRegistry.instance().counter(
+      "pa_reader_shard_request_dropped_events",
+      "Shard request events not matched because the in-flight request table was full or the id was not numeric.");
+  private static final Gauge INFLIGHT_REQUESTS = TelemetryRegistry.instance().gauge(
+      "pa_reader_shard_requests_inflight", "Shard requests carried over to the next window without a finish event.");
+
+  private final int maxInflight;
+
+  // Operation names are interned to small ids so that a slot only holds primitives. An op id of
+  // FREE marks an empty slot.
+  private final Map<String, Integer> opIds;
+  private final List<String> opNames;
+
+  private long[] rids;
+  private int[] ops;
+  private long[] tids;
+  private long[] startTimes;
+  private long[] finishTimes;
+  private long[] docCounts;
+  private int size;
+
+  // The latest start time seen for each thread, for the one active request per thread rule.
+  private long[] latestTids;
+  private long[] latestStarts;
+  private boolean[] latestUsed;
+  private int latestSize;
+
+  private final Map<GroupKey, OpLatency> latencies;
+  private final ThreadRegistry threads;
+
+  public ShardRequestTracker() {
+    this(DEFAULT_MAX_INFLIGHT);
+  }
+
+  ShardRequestTracker(int maxInflight) {
+    this(maxInflight, new HashMap<>(), new ArrayList<>());
+  }
+
+  private ShardRequestTracker(int maxInflight, Map<String, Integer> opIds, List<String> opNames) {
+    this.maxInflight = maxInflight;
+    this.opIds = opIds;
+    this.opNames = opNames;
+    this.latencies = new HashMap<>();
+    this.threads = new ThreadRegistry();
+    allocate(INITIAL_CAPACITY);
+    allocateLatest(INITIAL_CAPACITY);
+  }
+
+  /** Latency aggregated over the requests of one shard, index, operation and shard role. */
+  public static class OpLatency {
+    private final String shardId;
+    private final String indexName;
+    private final String operation;
+    private final String shardRole;
+    private double sum;
+    private double min = Double.MAX_VALUE;
+    private double max = -Double.MAX_VALUE;
+    private long count;
+    private double docCount;
+    private boolean hasDocCount;
+    private final QuantileSketch sketch = new QuantileSketch();
+
+    OpLatency(String shardId, String indexName, String operation, String shardRole) {
+      this.shardId = shardId;
+      this.indexName = indexName;
+      this.operation = operation;
+      this.shardRole = shardRole;
+    }
+
+    void add(long latency, long docs) {
+      sum += latency;
+      min = Math.min(min, latency);
+      max = Math.max(max, latency);
+      count += 1;
+      sketch.add(latency);
+      if (docs != NONE) {
+        docCount += docs;
+        hasDocCount = true;
+      }
+    }
+
+    public String getShardId() {
+      return shardId;
+    }
+
+    public String getIndexName() {
+      return indexName;
+    }
+
+    public String getOperation() {
+      return operation;
+    }
+
+    public String getShardRole() {
+      return shardRole;
+    }
+
+    public double getSum() {
+      return sum;
+    }
+
+    public double getAvg() {
+      return sum / count;
+    }
+
+    public double getMin() {
+      return min;
+    }
+
+    public double getMax() {
+      return max;
+    }
+
+    public long getCount() {
+      return count;
+    }
+
+    /** The number of documents of the requests, or null if no start event carried one. */
+    public Double getDocCount() {
+      return hasDocCount ? docCount : null;
+    }
+
+    /** The distribution of the latencies, to answer percentile queries. */
+    public QuantileSketch getSketch() {
+      return sketch;
+    }
+  }
+
+  static class GroupKey {
+    private final String shardId;
+    private final String indexName;
+    private final String operation;
+    private final String shardRole;
+
+    GroupKey(String shardId, String indexName, String operation, String shardRole) {
+      this.shardId = shardId;
+      this.indexName = indexName;
+      this.operation = operation;
+      this.shardRole = shardRole;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof GroupKey)) {
+        return false;
+      }
+      GroupKey other = (GroupKey) o;
+      return Objects.equals(shardId, other.shardId)
+          && Objects.equals(indexName, other.indexName)
+          && Objects.equals(operation, other.operation)
+          && Objects.equals(shardRole, other.shardRole);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(shardId, indexName, operation, shardRole);
+    }
+  }
+
+  /**
+   * Records the start event of a request.
+   *
+   * @param docCount the number of documents in the request, or null if the event carries none.
+   */
+  public void start(String shardId, String indexName, String rid, String tid, String operation,
+      String shardRole, long startTime, Long docCount) {
+    long ridValue = parseId(rid);
+    if (ridValue == NONE || operation == null) {
+      DROPPED_EVENTS.inc();
+      return;
+    }
+    long tidValue = parseId(tid);
+    int op = opId(operation);
+    int slot = findOrInsert(ridValue, op);
+    if (slot < 0) {
+      DROPPED_EVENTS.inc();
+      return;
+    }
+    // Only a request that holds a slot is recorded by thread, so the registry is bounded by the
+    // requests of the window the table accepted.
+    if (tidValue != NONE) {
+      updateLatestStart(tidValue, startTime);
+      threads.start(tidValue, ridValue, op, shardId, indexName, operation, shardRole, startTime);
+    }
+    startTimes[slot] = Math.max(startTimes[slot], startTime);
+    tids[slot] = tidValue;
+    if (docCount != null) {
+      docCounts[slot] = Math.max(docCounts[slot], docCount);
+    }
+    completeIfFinished(slot, shardId, indexName, operation, shardRole);
+  }
+
+  /** Records the finish event of a request. */
+  public void finish(String shardId, String indexName, String rid, String tid, String operation,
+      String shardRole, long finishTime) {
+    long ridValue = parseId(rid);
+    if (ridValue == NONE || operation == null) {
+      DROPPED_EVENTS.inc();
+      return;
+    }
+    long tidValue = parseId(tid);
+    int op = opId(operation);
+    int slot = findOrInsert(ridValue, op);
+    if (slot < 0) {
+      DROPPED_EVENTS.inc();
+      return;
+    }
+    if (tidValue != NONE) {
+      threads.finish(tidValue, ridValue, op, shardId, indexName, operation, shardRole, finishTime);
+    }
+    finishTimes[slot] = Math.max(finishTimes[slot], finishTime);
+    if (tids[slot] == NONE) {
+      tids[slot] = tidValue;
+    }
+    completeIfFinished(slot, shardId, indexName, operation, shardRole);
+  }
+
+  /** The latency of the requests that completed in this window, one entry per shard and operation. */
+  public Collection<OpLatency> getLatencyByOp() {
+    return latencies.values();
+  }
+
+  /**
+   * The threads the requests of this window ran on, to attribute the OS metrics of the threads to
+   * the requests.
+   */
+  public ThreadRegistry getThreadRegistry() {
+    return threads;
+  }
+
+  /** The number of requests seen with only one of their two events. */
+  public int getInflightCount() {
+    return size;
+  }
+
+  /**
+   * Creates the tracker for the next window, holding the requests of this one that have started
+   * but not finished.
+   *
+   * @param windowStartTime the start of the window this tracker collected events for.
+   */
+  public ShardRequestTracker rollover(long windowStartTime) {
+    ShardRequestTracker next = new ShardRequestTracker(maxInflight, opIds, opNames);
+    for (int i = 0; i < ops.length; i++) {
+      if (ops[i] == FREE || startTimes[i] == NONE || finishTimes[i] != NONE) {
+        continue;
+      }
+      long st = startTimes[i];
+      if (st <= windowStartTime - EXPIRE_AFTER) {
+        continue;
+      }
+      if (st <= windowStartTime && tids[i] != NONE && latestStart(tids[i]) != st) {
+        continue;
+      }
+      int slot = next.findOrInsert(rids[i], ops[i]);
+      if (slot < 0) {
+        DROPPED_EVENTS.inc();
+        continue;
+      }
+      next.startTimes[slot] = st;
+      next.tids[slot] = tids[i];
+      next.docCounts[slot] = docCounts[i];
+      if (tids[i] != NONE) {
+        next.updateLatestStart(tids[i], st);
+        next.threads.carryOver(threads, tids[i], rids[i], ops[i]);
+      }
+    }
+    INFLIGHT_REQUESTS.set(next.size);
+    return next;
+  }
+
+  private void completeIfFinished(int slot, String shardId, String indexName, String operation,
+      String shardRole) {
+    if (startTimes[slot] == NONE || finishTimes[slot] == NONE) {
+      return;
+    }
+    GroupKey key = new GroupKey(shardId, indexName, operation, shardRole);
+    OpLatency latency = latencies.get(key);
+    if (latency == null) {
+      latency = new OpLatency(shardId, indexName, operation, shardRole);
+      latencies.put(key, latency);
+    }
+    latency.add(finishTimes[slot] - startTimes[slot], docCounts[slot]);
+    delete(slot);
+  }
+
+  private int opId(String operation) {
+    Integer id = opIds.get(operation);
+    if (id == null) {
+      opNames.add(operation);
+      id = opNames.size();
+      opIds.put(operation, id);
+    }
+    return id;
+  }
+
+  private static int hash(long rid, int op) {
+    long h = (rid * 31 + op) * 0x9E3779B97F4A7C15L;
+    return (int) (h ^ (h >>> 32));
+  }
+
+  private static int hash(long tid) {
+    long h = tid * 0x9E3779B97F4A7C15L;
+    return (int) (h ^ (h >>> 32));
+  }
+
+  /** The slot of the request, which is claimed if absent. -1 if the table is full. */
+  private int findOrInsert(long rid, int op) {
+    int mask = ops.length - 1;
+    int slot = hash(rid, op) & mask;
+    while (ops[slot] != FREE) {
+      if (rids[slot] == rid && ops[slot] == op) {
+        return slot;
+      }
+      slot = (slot + 1) & mask;
+    }
+    if (size >= maxInflight) {
+      return -1;
+    }
+    if ((size + 1) * 2 > ops.length) {
+      resize(ops.length * 2);
+      return findOrInsert(rid, op);
+    }
+    rids[slot] = rid;
+    ops[slot] = op;
+    size += 1;
+    return slot;
+  }
+
+  /** Removes the request in the slot, shifting back the entries of its probe sequence. */
+  private void delete(int slot) {
+    int mask = ops.length - 1;
+    int hole = slot;
+    int next = (hole + 1) & mask;
+    while (ops[next] != FREE) {
+      int home = hash(rids[next], ops[next]) & mask;
+      // Move the entry into the hole unless its home slot lies cyclically in (hole, next].
+      if (((next - home) & mask) >= ((next - hole) & mask)) {
+        move(next, hole);
+        hole = next;
+      }
+      next = (next + 1) & mask;
+    }
+    ops[hole] = FREE;
+    startTimes[hole] = NONE;
+    finishTimes[hole] = NONE;
+    docCounts[hole] = NONE;
+    tids[hole] = NONE;
+    size -= 1;
+  }
+
+  private void move(int from, int to) {
+    rids[to] = rids[from];
+    ops[to] = ops[from];
+    tids[to] = tids[from];
+    startTimes[to] = startTimes[from];
+    finishTimes[to] = finishTimes[from];
+    docCounts[to] = docCounts[from];
+  }
+
+  private void allocate(int capacity) {
+    rids = new long[capacity];
+    ops = new int[capacity];
+    tids = new long[capacity];
+    startTimes = new long[capacity];
+    finishTimes = new long[capacity];
+    docCounts = new long[capacity];
+    Arrays.fill(tids, NONE);
+    Arrays.fill(startTimes, NONE);
+    Arrays.fill(finishTimes, NONE);
+    Arrays.fill(docCounts, NONE);
+  }
+
+  private void resize(int capacity) {
+    long[] oldRids = rids;
+    int[] oldOps = ops;
+    long[] oldTids = tids;
+    long[] oldStartTimes = startTimes;
+    long[] oldFinishTimes = finishTimes;
+    long[] oldDocCounts = docCounts;
+    allocate(capacity);
+    int mask = capacity - 1;
+    for (int i = 0; i < oldOps.length; i++) {
+      if (oldOps[i] == FREE) {
+        continue;
+      }
+      int slot = hash(oldRids[i], oldOps[i]) & mask;
+      while (ops[slot] != FREE) {
+        slot = (slot + 1) & mask;
+      }
+      rids[slot] = oldRids[i];
+      ops[slot] = oldOps[i];
+      tids[slot] = oldTids[i];
+      startTimes[slot] = oldStartTimes[i];
+      finishTimes[slot] = oldFinishTimes[i];
+      docCounts[slot] = oldDocCounts[i];
+    }
+  }
+
+  private void allocateLatest(int capacity) {
+    latestTids = new long[capacity];
+    latestStarts = new long[capacity];
+    latestUsed = new boolean[capacity];
+  }
+
+  private void updateLatestStart(long tid, long startTime) {
+    int mask = latestUsed.length - 1;
+    int slot = hash(tid) & mask;
+    while (latestUsed[slot]) {
+      if (latestTids[slot] == tid) {
+        latestStarts[slot] = Math.max(latestStarts[slot], startTime);
+        return;
+      }
+      slot = (slot + 1) & mask;
+    }
+    if ((latestSize + 1) * 2 > latestUsed.length) {
+      long[] oldTids = latestTids;
+      long[] oldStarts = latestStarts;
+      boolean[] oldUsed = latestUsed;
+      allocateLatest(oldUsed.length * 2);
+      latestSize = 0;
+      for (int i = 0; i < oldUsed.length; i++) {
+        if (oldUsed[i]) {
+          updateLatestStart(oldTids[i], oldStarts[i]);
+        }
+      }
+      updateLatestStart(tid, startTime);
+      return;
+    }
+    latestUsed[slot] = true;
+    latestTids[slot] = tid;
+    latestStarts[slot] = startTime;
+    latestSize += 1;
+  }
+
+  private long latestStart(long tid) {
+    int mask = latestUsed.length - 1;
+    int slot = hash(tid) & mask;
+    while (latestUsed[slot]) {
+      if (latestTids[slot] == tid) {
+        return latestStarts[slot];
+      }
+      slot = (slot + 1) & mask;
+    }
+    return NONE;
+  }
+
+  /** Parses a non negative decimal id without throwing. Returns NONE if it is not one. */
+  static long parseId(String id) {
+    if (id == null || id.isEmpty() || id.length() > 18) {
+      return NONE;
+    }
+    long value = 0;
+    for (int i = 0; i < id.length(); i++) {
+      char c = id.charAt(i);
+      if (c < '0' || c > '9') {
+        return NONE;
+      }
+      value = value * 10 + (c - '0');
+    }
+    return value;
+  }
+}
@@ -0,0 +1,376 @@
+/*
+ * Copyright 2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.reader;
+
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.metrics.AllMetrics.OSMetrics;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.jooq.Record;
+
+/**
+ * The threads of a window, keyed by their numeric id, with what the reader knows about each of
+ * them: the OS counters of the aligned window, the latest name of the thread and the shard requests
+ * that ran on it.
+ *
+ * <p>This computes the same numbers as the reader used to get by joining the thread utilization of
+ * the shard requests in sqlite with the aligned {@link OSMetricsSnapshot} on the tid column and
+ * grouping by shard, index, operation and shard role, without the joins on string ids. The
+ * requests are recorded by the {@link ShardRequestTracker} as their events are read, the OS
+ * counters are loaded with a single scan of the aligned snapshot, and the counters of each thread
+ * are then split between its requests, in proportion to the time each of them spent on the thread
+ * in the window, in one pass over the threads.
+ */
+public class ThreadRegistry {
+  private static final int INITIAL_CAPACITY = 64;
+  private static final long NONE = Long.MIN_VALUE;
+  private static final OSMetrics[] OS_METRICS = OSMetrics.values();
+
+  private long[] tids;
+  private ThreadState[] threads;
+  private int size;
+
+  ThreadRegistry() {
+    allocate(INITIAL_CAPACITY);
+  }
+
+  private static class ThreadState {
+    private String threadName;
+    // The OS counters of the thread in the window, NaN where the snapshot has none. Null until the
+    // thread is seen in an OS snapshot.
+    private double[] counters;
+    private final List<RequestOp> requests = new ArrayList<>(2);
+
+    private RequestOp request(long rid, int op) {
+      // The latest requests are the most likely to get an event.
+      for (int i = requests.size() - 1; i >= 0; i--) {
+        RequestOp request = requests.get(i);
+        if (request.rid == rid && request.op == op) {
+          return request;
+        }
+      }
+      return null;
+    }
+  }
+
+  /** A shard request, by request id and operation, that ran on a thread in the window. */
+  private static class RequestOp {
+    private final long rid;
+    private final int op;
+    private String shardId;
+    private String indexName;
+    private final String operation;
+    private String shardRole;
+    private long startTime = NONE;
+    private long finishTime = NONE;
+
+    RequestOp(long rid, int op, String shardId, String indexName, String operation,
+        String shardRole) {
+      this.rid = rid;
+      this.op = op;
+      this.shardId = shardId;
+      this.indexName = indexName;
+      this.operation = operation;
+      this.shardRole = shardRole;
+    }
+
+    /** The time spent on the thread in the window, a missing event is taken as the window bound. */
+    long timeInWindow(long windowStartTime, long windowEndTime) {
+      long st = Math.max(startTime == NONE ? windowStartTime : startTime, windowStartTime);
+      long et = Math.min(finishTime == NONE ? windowEndTime : finishTime, windowEndTime);
+      return et - st;
+    }
+  }
+
+  /**
+   * The OS metrics of the threads that served the requests of one shard, index, operation and
+   * shard role, each weighted by the share of the thread time the requests took.
+   */
+  public static class OpUtilization {
+    private final String shardId;
+    private final String indexName;
+    private final String operation;
+    private final String shardRole;
+    private final double[] sum = new double[OS_METRICS.length];
+    private final double[] min = new double[OS_METRICS.length];
+    private final double[] max = new double[OS_METRICS.length];
+    private final int[] count = new int[OS_METRICS.length];
+
+    OpUtilization(String shardId, String indexName, String operation, String shardRole) {
+      this.shardId = shardId;
+      this.indexName = indexName;
+      this.operation = operation;
+      this.shardRole = shardRole;
+      Arrays.fill(min, Double.MAX_VALUE);
+      Arrays.fill(max, -Double.MAX_VALUE);
+    }
+
+    void add(int metric, double value) {
+      sum[metric] += value;
+      min[metric] = Math.min(min[metric], value);
+      max[metric] = Math.max(max[metric], value);
+      count[metric] += 1;
+    }
+
+    public String getShardId() {
+      return shardId;
+    }
+
+    public String getIndexName() {
+      return indexName;
+    }
+
+    public String getOperation() {
+      return operation;
+    }
+
+    public String getShardRole() {
+      return shardRole;
+    }
+
+    /** Whether any thread of the group had a value for the metric. */
+    public boolean hasValue(OSMetrics metric) {
+      return count[metric.ordinal()] > 0;
+    }
+
+    public double getSum(OSMetrics metric) {
+      return sum[metric.ordinal()];
+    }
+
+    public double getAvg(OSMetrics metric) {
+      return sum[metric.ordinal()] / count[metric.ordinal()];
+    }
+
+    public double getMin(OSMetrics metric) {
+      return min[metric.ordinal()];
+    }
+
+    public double getMax(OSMetrics metric) {
+      return max[metric.ordinal()];
+    }
+  }
+
+  /** Records the start event of a request on a thread. */
+  void start(long tid, long rid, int op, String shardId, String indexName, String operation,
+      String shardRole, long startTime) {
+    RequestOp request = request(tid, rid, op, shardId, indexName, operation, shardRole);
+    request.startTime = Math.max(request.startTime, startTime);
+  }
+
+  /** Records the finish event of a request on a thread. */
+  void finish(long tid, long rid, int op, String shardId, String indexName, String operation,
+      String shardRole, long finishTime) {
+    RequestOp request = request(tid, rid, op, shardId, indexName, operation, shardRole);
+    request.finishTime = Math.max(request.finishTime, finishTime);
+  }
+
+  /** Copies a request that has not finished in the previous window into this one. */
+  void carryOver(ThreadRegistry previous, long tid, long rid, int op) {
+    ThreadState thread = previous.get(tid);
+    RequestOp request = thread == null ? null : thread.request(rid, op);
+    if (request == null) {
+      return;
+    }
+    start(tid, rid, op, request.shardId, request.indexName, request.operation, request.shardRole,
+        request.startTime);
+  }
+
+  /** Loads the OS counters and the names of the threads from an aligned OS snapshot. */
+  public void loadOSMetrics(OSMetricsSnapshot osMetricsSnap) {
+    for (Record r : osMetricsSnap.getOSMetrics()) {
+      Object tid = r.get(OSMetricsSnapshot.Fields.tid.toString());
+      double[] counters = new double[OS_METRICS.length];
+      for (OSMetrics metric : OS_METRICS) {
+        Object value = r.get(metric.toString());
+        counters[metric.ordinal()] =
+            value == null ? Double.NaN : Double.parseDouble(value.toString());
+      }
+      Object threadName = r.get(OSMetricsSnapshot.Fields.tName.toString());
+      putOSMetrics(
+          tid == null ? null : tid.toString(),
+          threadName == null ? null : threadName.toString(),
+          counters);
+    }
+  }
+
+  /**
+   * Sets the OS counters and the name of a thread.
+   *
+   * @param counters the value of each {@link OSMetrics} by ordinal, NaN where there is none.
+   */
+  void putOSMetrics(String tid, String threadName, double[] counters) {
+    long tidValue = ShardRequestTracker.parseId(tid);
+    if (tidValue == NONE) {
+      return;
+    }
+    ThreadState thread = getOrCreate(tidValue);
+    thread.counters = counters;
+    if (threadName != null) {
+      thread.threadName = threadName;
+    }
+  }
+
+  /**
+   * Splits the OS counters of each thread between the requests that ran on it in the window, and
+   * aggregates them by shard, index, operation and shard role. A request takes the share of the
+   * counters that its time in the window is of the time all the requests of its thread took.
+   * Requests on threads with no OS counters are left out.
+   */
+  public Collection<OpUtilization> aggregateByOperation(long windowStartTime, long windowEndTime) {
+    Map<ShardRequestTracker.GroupKey, OpUtilization> utilizations = new HashMap<>();
+    for (ThreadState thread : threads) {
+      if (thread == null || thread.counters == null || thread.requests.isEmpty()) {
+        continue;
+      }
+      long threadTime = 0;
+      for (RequestOp request : thread.requests) {
+        threadTime += request.timeInWindow(windowStartTime, windowEndTime);
+      }
+      if (threadTime == 0) {
+        continue;
+      }
+      for (RequestOp request : thread.requests) {
+        double utilization =
+            request.timeInWindow(windowStartTime, windowEndTime) * 1.0d / threadTime;
+        ShardRequestTracker.GroupKey key =
+            new ShardRequestTracker.GroupKey(
+                request.shardId, request.indexName, request.operation, request.shardRole);
+        OpUtilization opUtilization = utilizations.get(key);
+        if (opUtilization == null) {
+          opUtilization =
+              new OpUtilization(
+                  request.shardId, request.indexName, request.operation, request.shardRole);
+          utilizations.put(key, opUtilization);
+        }
+        for (int i = 0; i < OS_METRICS.length; i++) {
+          if (!Double.isNaN(thread.counters[i])) {
+            opUtilization.add(i, utilization * thread.counters[i]);
+          }
+        }
+      }
+    }
+    return utilizations.values();
+  }
+
+  /**
+   * The threads that ran shard requests but are not known as search or bulk threads in the OS
+   * snapshot, which means the request and OS metrics do not match.
+   */
+  List<Long> getUnmatchedRequestThreads() {
+    List<Long> unmatched = new ArrayList<>();
+    for (int i = 0; i < threads.length; i++) {
+      ThreadState thread = threads[i];
+      if (thread == null || thread.requests.isEmpty()) {
+        continue;
+      }
+      if (thread.threadName == null
+          || !(thread.threadName.contains("[bulk]") || thread.threadName.contains("[search]"))) {
+        unmatched.add(tids[i]);
+      }
+    }
+    return unmatched;
+  }
+
+  /** The latest name of a thread, or null if it is not in an OS snapshot. */
+  String getThreadName(long tid) {
+    ThreadState thread = get(tid);
+    return thread == null ? null : thread.threadName;
+  }
+
+  /** The number of requests that ran on a thread in the window. */
+  int getRequestCount(long tid) {
+    ThreadState thread = get(tid);
+    return thread == null ? 0 : thread.requests.size();
+  }
+
+  private RequestOp request(long tid, long rid, int op, String shardId, String indexName,
+      String operation, String shardRole) {
+    ThreadState thread = getOrCreate(tid);
+    RequestOp request = thread.request(rid, op);
+    if (request == null) {
+      request = new RequestOp(rid, op, shardId, indexName, operation, shardRole);
+      thread.requests.add(request);
+    } else {
+      // Both events carry the dimensions, but either may miss some of them.
+      request.shardId = request.shardId == null ? shardId : request.shardId;
+      request.indexName = request.indexName == null ? indexName : request.indexName;
+      request.shardRole = request.shardRole == null ? shardRole : request.shardRole;
+    }
+    return request;
+  }
+
+  private static int hash(long tid) {
+    long h = tid * 0x9E3779B97F4A7C15L;
+    return (int) (h ^ (h >>> 32));
+  }
+
+  private ThreadState get(long tid) {
+    int mask = threads.length - 1;
+    int slot = hash(tid) & mask;
+    while (threads[slot] != null) {
+      if (tids[slot] == tid) {
+        return threads[slot];
+      }
+      slot = (slot + 1) & mask;
+    }
+    return null;
+  }
+
+  private ThreadState getOrCreate(long tid) {
+    int mask = threads.length - 1;
+    int slot = hash(tid) & mask;
+    while (threads[slot] != null) {
+      if (tids[slot] == tid) {
+        return threads[slot];
+      }
+      slot = (slot + 1) & mask;
+    }
+    if ((size + 1) * 2 > threads.length) {
+      resize(threads.length * 2);
+      return getOrCreate(tid);
+    }
+    tids[slot] = tid;
+    threads[slot] = new ThreadState();
+    size += 1;
+    return threads[slot];
+  }
+
+  private void allocate(int capacity) {
+    tids = new long[capacity];
+    threads = new ThreadState[capacity];
+  }
+
+  private void resize(int capacity) {
+    long[] oldTids = tids;
+    ThreadState[] oldThreads = threads;
+    allocate(capacity);
+    int mask = capacity - 1;
+    for (int i = 0; i < oldThreads.length; i++) {
+      if (oldThreads[i] == null) {
+        continue;
+      }
+      int slot = hash(oldTids[i]) & mask;
+      while (threads[slot] != null) {
+        slot = (slot + 1) & mask;
+      }
+      tids[slot] = oldTids[i];
+      threads[slot] = oldThreads[i];
+    }
+  }
+}
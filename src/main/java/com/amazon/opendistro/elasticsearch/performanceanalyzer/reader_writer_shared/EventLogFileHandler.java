@@ -20,6 +20,7 @@ import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
 
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.core.Util;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.reader.EventDispatcher;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.retention.RetentionManager;
 import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
@@ -125,6 +126,8 @@ public class EventLogFileHandler {
     }
     readInternal(pathToFile, BUFFER_SIZE, processor);
     lastProcessed = timestamp;
+    // The reader is done with the file, it is now left to the retention of the event files.
+    RetentionManager.instance().track(RetentionManager.EVENTS, pathToFile, timestamp);
     // LOG.info("PARSED - {} {}", filename, ret);
     eventLog.clear();
   }
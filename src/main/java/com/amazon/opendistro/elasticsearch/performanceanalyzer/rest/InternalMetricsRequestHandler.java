@@ -0,0 +1,55 @@
+/*
+ * Copyright 2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.rest;
+
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.telemetry.TelemetryRegistry;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Request handler that exposes the metrics the performance analyzer keeps about itself in the
+ * OpenMetrics text format, for a local scraper to pull.
+ *
+ * <p>curl "localhost:9600/_opendistro/_performanceanalyzer/_internal/metrics"
+ */
+public class InternalMetricsRequestHandler implements HttpHandler {
+  private static final String CONTENT_TYPE = "application/openmetrics-text; version=1.0.0; charset=utf-8";
+
+  private final TelemetryRegistry registry;
+
+  public InternalMetricsRequestHandler(final TelemetryRegistry registry) {
+    this.registry = registry;
+  }
+
+  @Override
+  public void handle(HttpExchange exchange) throws IOException {
+    if (!exchange.getRequestMethod().equalsIgnoreCase("GET")) {
+      exchange.sendResponseHeaders(HttpURLConnection.HTTP_NOT_FOUND, -1);
+      exchange.close();
+      return;
+    }
+    byte[] response = registry.toOpenMetrics().getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+    try (OutputStream os = exchange.getResponseBody()) {
+      exchange.sendResponseHeaders(HttpURLConnection.HTTP_OK, response.length);
+      os.write(response);
+    }
+  }
+}
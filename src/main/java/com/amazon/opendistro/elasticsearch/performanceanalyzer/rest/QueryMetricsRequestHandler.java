@@ -281,7 +281,7 @@ public class QueryMetricsRequestHandler extends MetricsHandler implements HttpHa
       }
     }
     for (String agg : aggList) {
-      if (!MetricsDB.AGG_VALUES.contains(agg)) {
+      if (!MetricsDB.AGG_VALUES.contains(agg) && !MetricsDB.isQuantileAgg(agg)) {
         sendResponse(
             exchange,
             String.format("{\"error\":\"%s is an invalid aggregation type.\"}", agg),
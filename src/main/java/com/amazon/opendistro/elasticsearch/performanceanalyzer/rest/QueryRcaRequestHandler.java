@@ -50,6 +50,11 @@ import org.apache.logging.log4j.util.Supplier;
  *  <p>To get response for a specific RCA, use:
  *  curl --url "localhost:9650/_opendistro/_performanceanalyzer/rca?name=HighHeapUsageClusterRca" -XGET
  *
+ *  <p>To get the flow units of an RCA in a time range, from the current and the archived RCA files,
+ *  add the start and/or end of the range in epoch milliseconds:
+ *  curl -G "localhost:9650/_opendistro/_performanceanalyzer/rca" \
+ *    -d name=HighHeapUsageClusterRca -d start=1589592000000 -d end=1589595600000
+ *
  *  <p>For temperature profiles, one can get the local node temperature using a request url as:
  *  curl "localhost:9600/_opendistro/_performanceanalyzer/rca?name=NodeTemperatureRca&local=true"
  *
@@ -94,6 +99,8 @@ public class QueryRcaRequestHandler extends MetricsHandler implements HttpHandle
   private static final String LOCAL_PARAM = "local";
   private static final String VERSION_RESPONSE_PROPERTY = "version";
   public static final String NAME_PARAM = "name";
+  public static final String START_PARAM = "start";
+  public static final String END_PARAM = "end";
   private Persistable persistable;
   private MetricsRestUtil metricsRestUtil;
   private AppContext appContext;
@@ -185,10 +192,29 @@ public class QueryRcaRequestHandler extends MetricsHandler implements HttpHandle
           HttpURLConnection.HTTP_BAD_REQUEST);
       return;
     }
-    String response = getRcaData(persistable, rcaList).toString();
+    String response;
+    if (params.containsKey(START_PARAM) || params.containsKey(END_PARAM)) {
+      long start = parseTimeParam(params, START_PARAM, 0);
+      long end = parseTimeParam(params, END_PARAM, System.currentTimeMillis());
+      response = getRcaRangeData(persistable, rcaList, start, end).toString();
+    } else {
+      response = getRcaData(persistable, rcaList).toString();
+    }
     sendResponse(exchange, response, HttpURLConnection.HTTP_OK);
   }
 
+  private long parseTimeParam(Map<String, String> params, String param, long defaultMillis) {
+    String value = params.get(param);
+    if (value == null || value.isEmpty()) {
+      return defaultMillis;
+    }
+    try {
+      return Long.parseLong(value);
+    } catch (NumberFormatException e) {
+      throw new InvalidParameterException(param + " should be epoch milliseconds, got: " + value);
+    }
+  }
+
   private boolean isLocalTemperatureProfileRequest(final Map<String, String> params) {
     final List<String> temperatureProfileRcas = SQLiteQueryUtils.getTemperatureProfileRcas();
     if (params.containsKey(LOCAL_PARAM)) {
@@ -254,6 +280,16 @@ public class QueryRcaRequestHandler extends MetricsHandler implements HttpHandle
     return jsonObject;
   }
 
+  private JsonElement getRcaRangeData(Persistable persistable, List<String> rcaList, long start, long end) {
+    JsonObject jsonObject = new JsonObject();
+    if (persistable != null) {
+      rcaList.forEach(rca ->
+          jsonObject.add(rca, persistable.readRange(rca, start, end))
+      );
+    }
+    return jsonObject;
+  }
+
   private JsonElement getTemperatureProfileRca(final Persistable persistable, String rca) {
     JsonObject responseJson = new JsonObject();
     if (persistable != null) {
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.rest;
+
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.telemetry.LatencyHistogram;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.telemetry.TelemetryRegistry;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import java.io.IOException;
+
+/**
+ * Wraps a REST handler and records how long it takes to serve each request in the
+ * {@code pa_rest_request_duration_seconds} histogram, labelled by the path it is registered on.
+ */
+public class TimedHttpHandler implements HttpHandler {
+  private final HttpHandler delegate;
+  private final LatencyHistogram latency;
+
+  public TimedHttpHandler(final String path, final HttpHandler delegate) {
+    this.delegate = delegate;
+    this.latency = TelemetryRegistry.instance().histogram(
+        "pa_rest_request_duration_seconds", "Time taken to serve a REST request.", "path", path);
+  }
+
+  @Override
+  public void handle(HttpExchange exchange) throws IOException {
+    long start = System.nanoTime();
+    try {
+      delegate.handle(exchange);
+    } finally {
+      latency.recordSince(start);
+    }
+  }
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright 2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.retention;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * The files under retention, by class and oldest first, with their sizes.
+ *
+ * <p>The index is what lets the retention manager pick the files to delete, and know how much space a
+ * class takes, without listing any directory. It is kept on disk as a journal of the files tracked
+ * and untracked, one per line, so that it survives restarts: the journal is replayed when the index
+ * is loaded, dropping the files deleted while the process was down, and rewritten with only the live
+ * files once it has grown to a few times their number.
+ * Not thread safe, the {@link RetentionManager} serializes the calls.
+ */
+class RetentionIndex {
+  private static final Logger LOG = LogManager.getLogger(RetentionIndex.class);
+  private static final String TRACK = "T";
+  private static final String UNTRACK = "U";
+  private static final String SEPARATOR = "\t";
+  private static final int MIN_COMPACTION_LINES = 1024;
+  private static final Comparator<Entry> OLDEST_FIRST =
+      Comparator.comparingLong(Entry::getCreatedMillis).thenComparing(Entry::getPath);
+
+  private final Path journal;
+  private final Map<Path, Entry> entries = new HashMap<>();
+  private final Map<String, NavigableSet<Entry>> byClass = new HashMap<>();
+  private final Map<String, Long> classBytes = new HashMap<>();
+  private int journalLines;
+
+  /**
+   * A file under retention.
+   */
+  static class Entry {
+    private final String retentionClass;
+    private final Path path;
+    private final long createdMillis;
+    private final long bytes;
+
+    Entry(String retentionClass, Path path, long createdMillis, long bytes) {
+      this.retentionClass = retentionClass;
+      this.path = path;
+      this.createdMillis = createdMillis;
+      this.bytes = bytes;
+    }
+
+    String getRetentionClass() {
+      return retentionClass;
+    }
+
+    Path getPath() {
+      return path;
+    }
+
+    long getCreatedMillis() {
+      return createdMillis;
+    }
+
+    long getBytes() {
+      return bytes;
+    }
+  }
+
+  RetentionIndex(final Path journal) {
+    this.journal = journal;
+    load();
+  }
+
+  private void load() {
+    if (!Files.exists(journal)) {
+      return;
+    }
+    try (BufferedReader reader = Files.newBufferedReader(journal, StandardCharsets.UTF_8)) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        String[] fields = line.split(SEPARATOR, 5);
+        try {
+          if (fields[0].equals(TRACK) && fields.length == 5) {
+            put(new Entry(fields[1], Paths.get(fields[4]), Long.parseLong(fields[2]), Long.parseLong(fields[3])));
+          } else if (fields[0].equals(UNTRACK) && fields.length == 2) {
+            remove(Paths.get(fields[1]));
+          } else {
+            LOG.warn("Skipping the malformed retention index line: {}", line);
+          }
+        } catch (NumberFormatException e) {
+          LOG.warn("Skipping the malformed retention index line: {}", line);
+        }
+      }
+    } catch (IOException e) {
+      LOG.error("Could not read the retention index {}, starting an empty one.", journal, e);
+      entries.clear();
+      byClass.clear();
+      classBytes.clear();
+    }
+    // The files deleted while the process was down.
+    for (Entry entry : getEntries()) {
+      if (!Files.exists(entry.path)) {
+        remove(entry.path);
+      }
+    }
+    compact();
+  }
+
+  void track(final Entry entry) {
+    put(entry);
+    append(TRACK + SEPARATOR + entry.retentionClass + SEPARATOR + entry.createdMillis + SEPARATOR
+        + entry.bytes + SEPARATOR + entry.path);
+  }
+
+  /**
+   * @return the entry of the file, or null if it was not tracked.
+   */
+  Entry untrack(final Path path) {
+    Entry entry = remove(path);
+    if (entry != null) {
+      append(UNTRACK + SEPARATOR + path);
+      if (journalLines > Math.max(MIN_COMPACTION_LINES, 4 * entries.size())) {
+        compact();
+      }
+    }
+    return entry;
+  }
+
+  /**
+   * @return the files of the class, oldest first.
+   */
+  List<Entry> getEntries(final String retentionClass) {
+    NavigableSet<Entry> classEntries = byClass.get(retentionClass);
+    return classEntries == null ? new ArrayList<>() : new ArrayList<>(classEntries);
+  }
+
+  /**
+   * @return all the files, oldest first.
+   */
+  List<Entry> getEntries() {
+    List<Entry> all = new ArrayList<>(entries.values());
+    all.sort(OLDEST_FIRST);
+    return all;
+  }
+
+  /**
+   * @return the newest file of the class, or null if it has none.
+   */
+  Entry getNewest(final String retentionClass) {
+    NavigableSet<Entry> classEntries = byClass.get(retentionClass);
+    return classEntries == null || classEntries.isEmpty() ? null : classEntries.last();
+  }
+
+  long getBytes(final String retentionClass) {
+    return classBytes.getOrDefault(retentionClass, 0L);
+  }
+
+  int size() {
+    return entries.size();
+  }
+
+  private void put(final Entry entry) {
+    remove(entry.path);
+    entries.put(entry.path, entry);
+    byClass.computeIfAbsent(entry.retentionClass, k -> new TreeSet<>(OLDEST_FIRST)).add(entry);
+    classBytes.merge(entry.retentionClass, entry.bytes, Long::sum);
+  }
+
+  private Entry remove(final Path path) {
+    Entry entry = entries.remove(path);
+    if (entry != null) {
+      byClass.get(entry.retentionClass).remove(entry);
+      classBytes.merge(entry.retentionClass, -entry.bytes, Long::sum);
+    }
+    return entry;
+  }
+
+  private void append(final String line) {
+    try (Writer writer = Files.newBufferedWriter(journal, StandardCharsets.UTF_8,
+        StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+      writer.write(line);
+      writer.write('\n');
+      journalLines++;
+    } catch (IOException e) {
+      // The in-memory index stays correct, only a restart would forget this change.
+      LOG.error("Could not write to the retention index {}", journal, e);
+    }
+  }
+
+  /**
+   * Rewrites the journal with only the live files, to a temporary file moved in place so that a
+   * crash never leaves a partial journal behind.
+   */
+  private void compact() {
+    Path tmp = journal.resolveSibling(journal.getFileName() + ".tmp");
+    try {
+      try (Writer writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+        for (Entry entry : getEntries()) {
+          writer.write(TRACK + SEPARATOR + entry.retentionClass + SEPARATOR + entry.createdMillis + SEPARATOR
+              + entry.bytes + SEPARATOR + entry.path + "\n");
+        }
+      }
+      Files.move(tmp, journal, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      journalLines = entries.size();
+    } catch (IOException e) {
+      LOG.error("Could not compact the retention index {}", journal, e);
+    }
+  }
+}
@@ -0,0 +1,368 @@
+/*
+ * Copyright 2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.retention;
+
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.collectors.StatsCollector;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.config.PluginSettings;
+import com.google.common.annotations.VisibleForTesting;
+import java.io.IOException;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.ToDoubleFunction;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Deletes the files the reader and the RCA framework leave behind, by age and by size.
+ *
+ * <p>The owners of the files track them here once they are complete, with the retention class they
+ * belong to, and untrack them when they delete them on their own. Each {@link #enforce} then
+ * <ul>
+ *   <li>deletes the files of a class that are older than its time ceiling,</li>
+ *   <li>deletes the oldest files of a class while it is over its byte budget, down to its time floor,</li>
+ *   <li>and, when a watched file system such as /dev/shm or /tmp is used above the high watermark,
+ *   sheds the oldest files on it, whatever their class and age, until it is back under the low
+ *   watermark. The newest file of each class is always kept, as it is likely still in use.</li>
+ * </ul>
+ * The files are found through the {@link RetentionIndex}, no directory is ever listed. The owners
+ * that keep state about their files are told of the deletions through the deletion listeners, and
+ * every enforcement that deleted files is written to the stats log.
+ */
+public class RetentionManager {
+  private static final Logger LOG = LogManager.getLogger(RetentionManager.class);
+
+  public static final String METRICS_DB = "metricsdb";
+  public static final String EVENTS = "events";
+  public static final String RCA = "rca";
+
+  static final String EXPIRED = "RetentionExpired";
+  static final String OVER_BUDGET = "RetentionOverBudget";
+  static final String EMERGENCY = "RetentionEmergency";
+  public static final String EMERGENCY_SHEDDING_METRIC = "RetentionEmergencyShedding";
+
+  private static final String INDEX_FILE_KEY = "retention-index-file";
+  private static final String INDEX_FILE_DEFAULT = "/tmp/performanceanalyzer_retention.idx";
+  private static final String WATCHED_PATHS_KEY = "retention-watched-paths";
+  private static final String WATCHED_PATHS_DEFAULT = "/dev/shm,/tmp";
+  private static final String HIGH_WATERMARK_KEY = "retention-high-watermark";
+  private static final double HIGH_WATERMARK_DEFAULT = 0.9;
+  private static final String LOW_WATERMARK_KEY = "retention-low-watermark";
+  private static final double LOW_WATERMARK_DEFAULT = 0.8;
+  private static final String BUDGET_BYTES_KEY_FORMAT = "retention-%s-budget-bytes";
+  private static final String MIN_AGE_SECONDS_KEY_FORMAT = "retention-%s-min-age-seconds";
+  private static final String MAX_AGE_SECONDS_KEY_FORMAT = "retention-%s-max-age-seconds";
+  // The two newest metrics DBs are still queried, and are 5 seconds apart.
+  private static final long METRICS_DB_MIN_AGE_SECONDS_DEFAULT = 60;
+
+  private static volatile RetentionManager instance;
+
+  private final RetentionIndex index;
+  private final Map<String, RetentionPolicy> policies = new LinkedHashMap<>();
+  private final List<Path> watchedPaths = new ArrayList<>();
+  private final double highWatermark;
+  private final double lowWatermark;
+  private final Map<String, List<Consumer<Path>>> deletionListeners = new ConcurrentHashMap<>();
+  private Clock clock = Clock.systemUTC();
+  private ToDoubleFunction<Path> usageProbe = RetentionManager::usedFraction;
+
+  /**
+   * A file deleted by an enforcement, and why.
+   */
+  private static class Deletion {
+    private final RetentionIndex.Entry entry;
+    private final String reason;
+
+    Deletion(RetentionIndex.Entry entry, String reason) {
+      this.entry = entry;
+      this.reason = reason;
+    }
+  }
+
+  /**
+   * @param indexFile     The journal of the retention index.
+   * @param policies      The policy of each retention class.
+   * @param watchedPaths  The file systems to shed files from when they fill up.
+   * @param highWatermark The used fraction of a watched file system that starts the shedding.
+   * @param lowWatermark  The used fraction the shedding brings a watched file system back to.
+   */
+  public RetentionManager(final Path indexFile, final List<RetentionPolicy> policies, final List<Path> watchedPaths,
+      final double highWatermark, final double lowWatermark) {
+    try {
+      Files.createDirectories(indexFile.toAbsolutePath().getParent());
+    } catch (IOException e) {
+      LOG.error("Could not create the directory of the retention index {}", indexFile, e);
+    }
+    this.index = new RetentionIndex(indexFile);
+    for (RetentionPolicy policy : policies) {
+      this.policies.put(policy.getRetentionClass(), policy);
+    }
+    for (Path watched : watchedPaths) {
+      this.watchedPaths.add(watched.toAbsolutePath().normalize());
+    }
+    this.highWatermark = highWatermark;
+    this.lowWatermark = lowWatermark;
+    LOG.info("Retention: {}, watching {} with watermarks {}/{}, {} files in the index.",
+        policies, watchedPaths, highWatermark, lowWatermark, index.size());
+  }
+
+  public static RetentionManager instance() {
+    if (instance == null) {
+      synchronized (RetentionManager.class) {
+        if (instance == null) {
+          instance = fromSettings(PluginSettings.instance());
+        }
+      }
+    }
+    return instance;
+  }
+
+  /**
+   * Starts tracking a complete file.
+   *
+   * @param retentionClass The retention class of the file.
+   * @param file           The file.
+   * @param createdMillis  The time the data in the file starts at, its age is counted from there.
+   */
+  public synchronized void track(final String retentionClass, final Path file, final long createdMillis) {
+    Path path = file.toAbsolutePath().normalize();
+    try {
+      index.track(new RetentionIndex.Entry(retentionClass, path, createdMillis, Files.size(path)));
+    } catch (IOException e) {
+      LOG.debug("Not tracking {}, it could not be sized.", path, e);
+    }
+  }
+
+  /**
+   * Stops tracking a file, to be called by the owners that delete their files on their own.
+   */
+  public synchronized void untrack(final Path file) {
+    index.untrack(file.toAbsolutePath().normalize());
+  }
+
+  /**
+   * Registers a listener called with each file of the class the retention manager deletes.
+   */
+  public void addDeletionListener(final String retentionClass, final Consumer<Path> listener) {
+    deletionListeners.computeIfAbsent(retentionClass, k -> new CopyOnWriteArrayList<>()).add(listener);
+  }
+
+  public void removeDeletionListener(final String retentionClass, final Consumer<Path> listener) {
+    deletionListeners.getOrDefault(retentionClass, new ArrayList<>()).remove(listener);
+  }
+
+  public synchronized long getBytes(final String retentionClass) {
+    return index.getBytes(retentionClass);
+  }
+
+  /**
+   * Deletes the files the policies and the watermarks call for.
+   */
+  public void enforce() {
+    long startMillis = clock.millis();
+    List<Deletion> deletions = new ArrayList<>();
+    Map<String, String> classBytes = new LinkedHashMap<>();
+    synchronized (this) {
+      enforcePolicies(startMillis, deletions);
+      shedWatchedPaths(deletions);
+      for (String retentionClass : policies.keySet()) {
+        classBytes.put(retentionClass + "Bytes", String.valueOf(index.getBytes(retentionClass)));
+      }
+    }
+    if (deletions.isEmpty()) {
+      return;
+    }
+
+    // The listeners are called outside the lock, they may be holding their own locks when they
+    // untrack files.
+    Map<String, AtomicInteger> counters = new HashMap<>();
+    long freedBytes = 0;
+    for (Deletion deletion : deletions) {
+      counters.computeIfAbsent(deletion.reason, k -> new AtomicInteger(0)).incrementAndGet();
+      freedBytes += deletion.entry.getBytes();
+      for (Consumer<Path> listener :
+          deletionListeners.getOrDefault(deletion.entry.getRetentionClass(), new ArrayList<>())) {
+        try {
+          listener.accept(deletion.entry.getPath());
+        } catch (Exception e) {
+          LOG.error("Retention deletion listener failed for {}", deletion.entry.getPath(), e);
+        }
+      }
+    }
+    Map<String, String> statsData = new LinkedHashMap<>();
+    statsData.put("MethodName", "EnforceRetention");
+    statsData.put("FreedBytes", String.valueOf(freedBytes));
+    statsData.putAll(classBytes);
+    StatsCollector.instance().logStatsRecord(counters, statsData, null, startMillis, clock.millis());
+  }
+
+  private void enforcePolicies(final long nowMillis, final List<Deletion> deletions) {
+    for (RetentionPolicy policy : policies.values()) {
+      for (RetentionIndex.Entry entry : index.getEntries(policy.getRetentionClass())) {
+        long ageMillis = nowMillis - entry.getCreatedMillis();
+        if (policy.isExpired(ageMillis)) {
+          delete(entry, EXPIRED, deletions);
+        } else if (policy.isOverBudget(index.getBytes(policy.getRetentionClass()))
+            && !policy.isProtected(ageMillis)) {
+          delete(entry, OVER_BUDGET, deletions);
+        } else {
+          // The files are oldest first, the younger ones are neither expired nor deletable.
+          break;
+        }
+      }
+    }
+  }
+
+  private void shedWatchedPaths(final List<Deletion> deletions) {
+    for (Path watched : watchedPaths) {
+      double used = usageProbe.applyAsDouble(watched);
+      if (used < highWatermark) {
+        continue;
+      }
+      LOG.warn("Retention: {} is {}% used, shedding the oldest files on it.", watched, Math.round(used * 100));
+      StatsCollector.instance().logMetric(EMERGENCY_SHEDDING_METRIC);
+      for (RetentionIndex.Entry entry : index.getEntries()) {
+        if (used <= lowWatermark) {
+          break;
+        }
+        if (!entry.getPath().startsWith(watched) || entry == index.getNewest(entry.getRetentionClass())) {
+          continue;
+        }
+        delete(entry, EMERGENCY, deletions);
+        used = usageProbe.applyAsDouble(watched);
+      }
+      if (used > lowWatermark) {
+        LOG.warn("Retention: {} is still {}% used, no more tracked files can be shed from it.",
+            watched, Math.round(used * 100));
+      }
+    }
+  }
+
+  private void delete(final RetentionIndex.Entry entry, final String reason, final List<Deletion> deletions) {
+    try {
+      Files.deleteIfExists(entry.getPath());
+      LOG.info("Retention: deleted {} ({} bytes) of class {}: {}", entry.getPath(), entry.getBytes(),
+          entry.getRetentionClass(), reason);
+    } catch (IOException e) {
+      // Untracked all the same, it would otherwise be retried on every enforcement.
+      LOG.error("Retention: could not delete {}", entry.getPath(), e);
+    }
+    index.untrack(entry.getPath());
+    deletions.add(new Deletion(entry, reason));
+  }
+
+  private static double usedFraction(final Path path) {
+    try {
+      FileStore store = Files.getFileStore(path);
+      long total = store.getTotalSpace();
+      return total > 0 ? 1.0 - (double) store.getUsableSpace() / total : 0;
+    } catch (IOException e) {
+      // Not mounted here, nothing to shed.
+      return 0;
+    }
+  }
+
+  @VisibleForTesting
+  void setClock(Clock clock) {
+    this.clock = clock;
+  }
+
+  @VisibleForTesting
+  void setUsageProbe(ToDoubleFunction<Path> usageProbe) {
+    this.usageProbe = usageProbe;
+  }
+
+  private static RetentionManager fromSettings(final PluginSettings settings) {
+    List<RetentionPolicy> policies = Arrays.asList(
+        loadPolicy(settings, METRICS_DB, METRICS_DB_MIN_AGE_SECONDS_DEFAULT, 0),
+        // Like the purge of the writer, an event file is kept for the metrics deletion interval.
+        loadPolicy(settings, EVENTS, 0, TimeUnit.MINUTES.toSeconds(settings.getMetricsDeletionInterval())),
+        loadPolicy(settings, RCA, 0, 0));
+    List<Path> watchedPaths = new ArrayList<>();
+    for (String watched : settings.getSettingValue(WATCHED_PATHS_KEY, WATCHED_PATHS_DEFAULT).split(",")) {
+      if (!watched.trim().isEmpty()) {
+        watchedPaths.add(Paths.get(watched.trim()));
+      }
+    }
+    double highWatermark = loadFraction(settings, HIGH_WATERMARK_KEY, HIGH_WATERMARK_DEFAULT);
+    double lowWatermark = loadFraction(settings, LOW_WATERMARK_KEY, LOW_WATERMARK_DEFAULT);
+    if (lowWatermark > highWatermark) {
+      LOG.error("{} is above {}. Using default values {} and {}.", LOW_WATERMARK_KEY, HIGH_WATERMARK_KEY,
+          HIGH_WATERMARK_DEFAULT, LOW_WATERMARK_DEFAULT);
+      highWatermark = HIGH_WATERMARK_DEFAULT;
+      lowWatermark = LOW_WATERMARK_DEFAULT;
+    }
+    return new RetentionManager(Paths.get(settings.getSettingValue(INDEX_FILE_KEY, INDEX_FILE_DEFAULT)),
+        policies, watchedPaths, highWatermark, lowWatermark);
+  }
+
+  private static RetentionPolicy loadPolicy(final PluginSettings settings, final String retentionClass,
+      final long minAgeSecondsDefault, final long maxAgeSecondsDefault) {
+    return new RetentionPolicy(retentionClass,
+        loadNonNegativeLong(settings, String.format(BUDGET_BYTES_KEY_FORMAT, retentionClass), 0),
+        TimeUnit.SECONDS.toMillis(loadNonNegativeLong(settings,
+            String.format(MIN_AGE_SECONDS_KEY_FORMAT, retentionClass), minAgeSecondsDefault)),
+        TimeUnit.SECONDS.toMillis(loadNonNegativeLong(settings,
+            String.format(MAX_AGE_SECONDS_KEY_FORMAT, retentionClass), maxAgeSecondsDefault)));
+  }
+
+  private static long loadNonNegativeLong(final PluginSettings settings, final String key, final long defaultValue) {
+    String value = settings.getSettingValue(key, null);
+    if (value == null) {
+      return defaultValue;
+    }
+    try {
+      long parsed = Long.parseLong(value.trim());
+      if (parsed >= 0) {
+        return parsed;
+      }
+      LOG.error("{} must not be negative. Using default value {}.", key, defaultValue);
+    } catch (NumberFormatException e) {
+      LOG.error("Invalid {}. Using default value {}.", key, defaultValue, e);
+    }
+    return defaultValue;
+  }
+
+  private static double loadFraction(final PluginSettings settings, final String key, final double defaultValue) {
+    String value = settings.getSettingValue(key, null);
+    if (value == null) {
+      return defaultValue;
+    }
+    try {
+      double parsed = Double.parseDouble(value.trim());
+      if (parsed > 0 && parsed <= 1) {
+        return parsed;
+      }
+      LOG.error("{} must be in (0, 1]. Using default value {}.", key, defaultValue);
+    } catch (NumberFormatException e) {
+      LOG.error("Invalid {}. Using default value {}.", key, defaultValue, e);
+    }
+    return defaultValue;
+  }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.retention;
+
+/**
+ * How long the files of a retention class are kept, and how much space they may take.
+ *
+ * <p>A file older than the time ceiling is always deleted. Past that, the oldest files are deleted
+ * while the class takes more than its byte budget, but never a file younger than the time floor.
+ * A zero budget or ceiling means there is no such limit.
+ */
+public class RetentionPolicy {
+  private final String retentionClass;
+  private final long budgetBytes;
+  private final long minAgeMillis;
+  private final long maxAgeMillis;
+
+  public RetentionPolicy(String retentionClass, long budgetBytes, long minAgeMillis, long maxAgeMillis) {
+    this.retentionClass = retentionClass;
+    this.budgetBytes = budgetBytes;
+    this.minAgeMillis = minAgeMillis;
+    this.maxAgeMillis = maxAgeMillis;
+  }
+
+  public String getRetentionClass() {
+    return retentionClass;
+  }
+
+  public long getBudgetBytes() {
+    return budgetBytes;
+  }
+
+  public long getMinAgeMillis() {
+    return minAgeMillis;
+  }
+
+  public long getMaxAgeMillis() {
+    return maxAgeMillis;
+  }
+
+  boolean isOverBudget(long bytes) {
+    return budgetBytes > 0 && bytes > budgetBytes;
+  }
+
+  boolean isExpired(long ageMillis) {
+    return maxAgeMillis > 0 && ageMillis > maxAgeMillis;
+  }
+
+  boolean isProtected(long ageMillis) {
+    return ageMillis < minAgeMillis;
+  }
+
+  @Override
+  public String toString() {
+    return "RetentionPolicy{class=" + retentionClass + ", budgetBytes=" + budgetBytes
+        + ", minAgeMillis=" + minAgeMillis + ", maxAgeMillis=" + maxAgeMillis + "}";
+  }
+}
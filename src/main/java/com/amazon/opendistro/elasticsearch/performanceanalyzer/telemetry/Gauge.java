@@ -0,0 +1,46 @@
+/*
+ * Copyright 2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.telemetry;
+
+import java.util.function.LongSupplier;
+
+/**
+ * A value that goes up and down, such as the number of throttled RCA vertices.
+ *
+ * <p>A gauge either holds the last value it was set to, or reads its value from a source each time
+ * it is read, for a value its owner already keeps up to date.
+ */
+public class Gauge {
+  private volatile long value;
+  private final LongSupplier source;
+
+  public Gauge() {
+    this(null);
+  }
+
+  Gauge(LongSupplier source) {
+    this.source = source;
+  }
+
+  /** Sets the value. It is ignored if the gauge reads its value from a source. */
+  public void set(long value) {
+    this.value = value;
+  }
+
+  public long get() {
+    return source == null ? value : source.getAsLong();
+  }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.telemetry;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A latency histogram with fixed, power of two, microsecond buckets.
+ *
+ * <p>Bucket {@code i} counts the samples that took at most 2^i microseconds and more than the upper
+ * bound of bucket {@code i - 1}. The last bucket counts everything above 2^(NUM_BUCKETS - 2)
+ * microseconds, about 67 seconds. Because every histogram has the same bucket boundaries, two
+ * histograms can be merged by adding up their buckets.
+ *
+ * <p>Recording a sample finds the bucket with a count of leading zeros and increments two counters,
+ * so it takes constant time and allocates nothing.
+ */
+public class LatencyHistogram {
+  public static final int NUM_BUCKETS = 28;
+
+  private final AtomicLongArray buckets;
+  private final LongAdder sumNanos;
+  private final LongAdder count;
+
+  public LatencyHistogram() {
+    this.buckets = new AtomicLongArray(NUM_BUCKETS);
+    this.sumNanos = new LongAdder();
+    this.count = new LongAdder();
+  }
+
+  /**
+   * Records one sample.
+   *
+   * @param nanos The latency of the sample in nanoseconds, as measured with {@link System#nanoTime()}.
+   */
+  public void recordNanos(long nanos) {
+    if (nanos < 0) {
+      nanos = 0;
+    }
+    buckets.incrementAndGet(bucketIndex(nanos / 1000));
+    sumNanos.add(nanos);
+    count.increment();
+  }
+
+  /**
+   * Records the time elapsed since {@code startNanos}.
+   *
+   * @param startNanos The value of {@link System#nanoTime()} when the measured operation started.
+   */
+  public void recordSince(long startNanos) {
+    recordNanos(System.nanoTime() - startNanos);
+  }
+
+  /**
+   * Adds the samples of another histogram to this one.
+   */
+  public void merge(LatencyHistogram other) {
+    for (int i = 0; i < NUM_BUCKETS; i++) {
+      long otherCount = other.buckets.get(i);
+      if (otherCount != 0) {
+        buckets.addAndGet(i, otherCount);
+      }
+    }
+    sumNanos.add(other.sumNanos.sum());
+    count.add(other.count.sum());
+  }
+
+  static int bucketIndex(long micros) {
+    if (micros <= 1) {
+      return 0;
+    }
+    // ceil(log2(micros))
+    int index = 64 - Long.numberOfLeadingZeros(micros - 1);
+    return Math.min(index, NUM_BUCKETS - 1);
+  }
+
+  /**
+   * The upper bound of a bucket in seconds. The last bucket has no upper bound.
+   */
+  public static double upperBoundSeconds(int bucket) {
+    if (bucket >= NUM_BUCKETS - 1) {
+      return Double.POSITIVE_INFINITY;
+    }
+    return (1L << bucket) / 1_000_000.0;
+  }
+
+  /**
+   * The number of samples in a single bucket, not including the buckets below it.
+   */
+  public long getBucketCount(int bucket) {
+    return buckets.get(bucket);
+  }
+
+  public long getCount() {
+    return count.sum();
+  }
+
+  public long getSumNanos() {
+    return sumNanos.sum();
+  }
+}
@@ -0,0 +1,221 @@
+/*
+ * Copyright 2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.telemetry;
+
+import com.google.common.annotations.VisibleForTesting;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * In-process registry of the counters, gauges and latency histograms that the performance analyzer
+ * keeps about itself. Unlike the stats log written by the StatsCollector, nothing is reset when the
+ * metrics are read: they are pulled in the OpenMetrics text format from the internal metrics
+ * endpoint of the web server, and the scraper computes rates and quantiles from the cumulative
+ * values.
+ *
+ * <p>Looking up a metric goes through a map, so the hot paths look their metrics up once and keep
+ * the returned object around. Recording a value on that object takes constant time and does not
+ * allocate.
+ */
+public class TelemetryRegistry {
+  private static final TelemetryRegistry INSTANCE = new TelemetryRegistry();
+
+  enum Type {
+    COUNTER("counter"),
+    GAUGE("gauge"),
+    HISTOGRAM("histogram");
+
+    private final String name;
+
+    Type(String name) {
+      this.name = name;
+    }
+  }
+
+  /**
+   * All the metrics that share a name. A family either has a single unlabelled metric or one metric
+   * per value of its label.
+   */
+  static class Family<T> {
+    private final String name;
+    private final String help;
+    private final Type type;
+    private final String labelName;
+    private final Supplier<T> factory;
+    private final ConcurrentMap<String, T> children;
+
+    Family(String name, String help, Type type, String labelName, Supplier<T> factory) {
+      this.name = name;
+      this.help = help;
+      this.type = type;
+      this.labelName = labelName;
+      this.factory = factory;
+      this.children = new ConcurrentSkipListMap<>();
+    }
+
+    T child(String labelValue) {
+      T child = children.get(labelValue);
+      if (child == null) {
+        child = children.computeIfAbsent(labelValue, k -> factory.get());
+      }
+      return child;
+    }
+  }
+
+  private final ConcurrentMap<String, Family<?>> families;
+
+  @VisibleForTesting
+  TelemetryRegistry() {
+    this.families = new ConcurrentSkipListMap<>();
+  }
+
+  public static TelemetryRegistry instance() {
+    return INSTANCE;
+  }
+
+  public Counter counter(String name, String help) {
+    return counter(name, help, null, "");
+  }
+
+  public Counter counter(String name, String help, String labelName, String labelValue) {
+    return family(name, help, Type.COUNTER, labelName, Counter::new).child(labelValue);
+  }
+
+  public Gauge gauge(String name, String help) {
+    return gauge(name, help, null, "");
+  }
+
+  public Gauge gauge(String name, String help, String labelName, String labelValue) {
+    return family(name, help, Type.GAUGE, labelName, Gauge::new).child(labelValue);
+  }
+
+  /**
+   * A gauge that reads its value from {@code source} each time the metrics are rendered. It suits a
+   * value its owner already keeps, such as the size of a queue, and costs nothing on the hot path.
+   */
+  public Gauge gauge(String name, String help, LongSupplier source) {
+    return family(name, help, Type.GAUGE, null, () -> new Gauge(source)).child("");
+  }
+
+  public LatencyHistogram histogram(String name, String help) {
+    return histogram(name, help, null, "");
+  }
+
+  public LatencyHistogram histogram(String name, String help, String labelName, String labelValue) {
+    return family(name, help, Type.HISTOGRAM, labelName, LatencyHistogram::new).child(labelValue);
+  }
+
+  @SuppressWarnings("unchecked")
+  private <T> Family<T> family(String name, String help, Type type, String labelName, Supplier<T> factory) {
+    Family<?> family = families.computeIfAbsent(name, k -> new Family<>(name, help, type, labelName, factory));
+    if (family.type != type || !equalsNullable(family.labelName, labelName)) {
+      throw new IllegalArgumentException(
+          String.format("Metric %s is already registered as a %s with label %s",
+              name, family.type.name, family.labelName));
+    }
+    return (Family<T>) family;
+  }
+
+  private static boolean equalsNullable(String a, String b) {
+    return a == null ? b == null : a.equals(b);
+  }
+
+  /**
+   * Renders all the metrics in the OpenMetrics text exposition format. Histogram buckets and sums
+   * are reported in seconds.
+   */
+  public String toOpenMetrics() {
+    StringBuilder sb = new StringBuilder();
+    for (Family<?> family : families.values()) {
+      sb.append("# TYPE ").append(family.name).append(' ').append(family.type.name).append('\n');
+      sb.append("# HELP ").append(family.name).append(' ').append(escape(family.help, false)).append('\n');
+      for (Map.Entry<String, ?> child : family.children.entrySet()) {
+        String labels = family.labelName == null
+            ? ""
+            : family.labelName + "=\"" + escape(child.getKey(), true) + "\"";
+        switch (family.type) {
+          case COUNTER:
+            appendSample(sb, family.name + "_total", labels, null, ((Counter) child.getValue()).get());
+            break;
+          case GAUGE:
+            appendSample(sb, family.name, labels, null, ((Gauge) child.getValue()).get());
+            break;
+          case HISTOGRAM:
+            appendHistogram(sb, family.name, labels, (LatencyHistogram) child.getValue());
+            break;
+          default:
+            break;
+        }
+      }
+    }
+    sb.append("# EOF\n");
+    return sb.toString();
+  }
+
+  private static void appendHistogram(StringBuilder sb, String name, String labels, LatencyHistogram histogram) {
+    // Read the count first: concurrent records may land in the buckets after that, but the +Inf
+    // bucket and the count must agree.
+    long count = histogram.getCount();
+    long cumulative = 0;
+    for (int i = 0; i < LatencyHistogram.NUM_BUCKETS - 1; i++) {
+      cumulative += histogram.getBucketCount(i);
+      appendSample(sb, name + "_bucket", labels,
+          "le=\"" + LatencyHistogram.upperBoundSeconds(i) + "\"", Math.min(cumulative, count));
+    }
+    appendSample(sb, name + "_bucket", labels, "le=\"+Inf\"", count);
+    sb.append(name).append("_sum");
+    if (!labels.isEmpty()) {
+      sb.append('{').append(labels).append('}');
+    }
+    sb.append(' ').append(histogram.getSumNanos() / 1e9).append('\n');
+    appendSample(sb, name + "_count", labels, null, count);
+  }
+
+  private static void appendSample(StringBuilder sb, String name, String labels, String extraLabel, long value) {
+    sb.append(name);
+    if (!labels.isEmpty() || extraLabel != null) {
+      sb.append('{').append(labels);
+      if (extraLabel != null) {
+        if (!labels.isEmpty()) {
+          sb.append(',');
+        }
+        sb.append(extraLabel);
+      }
+      sb.append('}');
+    }
+    sb.append(' ').append(value).append('\n');
+  }
+
+  private static String escape(String value, boolean quote) {
+    StringBuilder sb = new StringBuilder(value.length());
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c == '\\') {
+        sb.append("\\\\");
+      } else if (c == '\n') {
+        sb.append("\\n");
+      } else if (quote && c == '"') {
+        sb.append("\\\"");
+      } else {
+        sb.append(c);
+      }
+    }
+    return sb.toString();
+  }
+}
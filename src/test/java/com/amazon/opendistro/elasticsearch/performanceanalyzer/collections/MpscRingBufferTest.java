@@ -0,0 +1,133 @@
+/*
+ * Copyright 2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.collections;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MpscRingBufferTest {
+
+  @Test
+  public void testCapacityIsRoundedUp() {
+    Assert.assertEquals(1, new MpscRingBuffer<Integer>(1).capacity());
+    Assert.assertEquals(8, new MpscRingBuffer<Integer>(5).capacity());
+    Assert.assertEquals(8, new MpscRingBuffer<Integer>(8).capacity());
+  }
+
+  @Test
+  public void testRejectsWhenFullAndWrapsAround() {
+    MpscRingBuffer<Integer> buffer = new MpscRingBuffer<>(4);
+    for (int i = 0; i < 4; i++) {
+      Assert.assertTrue(buffer.offer(i));
+    }
+    Assert.assertFalse(buffer.offer(4));
+    Assert.assertEquals(4, buffer.size());
+
+    Assert.assertEquals(Integer.valueOf(0), buffer.poll());
+    Assert.assertTrue(buffer.offer(4));
+
+    List<Integer> drained = new ArrayList<>();
+    Assert.assertEquals(2, buffer.drainTo(drained, 2));
+    Assert.assertEquals(2, buffer.drainTo(drained));
+    Assert.assertEquals(4, drained.size());
+    for (int i = 0; i < 4; i++) {
+      Assert.assertEquals(Integer.valueOf(i + 1), drained.get(i));
+    }
+    Assert.assertTrue(buffer.isEmpty());
+    Assert.assertNull(buffer.poll());
+  }
+
+  @Test
+  public void testConcurrentProducers() throws Exception {
+    final int producers = 4;
+    final int perProducer = 20000;
+    MpscRingBuffer<Integer> buffer = new MpscRingBuffer<>(1024);
+    CountDownLatch start = new CountDownLatch(1);
+    List<Thread> threads = new ArrayList<>();
+    for (int p = 0; p < producers; p++) {
+      final int producer = p;
+      Thread thread = new Thread(() -> {
+        try {
+          start.await();
+        } catch (InterruptedException e) {
+          return;
+        }
+        for (int i = 0; i < perProducer; i++) {
+          Integer value = producer * perProducer + i;
+          while (!buffer.offer(value)) {
+            Thread.yield();
+          }
+        }
+      });
+      thread.start();
+      threads.add(thread);
+    }
+
+    start.countDown();
+    int[] lastSeen = new int[producers];
+    Arrays.fill(lastSeen, -1);
+    List<Integer> drained = new ArrayList<>();
+    int total = 0;
+    while (total < producers * perProducer) {
+      drained.clear();
+      total += buffer.drainTo(drained);
+      for (Integer value : drained) {
+        int producer = value / perProducer;
+        int sequence = value % perProducer;
+        // Elements of one producer come out in the order they went in.
+        Assert.assertEquals(lastSeen[producer] + 1, sequence);
+        lastSeen[producer] = sequence;
+      }
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    Assert.assertTrue(buffer.isEmpty());
+  }
+
+  @Test
+  public void testBlockingQueueMethods() throws Exception {
+    BlockingQueue<Integer> queue = new MpscRingBuffer<>(2);
+    Assert.assertNull(queue.peek());
+    Assert.assertNull(queue.poll(1, TimeUnit.MILLISECONDS));
+    Assert.assertTrue(queue.offer(1, 1, TimeUnit.MILLISECONDS));
+    queue.put(2);
+    Assert.assertEquals(0, queue.remainingCapacity());
+    Assert.assertFalse(queue.offer(3, 1, TimeUnit.MILLISECONDS));
+    Assert.assertEquals(Integer.valueOf(1), queue.peek());
+    Assert.assertEquals(Arrays.asList(1, 2), new ArrayList<>(queue));
+
+    Thread producer = new Thread(() -> {
+      try {
+        queue.put(3);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    });
+    producer.start();
+    Assert.assertEquals(Integer.valueOf(1), queue.take());
+    producer.join();
+    Assert.assertEquals(Integer.valueOf(2), queue.take());
+    Assert.assertEquals(Integer.valueOf(3), queue.take());
+    Assert.assertTrue(queue.isEmpty());
+  }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.config;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ConfigFileWatcherTest {
+  private Path dir;
+  private ConfigFileWatcher watcher;
+  private Thread watcherThread;
+  private LinkedBlockingQueue<Set<Path>> changes;
+
+  @Before
+  public void setUp() throws IOException {
+    dir = Files.createTempDirectory("config-watcher");
+    watcher = new ConfigFileWatcher(100);
+    Assume.assumeTrue(watcher.isWatching());
+    changes = new LinkedBlockingQueue<>();
+    watcher.subscribe(changes::add);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    watcher.close();
+    if (watcherThread != null) {
+      watcherThread.join(5000);
+    }
+    for (String name : new String[] {"rca.conf", "rca_enabled.conf", "other.conf"}) {
+      Files.deleteIfExists(dir.resolve(name));
+    }
+    Files.deleteIfExists(dir);
+  }
+
+  private void start() {
+    watcherThread = new Thread(watcher);
+    watcherThread.start();
+  }
+
+  @Test
+  public void testNotifiesWatchedFilesOnly() throws Exception {
+    Path rcaConf = dir.resolve("rca.conf");
+    Path enabled = dir.resolve("rca_enabled.conf");
+    Assert.assertTrue(watcher.watch(rcaConf));
+    Assert.assertTrue(watcher.watch(enabled));
+    Assert.assertFalse(watcher.watch(rcaConf));
+    start();
+
+    Files.write(dir.resolve("other.conf"), "x".getBytes());
+    Files.write(rcaConf, "{}".getBytes());
+    Set<Path> changed = changes.poll(10, TimeUnit.SECONDS);
+    Assert.assertNotNull(changed);
+    Assert.assertEquals(1, changed.size());
+    Assert.assertTrue(changed.contains(rcaConf.toAbsolutePath().normalize()));
+
+    Files.write(enabled, "true".getBytes());
+    changed = changes.poll(10, TimeUnit.SECONDS);
+    Assert.assertNotNull(changed);
+    Assert.assertTrue(changed.contains(enabled.toAbsolutePath().normalize()));
+  }
+
+  @Test
+  public void testDebouncesBurstOfWrites() throws Exception {
+    Path rcaConf = dir.resolve("rca.conf");
+    Path enabled = dir.resolve("rca_enabled.conf");
+    watcher.watch(rcaConf);
+    watcher.watch(enabled);
+    start();
+
+    for (int i = 0; i < 5; i++) {
+      Files.write(rcaConf, ("{\"v\": " + i + "}").getBytes());
+    }
+    Files.write(enabled, "false".getBytes());
+    Set<Path> changed = changes.poll(10, TimeUnit.SECONDS);
+    Assert.assertNotNull(changed);
+    Assert.assertEquals(2, changed.size());
+    Assert.assertNull(changes.poll(500, TimeUnit.MILLISECONDS));
+  }
+
+  @Test
+  public void testCloseStopsWatching() throws Exception {
+    watcher.watch(dir.resolve("rca.conf"));
+    start();
+    watcher.close();
+    watcherThread.join(5000);
+    Assert.assertFalse(watcherThread.isAlive());
+    Assert.assertFalse(watcher.isWatching());
+  }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.decisionmaker.actions;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.AppContext;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.decisionmaker.actions.configs.ActionEffectivenessConfig;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.decisionmaker.simulator.SimulationClock;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.grpc.ResourceEnum;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.api.Resources;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.api.contexts.ResourceContext;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.api.flow_units.ResourceFlowUnit;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.api.summaries.HotClusterSummary;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.api.summaries.HotNodeSummary;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.api.summaries.HotResourceSummary;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.api.summaries.ResourceUtil;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.core.RcaConf;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.util.InstanceDetails;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.util.RcaConsts;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.store.rca.cluster.NodeKey;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ActionEffectivenessTrackerTest {
+  private static final long START = 1_600_000_000_000L;
+  private static final List<ResourceEnum> QUEUES =
+      Arrays.asList(ResourceEnum.WRITE_THREADPOOL, ResourceEnum.SEARCH_THREADPOOL);
+  private final NodeKey node1 = new NodeKey(new InstanceDetails.Id("node1"), new InstanceDetails.Ip("127.0.0.1"));
+  private SimulationClock clock;
+  private ActionEffectivenessTracker tracker;
+  private ModifyQueueCapacityAction writeQueueAction;
+  private ModifyQueueCapacityAction searchQueueAction;
+
+  @Before
+  public void setup() throws Exception {
+    clock = new SimulationClock(START);
+    tracker = new ActionEffectivenessTracker(clock);
+    RcaConf conf = new RcaConf();
+    conf.readConfigFromString("{\"action-config-settings\": {\"effectiveness-settings\": "
+        + "{\"observation-window-seconds\": 120, \"min-evaluations\": 2, \"suppression-seconds\": 600}}}");
+    tracker.configure(new ActionEffectivenessConfig(conf));
+
+    AppContext appContext = new AppContext();
+    appContext.getNodeConfigCache().put(node1, ResourceUtil.WRITE_QUEUE_CAPACITY, 500);
+    appContext.getNodeConfigCache().put(node1, ResourceUtil.SEARCH_QUEUE_CAPACITY, 1000);
+    RcaConf rcaConf = new RcaConf(Paths.get(RcaConsts.TEST_CONFIG_PATH, "rca.conf").toString());
+    writeQueueAction = ModifyQueueCapacityAction
+        .newBuilder(node1, ResourceEnum.WRITE_THREADPOOL, appContext, rcaConf).increase(true).build();
+    searchQueueAction = ModifyQueueCapacityAction
+        .newBuilder(node1, ResourceEnum.SEARCH_THREADPOOL, appContext, rcaConf).increase(true).build();
+  }
+
+  private void observe(long offsetMillis, Double writeRejections) {
+    clock.advanceTo(START + offsetMillis);
+    ResourceFlowUnit<HotClusterSummary> flowUnit;
+    if (writeRejections == null) {
+      flowUnit = new ResourceFlowUnit<>(clock.millis(), new ResourceContext(Resources.State.HEALTHY), null);
+    } else {
+      HotNodeSummary nodeSummary = new HotNodeSummary(node1.getNodeId(), node1.getHostAddress());
+      nodeSummary.appendNestedSummary(
+          new HotResourceSummary(ResourceUtil.WRITE_QUEUE_REJECTION, 1, writeRejections, 60));
+      HotClusterSummary clusterSummary = new HotClusterSummary(1, 1);
+      clusterSummary.appendNestedSummary(nodeSummary);
+      flowUnit = new ResourceFlowUnit<>(clock.millis(), new ResourceContext(Resources.State.UNHEALTHY),
+          clusterSummary);
+    }
+    tracker.observe(QUEUES, flowUnit);
+  }
+
+  private void publish(long offsetMillis, Action action) {
+    clock.advanceTo(START + offsetMillis);
+    tracker.actionPublished(action);
+  }
+
+  @Test
+  public void testIneffectiveActionIsSuppressed() {
+    observe(0, 10.0);
+    publish(0, writeQueueAction);
+    observe(30_000L, 10.0);
+    observe(60_000L, 12.0);
+    observe(90_000L, 10.0);
+    // The window is over, the rejections did not go down.
+    observe(121_000L, 10.0);
+    assertEquals(0, tracker.getScore(writeQueueAction, node1), 0.001);
+    assertEquals(1, tracker.getEvaluations(writeQueueAction, node1));
+    assertFalse(tracker.isIneffective(writeQueueAction));
+
+    // Publishing the action again evaluates the previous publication.
+    publish(122_000L, writeQueueAction);
+    observe(150_000L, 11.0);
+    publish(160_000L, writeQueueAction);
+    assertEquals(2, tracker.getEvaluations(writeQueueAction, node1));
+    assertTrue(tracker.isIneffective(writeQueueAction));
+
+    // The search queue of the node is scored on its own.
+    assertFalse(tracker.isIneffective(searchQueueAction));
+    assertEquals(ActionEffectivenessTracker.DEFAULT_SCORE, tracker.getScore(searchQueueAction, node1), 0.001);
+  }
+
+  @Test
+  public void testRelievedSignalRaisesTheScore() {
+    observe(0, 10.0);
+    publish(0, writeQueueAction);
+    observe(30_000L, 10.0);
+    observe(121_000L, 10.0);
+    assertEquals(0, tracker.getScore(writeQueueAction, node1), 0.001);
+
+    // The rejections go down, and then stop.
+    publish(130_000L, writeQueueAction);
+    observe(160_000L, 5.0);
+    observe(190_000L, null);
+    observe(251_000L, null);
+    assertEquals(0.5, tracker.getScore(writeQueueAction, node1), 0.001);
+    assertFalse(tracker.isIneffective(writeQueueAction));
+  }
+
+  @Test
+  public void testSuppressedActionIsProbedAgain() {
+    observe(0, 10.0);
+    publish(0, writeQueueAction);
+    observe(30_000L, 10.0);
+    observe(121_000L, 10.0);
+    publish(130_000L, writeQueueAction);
+    observe(160_000L, 10.0);
+    observe(251_000L, 10.0);
+    assertTrue(tracker.isIneffective(writeQueueAction));
+
+    // Once the suppression period is over the action is proposed again, and a probe that does not
+    // help suppresses it for another period.
+    clock.advanceTo(START + 850_000L);
+    assertTrue(tracker.isIneffective(writeQueueAction));
+    clock.advanceTo(START + 852_000L);
+    assertFalse(tracker.isIneffective(writeQueueAction));
+    publish(860_000L, writeQueueAction);
+    observe(890_000L, 10.0);
+    observe(981_000L, 10.0);
+    assertEquals(3, tracker.getEvaluations(writeQueueAction, node1));
+    assertTrue(tracker.isIneffective(writeQueueAction));
+
+    // A probe that relieves the node lifts the suppression.
+    clock.advanceTo(START + 1_582_000L);
+    assertFalse(tracker.isIneffective(writeQueueAction));
+    publish(1_590_000L, writeQueueAction);
+    observe(1_620_000L, 5.0);
+    observe(1_650_000L, null);
+    observe(1_711_000L, null);
+    assertEquals(0.5, tracker.getScore(writeQueueAction, node1), 0.001);
+    assertFalse(tracker.isIneffective(writeQueueAction));
+  }
+
+  @Test
+  public void testOnlyLaterFlowUnitsAreObserved() {
+    observe(0, 10.0);
+    publish(10_000L, writeQueueAction);
+    // Computed before the action was published.
+    tracker.observe(QUEUES, new ResourceFlowUnit<>(START + 5_000L, new ResourceContext(Resources.State.HEALTHY), null));
+    observe(131_000L, 10.0);
+    assertEquals(0, tracker.getEvaluations(writeQueueAction, node1));
+
+    // A signal the RCA does not report on is left untouched.
+    tracker.observe(Collections.singletonList(ResourceEnum.FIELD_DATA_CACHE),
+        new ResourceFlowUnit<>(clock.millis(), new ResourceContext(Resources.State.HEALTHY), null));
+    publish(140_000L, writeQueueAction);
+    observe(150_000L, 10.0);
+    observe(261_000L, 10.0);
+    assertEquals(1, tracker.getEvaluations(writeQueueAction, node1));
+    assertEquals(0, tracker.getScore(writeQueueAction, node1), 0.001);
+  }
+}
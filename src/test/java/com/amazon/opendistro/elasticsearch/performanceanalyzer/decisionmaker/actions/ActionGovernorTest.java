@@ -0,0 +1,271 @@
+/*
+ * Copyright 2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.decisionmaker.actions;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.decisionmaker.actions.ImpactVector.Dimension;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.decisionmaker.actions.configs.ActionGovernorConfig;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.decisionmaker.simulator.SimulationClock;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.core.RcaConf;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.util.InstanceDetails.Id;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.util.InstanceDetails.Ip;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.store.rca.cluster.NodeKey;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ActionGovernorTest {
+  private static final long START = 1_600_000_000_000L;
+  private final NodeKey node1 = new NodeKey(new Id("node1"), new Ip("127.0.0.1"));
+  private final NodeKey node2 = new NodeKey(new Id("node2"), new Ip("127.0.0.2"));
+  private final NodeKey node3 = new NodeKey(new Id("node3"), new Ip("127.0.0.3"));
+  private final NodeKey node4 = new NodeKey(new Id("node4"), new Ip("127.0.0.4"));
+  private Path testLocation;
+  private Path stateFile;
+  private SimulationClock clock;
+
+  @Before
+  public void init() throws IOException {
+    String cwd = System.getProperty("user.dir");
+    testLocation = Paths.get(cwd, "src", "test", "resources", "tmp", "action_governor");
+    Files.createDirectories(testLocation);
+    FileUtils.cleanDirectory(testLocation.toFile());
+    stateFile = testLocation.resolve("action_governor.json");
+    clock = new SimulationClock(START);
+  }
+
+  @After
+  public void after() throws IOException {
+    FileUtils.deleteDirectory(testLocation.toFile());
+  }
+
+  private ActionGovernorConfig config(int clusterCapacity, int nodeCapacity, int action1Capacity) throws Exception {
+    final String configStr =
+      "{"
+          + "\"action-config-settings\": { "
+              + "\"governor-settings\": { "
+                  + "\"state-file\": \"" + stateFile.toString().replace("\\", "\\\\") + "\", "
+                  + "\"deferral-seconds\": 120, "
+                  + "\"cluster\": { "
+                      + "\"capacity\": " + clusterCapacity + ", "
+                      + "\"refill-seconds\": 60 "
+                  + "}, "
+                  + "\"node\": { "
+                      + "\"capacity\": " + nodeCapacity + ", "
+                      + "\"refill-seconds\": 600 "
+                  + "}, "
+                  + "\"actions\": { "
+                      + "\"action1\": { "
+                          + "\"capacity\": " + action1Capacity + ", "
+                          + "\"refill-seconds\": 30 "
+                      + "} "
+                  + "} "
+              + "} "
+          + "} "
+      + "}";
+    RcaConf conf = new RcaConf();
+    conf.readConfigFromString(configStr);
+    return new ActionGovernorConfig(conf);
+  }
+
+  @Test
+  public void testUnconfiguredGovernorDoesNotLimit() {
+    ActionGovernor governor = new ActionGovernor(clock, true);
+    for (int i = 0; i < 100; i++) {
+      assertTrue(governor.tryAcquire(new DummyAction("action1", 0, node1, node2)));
+    }
+    assertEquals(-1, governor.getTokens("cluster"));
+  }
+
+  @Test
+  public void testUnlimitedGovernorKeepsTheProposedOrder() throws Exception {
+    List<Action> proposed = Arrays.asList(new DummyAction("action2", 1, node1), new DummyAction("action1", 3, node2));
+    ActionGovernor governor = new ActionGovernor(clock, false);
+    assertSame(proposed, governor.prioritize(proposed));
+    governor.configure(config(0, 0, 0));
+    assertSame(proposed, governor.prioritize(proposed));
+
+    // With a budget, the actions that draw from it first are the ones with the most impact.
+    governor.configure(config(0, 1, 0));
+    assertEquals(Arrays.asList(proposed.get(1), proposed.get(0)), governor.prioritize(proposed));
+  }
+
+  @Test
+  public void testBudgetsAreAllOrNothing() throws Exception {
+    ActionGovernor governor = new ActionGovernor(clock, false);
+    governor.configure(config(3, 1, 2));
+
+    assertTrue(governor.tryAcquire(new DummyAction("action1", 0, node1)));
+    // node1 is out of budget, the cluster and action1 budgets are left untouched.
+    assertFalse(governor.tryAcquire(new DummyAction("action1", 0, node1)));
+    assertEquals(2, governor.getTokens("cluster"));
+    assertEquals(1, governor.getTokens("action/action1"));
+    assertEquals(0, governor.getTokens("node/node1"));
+
+    // An action takes a cluster token per node it changes, action2 has no budget of its own.
+    assertTrue(governor.tryAcquire(new DummyAction("action2", 0, node2, node3)));
+    assertEquals(0, governor.getTokens("cluster"));
+    assertEquals(-1, governor.getTokens("action/action2"));
+    assertFalse(governor.tryAcquire(new DummyAction("action1", 0, node4)));
+
+    // A minute later the cluster has a token back, action1 two, but node1 has to wait for 10 minutes.
+    clock.advanceTo(START + 60_000L);
+    assertEquals(1, governor.getTokens("cluster"));
+    assertEquals(2, governor.getTokens("action/action1"));
+    assertFalse(governor.tryAcquire(new DummyAction("action1", 0, node1)));
+    assertTrue(governor.tryAcquire(new DummyAction("action1", 0, node4)));
+  }
+
+  @Test
+  public void testDeferredActionsAreRetriedByImpact() throws Exception {
+    ActionGovernor governor = new ActionGovernor(clock, false);
+    governor.configure(config(1, 0, 0));
+    DummyAction lowImpact = new DummyAction("action2", 1, node1);
+    DummyAction highImpact = new DummyAction("action1", 3, node2);
+
+    List<Action> prioritized = governor.prioritize(Arrays.asList(lowImpact, highImpact));
+    assertEquals(Arrays.asList(highImpact, lowImpact), prioritized);
+    assertTrue(governor.tryAcquire(highImpact));
+    assertFalse(governor.tryAcquire(lowImpact));
+    governor.defer(lowImpact);
+    assertEquals(1, governor.getDeferredActionCount());
+
+    // The deferred action is retried while it is not proposed anymore, until it expires.
+    clock.advanceTo(START + 30_000L);
+    assertEquals(Collections.singletonList(lowImpact), governor.prioritize(Collections.emptyList()));
+    assertFalse(governor.tryAcquire(lowImpact));
+    governor.defer(lowImpact);
+    clock.advanceTo(START + 121_000L);
+    assertEquals(Collections.emptyList(), governor.prioritize(Collections.emptyList()));
+    assertEquals(0, governor.getDeferredActionCount());
+
+    // A new proposal of the same action on the same nodes supersedes the deferred one.
+    assertTrue(governor.tryAcquire(highImpact));
+    assertFalse(governor.tryAcquire(lowImpact));
+    governor.defer(lowImpact);
+    DummyAction newProposal = new DummyAction("action2", 1, node1);
+    assertEquals(Collections.singletonList(newProposal), governor.prioritize(Collections.singletonList(newProposal)));
+    assertEquals(0, governor.getDeferredActionCount());
+  }
+
+  @Test
+  public void testBudgetsSurviveRestarts() throws Exception {
+    ActionGovernor governor = new ActionGovernor(clock, true);
+    governor.configure(config(5, 2, 0));
+    assertTrue(governor.tryAcquire(new DummyAction("action1", 0, node1, node2)));
+    assertTrue(governor.tryAcquire(new DummyAction("action1", 0, node1)));
+    governor.save();
+    assertTrue(Files.exists(stateFile));
+
+    ActionGovernor restarted = new ActionGovernor(clock, true);
+    restarted.configure(config(5, 2, 0));
+    assertEquals(2, restarted.getTokens("cluster"));
+    assertEquals(0, restarted.getTokens("node/node1"));
+    assertEquals(1, restarted.getTokens("node/node2"));
+    assertFalse(restarted.tryAcquire(new DummyAction("action1", 0, node1)));
+
+    // A smaller capacity caps the recorded levels.
+    restarted.configure(config(1, 2, 0));
+    assertEquals(1, restarted.getTokens("cluster"));
+
+    // The buckets keep refilling while the governor is down, and the full ones are not written.
+    clock.advanceTo(START + 600_000L);
+    assertTrue(restarted.tryAcquire(new DummyAction("action1", 0, node1)));
+    restarted.save();
+    String state = new String(Files.readAllBytes(stateFile), StandardCharsets.UTF_8);
+    assertTrue(state.contains("node/node1"));
+    assertFalse(state.contains("node/node2"));
+  }
+
+  @Test
+  public void testUnreadableStateStartsWithFullBudgets() throws Exception {
+    Files.write(stateFile, "not json".getBytes(StandardCharsets.UTF_8));
+    ActionGovernor governor = new ActionGovernor(clock, true);
+    governor.configure(config(5, 2, 0));
+    assertTrue(governor.tryAcquire(new DummyAction("action1", 0, node1, node2)));
+    assertEquals(3, governor.getTokens("cluster"));
+  }
+
+  private static class DummyAction implements Action {
+    private final String name;
+    private final List<NodeKey> nodes;
+    private final Map<NodeKey, ImpactVector> impact = new HashMap<>();
+
+    /**
+     * @param decreasedDimensions The number of dimensions the action decreases the pressure of,
+     *                            on each of its nodes.
+     */
+    DummyAction(String name, int decreasedDimensions, NodeKey... nodes) {
+      this.name = name;
+      this.nodes = Arrays.asList(nodes);
+      for (NodeKey node : nodes) {
+        ImpactVector impactVector = new ImpactVector();
+        impactVector.decreasesPressure(Arrays.copyOf(Dimension.values(), decreasedDimensions));
+        impact.put(node, impactVector);
+      }
+    }
+
+    @Override
+    public boolean isActionable() {
+      return true;
+    }
+
+    @Override
+    public long coolOffPeriodInMillis() {
+      return 0;
+    }
+
+    @Override
+    public List<NodeKey> impactedNodes() {
+      return nodes;
+    }
+
+    @Override
+    public Map<NodeKey, ImpactVector> impact() {
+      return impact;
+    }
+
+    @Override
+    public String name() {
+      return name;
+    }
+
+    @Override
+    public String summary() {
+      return name + nodes;
+    }
+
+    @Override
+    public boolean isMuted() {
+      return false;
+    }
+  }
+}
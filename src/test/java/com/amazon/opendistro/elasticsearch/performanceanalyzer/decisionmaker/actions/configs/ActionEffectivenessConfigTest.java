@@ -0,0 +1,84 @@
+/*
+ * Copyright 2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.decisionmaker.actions.configs;
+
+import static org.junit.Assert.assertEquals;
+
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.core.RcaConf;
+import org.junit.Test;
+
+public class ActionEffectivenessConfigTest {
+
+  @Test
+  public void testConfigOverrides() throws Exception {
+    final String configStr =
+      "{"
+          + "\"action-config-settings\": { "
+              + "\"effectiveness-settings\": { "
+                  + "\"observation-window-seconds\": 300, "
+                  + "\"smoothing-factor\": 0.25, "
+                  + "\"min-evaluations\": 5, "
+                  + "\"suppression-threshold\": 0.1 "
+              + "} "
+          + "} "
+      + "}";
+    RcaConf conf = new RcaConf();
+    conf.readConfigFromString(configStr);
+    ActionEffectivenessConfig effectivenessConfig = new ActionEffectivenessConfig(conf);
+    assertEquals(300, effectivenessConfig.getObservationWindowSeconds());
+    assertEquals(0.25, effectivenessConfig.getSmoothingFactor(), 0.001);
+    assertEquals(5, effectivenessConfig.getMinEvaluations());
+    assertEquals(0.1, effectivenessConfig.getSuppressionThreshold(), 0.001);
+  }
+
+  @Test
+  public void testDefaults() throws Exception {
+    final String configStr = "{}";
+    RcaConf conf = new RcaConf();
+    conf.readConfigFromString(configStr);
+    ActionEffectivenessConfig effectivenessConfig = new ActionEffectivenessConfig(conf);
+    assertEquals(ActionEffectivenessConfig.DEFAULT_OBSERVATION_WINDOW_SECONDS,
+        effectivenessConfig.getObservationWindowSeconds());
+    assertEquals(ActionEffectivenessConfig.DEFAULT_SMOOTHING_FACTOR, effectivenessConfig.getSmoothingFactor(), 0.001);
+    assertEquals(ActionEffectivenessConfig.DEFAULT_MIN_EVALUATIONS, effectivenessConfig.getMinEvaluations());
+    assertEquals(ActionEffectivenessConfig.DEFAULT_SUPPRESSION_THRESHOLD,
+        effectivenessConfig.getSuppressionThreshold(), 0.001);
+  }
+
+  @Test
+  public void testInvalidConfigValues() throws Exception {
+    final String configStr =
+      "{"
+          + "\"action-config-settings\": { "
+              + "\"effectiveness-settings\": { "
+                  + "\"observation-window-seconds\": 0, "
+                  + "\"smoothing-factor\": 1.5, "
+                  + "\"min-evaluations\": \"abc\", "
+                  + "\"suppression-threshold\": -0.1 "
+              + "} "
+          + "} "
+      + "}";
+    RcaConf conf = new RcaConf();
+    conf.readConfigFromString(configStr);
+    ActionEffectivenessConfig effectivenessConfig = new ActionEffectivenessConfig(conf);
+    assertEquals(ActionEffectivenessConfig.DEFAULT_OBSERVATION_WINDOW_SECONDS,
+        effectivenessConfig.getObservationWindowSeconds());
+    assertEquals(ActionEffectivenessConfig.DEFAULT_SMOOTHING_FACTOR, effectivenessConfig.getSmoothingFactor(), 0.001);
+    assertEquals(ActionEffectivenessConfig.DEFAULT_MIN_EVALUATIONS, effectivenessConfig.getMinEvaluations());
+    assertEquals(ActionEffectivenessConfig.DEFAULT_SUPPRESSION_THRESHOLD,
+        effectivenessConfig.getSuppressionThreshold(), 0.001);
+  }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.decisionmaker.actions.configs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.core.RcaConf;
+import org.junit.Test;
+
+public class ActionGovernorConfigTest {
+
+  @Test
+  public void testConfigOverrides() throws Exception {
+    final String configStr =
+      "{"
+          + "\"action-config-settings\": { "
+              + "\"governor-settings\": { "
+                  + "\"state-file\": \"/tmp/governor.json\", "
+                  + "\"deferral-seconds\": 600, "
+                  + "\"cluster\": { "
+                      + "\"capacity\": 20, "
+                      + "\"refill-seconds\": 30 "
+                  + "}, "
+                  + "\"node\": { "
+                      + "\"capacity\": 2 "
+                  + "}, "
+                  + "\"actions\": { "
+                      + "\"ModifyQueueCapacity\": { "
+                          + "\"capacity\": 10, "
+                          + "\"refill-seconds\": 120 "
+                      + "} "
+                  + "} "
+              + "} "
+          + "} "
+      + "}";
+    RcaConf conf = new RcaConf();
+    conf.readConfigFromString(configStr);
+    ActionGovernorConfig governorConfig = new ActionGovernorConfig(conf);
+    assertEquals("/tmp/governor.json", governorConfig.getStateFile());
+    assertEquals(600, governorConfig.getDeferralSeconds());
+    assertEquals(20, governorConfig.getClusterBucketConfig().getCapacity());
+    assertEquals(30, governorConfig.getClusterBucketConfig().getRefillSeconds());
+    assertEquals(2, governorConfig.getNodeBucketConfig().getCapacity());
+    assertEquals(ActionGovernorConfig.DEFAULT_REFILL_SECONDS, governorConfig.getNodeBucketConfig().getRefillSeconds());
+    assertEquals(10, governorConfig.getActionBucketConfig("ModifyQueueCapacity").getCapacity());
+    assertEquals(120, governorConfig.getActionBucketConfig("ModifyQueueCapacity").getRefillSeconds());
+    assertTrue(governorConfig.getActionBucketConfig("ModifyCacheMaxSize").isUnlimited());
+  }
+
+  @Test
+  public void testDefaults() throws Exception {
+    final String configStr = "{}";
+    RcaConf conf = new RcaConf();
+    conf.readConfigFromString(configStr);
+    ActionGovernorConfig governorConfig = new ActionGovernorConfig(conf);
+    assertEquals(ActionGovernorConfig.DEFAULT_STATE_FILE, governorConfig.getStateFile());
+    assertEquals(ActionGovernorConfig.DEFAULT_DEFERRAL_SECONDS, governorConfig.getDeferralSeconds());
+    assertTrue(governorConfig.getClusterBucketConfig().isUnlimited());
+    assertTrue(governorConfig.getNodeBucketConfig().isUnlimited());
+    assertTrue(governorConfig.getActionBucketConfig("ModifyQueueCapacity").isUnlimited());
+  }
+
+  @Test
+  public void testInvalidConfigValues() throws Exception {
+    final String configStr =
+      "{"
+          + "\"action-config-settings\": { "
+              + "\"governor-settings\": { "
+                  + "\"deferral-seconds\": -1, "
+                  + "\"cluster\": { "
+                      + "\"capacity\": -5, "
+                      + "\"refill-seconds\": 0 "
+                  + "}, "
+                  + "\"node\": { "
+                      + "\"capacity\": \"abc\" "
+                  + "} "
+              + "} "
+          + "} "
+      + "}";
+    RcaConf conf = new RcaConf();
+    conf.readConfigFromString(configStr);
+    ActionGovernorConfig governorConfig = new ActionGovernorConfig(conf);
+    assertEquals(ActionGovernorConfig.DEFAULT_DEFERRAL_SECONDS, governorConfig.getDeferralSeconds());
+    assertEquals(ActionGovernorConfig.DEFAULT_CAPACITY, governorConfig.getClusterBucketConfig().getCapacity());
+    assertEquals(ActionGovernorConfig.DEFAULT_REFILL_SECONDS, governorConfig.getClusterBucketConfig().getRefillSeconds());
+    assertTrue(governorConfig.getNodeBucketConfig().isUnlimited());
+  }
+}
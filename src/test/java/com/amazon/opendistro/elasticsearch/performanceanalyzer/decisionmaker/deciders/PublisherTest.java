@@ -18,12 +18,16 @@ package com.amazon.opendistro.elasticsearch.performanceanalyzer.decisionmaker.de
 import static java.time.Instant.ofEpochMilli;
 
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.decisionmaker.actions.Action;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.decisionmaker.actions.ActionGovernor;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.decisionmaker.actions.ActionListener;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.decisionmaker.actions.ActionListener.SuppressionReason;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.decisionmaker.actions.CoolOffDetector;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.decisionmaker.actions.ImpactVector;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.decisionmaker.actions.ImpactVector.Dimension;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.decisionmaker.actions.TimedFlipFlopDetector;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.decisionmaker.deciders.collator.Collator;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.plugins.Plugin;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.core.RcaConf;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.util.InstanceDetails;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.util.InstanceDetails.Id;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.util.InstanceDetails.Ip;
@@ -90,6 +94,7 @@ public class PublisherTest {
     // has been alive for longer than the action's cool off period
     publisher.operate();
     Mockito.verify(actionListener, Mockito.times(0)).actionPublished(action);
+    Mockito.verify(actionListener, Mockito.times(1)).actionSuppressed(action, SuppressionReason.COOLING_OFF);
 
     coolOffDetector.setClock(Clock.offset(constantClock, Duration.ofSeconds(evalStartTimeStamp)));
     publisher.operate();
@@ -129,6 +134,7 @@ public class PublisherTest {
     // execute it
     publisher.operate();
     Mockito.verify(actionListener, Mockito.times(0)).actionPublished(action);
+    Mockito.verify(actionListener, Mockito.times(1)).actionSuppressed(action, SuppressionReason.FLIP_FLOP);
   }
 
   @Test
@@ -149,6 +155,31 @@ public class PublisherTest {
     Mockito.verify(testActionListener, Mockito.times(1)).actionPublished(action);
   }
 
+  @Test
+  public void testDefersActionsOverBudget() throws Exception {
+    RcaConf conf = new RcaConf();
+    conf.readConfigFromString("{\"action-config-settings\": {\"governor-settings\": "
+        + "{\"cluster\": {\"capacity\": 1, \"refill-seconds\": 3600}}}}");
+    publisher = new Publisher(EVAL_INTERVAL_S, collator, new CoolOffDetector(),
+        new TimedFlipFlopDetector(1, TimeUnit.HOURS), new ActionGovernor(Clock.systemUTC(), false));
+    publisher.addActionListener(actionListener);
+    publisher.readRcaConf(conf);
+
+    NodeKey node1 = new NodeKey(new Id("node1"), new Ip("127.0.0.1"));
+    Action action2 = Mockito.mock(Action.class);
+    Mockito.when(decision.getActions()).thenReturn(Lists.newArrayList(action, action2));
+    Mockito.when(action.name()).thenReturn("testAction");
+    Mockito.when(action2.name()).thenReturn("testAction2");
+    Mockito.when(action.impactedNodes()).thenReturn(Collections.singletonList(node1));
+    Mockito.when(action2.impactedNodes()).thenReturn(Collections.singletonList(node1));
+
+    // The cluster budget allows a single change an hour, the second action is deferred.
+    publisher.operate();
+    Mockito.verify(actionListener, Mockito.times(1)).actionPublished(action);
+    Mockito.verify(actionListener, Mockito.times(0)).actionPublished(action2);
+    Mockito.verify(actionListener, Mockito.times(1)).actionSuppressed(action2, SuppressionReason.RATE_LIMITED);
+  }
+
   public static class TestActionListener extends Plugin implements ActionListener {
 
     @Override
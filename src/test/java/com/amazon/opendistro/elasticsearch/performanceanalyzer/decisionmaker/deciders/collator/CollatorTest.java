@@ -129,6 +129,22 @@ public class CollatorTest {
     assertEquals(moveShardAction3, decision.getActions().get(0));
   }
 
+  @Test
+  public void testIndexedCollatorCyclicImpactDecisions() {
+    when(decision1.getActions()).thenReturn(Arrays.asList(moveShardAction1, moveShardAction3));
+    when(mockDecider1.getFlowUnits()).thenReturn(Collections.singletonList(decision1));
+    when(mockDecider2.getFlowUnits()).thenReturn(Collections.singletonList(decision2));
+    this.testCollator = new Collator(mockDecider1, mockDecider2);
+
+    // The same decision every period, whether the nodes are reassessed or not.
+    for (int i = 0; i < 2; i++) {
+      Decision decision = testCollator.operate();
+
+      assertEquals(1, decision.getActions().size());
+      assertEquals(moveShardAction3, decision.getActions().get(0));
+    }
+  }
+
   @Test
   public void testCollatorEmptyActions() {
     when(decision1.getActions()).thenReturn(Collections.emptyList());
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.decisionmaker.deciders.collator;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.decisionmaker.actions.Action;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.decisionmaker.actions.ImpactVector;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.decisionmaker.actions.ImpactVector.Dimension;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.decisionmaker.deciders.collator.Collator.ImpactBasedActionComparator;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.util.InstanceDetails.Id;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.util.InstanceDetails.Ip;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.store.rca.cluster.NodeKey;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.Test;
+
+public class IndexedImpactAssessorTest {
+
+  private final NodeKey nodeA = new NodeKey(new Id("node A"), new Ip("1.2.3.4"));
+  private final NodeKey nodeB = new NodeKey(new Id("node B"), new Ip("5.6.7.8"));
+  private final NodeKey nodeC = new NodeKey(new Id("node C"), new Ip("9.10.11.12"));
+  private final NodeKey nodeD = new NodeKey(new Id("node D"), new Ip("13.14.15.16"));
+
+  private Action buildAction(String name, Map<NodeKey, ImpactVector> impact) {
+    Action action = mock(Action.class);
+    when(action.name()).thenReturn(name);
+    when(action.impact()).thenReturn(impact);
+    when(action.impactedNodes()).thenReturn(new ArrayList<>(impact.keySet()));
+    return action;
+  }
+
+  private Action buildMoveShardAction(NodeKey from, NodeKey to) {
+    ImpactVector moveOut = new ImpactVector();
+    moveOut.decreasesPressure(Dimension.CPU, Dimension.HEAP);
+    ImpactVector moveIn = new ImpactVector();
+    moveIn.increasesPressure(Dimension.CPU, Dimension.HEAP);
+    Map<NodeKey, ImpactVector> impact = new HashMap<>();
+    impact.put(from, moveOut);
+    impact.put(to, moveIn);
+    return buildAction("MoveShard", impact);
+  }
+
+  private List<Action> pruneWithImpactAssessor(List<Action> actions) {
+    ImpactAssessor impactAssessor = new ImpactAssessor();
+    List<Action> sorted = new ArrayList<>(actions);
+    Map<NodeKey, ImpactAssessment> overallImpactAssessment = impactAssessor.assessOverallImpact(sorted);
+    sorted.sort(new ImpactBasedActionComparator());
+    List<Action> allowedActions = new ArrayList<>();
+    for (Action action : sorted) {
+      if (impactAssessor.isImpactAligned(action, overallImpactAssessment)) {
+        allowedActions.add(action);
+      } else {
+        impactAssessor.undoActionImpactOnOverallAssessment(action, overallImpactAssessment);
+      }
+    }
+    return allowedActions;
+  }
+
+  @Test
+  public void testSameDecisionsAsImpactAssessor() {
+    Random random = new Random(42);
+    List<NodeKey> nodes = new ArrayList<>();
+    for (int i = 0; i < 8; i++) {
+      nodes.add(new NodeKey(new Id("node" + i), new Ip("10.0.0." + i)));
+    }
+    IndexedImpactAssessor indexedImpactAssessor = new IndexedImpactAssessor();
+    for (int round = 0; round < 50; round++) {
+      List<Action> actions = new ArrayList<>();
+      int actionCount = random.nextInt(12);
+      for (int i = 0; i < actionCount; i++) {
+        Map<NodeKey, ImpactVector> impact = new HashMap<>();
+        int impactedNodes = 1 + random.nextInt(3);
+        for (int j = 0; j < impactedNodes; j++) {
+          ImpactVector impactVector = new ImpactVector();
+          for (Dimension dimension : Dimension.values()) {
+            int heading = random.nextInt(4);
+            if (heading == 1) {
+              impactVector.increasesPressure(dimension);
+            } else if (heading == 2) {
+              impactVector.decreasesPressure(dimension);
+            }
+          }
+          impact.put(nodes.get(random.nextInt(nodes.size())), impactVector);
+        }
+        actions.add(buildAction("action" + random.nextInt(3), impact));
+      }
+      assertEquals(pruneWithImpactAssessor(actions), indexedImpactAssessor.pruneMisalignedActions(actions));
+    }
+  }
+
+  @Test
+  public void testOnlyNodesWithChangedActionsAreReassessed() {
+    IndexedImpactAssessor indexedImpactAssessor = new IndexedImpactAssessor();
+    Action moveAToB = buildMoveShardAction(nodeA, nodeB);
+    Action moveBToA = buildMoveShardAction(nodeB, nodeA);
+    Action moveCToD = buildMoveShardAction(nodeC, nodeD);
+
+    assertEquals(Arrays.asList(moveBToA, moveCToD),
+        indexedImpactAssessor.pruneMisalignedActions(Arrays.asList(moveAToB, moveBToA, moveCToD)));
+    assertEquals(4, indexedImpactAssessor.getReassessedNodeCount());
+
+    // New action instances, with the same impacts.
+    Action nextMoveBToA = buildMoveShardAction(nodeB, nodeA);
+    Action nextMoveCToD = buildMoveShardAction(nodeC, nodeD);
+    assertEquals(Arrays.asList(nextMoveBToA, nextMoveCToD), indexedImpactAssessor.pruneMisalignedActions(
+        Arrays.asList(buildMoveShardAction(nodeA, nodeB), nextMoveBToA, nextMoveCToD)));
+    assertEquals(0, indexedImpactAssessor.getReassessedNodeCount());
+
+    // Both groups changed.
+    Action moveDToC = buildMoveShardAction(nodeD, nodeC);
+    assertEquals(Arrays.asList(moveAToB, moveCToD), indexedImpactAssessor.pruneMisalignedActions(
+        Arrays.asList(moveAToB, moveDToC, moveCToD)));
+    assertEquals(4, indexedImpactAssessor.getReassessedNodeCount());
+
+    // Only the nodes C and D changed.
+    assertEquals(Arrays.asList(moveAToB, moveDToC), indexedImpactAssessor.pruneMisalignedActions(
+        Arrays.asList(moveAToB, moveDToC)));
+    assertEquals(2, indexedImpactAssessor.getReassessedNodeCount());
+  }
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright 2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.decisionmaker.simulator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.decisionmaker.actions.ActionListener.SuppressionReason;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.decisionmaker.actions.ModifyQueueCapacityAction;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.decisionmaker.simulator.RcaHistory.RecordedFlowUnit;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.decisionmaker.simulator.RcaHistory.RecordedNodeConfig;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.decisionmaker.simulator.SimulationReport.ActionStats;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.api.Resources;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.api.contexts.ResourceContext;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.api.flow_units.ResourceFlowUnit;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.api.summaries.HotClusterSummary;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.api.summaries.HotNodeSummary;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.api.summaries.HotResourceSummary;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.api.summaries.ResourceUtil;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.core.RcaConf;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.util.InstanceDetails;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.util.RcaConsts;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.persistence.Persistable;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.persistence.PersistenceFactory;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.store.rca.cluster.NodeKey;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.store.rca.cluster.QueueRejectionClusterRca;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DecisionSimulatorTest {
+  private static final long START = 1_600_000_000_000L;
+  private static final String NODE = "\"node_id\": \"node1\", \"host_address\": \"127.0.0.1\"";
+  private Path testLocation;
+  private DecisionSimulator simulator;
+
+  @Before
+  public void init() throws IOException {
+    String cwd = System.getProperty("user.dir");
+    testLocation = Paths.get(cwd, "src", "test", "resources", "tmp", "simulator");
+    Files.createDirectories(testLocation);
+    FileUtils.cleanDirectory(testLocation.toFile());
+    simulator = new DecisionSimulator(new RcaConf(Paths.get(RcaConsts.TEST_CONFIG_PATH, "rca.conf").toString()));
+  }
+
+  @After
+  public void after() throws IOException {
+    FileUtils.deleteDirectory(testLocation.toFile());
+  }
+
+  private RcaHistory readTrace(List<String> lines) throws IOException, SQLException {
+    Path trace = testLocation.resolve("trace.json");
+    Files.write(trace, lines, StandardCharsets.UTF_8);
+    RcaHistory history = new RcaHistory();
+    history.read(trace, simulator.getReplayedRcas());
+    return history;
+  }
+
+  @Test
+  public void testCoolOffSuppressesRepeatedActions() throws IOException, SQLException {
+    List<String> lines = new ArrayList<>();
+    lines.add("{\"rca_name\": \"NodeConfig\", \"timestamp\": " + START + ", \"nodes\": [{" + NODE
+        + ", \"resources\": [{\"resource\": \"WRITE_THREADPOOL\", \"metric\": \"QUEUE_CAPACITY\", \"value\": 5000}]}]}");
+    // The write queue of node1 rejects for 10 minutes, a flow unit a minute.
+    for (int minute = 0; minute <= 10; minute++) {
+      lines.add("{\"rca_name\": \"QueueRejectionClusterRca\", \"timestamp\": " + (START + minute * 60_000L)
+          + ", \"state\": \"unhealthy\", \"nodes\": [{" + NODE
+          + ", \"resources\": [{\"resource\": \"WRITE_THREADPOOL\", \"metric\": \"QUEUE_REJECTION\"}]}]}");
+    }
+    lines.add("not a flow unit");
+    lines.add("{\"rca_name\": \"HotNodeClusterRca\", \"timestamp\": " + START + ", \"state\": \"healthy\"}");
+
+    SimulationReport report = simulator.run(readTrace(lines));
+
+    // From the first flow unit, to the decision following the last one.
+    assertEquals(133, report.getTicks());
+    assertEquals(11, report.getReplayedFlowUnits());
+    assertEquals(1, report.getIgnoredFlowUnits());
+
+    // A decision a minute, 55s after each flow unit. The actions cool off for 5 minutes, from the
+    // start of the publisher and then from each published action.
+    ActionStats stats = report.getActionStats().get(ModifyQueueCapacityAction.NAME);
+    assertEquals(11, stats.getProposed());
+    assertEquals(11, stats.getCollated());
+    assertEquals(2, stats.getPublished());
+    assertEquals(9, stats.getSuppressed(SuppressionReason.COOLING_OFF));
+    assertEquals(0, stats.getSuppressed(SuppressionReason.FLIP_FLOP));
+    assertEquals(START + 355_000L, report.getPublishedActions().get(0).getTimestamp());
+    assertEquals(START + 655_000L, report.getPublishedActions().get(1).getTimestamp());
+    assertEquals("node1", report.getPublishedActions().get(0).getNodes().get(0).getNodeId().toString());
+    assertEquals(2, report.toJson().getAsJsonArray("published_actions").size());
+  }
+
+  @Test
+  public void testHealthyFlowUnitsStopTheActions() throws IOException, SQLException {
+    List<String> lines = new ArrayList<>();
+    lines.add("{\"rca_name\": \"NodeConfig\", \"timestamp\": " + START + ", \"nodes\": [{" + NODE
+        + ", \"resources\": [{\"resource\": \"WRITE_THREADPOOL\", \"metric\": \"QUEUE_CAPACITY\", \"value\": 5000}]}]}");
+    lines.add("{\"rca_name\": \"QueueRejectionClusterRca\", \"timestamp\": " + START + ", \"state\": \"unhealthy\", "
+        + "\"nodes\": [{" + NODE + ", \"resources\": [{\"resource\": \"WRITE_THREADPOOL\", \"metric\": \"QUEUE_REJECTION\"}]}]}");
+    lines.add("{\"rca_name\": \"QueueRejectionClusterRca\", \"timestamp\": " + (START + 10_000L)
+        + ", \"state\": \"healthy\"}");
+
+    SimulationReport report = simulator.run(readTrace(lines));
+
+    assertEquals(0, report.getPublishedActions().size());
+    assertEquals(Collections.emptySet(), report.getActionStats().keySet());
+  }
+
+  @Test
+  public void testReplayRcaSqlite() throws Exception {
+    // The test rca.conf, with its datastore moved to the test directory.
+    String confStr = new String(Files.readAllBytes(Paths.get(RcaConsts.TEST_CONFIG_PATH, "rca.conf")),
+        StandardCharsets.UTF_8).replace("\"location-dir\": \"/tmp\"",
+        "\"location-dir\": \"" + testLocation.toString().replace("\\", "\\\\") + "\"");
+    Path confFile = testLocation.resolve("rca.conf");
+    Files.write(confFile, confStr.getBytes(StandardCharsets.UTF_8));
+    RcaConf rcaConf = new RcaConf(confFile.toString());
+
+    // The write queue of node1 rejects for 10 minutes, a flow unit a minute, as persisted by the master.
+    NodeKey node1 = new NodeKey(new InstanceDetails.Id("node1"), new InstanceDetails.Ip("127.0.0.1"));
+    QueueRejectionClusterRca queueRejectionClusterRca = new QueueRejectionClusterRca(1, null);
+    Persistable persistable = PersistenceFactory.create(rcaConf);
+    for (int minute = 0; minute <= 10; minute++) {
+      HotNodeSummary nodeSummary = new HotNodeSummary(node1.getNodeId(), node1.getHostAddress());
+      nodeSummary.appendNestedSummary(new HotResourceSummary(ResourceUtil.WRITE_QUEUE_REJECTION, 0, 3, 0));
+      HotClusterSummary clusterSummary = new HotClusterSummary(1, 1);
+      clusterSummary.appendNestedSummary(nodeSummary);
+      persistable.write(queueRejectionClusterRca, new ResourceFlowUnit<>(START + minute * 60_000L,
+          new ResourceContext(Resources.State.UNHEALTHY), clusterSummary, true));
+    }
+    persistable.close();
+
+    RcaHistory history = new RcaHistory();
+    history.read(testLocation.resolve(rcaConf.getDatastore().get(RcaConsts.DATASTORE_FILENAME)),
+        simulator.getReplayedRcas());
+    List<RecordedFlowUnit> flowUnits = history.getFlowUnits();
+    assertEquals(11, flowUnits.size());
+    assertEquals(QueueRejectionClusterRca.RCA_TABLE_NAME, flowUnits.get(0).getRcaName());
+    assertEquals(START, flowUnits.get(0).getTimestamp());
+    ResourceFlowUnit<HotClusterSummary> flowUnit = flowUnits.get(0).toFlowUnit();
+    assertTrue(flowUnit.getResourceContext().isUnhealthy());
+    HotNodeSummary nodeSummary = flowUnit.getSummary().getHotNodeSummaryList().get(0);
+    assertEquals("node1", nodeSummary.getNodeID().toString());
+    assertEquals(ResourceUtil.WRITE_QUEUE_REJECTION, nodeSummary.getHotResourceSummaryList().get(0).getResource());
+    assertEquals(3, nodeSummary.getHotResourceSummaryList().get(0).getValue(), 0);
+
+    // rca.sqlite does not keep the node configurations, they are added to the history.
+    history.add(new RecordedNodeConfig(START, node1, ResourceUtil.WRITE_QUEUE_CAPACITY, 5000));
+    SimulationReport report = simulator.run(history);
+
+    // The same decisions as from the trace of testCoolOffSuppressesRepeatedActions.
+    assertEquals(11, report.getReplayedFlowUnits());
+    ActionStats stats = report.getActionStats().get(ModifyQueueCapacityAction.NAME);
+    assertEquals(11, stats.getProposed());
+    assertEquals(2, stats.getPublished());
+    assertEquals(START + 355_000L, report.getPublishedActions().get(0).getTimestamp());
+    assertEquals(START + 655_000L, report.getPublishedActions().get(1).getTimestamp());
+  }
+
+  @Test
+  public void testEmptyHistory() {
+    SimulationReport report = simulator.run(new RcaHistory());
+
+    assertEquals(0, report.getTicks());
+    assertEquals(0, report.getPublishedActions().size());
+  }
+}
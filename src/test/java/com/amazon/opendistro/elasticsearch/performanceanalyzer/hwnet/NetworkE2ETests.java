@@ -0,0 +1,79 @@
+/*
+ * Copyright 2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.hwnet;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class NetworkE2ETests {
+  private static final String TCP_LINE =
+      "   3: 0100007F:2454 0A00020F:C35A 01 0000001A:00000B2C 01:00000014 00000003  1000        0 "
+          + "4242 4 0000000000000000 20 4 30 10 -1";
+  private static final String TCP6_LINE =
+      "   0: 00000000000000000000000000000000:2454 0000000000000000FFFF00000A00020F:9E2B 01 "
+          + "00000000:00000010 00:00000000 00000000  1000        0 4343 1 0000000000000000 21 4 29 7 12";
+  private static final String SHORT_LINE =
+      "   1: 0100007F:2454 0A00020F:C35B 01 00000001:00000002 00:00000000 0000000F  1000        0 4444";
+
+  @After
+  public void cleanUp() {
+    NetworkE2E.setSocketInodes();
+    NetworkE2E.getInodeFlowMetricsMap().clear();
+  }
+
+  @Test
+  public void testParseSocketInode() {
+    Assert.assertEquals(4242L, NetworkE2E.parseSocketInode("socket:[4242]"));
+    Assert.assertEquals(-1L, NetworkE2E.parseSocketInode("pipe:[4242]"));
+    Assert.assertEquals(-1L, NetworkE2E.parseSocketInode("/var/log/es.log"));
+    Assert.assertEquals(-1L, NetworkE2E.parseSocketInode("socket:[]"));
+  }
+
+  @Test
+  public void testGenerateMap() {
+    NetworkE2E.setSocketInodes(4343, 4242, 4444);
+    NetworkE2E.generateMap(TCP_LINE);
+    NetworkE2E.generateMap(TCP6_LINE);
+    NetworkE2E.generateMap(SHORT_LINE);
+
+    NetworkE2E.TCPFlowMetrics m = NetworkE2E.getInodeFlowMetricsMap().get(4242L);
+    Assert.assertEquals("0A00020F", m.destIP);
+    Assert.assertEquals(0x1A, m.txQueue);
+    Assert.assertEquals(0xB2C, m.rxQueue);
+    Assert.assertEquals(3, m.currentLost);
+    Assert.assertEquals(10, m.sendCWND);
+    Assert.assertEquals(-1, m.SSThresh);
+
+    m = NetworkE2E.getInodeFlowMetricsMap().get(4343L);
+    Assert.assertEquals("0000000000000000FFFF00000A00020F", m.destIP);
+    Assert.assertEquals(0x10, m.rxQueue);
+    Assert.assertEquals(7, m.sendCWND);
+    Assert.assertEquals(12, m.SSThresh);
+
+    m = NetworkE2E.getInodeFlowMetricsMap().get(4444L);
+    Assert.assertEquals(15, m.currentLost);
+    Assert.assertEquals(-1, m.sendCWND);
+    Assert.assertEquals(-1, m.SSThresh);
+  }
+
+  @Test
+  public void testSocketsOfOtherProcessesAreSkipped() {
+    NetworkE2E.setSocketInodes(1);
+    NetworkE2E.generateMap(TCP_LINE);
+    Assert.assertTrue(NetworkE2E.getInodeFlowMetricsMap().isEmpty());
+  }
+}
@@ -434,6 +434,44 @@ public class MetricsDBTests {
     assertFalse(res.hasNext());
   }
 
+  @Test
+  public void testQuantileAggregation() throws Exception {
+    List<String> columns = Arrays.asList("shard", "index");
+    Metric<Double> latency = new Metric<Double>("latency", 0d);
+    db.createMetric(latency, columns);
+    db.createSketch(latency, columns);
+    BatchBindStep handle = db.startBatchPut(latency, columns);
+    BatchBindStep sketchHandle = db.startSketchBatchPut(latency, columns);
+    for (int shard = 1; shard <= 2; shard++) {
+      QuantileSketch sketch = new QuantileSketch();
+      for (int i = 1; i <= 100; i++) {
+        sketch.add(shard * 1000 + i);
+      }
+      handle.bind(String.valueOf(shard), "ac-test", 0d, 0d, 0d, 0d);
+      sketchHandle.bind(String.valueOf(shard), "ac-test", sketch.toBytes());
+    }
+    handle.execute();
+    sketchHandle.execute();
+
+    assertTrue(MetricsDB.isQuantileAgg("p99.9"));
+    assertFalse(MetricsDB.isQuantileAgg("p101"));
+    assertEquals("p99.9", MetricsDB.getQuantileFieldName(MetricsDB.parseQuantile("p99.9")));
+
+    Result<Record> res =
+        db.queryMetric(Arrays.asList("latency"), Arrays.asList("p50"), Arrays.asList("index"));
+    assertEquals(1, res.size());
+    double median = Double.parseDouble(res.get(0).get("latency").toString());
+    assertEquals(1100, median, 1100 * 0.01);
+
+    res = db.queryMetric("latency", 0.99);
+    assertEquals(2, res.size());
+    for (Record r : res) {
+      double expected = Integer.parseInt(r.get("shard").toString()) * 1000 + 99;
+      assertEquals(expected, Double.parseDouble(r.get("p99").toString()), expected * 0.01);
+    }
+    db.close();
+  }
+
   @Test
   public void testDeleteOnDiskFile_exists() throws Exception {
     long timestamp = 1000000000;
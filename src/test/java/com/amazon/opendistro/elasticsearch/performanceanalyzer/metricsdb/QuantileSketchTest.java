@@ -0,0 +1,142 @@
+/*
+ * Copyright 2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.metricsdb;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class QuantileSketchTest {
+  private static final double[] QUANTILES = {0, 0.1, 0.5, 0.9, 0.99, 0.999, 1};
+
+  private static double exact(double[] sorted, double quantile) {
+    return sorted[(int) Math.floor(quantile * (sorted.length - 1))];
+  }
+
+  private static void assertWithinAccuracy(double[] values, QuantileSketch sketch) {
+    double[] sorted = values.clone();
+    Arrays.sort(sorted);
+    for (double quantile : QUANTILES) {
+      double expected = exact(sorted, quantile);
+      Assert.assertEquals("p" + quantile, expected, sketch.getQuantile(quantile),
+          expected * sketch.getRelativeAccuracy() + 1e-9);
+    }
+  }
+
+  private static double[] latencies(long seed, int n) {
+    Random random = new Random(seed);
+    double[] values = new double[n];
+    for (int i = 0; i < n; i++) {
+      // Log-normal, with a long tail like request latencies.
+      values[i] = Math.exp(3 + 1.5 * random.nextGaussian());
+    }
+    return values;
+  }
+
+  @Test
+  public void testQuantilesWithinRelativeAccuracy() {
+    double[] values = latencies(1, 100000);
+    QuantileSketch sketch = new QuantileSketch();
+    for (double value : values) {
+      sketch.add(value);
+    }
+    Assert.assertEquals(values.length, sketch.getCount());
+    assertWithinAccuracy(values, sketch);
+  }
+
+  @Test
+  public void testEmptyAndZeroValues() {
+    QuantileSketch sketch = new QuantileSketch();
+    Assert.assertTrue(Double.isNaN(sketch.getQuantile(0.5)));
+    sketch.add(0);
+    sketch.add(0);
+    sketch.add(10);
+    Assert.assertEquals(0, sketch.getQuantile(0.5), 0);
+    Assert.assertEquals(10, sketch.getQuantile(1), 0);
+  }
+
+  @Test
+  public void testMergeMatchesSingleSketch() {
+    double[] first = latencies(2, 20000);
+    double[] second = latencies(3, 30000);
+    QuantileSketch merged = new QuantileSketch();
+    QuantileSketch other = new QuantileSketch();
+    QuantileSketch all = new QuantileSketch();
+    for (double value : first) {
+      merged.add(value);
+      all.add(value);
+    }
+    for (double value : second) {
+      other.add(value);
+      all.add(value);
+    }
+    merged.merge(other);
+
+    Assert.assertEquals(all.getCount(), merged.getCount());
+    for (double quantile : QUANTILES) {
+      Assert.assertEquals(all.getQuantile(quantile), merged.getQuantile(quantile), 0);
+    }
+    double[] values = Arrays.copyOf(first, first.length + second.length);
+    System.arraycopy(second, 0, values, first.length, second.length);
+    assertWithinAccuracy(values, merged);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testMergeDifferentAccuracy() {
+    new QuantileSketch(0.01, 100).merge(new QuantileSketch(0.02, 100));
+  }
+
+  @Test
+  public void testSerializationRoundTrip() {
+    QuantileSketch sketch = new QuantileSketch();
+    for (double value : latencies(4, 10000)) {
+      sketch.add(value);
+    }
+    sketch.add(0);
+    byte[] bytes = sketch.toBytes();
+    QuantileSketch copy = QuantileSketch.fromBytes(bytes);
+
+    Assert.assertEquals(sketch.getCount(), copy.getCount());
+    for (double quantile : QUANTILES) {
+      Assert.assertEquals(sketch.getQuantile(quantile), copy.getQuantile(quantile), 0);
+    }
+    Assert.assertArrayEquals(bytes, copy.toBytes());
+    Assert.assertEquals(0, QuantileSketch.fromBytes(new QuantileSketch().toBytes()).getCount());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testMalformedBytes() {
+    QuantileSketch.fromBytes(new byte[] {1, 2, 3});
+  }
+
+  @Test
+  public void testCollapsesLowestBins() {
+    // 256 bins at 1% span a factor of about 160, so the values below 10000 / 160 get collapsed.
+    QuantileSketch sketch = new QuantileSketch(0.01, 256);
+    double[] values = new double[10000];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = i + 1;
+      sketch.add(values[i]);
+    }
+    for (double quantile : new double[] {0.5, 0.9, 0.99, 1}) {
+      double expected = values[(int) Math.floor(quantile * (values.length - 1))];
+      Assert.assertEquals(expected, sketch.getQuantile(quantile), expected * 0.01);
+    }
+    Assert.assertTrue(sketch.getQuantile(0.001) > 60);
+    Assert.assertTrue(sketch.toBytes().length < 256 * 3 + 40);
+  }
+}
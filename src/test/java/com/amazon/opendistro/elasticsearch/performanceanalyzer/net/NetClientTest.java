@@ -0,0 +1,68 @@
+/*
+ * Copyright 2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.net;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.grpc.FlowUnitMessage;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.grpc.PublishResponse;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.util.InstanceDetails;
+import io.grpc.Status;
+import io.grpc.stub.StreamObserver;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class NetClientTest {
+  private static final InstanceDetails.Id PEER_ID = new InstanceDetails.Id("node1");
+  private static final InstanceDetails PEER =
+      new InstanceDetails(PEER_ID, new InstanceDetails.Ip("127.0.0.1"), 9650);
+  private static final FlowUnitMessage FLOW_UNIT =
+      FlowUnitMessage.newBuilder().setGraphNode("HotNodeRca").setEsNode("node0").build();
+
+  private GRPCConnectionManager connectionManager;
+  private NetClient client;
+  private StreamObserver<PublishResponse> responseObserver;
+
+  @Before
+  @SuppressWarnings("unchecked")
+  public void setUp() {
+    connectionManager = mock(GRPCConnectionManager.class);
+    client = new NetClient(connectionManager);
+    responseObserver = mock(StreamObserver.class);
+  }
+
+  @Test
+  public void testPublishToBackedOffPeerIsNotSent() {
+    when(connectionManager.isPeerAvailable(PEER_ID)).thenReturn(false);
+
+    Assert.assertFalse(client.publish(PEER, FLOW_UNIT, responseObserver));
+    verify(connectionManager, never()).getClientStubForHost(any());
+  }
+
+  @Test
+  public void testPublishThatThrowsIsNotSent() {
+    when(connectionManager.isPeerAvailable(PEER_ID)).thenReturn(true);
+    when(connectionManager.getClientStubForHost(PEER)).thenThrow(Status.UNAVAILABLE.asRuntimeException());
+
+    Assert.assertFalse(client.publish(PEER, FLOW_UNIT, responseObserver));
+    verify(connectionManager).reportFailure(PEER_ID);
+  }
+}
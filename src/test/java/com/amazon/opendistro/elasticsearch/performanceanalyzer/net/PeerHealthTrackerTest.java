@@ -0,0 +1,85 @@
+/*
+ * Copyright 2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.net;
+
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.util.InstanceDetails;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PeerHealthTrackerTest {
+  private static final InstanceDetails.Id PEER = new InstanceDetails.Id("node1");
+
+  private PeerHealthTracker tracker;
+  private Clock clock;
+
+  @Before
+  public void setup() {
+    tracker = new PeerHealthTracker(100, 1000, 0.2, new Random(1));
+    clock = Clock.fixed(Instant.ofEpochMilli(0), ZoneId.of("UTC"));
+    tracker.setClock(clock);
+  }
+
+  private void advance(long millis) {
+    clock = Clock.offset(clock, Duration.ofMillis(millis));
+    tracker.setClock(clock);
+  }
+
+  @Test
+  public void testBackoffGrowsWithJitterUpToMax() {
+    Assert.assertTrue(tracker.isAvailable(PEER));
+    long expected = 100;
+    for (int i = 0; i < 6; i++) {
+      long backoff = tracker.onFailure(PEER);
+      Assert.assertTrue(backoff >= expected * 0.8 && backoff <= expected * 1.2);
+      Assert.assertFalse(tracker.isAvailable(PEER));
+      advance(backoff - 1);
+      Assert.assertFalse(tracker.isAvailable(PEER));
+      advance(1);
+      Assert.assertTrue(tracker.isAvailable(PEER));
+      expected = Math.min(expected * 2, 1000);
+    }
+    Assert.assertTrue(tracker.isUnhealthy(PEER));
+  }
+
+  @Test
+  public void testFailuresDuringBackoffCountOnce() {
+    long backoff = tracker.onFailure(PEER);
+    advance(backoff / 2);
+    Assert.assertEquals(backoff, tracker.onFailure(PEER));
+    advance(backoff - backoff / 2);
+    Assert.assertTrue(tracker.isAvailable(PEER));
+  }
+
+  @Test
+  public void testSuccessResetsPeer() {
+    Assert.assertEquals(-1, tracker.onSuccess(PEER));
+    long backoff = tracker.onFailure(PEER);
+    advance(backoff);
+    tracker.onFailure(PEER);
+    advance(50);
+    Assert.assertEquals(backoff + 50, tracker.onSuccess(PEER));
+    Assert.assertFalse(tracker.isUnhealthy(PEER));
+    Assert.assertTrue(tracker.isAvailable(PEER));
+    long first = tracker.onFailure(PEER);
+    Assert.assertTrue(first <= 120);
+  }
+}
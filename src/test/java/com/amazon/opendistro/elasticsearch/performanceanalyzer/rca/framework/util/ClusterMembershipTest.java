@@ -0,0 +1,146 @@
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.util;
+
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.AppContext;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.metrics.AllMetrics;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.reader.ClusterDetailsEventProcessor;
+import com.google.common.collect.Lists;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ClusterMembershipTest {
+    private static final ClusterDetailsEventProcessor.NodeDetails SELF =
+            new ClusterDetailsEventProcessor.NodeDetails(AllMetrics.NodeRole.DATA, "self", "127.0.0.1", false);
+    private static final ClusterDetailsEventProcessor.NodeDetails MASTER =
+            new ClusterDetailsEventProcessor.NodeDetails(AllMetrics.NodeRole.MASTER, "master", "127.0.0.2", true);
+    private static final ClusterDetailsEventProcessor.NodeDetails DATA =
+            new ClusterDetailsEventProcessor.NodeDetails(AllMetrics.NodeRole.DATA, "data", "127.0.0.2", false);
+
+    private ClusterDetailsEventProcessor clusterDetailsEventProcessor;
+    private AppContext appContext;
+
+    @Before
+    public void setup() {
+        clusterDetailsEventProcessor = new ClusterDetailsEventProcessor();
+        clusterDetailsEventProcessor.setNodesDetails(Lists.newArrayList(SELF, MASTER, DATA));
+        appContext = new AppContext();
+        appContext.setClusterDetailsEventProcessor(clusterDetailsEventProcessor);
+    }
+
+    @Test
+    public void testIndexes() {
+        ClusterMembership membership = ClusterMembership.fromNodeDetails(1, Lists.newArrayList(SELF, MASTER, DATA));
+
+        Assert.assertEquals(3, membership.getAllInstances().size());
+        Assert.assertEquals(2, membership.getDataNodeInstances().size());
+        Assert.assertEquals(2, membership.getPeerInstances().size());
+        Assert.assertTrue(membership.containsInstance(new InstanceDetails.Id("master")));
+        Assert.assertFalse(membership.containsInstance(new InstanceDetails.Id("unknown")));
+        Assert.assertEquals(new InstanceDetails(DATA), membership.getPeerInstance(new InstanceDetails.Id("data")));
+        // The current instance is not a peer.
+        Assert.assertNull(membership.getPeerInstance(new InstanceDetails.Id("self")));
+        Assert.assertNotNull(membership.getInstance(new InstanceDetails.Id("self")));
+        Assert.assertEquals(1, membership.getInstancesByRole(AllMetrics.NodeRole.ELECTED_MASTER).size());
+        Assert.assertEquals(2, membership.getInstancesByIp(new InstanceDetails.Ip("127.0.0.2")).size());
+        Assert.assertTrue(ClusterMembership.EMPTY.getPeerInstances().isEmpty());
+    }
+
+    @Test
+    public void testDiff() {
+        ClusterMembership previous = ClusterMembership.fromNodeDetails(1, Lists.newArrayList(SELF, MASTER));
+        ClusterMembership current = ClusterMembership.fromNodeDetails(2, Lists.newArrayList(SELF, DATA));
+
+        Assert.assertEquals(1, current.getDepartedInstanceIds(previous).size());
+        Assert.assertTrue(current.getDepartedInstanceIds(previous).contains(new InstanceDetails.Id("master")));
+        Assert.assertEquals(Lists.newArrayList(new InstanceDetails(DATA)), current.getJoinedInstances(previous));
+        Assert.assertTrue(current.getRoleChangedInstanceIds(previous).isEmpty());
+    }
+
+    @Test
+    public void testRoleChange() {
+        ClusterDetailsEventProcessor.NodeDetails dataToMaster =
+                new ClusterDetailsEventProcessor.NodeDetails(AllMetrics.NodeRole.MASTER, "data", "127.0.0.2", false);
+        ClusterMembership previous = ClusterMembership.fromNodeDetails(1, Lists.newArrayList(SELF, DATA));
+        ClusterMembership current = ClusterMembership.fromNodeDetails(2, Lists.newArrayList(SELF, dataToMaster));
+
+        Assert.assertTrue(current.getDepartedInstanceIds(previous).isEmpty());
+        Assert.assertTrue(current.getJoinedInstances(previous).isEmpty());
+        Assert.assertEquals(1, current.getRoleChangedInstanceIds(previous).size());
+        Assert.assertTrue(current.getRoleChangedInstanceIds(previous).contains(new InstanceDetails.Id("data")));
+    }
+
+    @Test
+    public void testSnapshotIsSwappedOnlyOnChange() {
+        List<ClusterMembership> notified = new ArrayList<>();
+        appContext.addClusterMembershipListener((previous, current) -> notified.add(current));
+
+        ClusterMembership first = appContext.getClusterMembership();
+        Assert.assertSame(first, appContext.getClusterMembership());
+        Assert.assertEquals(1, notified.size());
+
+        // Same details again should neither bump the version nor rebuild the snapshot.
+        clusterDetailsEventProcessor.setNodesDetails(Lists.newArrayList(SELF, MASTER, DATA));
+        Assert.assertSame(first, appContext.getClusterMembership());
+        Assert.assertEquals(1, notified.size());
+
+        clusterDetailsEventProcessor.setNodesDetails(Lists.newArrayList(SELF, MASTER));
+        ClusterMembership second = appContext.getClusterMembership();
+        Assert.assertNotSame(first, second);
+        Assert.assertTrue(second.getVersion() > first.getVersion());
+        Assert.assertEquals(2, notified.size());
+        Assert.assertEquals(1, appContext.getPeerInstances().size());
+        Assert.assertEquals(AllMetrics.NodeRole.UNKNOWN, appContext.getInstanceById(new InstanceDetails.Id("data")).getRole());
+    }
+
+    @Test
+    public void testNewProcessorWithSameDetailsIsNotAChange() {
+        List<ClusterMembership> notified = new ArrayList<>();
+        ClusterMembership first = appContext.getClusterMembership();
+        appContext.addClusterMembershipListener((previous, current) -> notified.add(current));
+        Assert.assertEquals(1, notified.size());
+
+        // The reader sets a new processor every window, mostly with the same details.
+        ClusterDetailsEventProcessor next = new ClusterDetailsEventProcessor();
+        next.setNodesDetails(Lists.newArrayList(SELF, MASTER, DATA));
+        appContext.setClusterDetailsEventProcessor(next);
+        Assert.assertSame(first, appContext.getClusterMembership());
+        Assert.assertEquals(1, notified.size());
+
+        next = new ClusterDetailsEventProcessor();
+        next.setNodesDetails(Lists.newArrayList(SELF, DATA));
+        appContext.setClusterDetailsEventProcessor(next);
+        Assert.assertEquals(2, notified.size());
+        Assert.assertEquals(first.getVersion() + 1, notified.get(1).getVersion());
+    }
+
+    @Test
+    public void testCopiedContextKeepsSnapshot() {
+        AppContext copy = new AppContext(appContext);
+        List<ClusterMembership> notified = new ArrayList<>();
+        copy.addClusterMembershipListener((previous, current) -> notified.add(current));
+        Assert.assertSame(appContext.getClusterMembership(), copy.getClusterMembership());
+        Assert.assertEquals(1, notified.size());
+
+        // Changes fed into the original context are not seen by the copy.
+        ClusterMembership copied = copy.getClusterMembership();
+        clusterDetailsEventProcessor.setNodesDetails(Lists.newArrayList(SELF, MASTER));
+        Assert.assertEquals(2, appContext.getClusterMembership().getAllInstances().size());
+        Assert.assertSame(copied, copy.getClusterMembership());
+        Assert.assertEquals(1, notified.size());
+
+        // Changes fed into the copy are not seen by the original context.
+        ClusterDetailsEventProcessor next = new ClusterDetailsEventProcessor();
+        next.setNodesDetails(Lists.newArrayList(SELF));
+        copy.setClusterDetailsEventProcessor(next);
+        Assert.assertEquals(2, notified.size());
+        Assert.assertEquals(1, copy.getClusterMembership().getAllInstances().size());
+        Assert.assertEquals(2, appContext.getClusterMembership().getAllInstances().size());
+
+        copy.removeClusterMembershipListeners();
+        next.setNodesDetails(Lists.newArrayList(SELF, DATA));
+        copy.getClusterMembership();
+        Assert.assertEquals(2, notified.size());
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.net;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class FairReceiveSchedulerTest {
+
+  /** Holds the scheduled runs until the test executes them. */
+  private static class ManualExecutor implements Executor {
+    private final List<Runnable> runs = new ArrayList<>();
+
+    @Override
+    public void execute(Runnable command) {
+      runs.add(command);
+    }
+
+    void runAll() {
+      for (Runnable run : runs) {
+        run.run();
+      }
+      runs.clear();
+    }
+  }
+
+  @Test
+  public void testPeersShareBytesFairly() {
+    FairReceiveScheduler scheduler = new FairReceiveScheduler(100);
+    ManualExecutor executor = new ManualExecutor();
+    List<String> order = new ArrayList<>();
+    AtomicInteger released = new AtomicInteger();
+
+    // node1 floods with small messages before node2 sends large ones.
+    for (int i = 0; i < 20; i++) {
+      scheduler.submit(executor, "node1", 50, () -> order.add("node1"), released::incrementAndGet);
+    }
+    for (int i = 0; i < 2; i++) {
+      scheduler.submit(executor, "node2", 100, () -> order.add("node2"), released::incrementAndGet);
+    }
+    Assert.assertEquals(20, scheduler.getQueuedCount("node1"));
+    Assert.assertEquals(2, scheduler.getQueuedCount("node2"));
+    executor.runAll();
+
+    Assert.assertEquals(22, order.size());
+    Assert.assertEquals(22, released.get());
+    // Each round serves 100 bytes of each peer: two messages of node1, one of node2.
+    Assert.assertEquals(
+        Arrays.asList("node1", "node1", "node2", "node1", "node1", "node2"), order.subList(0, 6));
+    Assert.assertEquals(0, scheduler.getQueuedCount("node1"));
+    Assert.assertEquals(0, scheduler.getQueuedCount("node2"));
+  }
+
+  @Test
+  public void testReleasesAfterFailedTask() {
+    FairReceiveScheduler scheduler = new FairReceiveScheduler();
+    ManualExecutor executor = new ManualExecutor();
+    AtomicInteger released = new AtomicInteger();
+    scheduler.submit(executor, "node1", 10, () -> {
+      throw new IllegalStateException("boom");
+    }, released::incrementAndGet);
+    try {
+      executor.runAll();
+      Assert.fail("The task failure should propagate to the executor");
+    } catch (IllegalStateException e) {
+      Assert.assertEquals(1, released.get());
+    }
+  }
+
+  @Test
+  public void testRejectedWorkIsReleased() {
+    FairReceiveScheduler scheduler = new FairReceiveScheduler();
+    AtomicInteger ran = new AtomicInteger();
+    AtomicInteger released = new AtomicInteger();
+    Assert.assertFalse(scheduler.submit(new RejectingExecutor(), "node1", 10, ran::incrementAndGet,
+        released::incrementAndGet));
+    Assert.assertEquals(0, ran.get());
+    Assert.assertEquals(1, released.get());
+    Assert.assertEquals(0, scheduler.getQueuedCount("node1"));
+  }
+}
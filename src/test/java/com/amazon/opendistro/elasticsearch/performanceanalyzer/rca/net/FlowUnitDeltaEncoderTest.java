@@ -0,0 +1,119 @@
+/*
+ * Copyright 2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.net;
+
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.grpc.FlowUnitMessage;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.grpc.HotNodeSummaryMessage;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.grpc.ResourceContextMessage;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.GradleTaskForRca;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.api.Resources;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.util.InstanceDetails;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category(GradleTaskForRca.class)
+public class FlowUnitDeltaEncoderTest {
+  private static final String VERTEX = "HotNodeRca";
+  private static final String PUBLISHER = "node1";
+  private static final InstanceDetails.Id SUBSCRIBER = new InstanceDetails.Id("master");
+
+  private static FlowUnitMessage flowUnit(long timestamp, Resources.State state, String nodeId) {
+    return FlowUnitMessage.newBuilder()
+                          .setGraphNode(VERTEX)
+                          .setEsNode(PUBLISHER)
+                          .setTimeStamp(timestamp)
+                          .setResourceContext(ResourceContextMessage.newBuilder().setState(state.ordinal()))
+                          .setHotNodeSummary(HotNodeSummaryMessage.newBuilder().setNodeID(nodeId))
+                          .build();
+  }
+
+  @Test
+  public void testReceiverSeesSameFlowUnits() {
+    FlowUnitDeltaEncoder encoder = new FlowUnitDeltaEncoder(true, 3);
+    ReceivedFlowUnitStore store = new ReceivedFlowUnitStore();
+    FlowUnitMessage[] sent = {
+        flowUnit(1, Resources.State.HEALTHY, PUBLISHER),
+        flowUnit(2, Resources.State.HEALTHY, PUBLISHER),
+        flowUnit(3, Resources.State.HEALTHY, PUBLISHER),
+        flowUnit(4, Resources.State.UNHEALTHY, PUBLISHER),
+        flowUnit(5, Resources.State.UNHEALTHY, PUBLISHER),
+        flowUnit(6, Resources.State.HEALTHY, PUBLISHER),
+        flowUnit(7, Resources.State.HEALTHY, PUBLISHER),
+        flowUnit(8, Resources.State.HEALTHY, PUBLISHER),
+        flowUnit(9, Resources.State.HEALTHY, PUBLISHER),
+        flowUnit(10, Resources.State.HEALTHY, PUBLISHER),
+    };
+    boolean[] heartbeats = {false, true, true, false, false, false, true, true, true, false};
+
+    for (int i = 0; i < sent.length; i++) {
+      FlowUnitMessage onWire = encoder.encode(VERTEX, SUBSCRIBER, sent[i]);
+      Assert.assertEquals("flow unit " + i, heartbeats[i], onWire.getHeartbeat());
+      if (onWire.getHeartbeat()) {
+        Assert.assertFalse(onWire.hasResourceContext());
+        Assert.assertTrue(onWire.getSerializedSize() < sent[i].getSerializedSize());
+      }
+      Assert.assertEquals(sent[i], store.materialize(onWire));
+    }
+  }
+
+  @Test
+  public void testResetSendsFullFlowUnit() {
+    FlowUnitDeltaEncoder encoder = new FlowUnitDeltaEncoder(true, 10);
+    encoder.encode(VERTEX, SUBSCRIBER, flowUnit(1, Resources.State.HEALTHY, PUBLISHER));
+    Assert.assertTrue(encoder.encode(VERTEX, SUBSCRIBER, flowUnit(2, Resources.State.HEALTHY, PUBLISHER))
+                             .getHeartbeat());
+    encoder.reset(VERTEX, SUBSCRIBER);
+    Assert.assertFalse(encoder.encode(VERTEX, SUBSCRIBER, flowUnit(3, Resources.State.HEALTHY, PUBLISHER))
+                              .getHeartbeat());
+    encoder.reset(SUBSCRIBER);
+    Assert.assertFalse(encoder.encode(VERTEX, SUBSCRIBER, flowUnit(4, Resources.State.HEALTHY, PUBLISHER))
+                              .getHeartbeat());
+    // Another subscriber gets its own full flow unit.
+    Assert.assertFalse(encoder.encode(VERTEX, new InstanceDetails.Id("node2"),
+        flowUnit(5, Resources.State.HEALTHY, PUBLISHER)).getHeartbeat());
+  }
+
+  @Test
+  public void testChangedOrDisabledIsSentInFull() {
+    FlowUnitDeltaEncoder encoder = new FlowUnitDeltaEncoder(true, 10);
+    encoder.encode(VERTEX, SUBSCRIBER, flowUnit(1, Resources.State.HEALTHY, PUBLISHER));
+    Assert.assertFalse(encoder.encode(VERTEX, SUBSCRIBER, flowUnit(2, Resources.State.HEALTHY, "other"))
+                              .getHeartbeat());
+
+    FlowUnitDeltaEncoder disabled = new FlowUnitDeltaEncoder(false, 10);
+    FlowUnitMessage message = flowUnit(1, Resources.State.HEALTHY, PUBLISHER);
+    Assert.assertSame(message, disabled.encode(VERTEX, SUBSCRIBER, message));
+    message = flowUnit(2, Resources.State.HEALTHY, PUBLISHER);
+    Assert.assertSame(message, disabled.encode(VERTEX, SUBSCRIBER, message));
+  }
+
+  @Test
+  public void testHeartbeatWithoutKnownFlowUnit() {
+    ReceivedFlowUnitStore store = new ReceivedFlowUnitStore();
+    FlowUnitMessage heartbeat = FlowUnitMessage.newBuilder()
+                                               .setGraphNode(VERTEX)
+                                               .setEsNode(PUBLISHER)
+                                               .setTimeStamp(1)
+                                               .setHeartbeat(true)
+                                               .build();
+    Assert.assertNull(store.materialize(heartbeat));
+    store.materialize(flowUnit(1, Resources.State.HEALTHY, PUBLISHER));
+    Assert.assertNotNull(store.materialize(heartbeat));
+    store.removePublisher(VERTEX, new InstanceDetails.Id(PUBLISHER));
+    Assert.assertNull(store.materialize(heartbeat));
+  }
+}
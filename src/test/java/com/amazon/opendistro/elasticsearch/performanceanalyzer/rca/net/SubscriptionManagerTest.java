@@ -4,7 +4,9 @@ import com.amazon.opendistro.elasticsearch.performanceanalyzer.CertificateUtils;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.config.PluginSettings;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.grpc.SubscribeResponse;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.net.GRPCConnectionManager;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.util.ClusterMembership;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.util.InstanceDetails;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 import java.util.Collections;
 import java.util.Objects;
@@ -119,4 +121,25 @@ public class SubscriptionManagerTest {
         Assert.assertEquals(Collections.emptySet(), uut.getSubscribersFor(testNode));
         Assert.assertFalse(uut.isNodeSubscribed(testNode));
     }
+
+    @Test
+    public void testDepartedHostsAreRemoved() {
+        String testNode = "testNode";
+        String locus = "data-node";
+        InstanceDetails self = new InstanceDetails(new InstanceDetails.Id("self"), new InstanceDetails.Ip("127.0.0.1"), 9000);
+        InstanceDetails peer1 = new InstanceDetails(new InstanceDetails.Id("id-1"), new InstanceDetails.Ip("127.0.0.2"), 9000);
+        InstanceDetails peer2 = new InstanceDetails(new InstanceDetails.Id("id-2"), new InstanceDetails.Ip("127.0.0.3"), 9000);
+
+        uut.setCurrentLocus(locus);
+        uut.addPublisher(testNode, peer1.getInstanceId());
+        uut.addPublisher(testNode, peer2.getInstanceId());
+        uut.addSubscriber(testNode, peer1.getInstanceId(), locus);
+
+        ClusterMembership previous = new ClusterMembership(1, Lists.newArrayList(self, peer1, peer2), Collections.emptyList());
+        ClusterMembership current = new ClusterMembership(2, Lists.newArrayList(self, peer2), Collections.emptyList());
+        uut.onMembershipChange(previous, current);
+
+        Assert.assertEquals(Sets.newHashSet(peer2.getInstanceId()), uut.getPublishersForNode(testNode));
+        Assert.assertFalse(uut.isNodeSubscribed(testNode));
+    }
 }
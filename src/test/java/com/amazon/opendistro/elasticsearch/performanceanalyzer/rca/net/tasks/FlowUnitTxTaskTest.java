@@ -0,0 +1,108 @@
+/*
+ * Copyright 2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.net.tasks;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.AppContext;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.grpc.FlowUnitMessage;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.grpc.ResourceContextMessage;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.net.GRPCConnectionManager;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.net.NetClient;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.GradleTaskForRca;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.api.Resources;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.core.GenericFlowUnit;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.util.InstanceDetails;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.messages.DataMsg;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.net.FlowUnitDeltaEncoder;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.net.SubscriptionManager;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.mockito.ArgumentCaptor;
+
+@Category(GradleTaskForRca.class)
+public class FlowUnitTxTaskTest {
+  private static final String VERTEX = "HotNodeRca";
+  private static final String LOCUS = "data-node";
+  private static final InstanceDetails.Id SUBSCRIBER_ID = new InstanceDetails.Id("master");
+  private static final InstanceDetails SUBSCRIBER =
+      new InstanceDetails(SUBSCRIBER_ID, new InstanceDetails.Ip("127.0.0.2"), 9650);
+  private static final InstanceDetails.Id MY_ID = new InstanceDetails.Id("node1");
+
+  private NetClient client;
+  private SubscriptionManager subscriptionManager;
+  private AppContext appContext;
+  private DataMsg dataMsg;
+
+  @Before
+  public void setUp() {
+    client = mock(NetClient.class);
+    subscriptionManager =
+        new SubscriptionManager(mock(GRPCConnectionManager.class), new FlowUnitDeltaEncoder(true, 10));
+    subscriptionManager.setCurrentLocus(LOCUS);
+    subscriptionManager.addSubscriber(VERTEX, SUBSCRIBER_ID, LOCUS);
+
+    appContext = mock(AppContext.class);
+    when(appContext.getMyInstanceDetails())
+        .thenReturn(new InstanceDetails(MY_ID, new InstanceDetails.Ip("127.0.0.1"), 9650));
+    when(appContext.getInstanceById(SUBSCRIBER_ID)).thenReturn(SUBSCRIBER);
+
+    // A healthy flow unit that is the same on every evaluation.
+    GenericFlowUnit flowUnit = mock(GenericFlowUnit.class);
+    when(flowUnit.buildFlowUnitMessage(VERTEX, MY_ID)).thenReturn(
+        FlowUnitMessage.newBuilder()
+                       .setGraphNode(VERTEX)
+                       .setEsNode(MY_ID.toString())
+                       .setResourceContext(
+                           ResourceContextMessage.newBuilder().setState(Resources.State.HEALTHY.ordinal()))
+                       .build());
+    dataMsg = new DataMsg(VERTEX, Collections.singletonList(VERTEX), Collections.singletonList(flowUnit));
+  }
+
+  private List<FlowUnitMessage> publishTwice(boolean firstSent) {
+    when(client.publish(eq(SUBSCRIBER), any(), any())).thenReturn(firstSent, true);
+    FlowUnitTxTask task = new FlowUnitTxTask(client, subscriptionManager, dataMsg, appContext);
+    task.run();
+    task.run();
+    ArgumentCaptor<FlowUnitMessage> published = ArgumentCaptor.forClass(FlowUnitMessage.class);
+    verify(client, times(2)).publish(eq(SUBSCRIBER), published.capture(), any());
+    return published.getAllValues();
+  }
+
+  @Test
+  public void testUnchangedFlowUnitIsSentAsHeartbeat() {
+    List<FlowUnitMessage> published = publishTwice(true);
+    Assert.assertFalse(published.get(0).getHeartbeat());
+    Assert.assertTrue(published.get(1).getHeartbeat());
+  }
+
+  @Test
+  public void testFlowUnitThatWasNotSentIsSentAgainInFull() {
+    // NetClient did not send the first flow unit, the peer was backed off or the stream failed.
+    List<FlowUnitMessage> published = publishTwice(false);
+    Assert.assertFalse(published.get(0).getHeartbeat());
+    Assert.assertFalse(published.get(1).getHeartbeat());
+  }
+}
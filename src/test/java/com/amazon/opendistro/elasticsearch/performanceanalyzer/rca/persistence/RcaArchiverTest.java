@@ -0,0 +1,121 @@
+/*
+ * Copyright 2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.persistence;
+
+import com.google.gson.JsonArray;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RcaArchiverTest {
+  private static final String DB_URL = "jdbc:sqlite:";
+  private Path testLocation;
+
+  @Before
+  public void init() throws IOException {
+    String cwd = System.getProperty("user.dir");
+    testLocation = Paths.get(cwd, "src", "test", "resources", "tmp", "rca_archiver");
+    Files.createDirectories(testLocation);
+    FileUtils.cleanDirectory(testLocation.toFile());
+  }
+
+  @After
+  public void after() throws IOException {
+    FileUtils.deleteDirectory(testLocation.toFile());
+  }
+
+  private Path createRotatedFile(String name, long firstTimestamp, int rows) throws SQLException {
+    Path file = testLocation.resolve(name);
+    try (Connection conn = DriverManager.getConnection(DB_URL + file);
+         Statement statement = conn.createStatement()) {
+      statement.execute("CREATE TABLE RCA (RCA_ID INTEGER PRIMARY KEY AUTOINCREMENT, "
+          + "timestamp BIGINT, rca_name VARCHAR, state VARCHAR)");
+      statement.execute("CREATE TABLE HotNodeSummary (HotNodeSummary_ID INTEGER PRIMARY KEY AUTOINCREMENT, "
+          + "node_id VARCHAR, RCA_ID INTEGER)");
+      try (PreparedStatement insert = conn.prepareStatement(
+          "INSERT INTO RCA (timestamp, rca_name, state) VALUES (?, ?, ?)")) {
+        for (int i = 0; i < rows; i++) {
+          insert.setLong(1, firstTimestamp + i * 1000L);
+          insert.setString(2, i % 2 == 0 ? "HighHeapUsageClusterRca" : "HotNodeClusterRca");
+          insert.setString(3, i % 10 == 0 ? "unhealthy" : "healthy");
+          insert.executeUpdate();
+        }
+      }
+      statement.execute("INSERT INTO HotNodeSummary (node_id, RCA_ID) VALUES ('node1', 1)");
+    }
+    return file;
+  }
+
+  @Test
+  public void testArchiveAndReadRange() throws Exception {
+    RcaArchiver archiver = new RcaArchiver(testLocation, DB_URL, Long.MAX_VALUE);
+    Path rotated = createRotatedFile("rca.sqlite.2020-01-01-00-00-00", 1000_000L, 100);
+    long rotatedSize = Files.size(rotated);
+
+    Path archive = archiver.archive(rotated);
+    Assert.assertFalse(Files.exists(rotated));
+    Assert.assertTrue(Files.size(archive) < rotatedSize);
+
+    RcaArchiveManifest manifest = RcaArchiveManifest.load(
+        testLocation.resolve(RcaArchiver.ARCHIVE_DIR).resolve(RcaArchiver.MANIFEST_FILENAME));
+    Assert.assertEquals(1, manifest.getArchives().size());
+    RcaArchiveManifest.Entry entry = manifest.getArchives().get(0);
+    Assert.assertEquals(1000_000L, entry.getStartMillis());
+    Assert.assertEquals(1000_000L + 99 * 1000L, entry.getEndMillis());
+    Assert.assertEquals(101, entry.getRows());
+
+    // Every other flow unit is a HighHeapUsageClusterRca one, 10 of them are in [1010000, 1029000].
+    JsonArray flowUnits = archiver.readRange("HighHeapUsageClusterRca", 1010_000L, 1029_000L);
+    Assert.assertEquals(10, flowUnits.size());
+    Assert.assertEquals(1010_000L, flowUnits.get(0).getAsJsonObject().get("timestamp").getAsLong());
+    Assert.assertEquals("unhealthy", flowUnits.get(0).getAsJsonObject().get("state").getAsString());
+    Assert.assertEquals(0, archiver.readRange("HighHeapUsageClusterRca", 0, 999_999L).size());
+
+    RcaArchive.Table summaries = RcaArchive.readTable(archive, "HotNodeSummary", Arrays.asList("node_id"));
+    Assert.assertEquals(Arrays.asList("node1"), summaries.getColumn("node_id"));
+    archiver.close();
+  }
+
+  @Test
+  public void testOldestArchivesAreDeletedOverBudget() throws Exception {
+    RcaArchiver archiver = new RcaArchiver(testLocation, DB_URL, 1);
+    Path first = archiver.archive(createRotatedFile("rca.sqlite.1", 1000L, 10));
+    Path second = archiver.archive(createRotatedFile("rca.sqlite.2", 100_000L, 10));
+    Assert.assertFalse(Files.exists(first));
+    Assert.assertFalse(Files.exists(second));
+    archiver.close();
+
+    RcaArchiver unbounded = new RcaArchiver(testLocation, DB_URL, Long.MAX_VALUE);
+    first = unbounded.archive(createRotatedFile("rca.sqlite.3", 1000L, 10));
+    second = unbounded.archive(createRotatedFile("rca.sqlite.4", 100_000L, 10));
+    Assert.assertTrue(Files.exists(first));
+    Assert.assertTrue(Files.exists(second));
+    Assert.assertEquals(10, unbounded.readRange("HighHeapUsageClusterRca", 0, Long.MAX_VALUE).size());
+    unbounded.close();
+  }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.scheduler;
+
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.api.Resources;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.api.contexts.ResourceContext;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.api.flow_units.ResourceFlowUnit;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.api.metrics.CPU_Utilization;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.api.summaries.HotNodeSummary;
+import com.google.common.util.concurrent.MoreExecutors;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AdaptiveCadenceControllerTest {
+  private static final List<ResourceFlowUnit<HotNodeSummary>> HEALTHY =
+      Collections.singletonList(
+          new ResourceFlowUnit<>(0, new ResourceContext(Resources.State.HEALTHY), null));
+  private static final List<ResourceFlowUnit<HotNodeSummary>> UNHEALTHY =
+      Collections.singletonList(
+          new ResourceFlowUnit<>(0, new ResourceContext(Resources.State.UNHEALTHY), null));
+  private static final List<ResourceFlowUnit<HotNodeSummary>> EMPTY =
+      Collections.singletonList(new ResourceFlowUnit<>(0));
+
+  private void healthyTick(AdaptiveCadenceController controller) {
+    controller.onFlowUnits(HEALTHY);
+    controller.onTickComplete();
+  }
+
+  @Test
+  public void testBacksOffExponentiallyUpToCeiling() {
+    AdaptiveCadenceController controller = new AdaptiveCadenceController(0, 2, 4);
+    Assert.assertEquals(1, controller.getMultiplier());
+
+    healthyTick(controller);
+    Assert.assertEquals(1, controller.getMultiplier());
+    healthyTick(controller);
+    Assert.assertEquals(2, controller.getMultiplier());
+    healthyTick(controller);
+    healthyTick(controller);
+    Assert.assertEquals(4, controller.getMultiplier());
+    healthyTick(controller);
+    healthyTick(controller);
+    Assert.assertEquals(4, controller.getMultiplier());
+  }
+
+  @Test
+  public void testSnapsBackOnUnhealthyFlowUnit() {
+    AdaptiveCadenceController controller = new AdaptiveCadenceController(0, 1, 8);
+    healthyTick(controller);
+    healthyTick(controller);
+    Assert.assertEquals(4, controller.getMultiplier());
+
+    controller.onFlowUnits(HEALTHY);
+    controller.onFlowUnits(UNHEALTHY);
+    // The multiplier drops before the tick completes, so the rest of the tick runs at full rate.
+    Assert.assertEquals(1, controller.getMultiplier());
+    controller.onTickComplete();
+    Assert.assertEquals(1, controller.getMultiplier());
+
+    healthyTick(controller);
+    Assert.assertEquals(2, controller.getMultiplier());
+  }
+
+  @Test
+  public void testTicksWithoutResourceFlowUnitsDoNotCount() {
+    AdaptiveCadenceController controller = new AdaptiveCadenceController(0, 1, 8);
+    controller.onFlowUnits(EMPTY);
+    controller.onTickComplete();
+    controller.onTickComplete();
+    Assert.assertEquals(1, controller.getMultiplier());
+  }
+
+  @Test
+  public void testTaskletIntervalFollowsController() {
+    AdaptiveCadenceController controller = new AdaptiveCadenceController(0, 1, 8);
+    CPU_Utilization node = new CPU_Utilization(5);
+    Tasklet tasklet = new Tasklet(node, null, null, Collections.emptyMap(), null, args -> { });
+    Assert.assertEquals(5, tasklet.getEffectiveIntervalSeconds());
+
+    tasklet.setCadenceController(controller);
+    healthyTick(controller);
+    Assert.assertEquals(10, tasklet.getEffectiveIntervalSeconds());
+  }
+
+  /** Ticks the tasklet until the given tick and returns the ticks it ran on. */
+  private List<Integer> tickUntil(Tasklet tasklet, AtomicInteger evaluations, int[] tick, int last) {
+    ExecutorService executor = MoreExecutors.newDirectExecutorService();
+    List<Integer> runs = new ArrayList<>();
+    while (tick[0] < last) {
+      tick[0] += 1;
+      int before = evaluations.get();
+      tasklet.execute(executor, new HashMap<>()).join();
+      if (evaluations.get() > before) {
+        runs.add(tick[0]);
+      }
+    }
+    return runs;
+  }
+
+  @Test
+  public void testTaskletKeepsPhaseAcrossBackoffAndReset() {
+    AdaptiveCadenceController controller = new AdaptiveCadenceController(0, 1, 8);
+    AtomicInteger evaluations = new AtomicInteger();
+    Tasklet tasklet = new Tasklet(new CPU_Utilization(5), null, null, Collections.emptyMap(), null,
+        args -> evaluations.incrementAndGet());
+    tasklet.setCadenceController(controller);
+    int[] tick = {0};
+
+    Assert.assertEquals(Arrays.asList(5, 10), tickUntil(tasklet, evaluations, tick, 10));
+
+    // Backed off to every 10 ticks, counted from the run on tick 10 rather than from tick 0.
+    healthyTick(controller);
+    Assert.assertEquals(Arrays.asList(20, 30), tickUntil(tasklet, evaluations, tick, 32));
+
+    // Backed off to every 20 ticks: nothing is due until tick 50.
+    healthyTick(controller);
+    Assert.assertEquals(Collections.emptyList(), tickUntil(tasklet, evaluations, tick, 40));
+
+    // An unhealthy flow unit drops the multiplier, and the tasklet runs on the next tick since more
+    // than its base interval has passed since tick 30.
+    controller.onFlowUnits(UNHEALTHY);
+    Assert.assertEquals(Arrays.asList(41, 46), tickUntil(tasklet, evaluations, tick, 46));
+
+    tasklet.resetTicks();
+    tick[0] = 0;
+    Assert.assertEquals(Arrays.asList(5), tickUntil(tasklet, evaluations, tick, 5));
+  }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.scheduler;
+
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.PerformanceAnalyzerApp;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.configs.VertexBudgetConfig;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.core.RcaConf;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.core.Stats;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.metrics.RcaGraphMetrics;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.stats.eval.impl.IStatistic;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.stats.eval.impl.vals.NamedAggregateValue;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class VertexCostTrackerTest {
+  private static final long MS = 1_000_000L;
+
+  private VertexBudgetConfig budget(String action) throws Exception {
+    final String configStr =
+        "{"
+            + "\"rca-config-settings\": { "
+                + "\"vertex-budget\": { "
+                    + "\"cpu-time-millis\": 100, "
+                    + "\"tolerance\": 2, "
+                    + "\"action\": \"" + action + "\", "
+                    + "\"max-throttle-multiplier\": 4, "
+                    + "\"top-n\": 2 "
+                + "} "
+            + "} "
+        + "}";
+    RcaConf conf = new RcaConf();
+    conf.readConfigFromString(configStr);
+    return conf.getVertexBudgetConfig();
+  }
+
+  @After
+  public void cleanUp() {
+    Stats.clear();
+  }
+
+  @Test
+  public void testThrottleAndRecover() throws Exception {
+    VertexCostTracker tracker = new VertexCostTracker(budget(VertexBudgetConfig.ACTION_THROTTLE));
+
+    tracker.record("slow", 200 * MS, 200 * MS, 0);
+    Assert.assertEquals(1, tracker.getThrottleMultiplier("slow"));
+    tracker.record("slow", 200 * MS, 200 * MS, 0);
+    Assert.assertEquals(2, tracker.getThrottleMultiplier("slow"));
+    for (int i = 0; i < 4; i++) {
+      tracker.record("slow", 200 * MS, 200 * MS, 0);
+    }
+    Assert.assertEquals(4, tracker.getThrottleMultiplier("slow"));
+
+    tracker.record("slow", 10 * MS, 10 * MS, 0);
+    tracker.record("slow", 10 * MS, 10 * MS, 0);
+    Assert.assertEquals(2, tracker.getThrottleMultiplier("slow"));
+    Assert.assertEquals(1, tracker.getThrottleMultiplier("unknown"));
+  }
+
+  @Test
+  public void testMute() throws Exception {
+    // Initializes the set of muted graph nodes.
+    Stats.getInstance().getConnectedComponents();
+    VertexCostTracker tracker = new VertexCostTracker(budget(VertexBudgetConfig.ACTION_MUTE));
+
+    tracker.record("slow", 200 * MS, 200 * MS, 0);
+    tracker.record("fast", 1 * MS, 1 * MS, 0);
+    Assert.assertFalse(Stats.getInstance().isNodeMuted("slow"));
+    tracker.record("slow", 200 * MS, 200 * MS, 0);
+    Assert.assertTrue(Stats.getInstance().isNodeMuted("slow"));
+    Assert.assertFalse(Stats.getInstance().isNodeMuted("fast"));
+    Assert.assertEquals(1, tracker.getThrottleMultiplier("slow"));
+  }
+
+  @Test
+  public void testMostExpensive() throws Exception {
+    VertexCostTracker tracker = new VertexCostTracker(budget(VertexBudgetConfig.ACTION_THROTTLE));
+    tracker.record("a", 5 * MS, 5 * MS, 0);
+    tracker.record("b", 50 * MS, 50 * MS, 0);
+    tracker.record("c", 20 * MS, 20 * MS, 0);
+
+    List<VertexCostTracker.VertexCost> top = tracker.getMostExpensive(2);
+    Assert.assertEquals(2, top.size());
+    Assert.assertEquals("b", top.get(0).getName());
+    Assert.assertEquals("c", top.get(1).getName());
+    Assert.assertEquals(3, tracker.getMostExpensive(10).size());
+  }
+
+  private static Set<String> reportedVertices() {
+    Set<String> names = new HashSet<>();
+    for (IStatistic statistic :
+        PerformanceAnalyzerApp.RCA_GRAPH_METRICS_AGGREGATOR.getValues(RcaGraphMetrics.MOST_EXPENSIVE_VERTICES)) {
+      for (Object value : statistic.get()) {
+        names.add(((NamedAggregateValue) value).getName());
+      }
+    }
+    return names;
+  }
+
+  @Test
+  public void testReportEvictsVerticesThatLeftTheTopN() throws Exception {
+    VertexCostTracker tracker = new VertexCostTracker(budget(VertexBudgetConfig.ACTION_THROTTLE));
+    tracker.record("a", 50 * MS, 50 * MS, 0);
+    tracker.record("b", 40 * MS, 40 * MS, 0);
+    tracker.record("c", 5 * MS, 5 * MS, 0);
+    tracker.report();
+    Assert.assertEquals(new HashSet<>(Arrays.asList("a", "b")), reportedVertices());
+
+    tracker.record("c", 500 * MS, 500 * MS, 0);
+    tracker.report();
+    Assert.assertEquals(new HashSet<>(Arrays.asList("a", "c")), reportedVertices());
+  }
+
+  @Test
+  public void testMeasureAccountsThrowingEvaluation() throws Exception {
+    VertexCostTracker tracker = new VertexCostTracker(budget(VertexBudgetConfig.ACTION_THROTTLE));
+    try {
+      tracker.measure("failing", () -> {
+        throw new IllegalStateException("operate() failed");
+      });
+      Assert.fail("The exception of the evaluation should propagate");
+    } catch (IllegalStateException expected) {
+      // expected
+    }
+    List<VertexCostTracker.VertexCost> all = tracker.getMostExpensive(10);
+    Assert.assertEquals(1, all.size());
+    Assert.assertEquals("failing", all.get(0).getName());
+  }
+}
@@ -17,6 +17,7 @@ package com.amazon.opendistro.elasticsearch.performanceanalyzer.reader;
 
 import static org.hamcrest.Matchers.closeTo;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 
@@ -164,4 +165,68 @@ public class MemoryDBSnapshotTests extends AbstractReaderTests {
     Double limit = Double.parseDouble(res.get(0).get(fields[1]).toString());
     assertEquals(limit, 19607637196d, 0.001);
   }
+
+  @Test
+  public void testAlignWindowInMemoryMatchesSql() throws Exception {
+    MemoryDBSnapshot left = new MemoryDBSnapshot(conn, MetricName.CIRCUIT_BREAKER, 6000L);
+    Object[][] leftValues = {
+      {CircuitBreakerType.request.toString(), 0.1d, 3d, 19607637196d},
+      {CircuitBreakerType.fielddata.toString(), 1.7d, null, 19607637196d},
+      {CircuitBreakerType.fielddata.toString(), 2.3d, null, 19607637196d},
+      {null, 0.3d, 1d, 22875576729d},
+      {CircuitBreakerType.parent.toString(), null, null, null}
+    };
+    left.insertMultiRows(leftValues);
+
+    MemoryDBSnapshot right = new MemoryDBSnapshot(conn, MetricName.CIRCUIT_BREAKER, 11000L);
+    Object[][] rightValues = {
+      {CircuitBreakerType.fielddata.toString(), 0.7d, 2d, 19607637196d},
+      {CircuitBreakerType.accounting.toString(), 1d / 3, 0d, 32679395328d},
+      {null, 0.2d, null, 22875576729d},
+      {CircuitBreakerType.request.toString(), 0.9d, 5d, 19607637196d}
+    };
+    right.insertMultiRows(rightValues);
+
+    MemoryDBSnapshot sqlAligned =
+        new MemoryDBSnapshot(conn, MetricName.CIRCUIT_BREAKER, 10000L, true);
+    sqlAligned.alignWindow(left, right, 7000L, 5000L, 10000L);
+    MemoryDBSnapshot inMemoryAligned =
+        new MemoryDBSnapshot(conn, MetricName.CIRCUIT_BREAKER, 15000L, true);
+    inMemoryAligned.alignWindowInMemory(left, right, 7000L, 5000L, 10000L);
+
+    Result<Record> expected = sqlAligned.fetchAll();
+    Result<Record> actual = inMemoryAligned.fetchAll();
+    assertEquals(5, expected.size());
+    assertEquals(expected.size(), actual.size());
+    for (int i = 0; i < expected.size(); i++) {
+      assertEquals(expected.get(i).intoList(), actual.get(i).intoList());
+    }
+  }
+
+  @Test
+  public void testAlignWindowInMemoryWithoutDimensions() throws Exception {
+    MemoryDBSnapshot left = new MemoryDBSnapshot(conn, MetricName.MASTER_PENDING, 6000L);
+    MemoryDBSnapshot right = new MemoryDBSnapshot(conn, MetricName.MASTER_PENDING, 11000L);
+
+    // Like the SQL aggregate, aligning two empty windows gives a single row of NULLs.
+    MemoryDBSnapshot emptyAligned =
+        new MemoryDBSnapshot(conn, MetricName.MASTER_PENDING, 10000L, true);
+    emptyAligned.alignWindowInMemory(left, right, 7000L, 5000L, 10000L);
+    Result<Record> res = emptyAligned.fetchAll();
+    assertEquals(1, res.size());
+    assertNull(res.get(0).get(0));
+
+    left.insertMultiRows(new Object[][] {{1d}});
+    right.insertMultiRows(new Object[][] {{3d}});
+    MemoryDBSnapshot sqlAligned =
+        new MemoryDBSnapshot(conn, MetricName.MASTER_PENDING, 15000L, true);
+    sqlAligned.alignWindow(left, right, 7000L, 5000L, 10000L);
+    MemoryDBSnapshot inMemoryAligned =
+        new MemoryDBSnapshot(conn, MetricName.MASTER_PENDING, 20000L, true);
+    inMemoryAligned.alignWindowInMemory(left, right, 7000L, 5000L, 10000L);
+    Record expected = sqlAligned.fetchAll().get(0);
+    Record actual = inMemoryAligned.fetchAll().get(0);
+    assertEquals(expected.intoList(), actual.intoList());
+    assertEquals(2.2d, Double.parseDouble(actual.get(0).toString()), 0.001);
+  }
 }
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.reader;
+
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.metrics.AllMetrics.CircuitBreakerDimension;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.metrics.AllMetrics.CircuitBreakerValue;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.telemetry.Counter;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.telemetry.TelemetryRegistry;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MetricLineDecoderTest {
+  // One derived dimension comes first in the row.
+  private final MetricLineDecoder decoder =
+      new MetricLineDecoder(1, CircuitBreakerDimension.values(), CircuitBreakerValue.values());
+
+  private Object[] decode(String line) {
+    Object[] row = new Object[] {"derived", null, null, null, null};
+    return decoder.decode(line, 0, line.length(), row) ? row : null;
+  }
+
+  @Test
+  public void testDecodesKnownFieldsAndSkipsOthers() {
+    Object[] row = decode(
+        "{\"CB_ConfiguredSize\":1.0E9, \"unknown\":{\"a\":[1,\"}\"]},\"CBType\":\"request\","
+            + "\"CB_EstimatedSize\":-12.5,\"other\":null,\"CB_TrippedEvents\":3}");
+    Assert.assertArrayEquals(new Object[] {"derived", "request", -12.5, 3.0, 1.0E9}, row);
+  }
+
+  @Test
+  public void testMissingFieldsStayNull() {
+    Object[] row = decode("{\"CBType\":\"fielddata\"}");
+    Assert.assertArrayEquals(new Object[] {"derived", "fielddata", null, null, null}, row);
+  }
+
+  @Test
+  public void testDecodesInPlace() {
+    String text = "{\"current_time\":1}\n{\"CBType\":\"a\\\"b\",\"CB_EstimatedSize\":7}\n";
+    int start = text.indexOf('\n') + 1;
+    Object[] row = new Object[5];
+    Assert.assertTrue(decoder.decode(text, start, text.length() - 1, row));
+    Assert.assertEquals("a\"b", row[1]);
+    Assert.assertEquals(7.0, row[2]);
+  }
+
+  @Test
+  public void testEmptyLinesAreNotBound() {
+    Assert.assertNull(decode(""));
+    Assert.assertNull(decode("   "));
+    Assert.assertNull(decode("{}"));
+  }
+
+  @Test
+  public void testRejectsMalformedLines() {
+    Counter badNumbers = TelemetryRegistry.instance().counter(
+        "pa_reader_malformed_metric_lines", "", "error", "bad_number");
+    long badNumbersBefore = badNumbers.get();
+
+    Assert.assertNull(decode("{\"CBType\":\"request\""));
+    Assert.assertNull(decode("{\"CBType\":\"request}"));
+    Assert.assertNull(decode("{\"CBType\" \"request\"}"));
+    Assert.assertNull(decode("{\"CB_EstimatedSize\":01}"));
+    Assert.assertNull(decode("{\"CB_EstimatedSize\":1.}"));
+    Assert.assertNull(decode("{\"CB_EstimatedSize\":[1]}"));
+    Assert.assertNull(decode("{\"CBType\":\"\\x\"}"));
+    Assert.assertNull(decode("{\"CBType\":\"request\"} trailing"));
+    Assert.assertNull(decode("[1, 2]"));
+    Assert.assertEquals(2, badNumbers.get() - badNumbersBefore);
+  }
+
+  @Test
+  public void testParseDouble() {
+    String[] numbers = {
+        "0", "-0", "1", "123456789", "0.1", "-3.25", "1e3", "1E-7", "2.5e+10", "0.000001234",
+        "123456789012345678", "1234567890123456789012", "1e300", "4.9e-324", "9007199254740993"
+    };
+    for (String number : numbers) {
+      Assert.assertEquals(number, Double.parseDouble(number),
+          MetricLineDecoder.parseDouble(number, 0, number.length()), 0.0);
+    }
+  }
+}
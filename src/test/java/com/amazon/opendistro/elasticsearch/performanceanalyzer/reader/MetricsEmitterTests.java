@@ -39,7 +39,6 @@ import java.sql.SQLException;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
-import org.jooq.BatchBindStep;
 import org.jooq.DSLContext;
 import org.jooq.Record;
 import org.jooq.Result;
@@ -63,8 +62,8 @@ public class MetricsEmitterTests extends AbstractReaderTests {
   public void testMetricsEmitter() throws Exception {
     //
     Connection conn = DriverManager.getConnection(DB_URL);
-    ShardRequestMetricsSnapshot rqMetricsSnap =
-        new ShardRequestMetricsSnapshot(conn, 1535065195000L);
+    ShardRequestMetricsSnapshot rqMetricsSnap = new ShardRequestMetricsSnapshot(1535065195000L);
+    ShardRequestSqlTable rqTable = new ShardRequestSqlTable(conn, rqMetricsSnap);
     Map<String, String> dimensions = new HashMap<>();
     dimensions.put(ShardRequestMetricsSnapshot.Fields.INDEX_NAME.toString(), "ac-test");
     dimensions.put(ShardRequestMetricsSnapshot.Fields.SHARD_ID.toString(), "1");
@@ -72,16 +71,16 @@ public class MetricsEmitterTests extends AbstractReaderTests {
     dimensions.put(ShardRequestMetricsSnapshot.Fields.SHARD_ROLE.toString(), "primary");
     dimensions.put("tid", "1");
     dimensions.put("rid", "1");
-    rqMetricsSnap.putStartMetric(1535065196120L, dimensions);
-    rqMetricsSnap.putEndMetric(1535065196323L, dimensions);
+    rqTable.putStartMetric(1535065196120L, dimensions);
+    rqTable.putEndMetric(1535065196323L, dimensions);
     dimensions.put("rid", "2");
     dimensions.put(ShardRequestMetricsSnapshot.Fields.OPERATION.toString(), "shardSearch");
-    rqMetricsSnap.putStartMetric(1535065197323L, dimensions);
+    rqTable.putStartMetric(1535065197323L, dimensions);
     dimensions.put("rid", "3");
     dimensions.put("tid", "2");
-    rqMetricsSnap.putStartMetric(1535065198323L, dimensions);
-    rqMetricsSnap.putEndMetric(1535065199923L, dimensions);
-    Result<Record> res = rqMetricsSnap.fetchThreadUtilizationRatio();
+    rqTable.putStartMetric(1535065198323L, dimensions);
+    rqTable.putEndMetric(1535065199923L, dimensions);
+    Result<Record> res = rqTable.fetchThreadUtilizationRatio();
     Float tUtil = Float.parseFloat(res.get(0).get("tUtil").toString());
     assertEquals(0.07048611f, tUtil.floatValue(), 0);
 
@@ -120,7 +119,7 @@ public class MetricsEmitterTests extends AbstractReaderTests {
     Double cpu =
         Double.parseDouble(res.get(0).get(OSMetrics.CPU_UTILIZATION.toString()).toString());
     db.remove();
-    assertEquals(0.164465243055556d, cpu.doubleValue(), 0);
+    assertEquals(0.164465243055556d, cpu.doubleValue(), 1e-9);
   }
 
   @Test(expected = Exception.class)
@@ -130,8 +129,8 @@ public class MetricsEmitterTests extends AbstractReaderTests {
     PowerMockito.when(TroubleshootingConfig.getEnableDevAssert()).thenReturn(true);
 
     Connection conn = DriverManager.getConnection(DB_URL);
-    ShardRequestMetricsSnapshot rqMetricsSnap =
-        new ShardRequestMetricsSnapshot(conn, 1535065195000L);
+    ShardRequestMetricsSnapshot rqMetricsSnap = new ShardRequestMetricsSnapshot(1535065195000L);
+    ShardRequestSqlTable rqTable = new ShardRequestSqlTable(conn, rqMetricsSnap);
     Map<String, String> dimensions = new HashMap<>();
     dimensions.put(ShardRequestMetricsSnapshot.Fields.INDEX_NAME.toString(), "ac-test");
     dimensions.put(ShardRequestMetricsSnapshot.Fields.SHARD_ID.toString(), "1");
@@ -139,16 +138,16 @@ public class MetricsEmitterTests extends AbstractReaderTests {
     dimensions.put(ShardRequestMetricsSnapshot.Fields.SHARD_ROLE.toString(), "primary");
     dimensions.put("tid", "1");
     dimensions.put("rid", "1");
-    rqMetricsSnap.putStartMetric(1535065196120L, dimensions);
-    rqMetricsSnap.putEndMetric(1535065196323L, dimensions);
+    rqTable.putStartMetric(1535065196120L, dimensions);
+    rqTable.putEndMetric(1535065196323L, dimensions);
     dimensions.put("rid", "2");
     dimensions.put(ShardRequestMetricsSnapshot.Fields.OPERATION.toString(), "shardSearch");
-    rqMetricsSnap.putStartMetric(1535065197323L, dimensions);
+    rqTable.putStartMetric(1535065197323L, dimensions);
     dimensions.put("rid", "3");
     dimensions.put("tid", "2");
-    rqMetricsSnap.putStartMetric(1535065198323L, dimensions);
-    rqMetricsSnap.putEndMetric(1535065199923L, dimensions);
-    Result<Record> res = rqMetricsSnap.fetchThreadUtilizationRatio();
+    rqTable.putStartMetric(1535065198323L, dimensions);
+    rqTable.putEndMetric(1535065199923L, dimensions);
+    Result<Record> res = rqTable.fetchThreadUtilizationRatio();
     Float tUtil = Float.parseFloat(res.get(0).get("tUtil").toString());
     assertEquals(0.07048611f, tUtil.floatValue(), 0);
 
@@ -196,14 +195,14 @@ public class MetricsEmitterTests extends AbstractReaderTests {
     dimensions.put(HttpRequestMetricsSnapshot.Fields.INDICES.toString(), "");
     dimensions.put(HttpRequestMetricsSnapshot.Fields.EXCEPTION.toString(), "");
     dimensions.put("rid", "1");
-    rqMetricsSnap.putStartMetric(12345L, 0L, dimensions);
-    rqMetricsSnap.putEndMetric(33325L, dimensions);
+    rqTable.putStartMetric(12345L, 0L, dimensions);
+    rqTable.putEndMetric(33325L, dimensions);
     dimensions.put("rid", "2");
     dimensions.put(HttpRequestMetricsSnapshot.Fields.OPERATION.toString(), "search");
-    rqMetricsSnap.putStartMetric(22245L, 0L, dimensions);
+    rqTable.putStartMetric(22245L, 0L, dimensions);
     dimensions.put("rid", "3");
-    rqMetricsSnap.putStartMetric(10000L, 0L, dimensions);
-    rqMetricsSnap.putEndMetric(30000L, dimensions);
+    rqTable.putStartMetric(10000L, 0L, dimensions);
+    rqTable.putEndMetric(30000L, dimensions);
 
     DSLContext create = DSL.using(conn, SQLDialect.SQLITE);
     MetricsDB db = new MetricsDB(1553713438);
@@ -223,37 +222,12 @@ public class MetricsEmitterTests extends AbstractReaderTests {
   @Test
   public void testWorkloadMetricsEmitter() throws Exception {
     Connection conn = DriverManager.getConnection(DB_URL);
-    ShardRequestMetricsSnapshot rqMetricsSnap =
-        new ShardRequestMetricsSnapshot(conn, 1535065195000L);
-    BatchBindStep handle = rqMetricsSnap.startBatchPut();
-    handle.bind(
-        "shardId", "indexName", "1", "threadId", "operation", "primary", 1535065195000L, null, 10);
-    handle.bind(
-        "shardId",
-        "indexName",
-        "1",
-        "threadId",
-        "operation",
-        "primary",
-        null,
-        1535065196000L,
-        null);
-    handle.bind(
-        "shardId", "indexName", "2", "threadId", "operation", "primary", 1535065197000L, null, 10);
-    handle.bind(
-        "shardId",
-        "indexName",
-        "2",
-        "threadId",
-        "operation",
-        "primary",
-        null,
-        1535065198000L,
-        null);
-    handle.execute();
-
-    System.out.println(rqMetricsSnap.fetchAll());
-    System.out.println(rqMetricsSnap.fetchLatencyByOp());
+    ShardRequestMetricsSnapshot rqMetricsSnap = new ShardRequestMetricsSnapshot(1535065195000L);
+    ShardRequestTracker tracker = rqMetricsSnap.getRequestTracker();
+    tracker.start("shardId", "indexName", "1", "threadId", "operation", "primary", 1535065195000L, 10L);
+    tracker.finish("shardId", "indexName", "1", "threadId", "operation", "primary", 1535065196000L);
+    tracker.start("shardId", "indexName", "2", "threadId", "operation", "primary", 1535065197000L, 10L);
+    tracker.finish("shardId", "indexName", "2", "threadId", "operation", "primary", 1535065198000L);
 
     DSLContext create = DSL.using(conn, SQLDialect.SQLITE);
     MetricsDB db = new MetricsDB(1553713445);
@@ -279,14 +253,12 @@ public class MetricsEmitterTests extends AbstractReaderTests {
   @Test
   public void testWorkloadMetricsEmitterDoNothing() throws Exception {
     Connection conn = DriverManager.getConnection(DB_URL);
-    ShardRequestMetricsSnapshot rqMetricsSnap =
-        new ShardRequestMetricsSnapshot(conn, 1535065195000L);
+    ShardRequestMetricsSnapshot rqMetricsSnap = new ShardRequestMetricsSnapshot(1535065195000L);
     DSLContext create = DSL.using(conn, SQLDialect.SQLITE);
     MetricsDB db = new MetricsDB(1553713492);
     MetricsEmitter.emitWorkloadMetrics(create, db, rqMetricsSnap);
-    System.out.println(rqMetricsSnap.fetchAll());
     db.remove();
-    assertEquals(0, rqMetricsSnap.fetchAll().size());
+    assertTrue(rqMetricsSnap.getLatencyByOp().isEmpty());
   }
 
   @Test
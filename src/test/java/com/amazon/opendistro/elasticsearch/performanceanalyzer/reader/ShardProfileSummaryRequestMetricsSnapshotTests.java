@@ -17,6 +17,7 @@ package com.amazon.opendistro.elasticsearch.performanceanalyzer.reader;
 
 import static org.junit.Assert.assertEquals;
 
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.metrics.AllMetrics.ShardOperationMetric;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.util.HashMap;
@@ -36,22 +37,22 @@ public class ShardProfileSummaryRequestMetricsSnapshotTests {
   @Test
   public void testCreateRequestMetrics() throws Exception {
     Connection conn = DriverManager.getConnection(DB_URL);
-    ShardRequestMetricsSnapshot rqMetricsSnap =
-        new ShardRequestMetricsSnapshot(conn, 1535065195000L);
+    ShardRequestMetricsSnapshot rqMetricsSnap = new ShardRequestMetricsSnapshot(1535065195000L);
+    ShardRequestSqlTable rqTable = new ShardRequestSqlTable(conn, rqMetricsSnap);
     Map<String, String> dimensions = new HashMap<>();
     dimensions.put(ShardRequestMetricsSnapshot.Fields.INDEX_NAME.toString(), "ac-test");
     dimensions.put(ShardRequestMetricsSnapshot.Fields.SHARD_ID.toString(), "1");
     dimensions.put("tid", "1");
     dimensions.put("rid", "1");
-    rqMetricsSnap.putStartMetric(1535065196120L, dimensions);
-    rqMetricsSnap.putEndMetric(1535065196323L, dimensions);
+    rqTable.putStartMetric(1535065196120L, dimensions);
+    rqTable.putEndMetric(1535065196323L, dimensions);
     dimensions.put("rid", "2");
-    rqMetricsSnap.putStartMetric(1535065197323L, dimensions);
+    rqTable.putStartMetric(1535065197323L, dimensions);
     dimensions.put("rid", "3");
     dimensions.put("tid", "2");
-    rqMetricsSnap.putStartMetric(1535065198323L, dimensions);
-    rqMetricsSnap.putEndMetric(1535065199923L, dimensions);
-    Result<Record> res = rqMetricsSnap.fetchThreadUtilizationRatio();
+    rqTable.putStartMetric(1535065198323L, dimensions);
+    rqTable.putEndMetric(1535065199923L, dimensions);
+    Result<Record> res = rqTable.fetchThreadUtilizationRatio();
     Float tUtil = Float.parseFloat(res.get(0).get("tUtil").toString());
     assertEquals(0.07048611111111111f, tUtil.floatValue(), 0);
   }
@@ -59,66 +60,66 @@ public class ShardProfileSummaryRequestMetricsSnapshotTests {
   @Test
   public void testRollover() throws Exception {
     Connection conn = DriverManager.getConnection(DB_URL);
-    ShardRequestMetricsSnapshot rqMetricsSnap =
-        new ShardRequestMetricsSnapshot(conn, 1535065195000L);
+    ShardRequestMetricsSnapshot rqMetricsSnap = new ShardRequestMetricsSnapshot(1535065195000L);
+    ShardRequestSqlTable rqTable = new ShardRequestSqlTable(conn, rqMetricsSnap);
     Map<String, String> dimensions = new HashMap<>();
     dimensions.put(ShardRequestMetricsSnapshot.Fields.INDEX_NAME.toString(), "ac-test");
     dimensions.put(ShardRequestMetricsSnapshot.Fields.SHARD_ID.toString(), "1");
     dimensions.put("tid", "1");
     dimensions.put("rid", "1");
-    rqMetricsSnap.putStartMetric(1535065196120L, dimensions);
-    rqMetricsSnap.putEndMetric(1535065196323L, dimensions);
+    rqTable.putStartMetric(1535065196120L, dimensions);
+    rqTable.putEndMetric(1535065196323L, dimensions);
     dimensions.put("rid", "2");
-    rqMetricsSnap.putStartMetric(1535065197323L, dimensions);
+    rqTable.putStartMetric(1535065197323L, dimensions);
     dimensions.put("rid", "3");
     dimensions.put("tid", "2");
-    rqMetricsSnap.putStartMetric(1535065198323L, dimensions);
-    rqMetricsSnap.putEndMetric(1535065199923L, dimensions);
-    ShardRequestMetricsSnapshot newSnap = new ShardRequestMetricsSnapshot(conn, 1L);
+    rqTable.putStartMetric(1535065198323L, dimensions);
+    rqTable.putEndMetric(1535065199923L, dimensions);
+    ShardRequestMetricsSnapshot newSnap = new ShardRequestMetricsSnapshot(1L);
     newSnap.rolloverInflightRequests(rqMetricsSnap);
   }
 
   @Test
   public void testDedup() throws Exception {
     Connection conn = DriverManager.getConnection(DB_URL);
-    ShardRequestMetricsSnapshot rqMetricsSnap =
-        new ShardRequestMetricsSnapshot(conn, 1535065195000L);
+    ShardRequestMetricsSnapshot rqMetricsSnap = new ShardRequestMetricsSnapshot(1535065195000L);
+    ShardRequestSqlTable rqTable = new ShardRequestSqlTable(conn, rqMetricsSnap);
     Map<String, String> dimensions = new HashMap<>();
     dimensions.put(ShardRequestMetricsSnapshot.Fields.INDEX_NAME.toString(), "ac-test");
     dimensions.put(ShardRequestMetricsSnapshot.Fields.SHARD_ID.toString(), "1");
     dimensions.put("tid", "1");
     dimensions.put("rid", "1");
-    rqMetricsSnap.putStartMetric(1535065191120L, dimensions);
+    rqTable.putStartMetric(1535065191120L, dimensions);
     dimensions.put("rid", "2");
-    rqMetricsSnap.putStartMetric(1535065197323L, dimensions);
-    rqMetricsSnap.putEndMetric(1535065198323L, dimensions);
+    rqTable.putStartMetric(1535065197323L, dimensions);
+    rqTable.putEndMetric(1535065198323L, dimensions);
     dimensions.put("rid", "3");
     dimensions.put("tid", "2");
-    rqMetricsSnap.putStartMetric(1535065198323L, dimensions);
+    rqTable.putStartMetric(1535065198323L, dimensions);
     dimensions.put("rid", "4");
     dimensions.put("tid", "3");
-    rqMetricsSnap.putStartMetric(1535065191323L, dimensions);
-    Result<Record> res = rqMetricsSnap.fetchInflightSelect().fetch();
+    rqTable.putStartMetric(1535065191323L, dimensions);
+    Result<Record> res = rqTable.fetchInflightSelect().fetch();
     assertEquals(2, res.size(), 0);
   }
 
   @Test
   public void testLatestRequestNotExcluded() throws Exception {
     Connection conn = DriverManager.getConnection(DB_URL);
-    ShardRequestMetricsSnapshot rqMetricsSnap =
-        new ShardRequestMetricsSnapshot(conn, 1535065195000L);
+    ShardRequestMetricsSnapshot rqMetricsSnap = new ShardRequestMetricsSnapshot(1535065195000L);
+    ShardRequestSqlTable rqTable = new ShardRequestSqlTable(conn, rqMetricsSnap);
     Map<String, String> dimensions = new HashMap<>();
     dimensions.put(ShardRequestMetricsSnapshot.Fields.INDEX_NAME.toString(), "ac-test");
     dimensions.put(ShardRequestMetricsSnapshot.Fields.SHARD_ID.toString(), "1");
     dimensions.put("tid", "1");
     dimensions.put("rid", "1");
-    rqMetricsSnap.putStartMetric(1535065191120L, dimensions);
+    rqTable.putStartMetric(1535065191120L, dimensions);
     dimensions.put("rid", "2");
-    rqMetricsSnap.putStartMetric(1535065192323L, dimensions);
-    rqMetricsSnap.putEndMetric(1535065198323L, dimensions);
+    rqTable.putStartMetric(1535065192323L, dimensions);
+    rqTable.putEndMetric(1535065198323L, dimensions);
     dimensions.put("rid", "3");
-    rqMetricsSnap.putStartMetric(1535065193323L, dimensions);
-    Result<Record> res = rqMetricsSnap.fetchInflightSelect().fetch();
+    rqTable.putStartMetric(1535065193323L, dimensions);
+    Result<Record> res = rqTable.fetchInflightSelect().fetch();
     assertEquals(1, res.size(), 0);
     assertEquals("3", res.get(0).get("rid"));
   }
@@ -126,43 +127,78 @@ public class ShardProfileSummaryRequestMetricsSnapshotTests {
   @Test
   public void testMultiOp() throws Exception {
     Connection conn = DriverManager.getConnection(DB_URL);
-    ShardRequestMetricsSnapshot rqMetricsSnap =
-        new ShardRequestMetricsSnapshot(conn, 1535065195000L);
+    ShardRequestMetricsSnapshot rqMetricsSnap = new ShardRequestMetricsSnapshot(1535065195000L);
+    ShardRequestSqlTable rqTable = new ShardRequestSqlTable(conn, rqMetricsSnap);
     Map<String, String> dimensions = new HashMap<>();
     dimensions.put(ShardRequestMetricsSnapshot.Fields.INDEX_NAME.toString(), "ac-test");
     dimensions.put(ShardRequestMetricsSnapshot.Fields.SHARD_ID.toString(), "1");
     dimensions.put("tid", "1");
     dimensions.put("rid", "1");
     dimensions.put("operation", "shardquery");
-    rqMetricsSnap.putStartMetric(1535065191120L, dimensions);
+    rqTable.putStartMetric(1535065191120L, dimensions);
     dimensions.put("tid", "2");
     dimensions.put(ShardRequestMetricsSnapshot.Fields.OPERATION.toString(), "shardfetch");
-    rqMetricsSnap.putStartMetric(1535065197323L, dimensions);
-    Result<Record> res = rqMetricsSnap.fetchInflightSelect().fetch();
+    rqTable.putStartMetric(1535065197323L, dimensions);
+    Result<Record> res = rqTable.fetchInflightSelect().fetch();
     assertEquals(2, res.size(), 0);
   }
 
   @Test
   public void testFetchLatency() throws Exception {
     Connection conn = DriverManager.getConnection(DB_URL);
-    ShardRequestMetricsSnapshot rqMetricsSnap =
-        new ShardRequestMetricsSnapshot(conn, 1535065195000L);
+    ShardRequestMetricsSnapshot rqMetricsSnap = new ShardRequestMetricsSnapshot(1535065195000L);
+    ShardRequestSqlTable rqTable = new ShardRequestSqlTable(conn, rqMetricsSnap);
     Map<String, String> dimensions = new HashMap<>();
     dimensions.put(ShardRequestMetricsSnapshot.Fields.INDEX_NAME.toString(), "sonested");
     dimensions.put(ShardRequestMetricsSnapshot.Fields.SHARD_ID.toString(), "0");
     dimensions.put("tid", "1");
     dimensions.put("rid", "1");
     dimensions.put(ShardRequestMetricsSnapshot.Fields.OPERATION.toString(), "shardquery");
-    rqMetricsSnap.putStartMetric(1535065191120L, dimensions);
-    rqMetricsSnap.putEndMetric(1535065191130L, dimensions);
+    rqTable.putStartMetric(1535065191120L, dimensions);
+    rqTable.putEndMetric(1535065191130L, dimensions);
     dimensions.put("tid", "2");
     dimensions.put(ShardRequestMetricsSnapshot.Fields.OPERATION.toString(), "shardfetch");
-    rqMetricsSnap.putStartMetric(1535065197323L, dimensions);
+    rqTable.putStartMetric(1535065197323L, dimensions);
     dimensions.put("rid", "3");
-    rqMetricsSnap.putStartMetric(1535065197373L, dimensions);
+    rqTable.putStartMetric(1535065197373L, dimensions);
     dimensions.put("rid", "4");
-    rqMetricsSnap.putEndMetric(1535065197388L, dimensions);
-    Result<Record> res = rqMetricsSnap.fetchInflightSelect().fetch();
+    rqTable.putEndMetric(1535065197388L, dimensions);
+    Result<Record> res = rqTable.fetchInflightSelect().fetch();
     assertEquals(2, res.size(), 0);
   }
+
+  @Test
+  public void testLatencyByOpMatchesTable() throws Exception {
+    Connection conn = DriverManager.getConnection(DB_URL);
+    ShardRequestMetricsSnapshot rqMetricsSnap = new ShardRequestMetricsSnapshot(1535065195000L);
+    ShardRequestSqlTable rqTable = new ShardRequestSqlTable(conn, rqMetricsSnap);
+    Map<String, String> dimensions = new HashMap<>();
+    dimensions.put(ShardRequestMetricsSnapshot.Fields.INDEX_NAME.toString(), "sonested");
+    dimensions.put(ShardRequestMetricsSnapshot.Fields.SHARD_ID.toString(), "0");
+    dimensions.put(ShardRequestMetricsSnapshot.Fields.SHARD_ROLE.toString(), "NA");
+    dimensions.put(ShardRequestMetricsSnapshot.Fields.OPERATION.toString(), "shardquery");
+    dimensions.put("tid", "1");
+    dimensions.put("rid", "1");
+    rqTable.putStartMetric(1535065195330L, dimensions);
+    rqTable.putEndMetric(1535065195585L, dimensions);
+    dimensions.put("rid", "2");
+    rqTable.putStartMetric(1535065195330L, dimensions);
+    rqTable.putEndMetric(1535065195595L, dimensions);
+    dimensions.put("rid", "3");
+    rqTable.putStartMetric(1535065196000L, dimensions);
+
+    Result<Record> res = rqTable.fetchLatencyByOp();
+    assertEquals(1, res.size());
+    assertEquals(1, rqMetricsSnap.getLatencyByOp().size());
+    ShardRequestTracker.OpLatency latency = rqMetricsSnap.getLatencyByOp().iterator().next();
+    Record row = res.get(0);
+    assertEquals("shardquery", latency.getOperation());
+    assertEquals(row.get("sum_lat", Double.class), latency.getSum(), 0);
+    assertEquals(row.get("avg_lat", Double.class), latency.getAvg(), 0);
+    assertEquals(row.get("min_lat", Double.class), latency.getMin(), 0);
+    assertEquals(row.get("max_lat", Double.class), latency.getMax(), 0);
+    assertEquals(
+        row.get(ShardOperationMetric.SHARD_OP_COUNT.toString(), Long.class).longValue(),
+        latency.getCount());
+  }
 }
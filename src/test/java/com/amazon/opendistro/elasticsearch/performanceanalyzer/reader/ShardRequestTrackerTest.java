@@ -0,0 +1,146 @@
+/*
+ * Copyright 2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.reader;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ShardRequestTrackerTest {
+  private static final long WINDOW = 1535065195000L;
+
+  private static ShardRequestTracker.OpLatency only(ShardRequestTracker tracker) {
+    List<ShardRequestTracker.OpLatency> latencies = new ArrayList<>(tracker.getLatencyByOp());
+    Assert.assertEquals(1, latencies.size());
+    return latencies.get(0);
+  }
+
+  @Test
+  public void testAggregatesCompletedRequests() {
+    ShardRequestTracker tracker = new ShardRequestTracker();
+    tracker.start("1", "ac-test", "1", "7", "shardbulk", "primary", WINDOW + 100, 10L);
+    tracker.finish("1", "ac-test", "1", "7", "shardbulk", "primary", WINDOW + 300);
+    // The finish event of a request may be read before its start event.
+    tracker.finish("1", "ac-test", "2", "7", "shardbulk", "primary", WINDOW + 900);
+    tracker.start("1", "ac-test", "2", "7", "shardbulk", "primary", WINDOW + 500, 5L);
+    tracker.start("1", "ac-test", "3", "8", "shardbulk", "primary", WINDOW + 600, 1L);
+
+    ShardRequestTracker.OpLatency latency = only(tracker);
+    Assert.assertEquals("shardbulk", latency.getOperation());
+    Assert.assertEquals(2, latency.getCount());
+    Assert.assertEquals(600, latency.getSum(), 0);
+    Assert.assertEquals(300, latency.getAvg(), 0);
+    Assert.assertEquals(200, latency.getMin(), 0);
+    Assert.assertEquals(400, latency.getMax(), 0);
+    Assert.assertEquals(15, latency.getDocCount(), 0);
+    Assert.assertEquals(1, tracker.getInflightCount());
+  }
+
+  @Test
+  public void testSameRidDifferentOperations() {
+    ShardRequestTracker tracker = new ShardRequestTracker();
+    tracker.start("0", "idx", "42", "7", "shardquery", "NA", WINDOW, null);
+    tracker.start("0", "idx", "42", "7", "shardfetch", "NA", WINDOW + 10, null);
+    tracker.finish("0", "idx", "42", "7", "shardfetch", "NA", WINDOW + 11);
+    tracker.finish("0", "idx", "42", "7", "shardquery", "NA", WINDOW + 20);
+
+    Assert.assertEquals(2, tracker.getLatencyByOp().size());
+    for (ShardRequestTracker.OpLatency latency : tracker.getLatencyByOp()) {
+      Assert.assertNull(latency.getDocCount());
+      double expected = latency.getOperation().equals("shardquery") ? 20 : 1;
+      Assert.assertEquals(expected, latency.getSum(), 0);
+    }
+    Assert.assertEquals(0, tracker.getInflightCount());
+  }
+
+  @Test
+  public void testRolloverCarriesInflightRequests() {
+    ShardRequestTracker tracker = new ShardRequestTracker();
+    // Superseded by a later request on the same thread.
+    tracker.start("0", "idx", "1", "7", "shardbulk", "primary", WINDOW - 1000, 1L);
+    tracker.start("0", "idx", "2", "7", "shardbulk", "primary", WINDOW - 500, 1L);
+    // Expired.
+    tracker.start("0", "idx", "3", "8", "shardbulk", "primary", WINDOW - ShardRequestTracker.EXPIRE_AFTER, 1L);
+    // Started in this window.
+    tracker.start("0", "idx", "4", "9", "shardbulk", "primary", WINDOW + 100, 1L);
+    // Finish without a start is not carried over.
+    tracker.finish("0", "idx", "5", "9", "shardbulk", "primary", WINDOW + 200);
+
+    ShardRequestTracker next = tracker.rollover(WINDOW);
+    Assert.assertEquals(2, next.getInflightCount());
+    Assert.assertTrue(next.getLatencyByOp().isEmpty());
+
+    next.finish("0", "idx", "1", "7", "shardbulk", "primary", WINDOW + 5000);
+    next.finish("0", "idx", "2", "7", "shardbulk", "primary", WINDOW + 5000);
+    next.finish("0", "idx", "4", "9", "shardbulk", "primary", WINDOW + 5100);
+    ShardRequestTracker.OpLatency latency = only(next);
+    Assert.assertEquals(2, latency.getCount());
+    Assert.assertEquals(5500, latency.getMax(), 0);
+    Assert.assertEquals(5000, latency.getMin(), 0);
+    // Request 1 was dropped, so its finish event is left waiting for a start.
+    Assert.assertEquals(1, next.getInflightCount());
+  }
+
+  @Test
+  public void testBoundedInflightRequests() {
+    ShardRequestTracker tracker = new ShardRequestTracker(100);
+    for (int i = 0; i < 1000; i++) {
+      tracker.start("0", "idx", String.valueOf(i), String.valueOf(i), "shardquery", "NA", WINDOW + i, null);
+    }
+    Assert.assertEquals(100, tracker.getInflightCount());
+    for (int i = 0; i < 1000; i++) {
+      tracker.finish("0", "idx", String.valueOf(i), String.valueOf(i), "shardquery", "NA", WINDOW + 2 * i);
+    }
+    ShardRequestTracker.OpLatency latency = only(tracker);
+    Assert.assertEquals(100, latency.getCount());
+    Assert.assertEquals(0, latency.getMin(), 0);
+    Assert.assertEquals(99, latency.getMax(), 0);
+    // The finish events of the dropped requests fill the table again, and are not carried over.
+    Assert.assertEquals(100, tracker.getInflightCount());
+    Assert.assertEquals(0, tracker.rollover(WINDOW).getInflightCount());
+    // The dropped requests are not recorded by thread either.
+    Assert.assertEquals(1, tracker.getThreadRegistry().getRequestCount(0));
+    Assert.assertEquals(1, tracker.getThreadRegistry().getRequestCount(150));
+    Assert.assertEquals(0, tracker.getThreadRegistry().getRequestCount(500));
+  }
+
+  @Test
+  public void testManyRequestsRemovedInAnyOrder() {
+    ShardRequestTracker tracker = new ShardRequestTracker();
+    for (int i = 0; i < 5000; i++) {
+      tracker.start("0", "idx", String.valueOf(i * 7919L), "1", "shardbulk", "NA", WINDOW, 0L);
+    }
+    for (int i = 4999; i >= 0; i -= 2) {
+      tracker.finish("0", "idx", String.valueOf(i * 7919L), "1", "shardbulk", "NA", WINDOW + 1);
+    }
+    for (int i = 0; i < 5000; i += 2) {
+      tracker.finish("0", "idx", String.valueOf(i * 7919L), "1", "shardbulk", "NA", WINDOW + 3);
+    }
+    ShardRequestTracker.OpLatency latency = only(tracker);
+    Assert.assertEquals(5000, latency.getCount());
+    Assert.assertEquals(2500 + 2500 * 3, latency.getSum(), 0);
+    Assert.assertEquals(0, tracker.getInflightCount());
+  }
+
+  @Test
+  public void testParseId() {
+    Assert.assertEquals(806214L, ShardRequestTracker.parseId("806214"));
+    Assert.assertEquals(Long.MIN_VALUE, ShardRequestTracker.parseId("80a"));
+    Assert.assertEquals(Long.MIN_VALUE, ShardRequestTracker.parseId(null));
+    Assert.assertEquals(Long.MIN_VALUE, ShardRequestTracker.parseId(""));
+  }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.reader;
+
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.metrics.AllMetrics.OSMetrics;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ThreadRegistryTest {
+  private static final long WINDOW = 1535065195000L;
+  private static final long WINDOW_END = WINDOW + 5000L;
+
+  private static double[] counters(double cpu, double rss) {
+    double[] counters = new double[OSMetrics.values().length];
+    Arrays.fill(counters, Double.NaN);
+    counters[OSMetrics.CPU_UTILIZATION.ordinal()] = cpu;
+    counters[OSMetrics.PAGING_RSS.ordinal()] = rss;
+    return counters;
+  }
+
+  private static Map<String, ThreadRegistry.OpUtilization> byOperation(ThreadRegistry registry) {
+    Map<String, ThreadRegistry.OpUtilization> byOperation = new HashMap<>();
+    for (ThreadRegistry.OpUtilization utilization :
+        registry.aggregateByOperation(WINDOW, WINDOW_END)) {
+      byOperation.put(utilization.getOperation(), utilization);
+    }
+    return byOperation;
+  }
+
+  @Test
+  public void testSplitsThreadMetricsBetweenRequests() {
+    ShardRequestTracker tracker = new ShardRequestTracker();
+    tracker.start("1", "ac-test", "1", "1", "shardBulk", "primary", WINDOW + 1120, null);
+    tracker.finish("1", "ac-test", "1", "1", "shardBulk", "primary", WINDOW + 1323);
+    // Still running at the end of the window.
+    tracker.start("1", "ac-test", "2", "1", "shardSearch", "primary", WINDOW + 2323, null);
+    tracker.start("1", "ac-test", "3", "2", "shardSearch", "primary", WINDOW + 3323, null);
+    tracker.finish("1", "ac-test", "3", "2", "shardSearch", "primary", WINDOW + 4923);
+
+    ThreadRegistry registry = tracker.getThreadRegistry();
+    registry.putOSMetrics("1", "elasticsearch[E-C7clp][search][T#1]", counters(2.3333d, 3.63d));
+    registry.putOSMetrics("2", "elasticsearch[E-C7clp][bulk][T#2]", counters(3.3333d, 1.63d));
+    registry.putOSMetrics("3", "GC", counters(3.3333d, 1.63d));
+    Assert.assertEquals("GC", registry.getThreadName(3));
+    Assert.assertEquals(2, registry.getRequestCount(1));
+
+    Map<String, ThreadRegistry.OpUtilization> byOperation = byOperation(registry);
+    Assert.assertEquals(2, byOperation.size());
+    ThreadRegistry.OpUtilization bulk = byOperation.get("shardBulk");
+    Assert.assertEquals("1", bulk.getShardId());
+    Assert.assertEquals("ac-test", bulk.getIndexName());
+    Assert.assertEquals("primary", bulk.getShardRole());
+    // The bulk request took 203ms of the 2880ms the requests of thread 1 took in the window.
+    Assert.assertEquals(0.164465243055556d, bulk.getSum(OSMetrics.CPU_UTILIZATION), 1e-12);
+    Assert.assertFalse(bulk.hasValue(OSMetrics.SCHED_RUNTIME));
+
+    ThreadRegistry.OpUtilization search = byOperation.get("shardSearch");
+    double searchOnThread1 = 2677 * 1.0d / 2880 * 2.3333d;
+    Assert.assertEquals(searchOnThread1 + 3.3333d, search.getSum(OSMetrics.CPU_UTILIZATION), 1e-12);
+    Assert.assertEquals(
+        (searchOnThread1 + 3.3333d) / 2, search.getAvg(OSMetrics.CPU_UTILIZATION), 1e-12);
+    Assert.assertEquals(searchOnThread1, search.getMin(OSMetrics.CPU_UTILIZATION), 1e-12);
+    Assert.assertEquals(3.3333d, search.getMax(OSMetrics.CPU_UTILIZATION), 1e-12);
+    Assert.assertEquals(Collections.emptyList(), registry.getUnmatchedRequestThreads());
+  }
+
+  @Test
+  public void testThreadsWithoutOSMetricsAreLeftOut() {
+    ShardRequestTracker tracker = new ShardRequestTracker();
+    tracker.start("0", "idx", "1", "7", "shardquery", "NA", WINDOW + 100, null);
+    tracker.finish("0", "idx", "1", "7", "shardquery", "NA", WINDOW + 200);
+    tracker.start("0", "idx", "2", "8", "shardquery", "NA", WINDOW + 100, null);
+    ThreadRegistry registry = tracker.getThreadRegistry();
+    registry.putOSMetrics("8", "GC thread", counters(1d, 1d));
+
+    // Thread 7 is not in the OS snapshot, and thread 8 is not a search or bulk thread.
+    Assert.assertEquals(
+        new HashSet<>(Arrays.asList(7L, 8L)), new HashSet<>(registry.getUnmatchedRequestThreads()));
+    ThreadRegistry.OpUtilization query = byOperation(registry).get("shardquery");
+    Assert.assertEquals(1d, query.getSum(OSMetrics.CPU_UTILIZATION), 0);
+  }
+
+  @Test
+  public void testRolloverCarriesInflightRequests() {
+    ShardRequestTracker tracker = new ShardRequestTracker();
+    tracker.start("0", "idx", "1", "7", "shardbulk", "primary", WINDOW - 2000, 1L);
+    tracker.start("0", "idx", "2", "8", "shardbulk", "primary", WINDOW - 1000, 1L);
+    tracker.finish("0", "idx", "2", "8", "shardbulk", "primary", WINDOW - 500);
+
+    ShardRequestTracker next = tracker.rollover(WINDOW - 5000L);
+    ThreadRegistry registry = next.getThreadRegistry();
+    Assert.assertEquals(1, registry.getRequestCount(7));
+    Assert.assertEquals(0, registry.getRequestCount(8));
+
+    // The carried request is counted from the start of the window it is carried into.
+    next.start("0", "idx", "3", "7", "shardbulk", "primary", WINDOW + 4000, 1L);
+    registry.putOSMetrics("7", "elasticsearch[E-C7clp][bulk][T#1]", counters(10d, 0d));
+    ThreadRegistry.OpUtilization bulk = byOperation(registry).get("shardbulk");
+    Assert.assertEquals(10d, bulk.getSum(OSMetrics.CPU_UTILIZATION), 1e-12);
+    Assert.assertEquals(5000 * 1.0d / 6000 * 10d, bulk.getMax(OSMetrics.CPU_UTILIZATION), 1e-12);
+    Assert.assertEquals(1000 * 1.0d / 6000 * 10d, bulk.getMin(OSMetrics.CPU_UTILIZATION), 1e-12);
+  }
+}
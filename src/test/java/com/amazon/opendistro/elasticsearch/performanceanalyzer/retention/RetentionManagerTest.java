@@ -0,0 +1,144 @@
+/*
+ * Copyright 2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.retention;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RetentionManagerTest {
+  private static final long NOW = 1_000_000L;
+  private Path testLocation;
+  private Path indexFile;
+
+  @Before
+  public void init() throws IOException {
+    String cwd = System.getProperty("user.dir");
+    testLocation = Paths.get(cwd, "src", "test", "resources", "tmp", "retention");
+    Files.createDirectories(testLocation);
+    FileUtils.cleanDirectory(testLocation.toFile());
+    indexFile = testLocation.resolve("retention.idx");
+  }
+
+  @After
+  public void after() throws IOException {
+    FileUtils.deleteDirectory(testLocation.toFile());
+  }
+
+  private RetentionManager newManager(List<RetentionPolicy> policies, double usedFraction) {
+    RetentionManager manager = new RetentionManager(indexFile, policies,
+        Collections.singletonList(testLocation), 0.9, 0.5);
+    manager.setClock(Clock.fixed(Instant.ofEpochMilli(NOW), ZoneId.systemDefault()));
+    manager.setUsageProbe(path -> usedFraction);
+    return manager;
+  }
+
+  private Path createFile(String name, int bytes) throws IOException {
+    Path file = testLocation.resolve(name);
+    Files.write(file, new byte[bytes]);
+    return file;
+  }
+
+  @Test
+  public void testCeilingBudgetAndFloor() throws IOException {
+    RetentionManager manager = newManager(Arrays.asList(
+        new RetentionPolicy("a", 250, 10_000, 100_000),
+        new RetentionPolicy("b", 0, 0, 0)), 0);
+    Path expired = createFile("expired", 100);
+    Path old = createFile("old", 100);
+    Path recent = createFile("recent", 100);
+    Path young = createFile("young", 100);
+    Path unbounded = createFile("unbounded", 1000);
+    manager.track("a", expired, NOW - 200_000);
+    manager.track("a", old, NOW - 50_000);
+    manager.track("a", recent, NOW - 20_000);
+    manager.track("a", young, NOW - 1_000);
+    manager.track("b", unbounded, 0);
+    Assert.assertEquals(400, manager.getBytes("a"));
+
+    manager.enforce();
+    Assert.assertFalse(Files.exists(expired));
+    Assert.assertFalse(Files.exists(old));
+    Assert.assertTrue(Files.exists(recent));
+    Assert.assertTrue(Files.exists(young));
+    Assert.assertTrue(Files.exists(unbounded));
+    Assert.assertEquals(200, manager.getBytes("a"));
+
+    // Over budget again, the oldest file past the floor goes.
+    Path newest = createFile("newest", 100);
+    manager.track("a", newest, NOW);
+    manager.enforce();
+    Assert.assertFalse(Files.exists(recent));
+    Assert.assertTrue(Files.exists(young));
+    Assert.assertTrue(Files.exists(newest));
+    Assert.assertEquals(200, manager.getBytes("a"));
+  }
+
+  @Test
+  public void testIndexSurvivesRestart() throws IOException {
+    RetentionManager manager = newManager(Collections.singletonList(new RetentionPolicy("a", 0, 0, 0)), 0);
+    Path kept = createFile("kept", 100);
+    Path untracked = createFile("untracked", 100);
+    Path deleted = createFile("deleted", 100);
+    manager.track("a", kept, NOW);
+    manager.track("a", untracked, NOW);
+    manager.track("a", deleted, NOW);
+    manager.untrack(untracked);
+    Files.delete(deleted);
+
+    RetentionManager restarted = newManager(Collections.singletonList(new RetentionPolicy("a", 0, 0, 0)), 0);
+    Assert.assertEquals(100, restarted.getBytes("a"));
+  }
+
+  @Test
+  public void testEmergencySheddingKeepsTheNewestFiles() throws IOException {
+    List<Path> deleted = new ArrayList<>();
+    // The floors do not hold back the shedding, and the file system stays above the low watermark.
+    RetentionManager manager = newManager(Arrays.asList(
+        new RetentionPolicy("a", 0, 100_000, 0),
+        new RetentionPolicy("b", 0, 100_000, 0)), 0.95);
+    manager.addDeletionListener("a", deleted::add);
+
+    Path a1 = createFile("a1", 10);
+    Path a2 = createFile("a2", 10);
+    Path a3 = createFile("a3", 10);
+    Path b1 = createFile("b1", 10);
+    manager.track("a", a1, NOW - 3);
+    manager.track("a", a2, NOW - 2);
+    manager.track("a", a3, NOW - 1);
+    manager.track("b", b1, NOW - 4);
+
+    manager.enforce();
+    Assert.assertFalse(Files.exists(a1));
+    Assert.assertFalse(Files.exists(a2));
+    Assert.assertTrue(Files.exists(a3));
+    Assert.assertTrue(Files.exists(b1));
+    Assert.assertEquals(Arrays.asList(a1.toAbsolutePath().normalize(), a2.toAbsolutePath().normalize()), deleted);
+  }
+}
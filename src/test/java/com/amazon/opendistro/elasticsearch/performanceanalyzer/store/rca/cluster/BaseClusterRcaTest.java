@@ -269,14 +269,16 @@ public class BaseClusterRcaTest {
     Assert.assertEquals(1, flowUnit.getSummary().getNumOfUnhealthyNodes());
     Assert.assertTrue(compareNodeSummary("node1", type1, flowUnit.getSummary().getHotNodeSummaryList().get(0)));
 
+    // node4 reported before it joined, its flowunit is kept and read once the membership has it.
     ClusterDetailsEventProcessor clusterDetailsEventProcessor = addNewNodeIntoCluster();
 
     nodeRca.mockFlowUnit();
     appContext.setClusterDetailsEventProcessor(clusterDetailsEventProcessor);
     flowUnit = clusterRca.operate();
     Assert.assertTrue(flowUnit.getResourceContext().isUnhealthy());
-    Assert.assertEquals(1, flowUnit.getSummary().getNumOfUnhealthyNodes());
+    Assert.assertEquals(2, flowUnit.getSummary().getNumOfUnhealthyNodes());
     Assert.assertTrue(compareNodeSummary("node1", type1, flowUnit.getSummary().getHotNodeSummaryList().get(0)));
+    Assert.assertTrue(compareNodeSummary("node4", type2, flowUnit.getSummary().getHotNodeSummaryList().get(1)));
 
     nodeRca.mockFlowUnit(RcaTestHelper.generateFlowUnit(type2, "node4", "127.0.0.3",Resources.State.UNHEALTHY));
     flowUnit = clusterRca.operate();
@@ -287,6 +289,59 @@ public class BaseClusterRcaTest {
     Assert.assertTrue(compareNodeSummary("node4", type2, clusterSummary.getHotNodeSummaryList().get(1)));
   }
 
+  @Test
+  public void testUnknownNodeDroppedOnMembershipChange() throws SQLException, ClassNotFoundException {
+    ResourceFlowUnit<HotClusterSummary> flowUnit;
+    nodeRca.mockFlowUnit(RcaTestHelper.generateFlowUnit(type1, "node1", "127.0.0.0", Resources.State.UNHEALTHY),
+        RcaTestHelper.generateFlowUnit(type2, "node5", "127.0.0.4", Resources.State.UNHEALTHY));
+    flowUnit = clusterRca.operate();
+    Assert.assertTrue(flowUnit.getResourceContext().isUnhealthy());
+    Assert.assertEquals(1, flowUnit.getSummary().getNumOfUnhealthyNodes());
+
+    // node5 is still unknown when the next membership change is applied, so its row is dropped
+    // and it is not read even if it joins later.
+    appContext.setClusterDetailsEventProcessor(addNewNodeIntoCluster());
+    nodeRca.mockFlowUnit();
+    flowUnit = clusterRca.operate();
+    Assert.assertEquals(1, flowUnit.getSummary().getNumOfUnhealthyNodes());
+
+    ClusterDetailsEventProcessorTestHelper clusterDetailsEventProcessorTestHelper = new ClusterDetailsEventProcessorTestHelper();
+    clusterDetailsEventProcessorTestHelper.addNodeDetails("node1", "127.0.0.0", false);
+    clusterDetailsEventProcessorTestHelper.addNodeDetails("node5", "127.0.0.4", false);
+    clusterDetailsEventProcessorTestHelper.addNodeDetails("master", "127.0.0.9", NodeRole.ELECTED_MASTER, true);
+    appContext.setClusterDetailsEventProcessor(clusterDetailsEventProcessorTestHelper.generateClusterDetailsEvent());
+    flowUnit = clusterRca.operate();
+    Assert.assertEquals(1, flowUnit.getSummary().getNumOfUnhealthyNodes());
+    Assert.assertTrue(compareNodeSummary("node1", type1, flowUnit.getSummary().getHotNodeSummaryList().get(0)));
+  }
+
+  @Test
+  public void testNodeRoleChange() throws SQLException, ClassNotFoundException {
+    ResourceFlowUnit<HotClusterSummary> flowUnit;
+    clusterRca.setCollectFromMasterNode(true);
+    nodeRca.mockFlowUnit(RcaTestHelper.generateFlowUnit(type1, "node1", "127.0.0.0", Resources.State.UNHEALTHY));
+    flowUnit = clusterRca.operate();
+    Assert.assertTrue(flowUnit.getResourceContext().isUnhealthy());
+    Assert.assertEquals(1, flowUnit.getSummary().getNumOfUnhealthyNodes());
+
+    // node1 stays in the cluster, but as a master node. What it reported as a data node is dropped.
+    ClusterDetailsEventProcessorTestHelper clusterDetailsEventProcessorTestHelper = new ClusterDetailsEventProcessorTestHelper();
+    clusterDetailsEventProcessorTestHelper.addNodeDetails("node1", "127.0.0.0", NodeRole.MASTER, false);
+    clusterDetailsEventProcessorTestHelper.addNodeDetails("node2", "127.0.0.1", false);
+    clusterDetailsEventProcessorTestHelper.addNodeDetails("node3", "127.0.0.2", false);
+    clusterDetailsEventProcessorTestHelper.addNodeDetails("master", "127.0.0.9", NodeRole.ELECTED_MASTER, true);
+    appContext.setClusterDetailsEventProcessor(clusterDetailsEventProcessorTestHelper.generateClusterDetailsEvent());
+
+    nodeRca.mockFlowUnit();
+    flowUnit = clusterRca.operate();
+    Assert.assertTrue(flowUnit.getResourceContext().isHealthy());
+
+    nodeRca.mockFlowUnit(RcaTestHelper.generateFlowUnit(type2, "node1", "127.0.0.0", Resources.State.UNHEALTHY));
+    flowUnit = clusterRca.operate();
+    Assert.assertTrue(flowUnit.getResourceContext().isUnhealthy());
+    Assert.assertTrue(compareNodeSummary("node1", type2, flowUnit.getSummary().getHotNodeSummaryList().get(0)));
+  }
+
    private ClusterDetailsEventProcessor removeNodeFromCluster() throws SQLException, ClassNotFoundException {
     ClusterDetailsEventProcessorTestHelper clusterDetailsEventProcessorTestHelper = new ClusterDetailsEventProcessorTestHelper();
     clusterDetailsEventProcessorTestHelper.addNodeDetails("node2", "127.0.0.1", false);
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.store.rca.hotshard;
+
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.store.rca.hotshard.NodeShardKey;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.store.rca.hotshard.ShardUsageEstimator;
+import java.util.List;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ShardUsageEstimatorTest {
+
+    private static NodeShardKey shard(int i) {
+        return new NodeShardKey("node_" + (i % 3), "shard_" + i);
+    }
+
+    @Test
+    public void testExactWithFewShards() {
+        ShardUsageEstimator estimator = new ShardUsageEstimator(8, 0.01);
+        Assert.assertTrue(Double.isNaN(estimator.getMedian()));
+        estimator.add(shard(1), 0.40);
+        estimator.add(shard(2), 0.10);
+        estimator.add(shard(3), 0.75);
+        estimator.add(shard(4), 0.20);
+        // Reported twice, the values are summed.
+        estimator.add(shard(2), 0.20);
+
+        Assert.assertTrue(estimator.isExact());
+        Assert.assertEquals((0.30 + 0.40) / 2, estimator.getMedian(), 1e-9);
+        List<ShardUsageEstimator.HotShard> hot = estimator.getHotShards(0.0);
+        Assert.assertEquals(2, hot.size());
+        Assert.assertEquals(shard(1), hot.get(0).getKey());
+        Assert.assertEquals(shard(3), hot.get(1).getKey());
+        Assert.assertEquals(0.75, hot.get(1).getUsage(), 0);
+        Assert.assertEquals(0.35, hot.get(1).getThreshold(), 1e-9);
+    }
+
+    @Test
+    public void testManyShardsWithinErrorBound() {
+        int shards = 100000;
+        ShardUsageEstimator estimator = new ShardUsageEstimator(64, 0.01);
+        Random random = new Random(7);
+        for (int i = 0; i < shards; i++) {
+            double usage = i % 10000 == 0 ? 10.0 + i / 10000 : 1.0 + random.nextDouble();
+            estimator.add(shard(i), usage);
+        }
+
+        Assert.assertFalse(estimator.isExact());
+        Assert.assertEquals(1.5, estimator.getMedian(), 1.5 * 0.02);
+        List<ShardUsageEstimator.HotShard> hot = estimator.getHotShards(1.0);
+        Assert.assertEquals(10, hot.size());
+        for (int i = 0; i < hot.size(); i++) {
+            Assert.assertEquals(shard(i * 10000), hot.get(i).getKey());
+            Assert.assertEquals(10.0 + i, hot.get(i).getUsage(), 0);
+        }
+    }
+
+    @Test
+    public void testKeepsMostLoadedShards() {
+        ShardUsageEstimator estimator = new ShardUsageEstimator(3, 0.01);
+        for (int i = 0; i < 10; i++) {
+            estimator.add(shard(i), i);
+        }
+        // All the tracked shards are above the median of the ten.
+        List<ShardUsageEstimator.HotShard> top = estimator.getHotShards(0.0);
+        Assert.assertEquals(3, top.size());
+        Assert.assertEquals(shard(7), top.get(0).getKey());
+        Assert.assertEquals(shard(9), top.get(2).getKey());
+    }
+
+    @Test
+    public void testManyShardsReportedEveryPeriod() {
+        // The RCA gets a report of every shard of an unhealthy node on each evaluation of its period.
+        int shards = 1000;
+        int periods = 12;
+        ShardUsageEstimator estimator = new ShardUsageEstimator(256, 0.01);
+        Random random = new Random(11);
+        for (int period = 0; period < periods; period++) {
+            for (int i = 0; i < shards; i++) {
+                double usage = i % 200 == 0 ? 3.0 : 1.0 + random.nextDouble();
+                estimator.add(shard(i), usage);
+            }
+        }
+
+        Assert.assertFalse(estimator.isExact());
+        Assert.assertEquals(1.5, estimator.getMedian(), 1.5 * 0.02);
+        List<ShardUsageEstimator.HotShard> hot = estimator.getHotShards(0.5);
+        Assert.assertEquals(5, hot.size());
+        for (int i = 0; i < hot.size(); i++) {
+            Assert.assertEquals(shard(i * 200), hot.get(i).getKey());
+            Assert.assertEquals(3.0 * periods, hot.get(i).getUsage(), 1e-9);
+            Assert.assertEquals(estimator.getMedian() * 1.5 * periods, hot.get(i).getThreshold(), 1e-9);
+        }
+    }
+}
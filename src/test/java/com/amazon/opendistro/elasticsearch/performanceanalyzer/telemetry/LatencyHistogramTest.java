@@ -0,0 +1,63 @@
+/*
+ * Copyright 2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.telemetry;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+  private static final long US = 1000L;
+
+  @Test
+  public void testBucketIndex() {
+    Assert.assertEquals(0, LatencyHistogram.bucketIndex(0));
+    Assert.assertEquals(0, LatencyHistogram.bucketIndex(1));
+    Assert.assertEquals(1, LatencyHistogram.bucketIndex(2));
+    Assert.assertEquals(2, LatencyHistogram.bucketIndex(3));
+    Assert.assertEquals(2, LatencyHistogram.bucketIndex(4));
+    Assert.assertEquals(10, LatencyHistogram.bucketIndex(1024));
+    Assert.assertEquals(11, LatencyHistogram.bucketIndex(1025));
+    Assert.assertEquals(LatencyHistogram.NUM_BUCKETS - 1, LatencyHistogram.bucketIndex(Long.MAX_VALUE));
+  }
+
+  @Test
+  public void testRecordAndMerge() {
+    LatencyHistogram a = new LatencyHistogram();
+    a.recordNanos(500);
+    a.recordNanos(3 * US);
+    a.recordNanos(-1);
+    Assert.assertEquals(3, a.getCount());
+    Assert.assertEquals(2, a.getBucketCount(0));
+    Assert.assertEquals(1, a.getBucketCount(2));
+    Assert.assertEquals(3500, a.getSumNanos());
+
+    LatencyHistogram b = new LatencyHistogram();
+    b.recordNanos(3 * US);
+    b.recordNanos(100_000_000 * US);
+    a.merge(b);
+    Assert.assertEquals(5, a.getCount());
+    Assert.assertEquals(2, a.getBucketCount(2));
+    Assert.assertEquals(1, a.getBucketCount(LatencyHistogram.NUM_BUCKETS - 1));
+    Assert.assertEquals(2, b.getCount());
+  }
+
+  @Test
+  public void testUpperBounds() {
+    Assert.assertEquals(0.000001, LatencyHistogram.upperBoundSeconds(0), 1e-12);
+    Assert.assertEquals(0.001024, LatencyHistogram.upperBoundSeconds(10), 1e-12);
+    Assert.assertTrue(Double.isInfinite(LatencyHistogram.upperBoundSeconds(LatencyHistogram.NUM_BUCKETS - 1)));
+  }
+}
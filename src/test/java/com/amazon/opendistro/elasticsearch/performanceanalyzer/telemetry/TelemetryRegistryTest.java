@@ -0,0 +1,76 @@
+/*
+ * Copyright 2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.telemetry;
+
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TelemetryRegistryTest {
+
+  @Test
+  public void testSameMetricIsReturned() {
+    TelemetryRegistry registry = new TelemetryRegistry();
+    Counter counter = registry.counter("pa_test", "help");
+    counter.inc();
+    Assert.assertSame(counter, registry.counter("pa_test", "help"));
+    Assert.assertNotSame(
+        registry.histogram("pa_latency", "help", "path", "/a"),
+        registry.histogram("pa_latency", "help", "path", "/b"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testConflictingTypes() {
+    TelemetryRegistry registry = new TelemetryRegistry();
+    registry.counter("pa_test", "help");
+    registry.gauge("pa_test", "help");
+  }
+
+  @Test
+  public void testGaugeReadFromSource() {
+    TelemetryRegistry registry = new TelemetryRegistry();
+    AtomicLong depth = new AtomicLong(3);
+    Gauge gauge = registry.gauge("pa_queue_depth", "Depth.", depth::get);
+    Assert.assertEquals(3, gauge.get());
+    depth.set(5);
+    Assert.assertEquals(5, gauge.get());
+    Assert.assertTrue(registry.toOpenMetrics().contains("pa_queue_depth 5\n"));
+  }
+
+  @Test
+  public void testOpenMetricsFormat() {
+    TelemetryRegistry registry = new TelemetryRegistry();
+    registry.counter("pa_requests", "Number of requests.", "path", "/a\"b").inc(3);
+    registry.gauge("pa_queue_depth", "Depth.").set(7);
+    LatencyHistogram histogram = registry.histogram("pa_latency_seconds", "Latency.");
+    histogram.recordNanos(1000);
+    histogram.recordNanos(3000);
+
+    String text = registry.toOpenMetrics();
+    Assert.assertTrue(text.contains("# TYPE pa_requests counter\n"));
+    Assert.assertTrue(text.contains("pa_requests_total{path=\"/a\\\"b\"} 3\n"));
+    Assert.assertTrue(text.contains("# TYPE pa_queue_depth gauge\n"));
+    Assert.assertTrue(text.contains("pa_queue_depth 7\n"));
+    Assert.assertTrue(text.contains("# TYPE pa_latency_seconds histogram\n"));
+    Assert.assertTrue(text.contains("pa_latency_seconds_bucket{le=\"1.0E-6\"} 1\n"));
+    Assert.assertTrue(text.contains("pa_latency_seconds_bucket{le=\"2.0E-6\"} 1\n"));
+    Assert.assertTrue(text.contains("pa_latency_seconds_bucket{le=\"4.0E-6\"} 2\n"));
+    Assert.assertTrue(text.contains("pa_latency_seconds_bucket{le=\"+Inf\"} 2\n"));
+    Assert.assertTrue(text.contains("pa_latency_seconds_sum 4.0E-6\n"));
+    Assert.assertTrue(text.contains("pa_latency_seconds_count 2\n"));
+    Assert.assertTrue(text.endsWith("# EOF\n"));
+  }
+}